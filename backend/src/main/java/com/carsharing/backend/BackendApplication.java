@@ -2,8 +2,10 @@ package com.carsharing.backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // background jobs (@Scheduled)
 public class BackendApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,130 @@
+package com.carsharing.backend.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit that follows the measured latency (gradient algorithm)
+ *
+ * Two moving averages of the response time are kept: a short one (last ~10 requests) and a long one
+ * (last ~500, the latency when the backend is not overloaded). After every request:
+ *   gradient = clamp(tolerance * long / short, 0.5, 1)
+ *   limit    = limit * gradient + sqrt(limit)        (smoothed, between min and max)
+ * While requests are as fast as usual the gradient is 1 and the limit grows by sqrt(limit) (room for
+ * a small queue); once requests get slower than tolerance * usual, the limit shrinks towards what the
+ * pool/database can serve without queueing. The limit only grows while at least half of it is used.
+ */
+public class AdaptiveLimit {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 500;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    // written under the lock of this, read without
+    private volatile double limit;
+
+    // guarded by this
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Takes a slot if less than share * limit requests are running
+     *
+     * @return false if the request has to be rejected
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (getLimit() * share));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                admitted.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees the slot and adjusts the limit to the response time of the request
+     *
+     * @param inflightAtStart requests running when this one was admitted (itself included)
+     */
+    public void release(long rttNanos, int inflightAtStart) {
+        inflight.decrementAndGet();
+        update(rttNanos, inflightAtStart);
+    }
+
+    /**
+     * Frees the slot without a sample (the request failed before a usable response time)
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    private synchronized void update(long rttNanos, int inflightAtStart) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) / SHORT_WINDOW;
+        longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+        // after an overload the long average stays high for a while, pull it back to the current latency
+        if (longRttNanos > 2 * shortRttNanos) {
+            longRttNanos *= 0.95;
+        }
+
+        // idle: fast responses say nothing about a higher limit
+        if (inflightAtStart < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public synchronized double getShortRttMs() {
+        return shortRttNanos / 1_000_000.0;
+    }
+
+    public synchronized double getLongRttMs() {
+        return longRttNanos / 1_000_000.0;
+    }
+}
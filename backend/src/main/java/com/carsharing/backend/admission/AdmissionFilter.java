@@ -0,0 +1,175 @@
+package com.carsharing.backend.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control: sheds load with 503 before it queues up in Tomcat and the connection pool
+ *
+ * - READ, WRITE and AUTH requests (see RequestClass) each have an adaptive concurrency limit
+ *   (AdaptiveLimit), a request over the limit is answered right away with 503 + Retry-After
+ * - Anonymous browsing (READ without a Bearer JWT) may use only anonymous-share of the READ
+ *   limit, and only anonymous-share-under-pressure of it while booking writes are at their limit,
+ *   so bookings and logged in users keep their capacity. Only the shape of the token is checked
+ *   here (three base64url parts), the signature later by JwtAuthenticationFilter: any other
+ *   Authorization header counts as anonymous
+ * - Runs right after TracingFilter, before security: a rejected request costs no token check
+ * Limits and rejections: GET /api/admin/admission
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "carsharing.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+    // far above a real access token, a longer header is not worth scanning
+    private static final int MAX_AUTHORIZATION_LENGTH = 8192;
+
+    private final AdmissionProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Map<RequestClass, AdaptiveLimit> limits = new EnumMap<>(RequestClass.class);
+    private final AtomicLong rejectedAnonymous = new AtomicLong();
+
+    public record Status(List<LimitStatus> limits, long rejectedAnonymous) {
+    }
+
+    public record LimitStatus(RequestClass requestClass, int limit, int inflight, long admitted, long rejected,
+                              double shortRttMs, double longRttMs) {
+    }
+
+    public AdmissionFilter(AdmissionProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        for (RequestClass requestClass : RequestClass.values()) {
+            AdmissionProperties.Limit limit = properties.limit(requestClass);
+            limits.put(requestClass, new AdaptiveLimit(limit.getInitial(), limit.getMin(), limit.getMax(),
+                    properties.getTolerance(), properties.getSmoothing()));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return RequestClass.of(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        RequestClass requestClass = RequestClass.of(request);
+        AdaptiveLimit limit = limits.get(requestClass);
+
+        boolean anonymous = requestClass == RequestClass.READ
+                && !hasBearerJwt(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (!limit.tryAcquire(anonymous ? anonymousShare() : 1.0)) {
+            if (anonymous) {
+                rejectedAnonymous.incrementAndGet();
+            }
+            reject(response, requestClass);
+            return;
+        }
+
+        int inflightAtStart = limit.getInflight();
+        long start = System.nanoTime();
+        boolean sample = false;
+        try {
+            filterChain.doFilter(request, response);
+            // server errors are often fast failures, they would make the backend look healthy
+            sample = response.getStatus() < 500;
+        } finally {
+            if (sample) {
+                limit.release(System.nanoTime() - start, inflightAtStart);
+            } else {
+                limit.release();
+            }
+        }
+    }
+
+    /**
+     * "Bearer header.payload.signature" with non-empty base64url parts, no decoding
+     */
+    static boolean hasBearerJwt(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER)
+                || authorization.length() > MAX_AUTHORIZATION_LENGTH) {
+            return false;
+        }
+        int dots = 0;
+        int partLength = 0;
+        for (int i = BEARER.length(); i < authorization.length(); i++) {
+            char c = authorization.charAt(i);
+            if (c == '.') {
+                if (partLength == 0 || ++dots > 2) {
+                    return false;
+                }
+                partLength = 0;
+            } else if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_') {
+                partLength++;
+            } else {
+                return false;
+            }
+        }
+        return dots == 2 && partLength > 0;
+    }
+
+    double anonymousShare() {
+        AdaptiveLimit writes = limits.get(RequestClass.WRITE);
+        return writes.getInflight() >= writes.getLimit()
+                ? properties.getAnonymousShareUnderPressure()
+                : properties.getAnonymousShare();
+    }
+
+    AdaptiveLimit limit(RequestClass requestClass) {
+        return limits.get(requestClass);
+    }
+
+    /**
+     * Same body as GlobalExceptionHandler
+     */
+    private void reject(HttpServletResponse response, RequestClass requestClass) throws IOException {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("timestamp", LocalDateTime.now());
+        errorResponse.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        errorResponse.put("error", HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase());
+        errorResponse.put("message", "Too many requests in progress, please retry");
+
+        log.debug("Rejected {} request, limit {}", requestClass, limits.get(requestClass).getLimit());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    public Status getStatus() {
+        List<LimitStatus> status = limits.entrySet().stream()
+                .map(entry -> new LimitStatus(entry.getKey(), entry.getValue().getLimit(),
+                        entry.getValue().getInflight(), entry.getValue().getAdmitted(), entry.getValue().getRejected(),
+                        entry.getValue().getShortRttMs(), entry.getValue().getLongRttMs()))
+                .toList();
+        return new Status(status, rejectedAnonymous.get());
+    }
+}
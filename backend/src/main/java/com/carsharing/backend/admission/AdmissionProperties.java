@@ -0,0 +1,54 @@
+package com.carsharing.backend.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * carsharing.admission.* (see application.properties)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("carsharing.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+    private double tolerance = 1.5;
+    private double smoothing = 0.2;
+    // part of the READ limit anonymous visitors may use, the rest is kept for logged in users
+    private double anonymousShare = 0.7;
+    // part of the READ limit anonymous visitors may use while booking writes are at their limit
+    private double anonymousShareUnderPressure = 0.25;
+    private int retryAfterSeconds = 1;
+
+    private Limit read = new Limit(20, 4, 200);
+    private Limit write = new Limit(20, 4, 100);
+    private Limit auth = new Limit(10, 2, 50);
+
+    public Limit limit(RequestClass requestClass) {
+        return switch (requestClass) {
+            case READ -> read;
+            case WRITE -> write;
+            case AUTH -> auth;
+        };
+    }
+
+    @Getter
+    @Setter
+    public static class Limit {
+        private int initial;
+        private int min;
+        private int max;
+
+        public Limit() {
+        }
+
+        Limit(int initial, int min, int max) {
+            this.initial = initial;
+            this.min = min;
+            this.max = max;
+        }
+    }
+}
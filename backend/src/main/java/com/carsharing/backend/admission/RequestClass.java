@@ -0,0 +1,31 @@
+package com.carsharing.backend.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Request groups with their own concurrency limit (see AdmissionFilter)
+ */
+public enum RequestClass {
+
+    READ,   // GET /api/rides/**
+    WRITE,  // POST/PUT/DELETE /api/bookings/** and seat holds
+    AUTH;   // /api/auth/**
+
+    /**
+     * @return null for requests that are not limited (admin, users, drivers, ...)
+     */
+    public static RequestClass of(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        boolean get = "GET".equals(request.getMethod());
+        if (path.startsWith("/api/auth/")) {
+            return AUTH;
+        }
+        if (!get && (path.startsWith("/api/bookings") || (path.startsWith("/api/rides/") && path.contains("/holds")))) {
+            return WRITE;
+        }
+        if (get && path.startsWith("/api/rides")) {
+            return READ;
+        }
+        return null;
+    }
+}
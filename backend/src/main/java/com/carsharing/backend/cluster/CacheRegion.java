@@ -0,0 +1,10 @@
+package com.carsharing.backend.cluster;
+
+/**
+ * Kinds of cached state kept in sync between backend instances, the key is the entity id
+ */
+public enum CacheRegion {
+    USER,              // user id - user details, driver info shown on rides
+    RIDE,              // ride id - ride details, seat counts
+    DRIVER_DASHBOARD   // driver id - dashboard counters
+}
@@ -0,0 +1,240 @@
+package com.carsharing.backend.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps in-process caches coherent between backend instances
+ *
+ * Writers:
+ * - invalidate(region, key) for every ride/user/dashboard they change, inside their transaction
+ * - the invalidations of a transaction are published right before commit (see InvalidationTransport)
+ *   and applied to the caches of this node right after commit
+ *
+ * Caches:
+ * - register a Listener for the regions they depend on; other nodes' invalidations are received
+ *   every poll-interval-ms and applied in order
+ * - stamp()/isUnchanged(): a value read from the database is only cached if no invalidation of its
+ *   region arrived while it was being read, so a slow read cannot put back an invalidated value
+ *
+ * Bounded staleness: a cached value is at most poll-interval-ms + transport lag behind the database.
+ * If this node has not received successfully for max-staleness-ms (database or broker down),
+ * cachingAllowed() is false - caches are bypassed and cleared once receiving works again.
+ */
+@Slf4j
+@Component
+public class ClusterCoherence {
+
+    /**
+     * A cache that depends on some regions
+     */
+    public interface Listener {
+
+        void invalidate(CacheRegion region, String key);
+
+        /**
+         * This node may have missed invalidations
+         */
+        void invalidateAll();
+    }
+
+    private final InvalidationTransport transport;
+    private final String nodeId;
+    private final long maxStalenessMillis;
+
+    private final Map<CacheRegion, List<Listener>> listeners = new EnumMap<>(CacheRegion.class);
+    private final Map<CacheRegion, AtomicLong> stamps = new EnumMap<>(CacheRegion.class);
+
+    private volatile long lastReceivedAt = System.currentTimeMillis();
+    private volatile boolean stale;
+
+    // convergence metrics (invalidations of other nodes)
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder receiveFailures = new LongAdder();
+    private volatile long lastVersion;
+    private volatile long lastLagMillis;
+    private volatile long maxLagMillis;
+    private volatile double averageLagMillis;
+
+    public ClusterCoherence(InvalidationTransport transport,
+                            @Value("${carsharing.cluster.node-id:}") String nodeId,
+                            @Value("${carsharing.cluster.max-staleness-ms:5000}") long maxStalenessMillis) {
+        this.transport = transport;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString().substring(0, 8) : nodeId;
+        this.maxStalenessMillis = maxStalenessMillis;
+        for (CacheRegion region : CacheRegion.values()) {
+            listeners.put(region, new CopyOnWriteArrayList<>());
+            stamps.put(region, new AtomicLong());
+        }
+        log.info("Cluster node id {}, transport {}", this.nodeId, transport.getClass().getSimpleName());
+    }
+
+    public void register(Listener listener, CacheRegion... regions) {
+        for (CacheRegion region : regions) {
+            listeners.get(region).add(listener);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Key of region was changed by the current transaction
+     * (without a transaction: published and applied right away)
+     */
+    public void invalidate(CacheRegion region, Object key) {
+        if (key == null) {
+            return;
+        }
+        Invalidation invalidation = Invalidation.of(region, key);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publishAndApply(List.of(invalidation));
+            return;
+        }
+        pending().add(invalidation);
+    }
+
+    public void invalidateAll(CacheRegion region, Collection<?> keys) {
+        keys.forEach(key -> invalidate(region, key));
+    }
+
+    /**
+     * Taken before reading a value from the database, see isUnchanged()
+     */
+    public long stamp(CacheRegion region) {
+        return stamps.get(region).get();
+    }
+
+    /**
+     * @return true if the value read after stamp() may be cached
+     */
+    public boolean isUnchanged(CacheRegion region, long stamp) {
+        return stamps.get(region).get() == stamp && cachingAllowed();
+    }
+
+    /**
+     * False while this node cannot be sure it received all invalidations
+     */
+    public boolean cachingAllowed() {
+        return !stale && System.currentTimeMillis() - lastReceivedAt <= maxStalenessMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${carsharing.cluster.poll-interval-ms:200}")
+    public void receive() {
+        List<Invalidation> invalidations;
+        try {
+            invalidations = transport.receive();
+        } catch (RuntimeException e) {
+            receiveFailures.increment();
+            if (!stale && System.currentTimeMillis() - lastReceivedAt > maxStalenessMillis) {
+                stale = true;
+                log.warn("No cache invalidations received for {} ms, caches bypassed: {}",
+                        System.currentTimeMillis() - lastReceivedAt, e.getMessage());
+            }
+            return;
+        }
+
+        if (stale || System.currentTimeMillis() - lastReceivedAt > maxStalenessMillis) {
+            // invalidations may have been lost meanwhile
+            listeners.values().stream().flatMap(List::stream).distinct().forEach(Listener::invalidateAll);
+            stamps.values().forEach(AtomicLong::incrementAndGet);
+            if (stale) {
+                log.info("Cache invalidations received again, caches cleared");
+            }
+            stale = false;
+        }
+        lastReceivedAt = System.currentTimeMillis();
+
+        for (Invalidation invalidation : invalidations) {
+            lastVersion = Math.max(lastVersion, invalidation.version());
+            if (nodeId.equals(invalidation.origin())) {
+                continue;  // applied after commit
+            }
+            apply(invalidation);
+            recordLag(invalidation.lagMillis());
+        }
+    }
+
+    public Status getStatus() {
+        return new Status(nodeId, transport.getClass().getSimpleName(), cachingAllowed(),
+                System.currentTimeMillis() - lastReceivedAt, maxStalenessMillis, lastVersion,
+                published.sum(), received.sum(), receiveFailures.sum(),
+                lastLagMillis, Math.round(averageLagMillis), maxLagMillis);
+    }
+
+    /**
+     * @param sinceLastReceiveMs age of the last successful receive
+     * @param lastLagMs commit on another node -> applied here, last invalidation
+     * @param averageLagMs exponentially weighted (recent invalidations count most)
+     */
+    public record Status(String nodeId, String transport, boolean cachingAllowed,
+                         long sinceLastReceiveMs, long maxStalenessMs, long lastVersion,
+                         long published, long received, long receiveFailures,
+                         long lastLagMs, long averageLagMs, long maxLagMs) {
+    }
+
+    private Set<Invalidation> pending() {
+        @SuppressWarnings("unchecked")
+        Set<Invalidation> pending = (Set<Invalidation>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        Set<Invalidation> created = new LinkedHashSet<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                transport.publish(nodeId, created);
+                published.add(created.size());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ClusterCoherence.this);
+                if (status == STATUS_COMMITTED) {
+                    created.forEach(ClusterCoherence.this::apply);
+                }
+            }
+        });
+        return created;
+    }
+
+    private void publishAndApply(List<Invalidation> invalidations) {
+        transport.publish(nodeId, invalidations);
+        published.add(invalidations.size());
+        invalidations.forEach(this::apply);
+    }
+
+    private void apply(Invalidation invalidation) {
+        // stamp first: a read that started before cannot be cached any more
+        stamps.get(invalidation.region()).incrementAndGet();
+        for (Listener listener : listeners.get(invalidation.region())) {
+            listener.invalidate(invalidation.region(), invalidation.key());
+        }
+    }
+
+    private void recordLag(long lagMillis) {
+        received.increment();
+        lastLagMillis = lagMillis;
+        maxLagMillis = Math.max(maxLagMillis, lagMillis);
+        averageLagMillis = received.sum() == 1 ? lagMillis : averageLagMillis * 0.9 + lagMillis * 0.1;
+    }
+}
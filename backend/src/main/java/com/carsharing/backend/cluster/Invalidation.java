@@ -0,0 +1,15 @@
+package com.carsharing.backend.cluster;
+
+/**
+ * "Entity key of region changed", as published by a write
+ *
+ * @param version increasing id given by the transport (0 before publishing)
+ * @param origin node id of the writer
+ * @param lagMillis time from the commit of the write until this node received it (0 before publishing)
+ */
+public record Invalidation(CacheRegion region, String key, long version, String origin, long lagMillis) {
+
+    public static Invalidation of(CacheRegion region, Object key) {
+        return new Invalidation(region, String.valueOf(key), 0, null, 0);
+    }
+}
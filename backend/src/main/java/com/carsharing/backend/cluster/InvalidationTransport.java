@@ -0,0 +1,31 @@
+package com.carsharing.backend.cluster;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Carries invalidations between backend instances (see ClusterCoherence)
+ *
+ * - JdbcInvalidationTransport: shared table, polled (carsharing.cluster.transport=jdbc, default)
+ * - NoopInvalidationTransport: single instance (carsharing.cluster.transport=none)
+ *
+ * A broker based transport (Kafka, Redis pub/sub...) only needs these two methods.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Called right before the writing transaction commits (or right away when there is none).
+     * Transports that write to the database take part in the transaction, so the invalidation
+     * is published if and only if the write is committed.
+     */
+    void publish(String origin, Collection<Invalidation> invalidations);
+
+    /**
+     * Invalidations of all nodes published since the previous call, oldest first.
+     * Called by one thread at a time; may return an invalidation twice (applying one is idempotent).
+     *
+     * @throws RuntimeException if the transport cannot be reached, ClusterCoherence then counts
+     *                          the node as possibly stale
+     */
+    List<Invalidation> receive();
+}
@@ -0,0 +1,124 @@
+package com.carsharing.backend.cluster;
+
+import com.carsharing.backend.sharding.ShardContext;
+import com.carsharing.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Invalidations through the cache_invalidations table of the shared database
+ *
+ * - publish(): one batched INSERT in the writing transaction, timestamped with the database clock
+ * - receive(): rows created since the previous poll. Ids are taken at insert, not at commit,
+ *   so a transaction can commit a lower id after a higher one was already read: every poll
+ *   reads overlap-ms back and skips the ids it has seen.
+ * - Lag = database time of the poll - database time of the insert, no node clocks involved
+ * - Rows older than retention-ms are deleted (any node may do it)
+ * - With sharding a row is written on the shard of the writing transaction: every shard is polled,
+ *   with its own clock and its own seen ids
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "carsharing.cluster.transport", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcInvalidationTransport implements InvalidationTransport {
+
+    private static final String NOW = "SELECT LOCALTIMESTAMP";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final Duration overlap;
+    private final Duration retention;
+
+    // shard -> where the previous poll of that shard stopped
+    private final Map<Integer, Cursor> cursors = new HashMap<>();
+
+    public JdbcInvalidationTransport(JdbcTemplate jdbcTemplate,
+                                     ShardRouter shardRouter,
+                                     @Value("${carsharing.cluster.jdbc.overlap-ms:2000}") long overlapMs,
+                                     @Value("${carsharing.cluster.jdbc.retention-ms:600000}") long retentionMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.overlap = Duration.ofMillis(overlapMs);
+        this.retention = Duration.ofMillis(Math.max(retentionMs, overlapMs * 2));
+    }
+
+    @Override
+    public void publish(String origin, Collection<Invalidation> invalidations) {
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO cache_invalidations (region, entity_key, origin, created_at)
+                        VALUES (?, ?, ?, LOCALTIMESTAMP)""",
+                invalidations, invalidations.size(), (ps, invalidation) -> {
+                    ps.setString(1, invalidation.region().name());
+                    ps.setString(2, invalidation.key());
+                    ps.setString(3, origin);
+                });
+    }
+
+    @Override
+    public synchronized List<Invalidation> receive() {
+        List<Invalidation> received = new ArrayList<>();
+        shardRouter.forEachShard(() -> receive(cursors.computeIfAbsent(ShardContext.currentOrHome(),
+                shard -> new Cursor()), received));
+        return received;
+    }
+
+    private void receive(Cursor cursor, List<Invalidation> received) {
+        Map<Long, LocalDateTime> seen = cursor.seen;
+        LocalDateTime now = jdbcTemplate.queryForObject(NOW, LocalDateTime.class);
+        if (cursor.since == null) {
+            // caches start empty, older invalidations do not matter
+            cursor.since = now.minus(overlap);
+        }
+
+        jdbcTemplate.query("""
+                        SELECT id, region, entity_key, origin, created_at
+                        FROM cache_invalidations
+                        WHERE created_at >= ?
+                        ORDER BY id""",
+                rs -> {
+                    long id = rs.getLong("id");
+                    LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+                    if (seen.putIfAbsent(id, createdAt) == null) {
+                        received.add(new Invalidation(CacheRegion.valueOf(rs.getString("region")),
+                                rs.getString("entity_key"), id, rs.getString("origin"),
+                                Math.max(0, Duration.between(createdAt, now).toMillis())));
+                    }
+                },
+                Timestamp.valueOf(cursor.since));
+
+        LocalDateTime since = now.minus(overlap);
+        cursor.since = since;
+        seen.values().removeIf(createdAt -> createdAt.isBefore(since));
+    }
+
+    @Scheduled(fixedDelayString = "${carsharing.cluster.jdbc.cleanup-interval-ms:60000}")
+    public void deleteOld() {
+        shardRouter.forEachShard(() -> {
+            LocalDateTime now = jdbcTemplate.queryForObject(NOW, LocalDateTime.class);
+            int deleted = jdbcTemplate.update("DELETE FROM cache_invalidations WHERE created_at < ?",
+                    Timestamp.valueOf(now.minus(retention)));
+            if (deleted > 0) {
+                log.debug("Deleted {} old cache invalidations", deleted);
+            }
+        });
+    }
+
+    private static final class Cursor {
+        // id -> createdAt of the rows read within the overlap window
+        private final Map<Long, LocalDateTime> seen = new HashMap<>();
+        private LocalDateTime since;
+    }
+}
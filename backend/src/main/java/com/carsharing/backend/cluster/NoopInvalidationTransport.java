@@ -0,0 +1,24 @@
+package com.carsharing.backend.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Single instance deployment: nothing to publish, nothing to receive
+ */
+@Component
+@ConditionalOnProperty(name = "carsharing.cluster.transport", havingValue = "none")
+public class NoopInvalidationTransport implements InvalidationTransport {
+
+    @Override
+    public void publish(String origin, Collection<Invalidation> invalidations) {
+    }
+
+    @Override
+    public List<Invalidation> receive() {
+        return List.of();
+    }
+}
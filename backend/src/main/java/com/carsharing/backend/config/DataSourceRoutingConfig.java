@@ -0,0 +1,93 @@
+package com.carsharing.backend.config;
+
+import com.carsharing.backend.datasource.DataSourceRole;
+import com.carsharing.backend.datasource.ReadWriteRoutingDataSource;
+import com.carsharing.backend.datasource.ReadYourWritesTracker;
+import com.carsharing.backend.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Read/write splitting (enabled with carsharing.datasource.replica.enabled=true)
+ *
+ * Beans:
+ * 1. primaryDataSource - pool on spring.datasource.* (all writes)
+ * 2. replicaDataSource - pool on carsharing.datasource.replica.* (read-only transactions)
+ * 3. dataSource - routing datasource used by JPA, decides per transaction
+ *
+ * Service/repository methods annotated with @Transactional(readOnly = true) are sent to the replica.
+ * Spring Data repository reads (findAll, findBy...) are read-only by default.
+ */
+@Configuration
+@ConditionalOnProperty(name = "carsharing.datasource.replica.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("carsharing.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${carsharing.datasource.replica.url}") String url,
+            @Value("${carsharing.datasource.replica.username}") String username,
+            @Value("${carsharing.datasource.replica.password}") String password,
+            DataSourceProperties primaryProperties) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(primaryProperties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("replicaDataSource") DataSource replica,
+            @Value("${carsharing.datasource.replica.lag-query}") String lagQuery,
+            @Value("${carsharing.datasource.replica.max-lag-seconds}") double maxLagSeconds) {
+        return new ReplicaLagMonitor(replica, lagQuery, maxLagSeconds);
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(
+            @Value("${carsharing.datasource.replica.read-your-writes-ms}") long windowMillis) {
+        return new ReadYourWritesTracker(windowMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica,
+            ReplicaLagMonitor lagMonitor,
+            ReadYourWritesTracker writesTracker) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(lagMonitor, writesTracker);
+        routing.setTargetDataSources(Map.of(
+                DataSourceRole.PRIMARY, primary,
+                DataSourceRole.REPLICA, replica
+        ));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        // the real connection is taken at the first statement, after the read-only flag is known
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
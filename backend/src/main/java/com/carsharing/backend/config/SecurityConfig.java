@@ -60,10 +60,13 @@ public class SecurityConfig {
 
                 // Configures authorisation rules
                 .authorizeHttpRequests(auth -> auth
+                        // "/api/rides/{id}" below would also match it
+                        .requestMatchers(HttpMethod.POST, "/api/rides/bulk").authenticated()
                         //  Public endpoints - without token
                         .requestMatchers(
                                 "/api/auth/login",
                                 "api/auth/register",
+                                "/api/auth/refresh",
                                 "/h2-console/**",         // H2 Console
                                 "/api/rides",             // GET all rides (visitors can see)
                                 "/api/rides/{id}",        // GET ride details
@@ -72,7 +75,11 @@ public class SecurityConfig {
                         ).permitAll()
                         // Protected endpoints - only Admin can manage them
                         .requestMatchers("/api/users/**").authenticated()
+                        .requestMatchers(request -> HttpMethod.GET.matches(request.getMethod())
+                                && "/api/bookings".equals(request.getServletPath())
+                                && request.getParameter("ids") != null).authenticated()  // GET own bookings by id
                         .requestMatchers(HttpMethod.GET,"/api/bookings").hasRole("ADMIN")  // GET all bookings
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")  // analytics
                         .requestMatchers(HttpMethod.POST, "/api/bookings").authenticated()
 
                         // - any authenticated user
@@ -0,0 +1,91 @@
+package com.carsharing.backend.config;
+
+import com.carsharing.backend.sharding.ShardDataSources;
+import com.carsharing.backend.sharding.ShardRoutingDataSource;
+import com.carsharing.backend.sharding.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Horizontal sharding (enabled with carsharing.sharding.enabled=true)
+ *
+ * Beans:
+ * 1. homeShardDataSource - pool on spring.datasource.* (shard 0)
+ * 2. shardDataSources - home pool + one pool per carsharing.sharding.shard-urls entry
+ * 3. dataSource - routing datasource used by JPA and JdbcTemplate, picks the pool of ShardContext
+ *
+ * Every shard has the full schema (see ShardSchemaInitializer). Users live on the home shard and
+ * are copied to the others (UserReplicator), so rides and bookings keep their foreign keys.
+ */
+@Configuration
+@ConditionalOnProperty(name = "carsharing.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    public ShardingConfig(@Value("${carsharing.datasource.replica.enabled:false}") boolean replicaEnabled,
+                          @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (replicaEnabled) {
+            throw new IllegalStateException("Sharding and read replicas cannot be combined yet, "
+                    + "disable carsharing.datasource.replica.enabled");
+        }
+        // one persistence context per request would mix entities of several shards
+        // (and lazy loads would go to whatever shard the request touched last)
+        if (openInView) {
+            throw new IllegalStateException("Sharding needs spring.jpa.open-in-view=false");
+        }
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource homeShardDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ShardDataSources shardDataSources(@Qualifier("homeShardDataSource") DataSource home,
+                                             DataSourceProperties properties,
+                                             ShardingProperties sharding) {
+        List<DataSource> dataSources = new ArrayList<>();
+        dataSources.add(home);
+        for (String url : sharding.getShardUrls()) {
+            HikariDataSource shard = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            shard.setPoolName("carsharing-shard-" + dataSources.size());
+            shard.setMaximumPoolSize(sharding.getPoolSize());
+            dataSources.add(shard);
+        }
+        return new ShardDataSources(dataSources);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(shards.get(0));
+        routing.afterPropertiesSet();
+        return routing;
+    }
+}
@@ -0,0 +1,27 @@
+package com.carsharing.backend.config;
+
+import com.carsharing.backend.querycount.QueryBudgetInterceptor;
+import com.carsharing.backend.querycount.QueryBudgetProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC interceptors
+ * - QueryBudgetInterceptor on /api/** (unless carsharing.query-budget.mode=OFF)
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final QueryBudgetProperties queryBudgetProperties;
+    private final QueryBudgetInterceptor queryBudgetInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (queryBudgetProperties.getMode() != QueryBudgetProperties.Mode.OFF) {
+            registry.addInterceptor(queryBudgetInterceptor).addPathPatterns("/api/**");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.admission.AdmissionFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Concurrency limits of this backend instance and the requests they rejected (ADMIN only, see SecurityConfig)
+ */
+@RestController
+@RequestMapping("/api/admin/admission")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@ConditionalOnProperty(name = "carsharing.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionController {
+
+    private final AdmissionFilter admissionFilter;
+
+    // GET /api/admin/admission
+    @GetMapping
+    public ResponseEntity<AdmissionFilter.Status> status() {
+        return ResponseEntity.ok(admissionFilter.getStatus());
+    }
+}
@@ -0,0 +1,61 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.dto.AnalyticsResponse;
+import com.carsharing.backend.service.AnalyticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Analytics for ops (ADMIN only, see SecurityConfig)
+ * from/to are optional departure dates (inclusive), e.g. ?from=2025-01-01&to=2025-01-31
+ */
+@RestController
+@RequestMapping("/api/admin/analytics")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class AnalyticsController {
+
+    private final AnalyticsService analyticsService;
+
+    // GET /api/admin/analytics/routes?limit=20
+    @GetMapping("/routes")
+    public ResponseEntity<List<AnalyticsResponse.RouteItem>> popularRoutes(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(analyticsService.popularRoutes(from, to, limit));
+    }
+
+    // GET /api/admin/analytics/cancellations
+    @GetMapping("/cancellations")
+    public ResponseEntity<AnalyticsResponse.Cancellations> cancellations(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ResponseEntity.ok(analyticsService.cancellations(from, to));
+    }
+
+    // GET /api/admin/analytics/revenue
+    @GetMapping("/revenue")
+    public ResponseEntity<List<AnalyticsResponse.DayRevenue>> revenuePerDay(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ResponseEntity.ok(analyticsService.revenuePerDay(from, to));
+    }
+
+    // GET /api/admin/analytics/occupancy
+    @GetMapping("/occupancy")
+    public ResponseEntity<AnalyticsResponse.Occupancy> occupancy(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ResponseEntity.ok(analyticsService.occupancy(from, to));
+    }
+}
@@ -2,6 +2,7 @@ package com.carsharing.backend.controller;
 
 import com.carsharing.backend.dto.AuthResponse;
 import com.carsharing.backend.dto.LoginRequest;
+import com.carsharing.backend.dto.RefreshTokenRequest;
 import com.carsharing.backend.dto.RegisterRequest;
 import com.carsharing.backend.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -13,8 +14,10 @@ import org.springframework.web.bind.annotation.*;
  * Controller for authentication:
  * - POST /api/auth/register - register new user
  * - POST /api/auth/login - login existing user
+ * - POST /api/auth/refresh - new access token for a refresh token
+ * - POST /api/auth/logout - revokes access + refresh token
  *
- * Both endpoints are public (do not need JWT token)
+ * register, login and refresh are public (do not need JWT token)
  */
 @RestController
 @RequestMapping("/api/auth")
@@ -65,6 +68,8 @@ public class AuthController {
      * Response (200 OK):
      * {
      *   "token": "eyJhbGciOiJIUzI1NiJ9...",
+     *   "refreshToken": "q3Jx0...",
+     *   "expiresIn": 900000,
      *   "id": 1,
      *   "email": "ion@test.com",
      *   "fullName": "Ion Popescu",
@@ -81,6 +86,47 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * POST /api/auth/refresh
+     *
+     * Request body:
+     * {
+     *   "refreshToken": "q3Jx0..."
+     * }
+     *
+     * Response (200 OK): same as login, with a NEW refresh token
+     * (the one sent can not be used again)
+     *
+     * Possible errors:
+     * - 401 UNAUTHORIZED: invalid, expired, revoked or already used refresh token
+     *   (reuse logs out every session of that login)
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@RequestBody RefreshTokenRequest request) {
+        AuthResponse response = userService.refresh(request.getRefreshToken());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * POST /api/auth/logout
+     * Protected - needs JWT token
+     *
+     * Request body (optional):
+     * {
+     *   "refreshToken": "q3Jx0..."
+     * }
+     *
+     * Response: 204 NO CONTENT
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestBody(required = false) RefreshTokenRequest request
+    ) {
+        userService.logout(authHeader.substring(7), request != null ? request.getRefreshToken() : null);
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * GET /api/auth/test
      * Test endpoint for checking if authentication works
@@ -1,19 +1,33 @@
 package com.carsharing.backend.controller;
 
+import com.carsharing.backend.dto.BatchBookingRequest;
+import com.carsharing.backend.dto.BatchItemResponse;
+import com.carsharing.backend.dto.BookingHistoryResponse;
 import com.carsharing.backend.dto.BookingResponse;
+import com.carsharing.backend.dto.RatingResponse;
+import com.carsharing.backend.exception.InvalidBookingException;
 import com.carsharing.backend.mapper.BookingMapper;
+import com.carsharing.backend.mapper.RatingMapper;
 import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Rating;
+import com.carsharing.backend.repository.BookingRepository;
+import com.carsharing.backend.service.BatchOutcome;
+import com.carsharing.backend.service.BookingHistory;
 import com.carsharing.backend.service.BookingService;
+import com.carsharing.backend.service.RatingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import com.carsharing.backend.security.CustomUserDetails;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/bookings")
@@ -21,18 +35,36 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class BookingController {
 
+    private static final int MAX_IDS = 100;
+
     private final BookingService bookingService;
     private final BookingMapper bookingMapper;
+    private final RatingService ratingService;
+    private final RatingMapper ratingMapper;
 
     // GET /api/bookings - all bookings (ADMIN)
+    // GET /api/bookings?ids=1,2,3 - several bookings in one query; an admin gets any, a passenger only their own
+    // ?fields=id,rideId,status,... - only these fields are read and returned (also on /passenger/{passengerId})
     @GetMapping
-    public ResponseEntity<List<BookingResponse>> getAllBookings() {
-        List<Booking> bookings = bookingService.getAllBookings();
-        return ResponseEntity.ok(
-                bookings.stream()
-                        .map(bookingMapper::toDto)
-                        .toList()
-        );
+    public ResponseEntity<List<?>> getAllBookings(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) String fields,
+            Authentication authentication) {
+        Set<String> selected = fields != null ? BookingRepository.FIELDS.parse(fields) : null;
+        if (ids == null) {
+            return ResponseEntity.ok(selected != null
+                    ? bookingService.getAllBookingFields(selected)
+                    : toDto(bookingService.getAllBookings()));
+        }
+
+        if (ids.isEmpty() || ids.size() > MAX_IDS) {
+            throw new InvalidBookingException("ids must list between 1 and " + MAX_IDS + " bookings");
+        }
+        Long passengerId = isAdmin(authentication) ? null
+                : ((CustomUserDetails) authentication.getPrincipal()).getUser().getId();
+        return ResponseEntity.ok(selected != null
+                ? bookingService.getBookingFieldsByIds(ids, passengerId, selected)
+                : toDto(bookingService.getBookingsByIds(ids, passengerId)));
     }
 
     // GET /api/bookings/{id} - booking by ID
@@ -75,15 +107,69 @@ public class BookingController {
         return ResponseEntity.ok(bookingMapper.toDto(booking));
     }
 
+    // POST /api/bookings/batch - books several rides, all or nothing
+    // 201 if every ride was booked, 409 with the reason per item otherwise (nothing is booked)
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResponse>> createBookings(
+            @RequestBody BatchBookingRequest request,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        List<BatchOutcome> outcomes = bookingService.createBookings(currentUser.getUser().getId(), request.getItems());
+        boolean allBooked = outcomes.stream().allMatch(BatchOutcome::isApplied);
+        return ResponseEntity.status(allBooked ? HttpStatus.CREATED : HttpStatus.CONFLICT)
+                .body(toResponse(outcomes));
+    }
+
+    // PUT /api/bookings/ride/{rideId}/confirm - driver confirms several bookings
+    // body: { "bookingIds": [1, 2, 3] }
+    @PutMapping("/ride/{rideId}/confirm")
+    public ResponseEntity<List<BatchItemResponse>> confirmBookings(
+            @PathVariable Long rideId,
+            @RequestBody Map<String, List<Long>> request,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        List<BatchOutcome> outcomes = bookingService.confirmBookings(
+                rideId, currentUser.getUser().getId(), request.get("bookingIds"));
+        return ResponseEntity.ok(toResponse(outcomes));
+    }
+
+    // PUT /api/bookings/ride/{rideId}/cancel - driver cancels several bookings
+    // body: { "bookingIds": [1, 2, 3] }
+    @PutMapping("/ride/{rideId}/cancel")
+    public ResponseEntity<List<BatchItemResponse>> cancelBookings(
+            @PathVariable Long rideId,
+            @RequestBody Map<String, List<Long>> request,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        List<BatchOutcome> outcomes = bookingService.cancelBookings(
+                rideId, currentUser.getUser().getId(), request.get("bookingIds"));
+        return ResponseEntity.ok(toResponse(outcomes));
+    }
+
     // GET /api/bookings/passenger/{passengerId} - bookings of a passenger
     @GetMapping("/passenger/{passengerId}")
-    public ResponseEntity<List<BookingResponse>> getBookingsByPassenger(@PathVariable Long passengerId) {
-        List<Booking> bookings = bookingService.getBookingsByPassenger(passengerId);
-        return ResponseEntity.ok(
-                bookings.stream()
-                        .map(bookingMapper::toDto)
-                        .toList()
-        );
+    public ResponseEntity<List<?>> getBookingsByPassenger(
+            @PathVariable Long passengerId,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(fields != null
+                ? bookingService.getBookingFieldsByPassenger(passengerId, BookingRepository.FIELDS.parse(fields))
+                : toDto(bookingService.getBookingsByPassenger(passengerId)));
+    }
+
+    // GET /api/bookings/passenger/{passengerId}/history?page=0&size=20
+    // current + archived bookings, newest first
+    @GetMapping("/passenger/{passengerId}/history")
+    public ResponseEntity<BookingHistoryResponse> getBookingHistory(
+            @PathVariable Long passengerId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        BookingHistory history = bookingService.getBookingHistory(passengerId, page, size);
+
+        List<BookingResponse> content = new ArrayList<>();
+        history.live().forEach(booking -> content.add(bookingMapper.toDto(booking)));
+        history.archived().forEach(booking -> content.add(bookingMapper.toDto(booking)));
+
+        return ResponseEntity.ok(new BookingHistoryResponse(content, page, size, history.totalElements()));
     }
 
     // GET /api/bookings/ride/{rideId} - bookings for a ride
@@ -96,6 +182,43 @@ public class BookingController {
                         .toList()
         );
     }
+
+    // POST /api/bookings/{id}/rating - passenger rates the driver after a completed ride
+    // body: { "stars": 5, "comment": "optional" }
+    @PostMapping("/{id}/rating")
+    public ResponseEntity<RatingResponse> rateDriver(
+            @PathVariable Long id,
+            @RequestBody Map<String, Object> request,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        Object stars = request.get("stars");
+        Object comment = request.get("comment");
+        Rating rating = ratingService.rateDriver(id, currentUser.getUser().getId(),
+                stars != null ? Integer.valueOf(stars.toString()) : null,
+                comment != null ? comment.toString() : null);
+        return ResponseEntity.status(HttpStatus.CREATED).body(ratingMapper.toDto(rating));
+    }
+
+    private List<BookingResponse> toDto(List<Booking> bookings) {
+        return bookings.stream()
+                .map(bookingMapper::toDto)
+                .toList();
+    }
+
+    private static boolean isAdmin(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+
+    private List<BatchItemResponse> toResponse(List<BatchOutcome> outcomes) {
+        return outcomes.stream()
+                .map(o -> new BatchItemResponse(
+                        o.getId(),
+                        o.getStatus().name(),
+                        o.getMessage(),
+                        o.isApplied() ? bookingMapper.toDto(o.getBooking()) : null))
+                .toList();
+    }
 }
 
 
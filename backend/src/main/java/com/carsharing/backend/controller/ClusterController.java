@@ -0,0 +1,25 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.cluster.ClusterCoherence;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Cache coherence state of this backend instance (ADMIN only, see SecurityConfig)
+ * Convergence lag = commit of a change on another instance -> its caches invalidated here
+ */
+@RestController
+@RequestMapping("/api/admin/cluster")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ClusterController {
+
+    private final ClusterCoherence clusterCoherence;
+
+    // GET /api/admin/cluster
+    @GetMapping
+    public ResponseEntity<ClusterCoherence.Status> status() {
+        return ResponseEntity.ok(clusterCoherence.getStatus());
+    }
+}
@@ -0,0 +1,84 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.dto.DriverDashboardResponse;
+import com.carsharing.backend.dto.DriverRatingsResponse;
+import com.carsharing.backend.mapper.RatingMapper;
+import com.carsharing.backend.model.DriverStats;
+import com.carsharing.backend.model.RideStats;
+import com.carsharing.backend.security.CustomUserDetails;
+import com.carsharing.backend.service.DriverDashboard;
+import com.carsharing.backend.service.DriverStatsService;
+import com.carsharing.backend.service.RatingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/drivers")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class DriverController {
+
+    private final DriverStatsService driverStatsService;
+    private final RatingService ratingService;
+    private final RatingMapper ratingMapper;
+
+    // GET /api/drivers/{id}/dashboard - seats sold, occupancy, revenue per week (driver itself or ADMIN)
+    @GetMapping("/{id}/dashboard")
+    public ResponseEntity<DriverDashboardResponse> getDashboard(
+            @PathVariable Long id,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        boolean isAdmin = currentUser.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+
+        if (!isAdmin && !currentUser.getUser().getId().equals(id)) {
+            throw new AccessDeniedException("You cannot access other drivers' dashboard");
+        }
+        return ResponseEntity.ok(toResponse(driverStatsService.getDashboard(id)));
+    }
+
+    // GET /api/drivers/{id}/ratings?page=0&size=20 - average, distribution and latest ratings
+    @GetMapping("/{id}/ratings")
+    public ResponseEntity<DriverRatingsResponse> getRatings(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(ratingMapper.toDto(ratingService.getDriverRatings(id, page, size)));
+    }
+
+    private DriverDashboardResponse toResponse(DriverDashboard dashboard) {
+        DriverStats totals = dashboard.totals();
+        return new DriverDashboardResponse(
+                totals.getDriverId(),
+                totals.getSeatsSold(),
+                totals.getPendingConfirmations(),
+                totals.getConfirmedBookings(),
+                totals.getRevenue(),
+                dashboard.rides().stream()
+                        .map(ride -> new DriverDashboardResponse.RideItem(
+                                ride.getRideId(),
+                                ride.getDepartureTime(),
+                                ride.getTotalSeats(),
+                                ride.getSeatsBooked(),
+                                occupancy(ride),
+                                ride.getPendingBookings(),
+                                ride.getRevenue()))
+                        .toList(),
+                dashboard.weeks().stream()
+                        .map(week -> new DriverDashboardResponse.WeekItem(
+                                week.getWeekStart(), week.getSeatsSold(), week.getRevenue()))
+                        .toList()
+        );
+    }
+
+    private double occupancy(RideStats ride) {
+        if (ride.getTotalSeats() == null || ride.getTotalSeats() == 0) {
+            return 0;
+        }
+        return (double) ride.getSeatsBooked() / ride.getTotalSeats();
+    }
+}
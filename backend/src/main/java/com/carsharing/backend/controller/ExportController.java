@@ -0,0 +1,74 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.dto.ExportFileResponse;
+import com.carsharing.backend.service.ExportDataset;
+import com.carsharing.backend.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CSV exports for finance (ADMIN only, see SecurityConfig)
+ * dataset: bookings, bookings-archive or rides
+ * from/to are optional departure dates (inclusive), status is optional, e.g. ?from=2025-01-01&to=2025-01-31&status=COMPLETED
+ */
+@RestController
+@RequestMapping("/api/admin/exports")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ExportController {
+
+    private final ExportService exportService;
+
+    // GET /api/admin/exports/{dataset} - streams the CSV, ?gzip=true compresses it
+    // ?after=<id> continues an interrupted download after the id of its last complete line (no header then)
+    @GetMapping("/{dataset}")
+    public void export(
+            @PathVariable String dataset,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        // validated before anything is sent, errors are still answered with 400/404
+        ExportService.Query query = exportService.query(ExportDataset.fromPath(dataset), from, to, status);
+
+        String fileName = query.name() + (gzip ? ".csv.gz" : ".csv");
+        response.setContentType(gzip ? "application/gzip" : "text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName).build().toString());
+
+        OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024, true)
+                : response.getOutputStream();
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            exportService.writeCsv(query, after, writer);
+        }
+    }
+
+    // POST /api/admin/exports/{dataset}/file - writes the CSV to the export directory of the server
+    // called again after a failure it continues where the file stops, 409 while the same export is running
+    @PostMapping("/{dataset}/file")
+    public ResponseEntity<ExportFileResponse> exportToFile(
+            @PathVariable String dataset,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status) throws IOException {
+        ExportService.Query query = exportService.query(ExportDataset.fromPath(dataset), from, to, status);
+        ExportService.FileResult result = exportService.writeFile(query);
+        return ResponseEntity.ok(new ExportFileResponse(result.file().toString(), result.rows(),
+                result.lastId(), result.resumedAfter(), result.alreadyExported()));
+    }
+}
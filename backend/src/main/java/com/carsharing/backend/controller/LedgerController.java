@@ -0,0 +1,53 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.ledger.LedgerRecord;
+import com.carsharing.backend.ledger.LedgerVerifier;
+import com.carsharing.backend.ledger.SeatLedger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Seat ledger of this backend instance (ADMIN only, see SecurityConfig)
+ */
+@RestController
+@RequestMapping("/api/admin/ledger")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class LedgerController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final SeatLedger seatLedger;
+    private final LedgerVerifier ledgerVerifier;
+
+    // GET /api/admin/ledger
+    @GetMapping
+    public ResponseEntity<SeatLedger.Status> status() {
+        return ResponseEntity.ok(seatLedger.getStatus());
+    }
+
+    // GET /api/admin/ledger/verify?limit=100 - ledger vs rides, bookings and seat holds
+    @GetMapping("/verify")
+    public ResponseEntity<LedgerVerifier.Report> verify(@RequestParam(defaultValue = "100") int limit) {
+        if (limit < 0 || limit > MAX_LIMIT) {
+            throw new InvalidBookingException("limit must be between 0 and " + MAX_LIMIT);
+        }
+        return ResponseEntity.ok(ledgerVerifier.verify(limit));
+    }
+
+    // POST /api/admin/ledger/snapshot - snapshot now instead of waiting for the next one
+    @PostMapping("/snapshot")
+    public ResponseEntity<SeatLedger.Status> snapshot() {
+        return ResponseEntity.ok(seatLedger.snapshot());
+    }
+
+    // GET /api/admin/ledger/rides/{rideId} - seat changes of a ride still in the ledger
+    @GetMapping("/rides/{rideId}")
+    public ResponseEntity<List<LedgerRecord>> history(@PathVariable Long rideId) {
+        return ResponseEntity.ok(seatLedger.history(rideId));
+    }
+}
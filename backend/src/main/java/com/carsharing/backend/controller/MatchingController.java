@@ -0,0 +1,27 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.matching.MatchingEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Ride request matching engine of this backend instance (ADMIN only, see SecurityConfig)
+ */
+@RestController
+@RequestMapping("/api/admin/matching")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class MatchingController {
+
+    private final MatchingEngine matchingEngine;
+
+    // GET /api/admin/matching - index size, batches, matches, last batch duration
+    @GetMapping
+    public ResponseEntity<MatchingEngine.Status> status() {
+        return ResponseEntity.ok(matchingEngine.getStatus());
+    }
+}
@@ -0,0 +1,27 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.querycount.QueryBudgetMonitor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Endpoints that ran more SQL statements than their budget (ADMIN only, see SecurityConfig)
+ * Budgets: carsharing.query-budget.* in application.properties
+ */
+@RestController
+@RequestMapping("/api/admin/query-budget")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class QueryBudgetController {
+
+    private final QueryBudgetMonitor queryBudgetMonitor;
+
+    // GET /api/admin/query-budget
+    @GetMapping
+    public ResponseEntity<List<QueryBudgetMonitor.Violations>> violations() {
+        return ResponseEntity.ok(queryBudgetMonitor.getViolations());
+    }
+}
@@ -1,14 +1,28 @@
 package com.carsharing.backend.controller;
 
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
+import com.carsharing.backend.dto.RideImportReport;
 import com.carsharing.backend.dto.RideResponse;
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.ledger.SeatChange;
+import com.carsharing.backend.ledger.SeatLedger;
 import com.carsharing.backend.mapper.RideMapper;
 import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
 import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.security.CustomUserDetails;
+import com.carsharing.backend.service.RideDetailsCache;
+import com.carsharing.backend.service.RideImportService;
+import com.carsharing.backend.sharding.ShardRouter;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,63 +32,70 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class RideController {
 
+    private static final int MAX_IDS = 100;
+
     private final RideRepository rideRepository;
     private final RideMapper rideMapper;
+    private final RideImportService rideImportService;
+    private final RideDetailsCache rideDetailsCache;
+    private final ClusterCoherence clusterCoherence;
+    private final ShardRouter shardRouter;
+    private final SeatLedger seatLedger;
 
-    // GET /api/rides
+    // GET /api/rides, GET /api/rides?ids=1,2,3 - several rides in one query (unknown ids are left out)
+    // every list endpoint takes ?fields=id,startLocation,... - only these fields are read and returned
     @GetMapping
-    public ResponseEntity<List<RideResponse>> getAllRides() {
-        return ResponseEntity.ok(
-                rideRepository.findAll()
-                        .stream()
-                        .map(rideMapper::toDto)
-                        .toList()
-        );
+    public ResponseEntity<List<?>> getAllRides(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) String fields) {
+        if (ids != null) {
+            checkIds(ids);
+            return ResponseEntity.ok(fields != null
+                    ? rideRepository.findFieldsByIdIn(ids, RideRepository.FIELDS.parse(fields))
+                    : toDto(rideRepository.findByIdIn(ids)));
+        }
+        return ResponseEntity.ok(fields != null
+                ? rideRepository.findAllFields(RideRepository.FIELDS.parse(fields))
+                : toDto(rideRepository.findAll()));
     }
 
-    // GET /api/rides/{id}
+    // GET /api/rides/{id} - served from memory, see RideDetailsCache
     @GetMapping("/{id}")
     public ResponseEntity<RideResponse> getRideById(@PathVariable Long id) {
-        return rideRepository.findById(id)
-                .map(rideMapper::toDto)
+        return rideDetailsCache.getRide(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     // GET /api/rides/search
     @GetMapping("/search")
-    public ResponseEntity<List<RideResponse>> searchRides(
+    public ResponseEntity<List<?>> searchRides(
             @RequestParam String from,
-            @RequestParam String to) {
-
-        return ResponseEntity.ok(
-                rideRepository.findByStartLocationAndEndLocation(from, to)
-                        .stream()
-                        .map(rideMapper::toDto)
-                        .toList()
-        );
+            @RequestParam String to,
+            @RequestParam(required = false) String fields) {
+
+        return ResponseEntity.ok(fields != null
+                ? rideRepository.findFieldsByRoute(from, to, RideRepository.FIELDS.parse(fields))
+                : toDto(rideRepository.findByStartLocationAndEndLocation(from, to)));
     }
 
     // GET /api/rides/driver/{driverId}
     @GetMapping("/driver/{driverId}")
-    public ResponseEntity<List<RideResponse>> getRidesByDriver(@PathVariable Long driverId) {
-        return ResponseEntity.ok(
-                rideRepository.findByDriverId(driverId)
-                        .stream()
-                        .map(rideMapper::toDto)
-                        .toList()
-        );
+    public ResponseEntity<List<?>> getRidesByDriver(
+            @PathVariable Long driverId,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(fields != null
+                ? rideRepository.findFieldsByDriverId(driverId, RideRepository.FIELDS.parse(fields))
+                : toDto(rideRepository.findByDriverId(driverId)));
     }
 
     // GET /api/rides/upcoming
     @GetMapping("/upcoming")
-    public ResponseEntity<List<RideResponse>> getUpcomingRides() {
-        return ResponseEntity.ok(
-                rideRepository.findByDepartureTimeAfter(LocalDateTime.now())
-                        .stream()
-                        .map(rideMapper::toDto)
-                        .toList()
-        );
+    public ResponseEntity<List<?>> getUpcomingRides(@RequestParam(required = false) String fields) {
+        LocalDateTime now = LocalDateTime.now();
+        return ResponseEntity.ok(fields != null
+                ? rideRepository.findFieldsByDepartureTimeAfter(now, RideRepository.FIELDS.parse(fields))
+                : toDto(rideRepository.findByDepartureTimeAfter(now)));
     }
 
     // POST /api/rides
@@ -84,13 +105,34 @@ public class RideController {
         if (ride.getStatus() == null) {
             ride.setStatus(Ride.RideStatus.ACTIVE);
         }
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(rideRepository.save(ride));
+        Ride saved = rideRepository.save(ride);
+        seatLedger.record(SeatChange.OPEN, saved.getId(), null, saved.getAvailableSeats());
+        return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+    }
+
+    // POST /api/rides/bulk - imports many rides at once, one ride per line
+    // Content-Type: application/x-ndjson (one JSON object per line) or text/csv (with header)
+    // driverId per line is optional, default is the current user; only an admin may name another driver
+    @PostMapping(value = "/bulk", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<RideImportReport> importRides(
+            HttpServletRequest request,
+            @AuthenticationPrincipal CustomUserDetails currentUser) throws IOException {
+        Long driverId = currentUser.getUser().getId();
+        boolean anyDriver = currentUser.getUser().getRole() == User.UserRole.ADMIN;
+
+        RideImportReport report = request.getContentType().startsWith("text/csv")
+                ? rideImportService.importCsv(request.getInputStream(), driverId, anyDriver)
+                : rideImportService.importNdjson(request.getInputStream(), driverId, anyDriver);
+        return ResponseEntity.ok(report);
     }
 
     // PUT /api/rides/{id}
     @PutMapping("/{id}")
     public ResponseEntity<Ride> updateRide(@PathVariable Long id, @RequestBody Ride rideDetails) {
+        // a ride lives on the shard of its start location, it cannot move to another region
+        if (shardRouter.shardOfRegion(rideDetails.getStartLocation()) != shardRouter.shardOfId(id)) {
+            throw new InvalidBookingException("The start location cannot move the ride to another region");
+        }
         return rideRepository.findById(id)
                 .map(ride -> {
                     ride.setStartLocation(rideDetails.getStartLocation());
@@ -101,7 +143,9 @@ public class RideController {
                     ride.setCarModel(rideDetails.getCarModel());
                     ride.setCarColor(rideDetails.getCarColor());
                     ride.setDescription(rideDetails.getDescription());
-                    return ResponseEntity.ok(rideRepository.save(ride));
+                    Ride saved = rideRepository.save(ride);
+                    clusterCoherence.invalidate(CacheRegion.RIDE, id);
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -113,8 +157,22 @@ public class RideController {
             return ResponseEntity.notFound().build();
         }
         rideRepository.deleteById(id);
+        clusterCoherence.invalidate(CacheRegion.RIDE, id);
+        seatLedger.record(SeatChange.CLOSE, id, null, 0);
         return ResponseEntity.noContent().build();
     }
+
+    private List<RideResponse> toDto(List<Ride> rides) {
+        return rides.stream()
+                .map(rideMapper::toDto)
+                .toList();
+    }
+
+    private static void checkIds(List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_IDS) {
+            throw new InvalidBookingException("ids must list between 1 and " + MAX_IDS + " rides");
+        }
+    }
 }
 
 
@@ -0,0 +1,132 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.dto.BookingResponse;
+import com.carsharing.backend.dto.RideRequestResponse;
+import com.carsharing.backend.dto.RideResponse;
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.mapper.BookingMapper;
+import com.carsharing.backend.mapper.RideMapper;
+import com.carsharing.backend.matching.MatchingEngine;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.RideRequest;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.security.CustomUserDetails;
+import com.carsharing.backend.service.RideRequestService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ride requests: passengers post where and when they want to go, the matching engine proposes a ride
+ * 1. POST /api/ride-requests - request is OPEN
+ * 2. GET /api/ride-requests/{id} - MATCHED with a ride within seconds if one fits
+ * 3. POST /api/ride-requests/{id}/accept - the ride is booked
+ * Drivers see where rides are missing with GET /api/ride-requests/demand.
+ */
+@RestController
+@RequestMapping("/api/ride-requests")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class RideRequestController {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final RideRequestService rideRequestService;
+    private final MatchingEngine matchingEngine;
+    private final RideRepository rideRepository;
+    private final RideMapper rideMapper;
+    private final BookingMapper bookingMapper;
+
+    // POST /api/ride-requests
+    // body: { "startLocation": "Cluj-Napoca", "endLocation": "Bucuresti", "earliestDeparture": "2026-11-06T15:00:00",
+    //         "latestDeparture": "2026-11-06T19:00:00", "seats": 1, "maxPricePerSeat": 90 }  (maxPricePerSeat is optional)
+    @PostMapping
+    public ResponseEntity<RideRequestResponse> createRequest(
+            @RequestBody RideRequest request,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        RideRequest created = rideRequestService.createRequest(
+                currentUser.getUser().getId(), request.getStartLocation(), request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(created, null));
+    }
+
+    // GET /api/ride-requests - requests of the current user, newest first
+    @GetMapping
+    public ResponseEntity<List<RideRequestResponse>> getMyRequests(@AuthenticationPrincipal CustomUserDetails currentUser) {
+        List<RideRequest> requests = rideRequestService.getRequestsByPassenger(currentUser.getUser().getId()).stream()
+                .sorted(Comparator.comparing(RideRequest::getCreatedAt).reversed())
+                .toList();
+        // proposed rides and their drivers in one query
+        List<Long> rideIds = requests.stream().map(RideRequest::getMatchedRideId).filter(Objects::nonNull).distinct().toList();
+        Map<Long, Ride> rides = rideIds.isEmpty() ? Map.of() : rideRepository.findByIdIn(rideIds).stream()
+                .collect(Collectors.toMap(Ride::getId, Function.identity()));
+        return ResponseEntity.ok(requests.stream()
+                .map(request -> toResponse(request,
+                        request.getMatchedRideId() != null ? rides.get(request.getMatchedRideId()) : null))
+                .toList());
+    }
+
+    // GET /api/ride-requests/{id}
+    @GetMapping("/{id}")
+    public ResponseEntity<RideRequestResponse> getRequest(
+            @PathVariable Long id,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        RideRequest request = rideRequestService.findRequest(id, currentUser.getUser().getId());
+        Ride ride = request.getMatchedRideId() != null
+                ? rideRepository.findByIdIn(List.of(request.getMatchedRideId())).stream().findFirst().orElse(null)
+                : null;
+        return ResponseEntity.ok(toResponse(request, ride));
+    }
+
+    // POST /api/ride-requests/{id}/accept - books the proposed ride
+    @PostMapping("/{id}/accept")
+    public ResponseEntity<BookingResponse> acceptMatch(
+            @PathVariable Long id,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        Booking booking = rideRequestService.accept(id, currentUser.getUser().getId());
+        return ResponseEntity.status(HttpStatus.CREATED).body(bookingMapper.toDto(booking));
+    }
+
+    // PUT /api/ride-requests/{id}/cancel
+    @PutMapping("/{id}/cancel")
+    public ResponseEntity<RideRequestResponse> cancelRequest(
+            @PathVariable Long id,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        return ResponseEntity.ok(toResponse(rideRequestService.cancelRequest(id, currentUser.getUser().getId()), null));
+    }
+
+    // GET /api/ride-requests/demand?from=Cluj-Napoca&to=Bucuresti&limit=50
+    // open requests per route and hour that no ride serves yet, for drivers; from/to optional
+    @GetMapping("/demand")
+    public ResponseEntity<List<MatchingEngine.DemandSignal>> getDemand(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidBookingException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return ResponseEntity.ok(matchingEngine.demand(from, to, limit));
+    }
+
+    private RideRequestResponse toResponse(RideRequest request, Ride matchedRide) {
+        RideResponse ride = matchedRide != null ? rideMapper.toDto(matchedRide) : null;
+        return new RideRequestResponse(request.getId(), request.getStartLocation(), request.getEndLocation(),
+                request.getEarliestDeparture(), request.getLatestDeparture(), request.getSeats(),
+                request.getMaxPricePerSeat(), request.getStatus().name(), ride, request.getMatchedAt(),
+                request.getBookingId(), request.getCreatedAt());
+    }
+}
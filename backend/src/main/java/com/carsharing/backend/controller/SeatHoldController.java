@@ -0,0 +1,85 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.dto.BookingResponse;
+import com.carsharing.backend.dto.SeatHoldResponse;
+import com.carsharing.backend.mapper.BookingMapper;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.SeatHold;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.security.CustomUserDetails;
+import com.carsharing.backend.service.BookingService;
+import com.carsharing.backend.service.SeatHoldService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Two-step booking:
+ * 1. POST /api/rides/{rideId}/holds - seats are reserved for a few minutes
+ * 2. POST /api/rides/{rideId}/holds/{holdId}/confirm - the hold becomes a booking
+ * A hold that is not confirmed in time expires and its seats become free again.
+ */
+@RestController
+@RequestMapping("/api/rides/{rideId}/holds")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class SeatHoldController {
+
+    private final SeatHoldService seatHoldService;
+    private final BookingService bookingService;
+    private final BookingMapper bookingMapper;
+    private final RideRepository rideRepository;
+
+    // POST /api/rides/{rideId}/holds
+    // body: { "seats": 2, "minutes": 10 }  (minutes is optional)
+    @PostMapping
+    public ResponseEntity<SeatHoldResponse> createHold(
+            @PathVariable Long rideId,
+            @RequestBody Map<String, Integer> request,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        SeatHold hold = seatHoldService.createHold(
+                currentUser.getUser().getId(), rideId, request.get("seats"), request.get("minutes"));
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(hold));
+    }
+
+    // GET /api/rides/{rideId}/holds/{holdId} - time left while paying
+    @GetMapping("/{holdId}")
+    public ResponseEntity<SeatHoldResponse> getHold(@PathVariable Long rideId, @PathVariable Long holdId) {
+        return ResponseEntity.ok(toResponse(seatHoldService.findHold(rideId, holdId)));
+    }
+
+    // POST /api/rides/{rideId}/holds/{holdId}/confirm - creates the booking
+    @PostMapping("/{holdId}/confirm")
+    public ResponseEntity<BookingResponse> confirmHold(
+            @PathVariable Long rideId,
+            @PathVariable Long holdId,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        Booking booking = bookingService.confirmHold(rideId, holdId, currentUser.getUser().getId());
+        return ResponseEntity.status(HttpStatus.CREATED).body(bookingMapper.toDto(booking));
+    }
+
+    // DELETE /api/rides/{rideId}/holds/{holdId} - passenger gives up, seats are free again
+    @DeleteMapping("/{holdId}")
+    public ResponseEntity<Void> releaseHold(
+            @PathVariable Long rideId,
+            @PathVariable Long holdId,
+            @AuthenticationPrincipal CustomUserDetails currentUser
+    ) {
+        seatHoldService.releaseHold(rideId, holdId, currentUser.getUser().getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    private SeatHoldResponse toResponse(SeatHold hold) {
+        BigDecimal totalPrice = rideRepository.findById(hold.getRideId())
+                .map(ride -> ride.getPricePerSeat().multiply(BigDecimal.valueOf(hold.getSeats())))
+                .orElse(null);
+        return new SeatHoldResponse(hold.getId(), hold.getRideId(), hold.getSeats(), totalPrice, hold.getExpiresAt());
+    }
+}
@@ -0,0 +1,41 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.dto.TraceResponse;
+import com.carsharing.backend.exception.ResourceNotFoundException;
+import com.carsharing.backend.tracing.TraceStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Slowest recent requests with their phase timings and SQL (ADMIN only, see SecurityConfig)
+ * The trace id of a request is in its X-Trace-Id response header.
+ */
+@RestController
+@RequestMapping("/api/admin/traces")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@ConditionalOnProperty(name = "carsharing.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TraceController {
+
+    private final TraceStore traceStore;
+
+    // GET /api/admin/traces - slowest first
+    @GetMapping
+    public ResponseEntity<List<TraceResponse>> slowest() {
+        return ResponseEntity.ok(traceStore.getSlowest().stream()
+                .map(trace -> TraceResponse.from(trace, false))
+                .toList());
+    }
+
+    // GET /api/admin/traces/{traceId} - with spans and SQL statements
+    @GetMapping("/{traceId}")
+    public ResponseEntity<TraceResponse> trace(@PathVariable String traceId) {
+        return traceStore.find(traceId)
+                .map(trace -> ResponseEntity.ok(TraceResponse.from(trace, true)))
+                .orElseThrow(() -> new ResourceNotFoundException("Trace " + traceId + " not found (not among the slowest kept)"));
+    }
+}
@@ -4,6 +4,7 @@ import com.carsharing.backend.model.User;
 import com.carsharing.backend.security.CustomUserDetails;
 import com.carsharing.backend.service.UserService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -19,6 +20,7 @@ import java.util.List;
  * - Needs valid JWT token
  * - Some need specific role (ADMIN)
  */
+@Slf4j
 @RestController
 @RequestMapping("/api/users")
 @RequiredArgsConstructor
@@ -53,11 +55,9 @@ public class UserController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<User> getUserById(@PathVariable Long id, @AuthenticationPrincipal CustomUserDetails currentUser) {
-        System.out.println("Current user: " + currentUser);
-
         User requestedUser = userService.getUserById(id);
 
-        System.out.println("Requested user: " + requestedUser.getEmail());
+        log.debug("User {} requested user {}", currentUser.getUsername(), id);
 
         boolean isAdmin = currentUser.getAuthorities().stream()
                 .anyMatch(a-> a.getAuthority().equals("ROLE_ADMIN"));
@@ -0,0 +1,191 @@
+package com.carsharing.backend.datagen;
+
+import com.carsharing.backend.sharding.ShardRouter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes rows with JDBC batches of batch-size statements, one transaction per commit-rows rows and shard
+ *
+ * Users go to every shard (each shard keeps a copy of the users table, see UserReplicator).
+ * finish() moves the sequences past the written ids, so rows created by the application afterwards
+ * do not collide with them.
+ */
+class BatchWriter implements RowSink {
+
+    // pooled sequences hand out allocationSize (50) ids ending at the value read, keep a full block free
+    private static final int SEQUENCE_MARGIN = 100;
+
+    private static final String INSERT_USER = """
+            INSERT INTO users (id, email, password, full_name, phone_number, role, created_at)
+            VALUES (?, ?, ?, ?, ?, 'USER', ?)""";
+    private static final String INSERT_RIDE = """
+            INSERT INTO rides (id, start_location, end_location, departure_time, total_seats, available_seats,
+                               price_per_seat, driver_id, status, created_at, car_model, car_color)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String INSERT_BOOKING = """
+            INSERT INTO bookings (id, passenger_id, ride_id, seats_booked, total_price, status, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final ShardRouter shardRouter;
+    private final String passwordHash;
+    private final int batchSize;
+    private final int commitRows;
+
+    private final List<Rows.UserRow> users = new ArrayList<>();
+    private final List<ShardBuffer> shards = new ArrayList<>();
+    private long maxUserId;
+    private long userCount;
+    private long rideCount;
+    private long bookingCount;
+
+    private static class ShardBuffer {
+        final List<Rows.RideRow> rides = new ArrayList<>();
+        final List<Rows.BookingRow> bookings = new ArrayList<>();
+        long maxRideId;
+        long maxBookingId;
+
+        int size() {
+            return rides.size() + bookings.size();
+        }
+    }
+
+    BatchWriter(JdbcTemplate jdbcTemplate, TransactionTemplate tx, ShardRouter shardRouter,
+                String passwordHash, int batchSize, int commitRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = tx;
+        this.shardRouter = shardRouter;
+        this.passwordHash = passwordHash;
+        this.batchSize = batchSize;
+        this.commitRows = commitRows;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            shards.add(new ShardBuffer());
+        }
+    }
+
+    @Override
+    public void user(Rows.UserRow user) {
+        users.add(user);
+        maxUserId = Math.max(maxUserId, user.id());
+        if (users.size() >= commitRows) {
+            flushUsers();
+        }
+    }
+
+    @Override
+    public void ride(int shard, Rows.RideRow ride) {
+        flushUsers();
+        ShardBuffer buffer = shards.get(shard);
+        buffer.rides.add(ride);
+        buffer.maxRideId = Math.max(buffer.maxRideId, ride.id());
+        flushIfFull(shard);
+    }
+
+    @Override
+    public void booking(int shard, Rows.BookingRow booking) {
+        ShardBuffer buffer = shards.get(shard);
+        buffer.bookings.add(booking);
+        buffer.maxBookingId = Math.max(buffer.maxBookingId, booking.id());
+        flushIfFull(shard);
+    }
+
+    private void flushIfFull(int shard) {
+        if (shards.get(shard).size() >= commitRows) {
+            flush(shard);
+        }
+    }
+
+    private void flushUsers() {
+        if (users.isEmpty()) {
+            return;
+        }
+        shardRouter.forEachShard(() -> tx.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_USER, users, batchSize, (statement, user) -> {
+                    statement.setLong(1, user.id());
+                    statement.setString(2, user.email());
+                    statement.setString(3, passwordHash);
+                    statement.setString(4, user.fullName());
+                    statement.setString(5, user.phoneNumber());
+                    statement.setTimestamp(6, Timestamp.valueOf(user.createdAt()));
+                })));
+        userCount += users.size();
+        users.clear();
+    }
+
+    private void flush(int shard) {
+        ShardBuffer buffer = shards.get(shard);
+        if (buffer.size() == 0) {
+            return;
+        }
+        // rides first, the bookings of the chunk reference them
+        shardRouter.runOn(shard, () -> tx.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_RIDE, buffer.rides, batchSize, (statement, ride) -> {
+                statement.setLong(1, ride.id());
+                statement.setString(2, ride.startLocation());
+                statement.setString(3, ride.endLocation());
+                statement.setTimestamp(4, Timestamp.valueOf(ride.departureTime()));
+                statement.setInt(5, ride.totalSeats());
+                statement.setInt(6, ride.availableSeats());
+                statement.setBigDecimal(7, ride.pricePerSeat());
+                statement.setLong(8, ride.driverId());
+                statement.setString(9, ride.status());
+                statement.setTimestamp(10, Timestamp.valueOf(ride.createdAt()));
+                statement.setString(11, ride.carModel());
+                statement.setString(12, ride.carColor());
+            });
+            jdbcTemplate.batchUpdate(INSERT_BOOKING, buffer.bookings, batchSize, (statement, booking) -> {
+                statement.setLong(1, booking.id());
+                statement.setLong(2, booking.passengerId());
+                statement.setLong(3, booking.rideId());
+                statement.setInt(4, booking.seatsBooked());
+                statement.setBigDecimal(5, booking.totalPrice());
+                statement.setString(6, booking.status());
+                statement.setTimestamp(7, Timestamp.valueOf(booking.createdAt()));
+            });
+        }));
+        rideCount += buffer.rides.size();
+        bookingCount += buffer.bookings.size();
+        buffer.rides.clear();
+        buffer.bookings.clear();
+    }
+
+    /**
+     * Writes what is left and restarts the sequences after the highest ids
+     */
+    void finish() {
+        flushUsers();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            flush(shard);
+            ShardBuffer buffer = shards.get(shard);
+            shardRouter.runOn(shard, () -> {
+                restartSequence("users_seq", maxUserId);
+                restartSequence("rides_seq", buffer.maxRideId & ((1L << ShardRouter.ID_SHARD_SHIFT) - 1));
+                restartSequence("bookings_seq", buffer.maxBookingId & ((1L << ShardRouter.ID_SHARD_SHIFT) - 1));
+            });
+        }
+    }
+
+    private void restartSequence(String sequence, long maxValue) {
+        if (maxValue > 0) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (maxValue + SEQUENCE_MARGIN));
+        }
+    }
+
+    long getUserCount() {
+        return userCount;
+    }
+
+    long getRideCount() {
+        return rideCount;
+    }
+
+    long getBookingCount() {
+        return bookingCount;
+    }
+}
@@ -0,0 +1,68 @@
+package com.carsharing.backend.datagen;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * carsharing.datagen.* (see application.properties and the datagen profile)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("carsharing.datagen")
+public class DataGenProperties {
+
+    private boolean enabled = false;
+    private long seed = 42;
+    private int users = 10000;
+    // the first drivers users also post rides
+    private int drivers = 1000;
+    private int rides = 50000;
+    // mean share of the seats of a ride that are booked (busy routes and Fridays more, others less)
+    private double occupancy = 0.6;
+    // share of the bookings that end up cancelled
+    private double cancellationRate = 0.12;
+    private int pastDays = 60;
+    private int futureDays = 30;
+    // departures are spread around this day, empty = today (same seed + same day = same data)
+    private LocalDate anchorDate;
+    private String password = "password123";
+    private int batchSize = 1000;
+    // rows per transaction
+    private int commitRows = 20000;
+    // foreign keys and secondary indexes of users, rides and bookings created after the load (DeferredConstraints)
+    private boolean deferConstraints = true;
+    // snapshot directory, loaded instead of generating when it was made with the same settings; empty = none
+    private String snapshot = "";
+    // stop the application once the data is written (snapshot builds)
+    private boolean exit = false;
+
+    public LocalDate anchor() {
+        return anchorDate != null ? anchorDate : LocalDate.now();
+    }
+
+    /**
+     * Everything the generated rows depend on, stored in the snapshot manifest
+     */
+    Map<String, String> describe(int shards) {
+        Map<String, String> spec = new LinkedHashMap<>();
+        spec.put("seed", String.valueOf(seed));
+        spec.put("users", String.valueOf(users));
+        spec.put("drivers", String.valueOf(drivers));
+        spec.put("rides", String.valueOf(rides));
+        spec.put("occupancy", String.valueOf(occupancy));
+        spec.put("cancellation-rate", String.valueOf(cancellationRate));
+        spec.put("past-days", String.valueOf(pastDays));
+        spec.put("future-days", String.valueOf(futureDays));
+        spec.put("anchor-date", anchor().toString());
+        spec.put("password", password);
+        spec.put("shards", String.valueOf(shards));
+        return spec;
+    }
+}
@@ -0,0 +1,147 @@
+package com.carsharing.backend.datagen;
+
+import com.carsharing.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Fills an empty database with generated data at startup (carsharing.datagen.enabled, datagen profile)
+ *
+ * - snapshot set and made with the same settings: its rows are loaded
+ * - otherwise the rows are generated (DataGenerator) and, when snapshot is set, saved there as well
+ * Rows are written with JDBC batches (BatchWriter), past the JPA layer and its listeners, and with the foreign keys
+ * and secondary indexes of the tables dropped until they are all written (DeferredConstraints, defer-constraints)
+ * and the background jobs paused;
+ * the seat ledger takes its baseline from the database when the application is ready, after this runner.
+ * All generated users log in with the configured password, e.g. user1@datagen.local; users 1..drivers post the rides.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "carsharing.datagen.enabled", havingValue = "true")
+public class DataGenRunner implements ApplicationRunner {
+
+    private final DataGenProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final ShardRouter shardRouter;
+    private final PasswordEncoder passwordEncoder;
+    private final ConfigurableApplicationContext context;
+    // runs the @Scheduled jobs
+    private final ThreadPoolTaskScheduler scheduler;
+
+    public DataGenRunner(DataGenProperties properties, DataSource dataSource, ShardRouter shardRouter,
+                         PasswordEncoder passwordEncoder, ConfigurableApplicationContext context,
+                         ObjectProvider<ThreadPoolTaskScheduler> scheduler) {
+        // past datasource-proxy (see DataSourceProxyConfig): millions of rows are not sampled, counted or traced
+        DataSource target = dataSource instanceof ProxyDataSource proxy ? proxy.getDataSource() : dataSource;
+        this.properties = properties;
+        this.jdbcTemplate = new JdbcTemplate(target);
+        this.tx = new TransactionTemplate(new DataSourceTransactionManager(target));
+        this.shardRouter = shardRouter;
+        this.passwordEncoder = passwordEncoder;
+        this.context = context;
+        this.scheduler = scheduler.getIfUnique();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        checkEmpty();
+        Map<String, String> spec = properties.describe(shardRouter.getShardCount());
+        Path snapshot = properties.getSnapshot().isBlank() ? null : Path.of(properties.getSnapshot());
+        BatchWriter writer = new BatchWriter(jdbcTemplate, tx, shardRouter, passwordEncoder.encode(properties.getPassword()),
+                properties.getBatchSize(), properties.getCommitRows());
+        long start = System.currentTimeMillis();
+
+        pauseJobs();
+        DeferredConstraints deferred = null;
+        try {
+            deferred = properties.isDeferConstraints() ? DeferredConstraints.drop(jdbcTemplate, shardRouter) : null;
+            write(writer, snapshot, spec);
+        } finally {
+            if (deferred != null) {
+                long restoreStart = System.currentTimeMillis();
+                deferred.restore();
+                log.info("Recreated {} foreign keys and indexes in {} ms", deferred.count(),
+                        System.currentTimeMillis() - restoreStart);
+            }
+            if (scheduler != null) {
+                scheduler.start();
+            }
+        }
+
+        long ms = Math.max(1, System.currentTimeMillis() - start);
+        long rows = writer.getUserCount() + writer.getRideCount() + writer.getBookingCount();
+        log.info("Generated data written: {} users, {} rides, {} bookings in {} ms ({} rows/s)",
+                writer.getUserCount(), writer.getRideCount(), writer.getBookingCount(), ms, rows * 1000 / ms);
+
+        if (properties.isExit()) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    private void write(BatchWriter writer, Path snapshot, Map<String, String> spec) throws IOException {
+        if (snapshot != null && DataSnapshot.matches(snapshot, spec)) {
+            log.info("Loading generated data from snapshot {}", snapshot.toAbsolutePath());
+            DataSnapshot.load(snapshot, shardRouter.getShardCount(), writer);
+            writer.finish();
+        } else if (snapshot != null) {
+            log.info("Generating data {} and saving it to snapshot {}", spec, snapshot.toAbsolutePath());
+            try (DataSnapshot.Writer files = new DataSnapshot.Writer(snapshot)) {
+                new DataGenerator(properties, shardRouter).generate(RowSink.both(writer, files));
+                writer.finish();
+                files.complete(spec, Map.of(
+                        "count.users", String.valueOf(writer.getUserCount()),
+                        "count.rides", String.valueOf(writer.getRideCount()),
+                        "count.bookings", String.valueOf(writer.getBookingCount())));
+            }
+        } else {
+            log.info("Generating data {}", spec);
+            new DataGenerator(properties, shardRouter).generate(writer);
+            writer.finish();
+        }
+    }
+
+    /**
+     * Holds the @Scheduled jobs back until the data is written: they would scan and lock the tables being filled
+     * (reconcile, matching, lifecycle) and take the CPU from the load. Returns once the running ones are done.
+     */
+    private void pauseJobs() throws InterruptedException {
+        if (scheduler != null) {
+            CountDownLatch idle = new CountDownLatch(1);
+            scheduler.stop(idle::countDown);
+            idle.await();
+        }
+    }
+
+    /**
+     * Generated ids start at 1 on every shard, they would collide with existing rows
+     */
+    private void checkEmpty() {
+        shardRouter.forEachShard(() -> {
+            Long users = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+            Long rides = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rides", Long.class);
+            if (users != null && users > 0 || rides != null && rides > 0) {
+                throw new IllegalStateException("carsharing.datagen needs an empty database, found "
+                        + users + " users and " + rides + " rides");
+            }
+        });
+    }
+}
@@ -0,0 +1,215 @@
+package com.carsharing.backend.datagen;
+
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.sharding.ShardRouter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic users, rides and bookings
+ *
+ * Every user and every ride gets its own random stream derived from (seed, index), so the same
+ * settings give the same rows whatever the batch size, and ride n is the same in a run of 1000
+ * or 1 000 000 rides. Time is relative to the anchor day (00:00), not to the clock.
+ *
+ * - Routes: gravity model over the larger cities (RouteCatalog)
+ * - Departures: past-days before to future-days after the anchor, Fridays and Sundays busiest,
+ *   morning (7-9) and afternoon (16-18) peaks, on the quarter hour or the 5 minutes
+ * - Drivers and passengers: a few post/travel a lot, most rarely (power law over their index)
+ * - Occupancy: occupancy on average, more on popular routes and busy days, noisy per ride;
+ *   bookings of 1 seat mostly, sometimes 2 or 3
+ * - Cancellations: cancellation-rate of all bookings are CANCELLED (seats back), pending bookings of
+ *   departed rides are EXPIRED, 2 % of the departed rides were cancelled by their driver
+ * - Statuses follow the app: departed rides COMPLETED with COMPLETED bookings, upcoming ones
+ *   ACTIVE/FULL with CONFIRMED or PENDING bookings; available seats = seats - active bookings
+ */
+class DataGenerator {
+
+    private static final String[] FIRST_NAMES = {"Andrei", "Alexandru", "Mihai", "Ion", "Stefan", "Gabriel",
+            "Cristian", "Florin", "Bogdan", "Radu", "Vlad", "Adrian", "Maria", "Elena", "Ioana", "Ana", "Andreea",
+            "Cristina", "Alexandra", "Mihaela", "Diana", "Irina", "Raluca", "Simona"};
+    private static final String[] LAST_NAMES = {"Popescu", "Ionescu", "Popa", "Pop", "Stan", "Dumitru", "Stoica",
+            "Gheorghe", "Matei", "Ciobanu", "Rusu", "Munteanu", "Constantin", "Marin", "Tudor", "Dobre", "Barbu",
+            "Nistor", "Florea", "Ene", "Lazar", "Moldovan", "Sandu", "Cojocaru"};
+    private static final String[] CAR_MODELS = {"Dacia Logan", "Dacia Sandero", "Dacia Duster", "Skoda Octavia",
+            "Volkswagen Golf", "Volkswagen Passat", "Renault Megane", "Ford Focus", "Toyota Corolla", "Opel Astra",
+            "BMW 320", "Hyundai Tucson"};
+    private static final String[] CAR_COLORS = {"white", "black", "grey", "silver", "blue", "red"};
+
+    // relative number of departures per hour of the day
+    private static final WeightedSampler HOURS = new WeightedSampler(0.2, 0.1, 0.1, 0.1, 0.2, 0.6, 1.5, 3.0,
+            3.2, 2.0, 1.4, 1.3, 1.5, 1.6, 1.8, 2.4, 3.2, 3.4, 2.6, 1.6, 1.0, 0.7, 0.5, 0.3);
+    // Monday .. Sunday
+    private static final double[] DAY_WEIGHTS = {0.85, 0.8, 0.8, 0.95, 1.5, 1.0, 1.35};
+    private static final double MEAN_DAY_WEIGHT = 1.0357;
+    // seats offered: 1, 2, 3, 4
+    private static final WeightedSampler TOTAL_SEATS = new WeightedSampler(5, 15, 45, 35);
+    // seats per booking: 1, 2, 3
+    private static final WeightedSampler BOOKED_SEATS = new WeightedSampler(75, 20, 5);
+
+    private static final double CANCELLED_RIDES = 0.02;
+    private static final double PENDING_SHARE = 0.25;
+    private static final double EXPIRED_SHARE = 0.03;
+    private static final double PRICE_SPREAD = 0.2;
+
+    private final DataGenProperties properties;
+    private final ShardRouter shardRouter;
+    private final RouteCatalog routes = new RouteCatalog();
+    private final LocalDateTime anchor;
+    private final LocalDate firstDay;
+    private final WeightedSampler days;
+
+    // next sequence value per shard
+    private final long[] rideSequence;
+    private final long[] bookingSequence;
+
+    DataGenerator(DataGenProperties properties, ShardRouter shardRouter) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.anchor = properties.anchor().atStartOfDay();
+        this.firstDay = properties.anchor().minusDays(properties.getPastDays());
+
+        double[] weights = new double[properties.getPastDays() + properties.getFutureDays()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = dayWeight(firstDay.plusDays(i));
+        }
+        this.days = new WeightedSampler(weights);
+        this.rideSequence = new long[shardRouter.getShardCount()];
+        this.bookingSequence = new long[shardRouter.getShardCount()];
+    }
+
+    void generate(RowSink sink) {
+        for (int i = 0; i < properties.getUsers(); i++) {
+            sink.user(user(i));
+        }
+        for (int i = 0; i < properties.getRides(); i++) {
+            ride(i, sink);
+        }
+    }
+
+    private Rows.UserRow user(int index) {
+        SplittableRandom random = new SplittableRandom(mix(~properties.getSeed(), index));
+        String name = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+        String phone = "07" + String.format("%08d", random.nextInt(100_000_000));
+        LocalDateTime createdAt = anchor.minusMinutes(random.nextLong(2L * 365 * 24 * 60));
+        return new Rows.UserRow(userId(index), "user" + (index + 1) + "@datagen.local", name, phone, createdAt);
+    }
+
+    private void ride(int index, RowSink sink) {
+        SplittableRandom random = new SplittableRandom(mix(properties.getSeed(), index));
+        RouteCatalog.Route route = routes.sample(random);
+        int shard = shardRouter.shardOfRegion(route.from());
+
+        LocalDate day = firstDay.plusDays(days.sample(random));
+        int minute = random.nextInt(4) == 0 ? 5 * random.nextInt(12) : 15 * random.nextInt(4);
+        LocalDateTime departure = day.atTime(HOURS.sample(random), minute);
+        // published a few days ahead, most of them shortly before
+        LocalDateTime createdAt = departure.minusMinutes(30 + (long) exponential(random, 4 * 24 * 60));
+        if (!createdAt.isBefore(anchor)) {
+            createdAt = anchor.minusMinutes(1 + random.nextInt(12 * 60));
+        }
+
+        int driverIndex = skewed(random, Math.min(properties.getDrivers(), properties.getUsers()), 2.0);
+        int totalSeats = 1 + TOTAL_SEATS.sample(random);
+        BigDecimal price = route.basePrice()
+                .multiply(BigDecimal.valueOf(1 + (random.nextDouble() * 2 - 1) * PRICE_SPREAD))
+                .setScale(0, RoundingMode.HALF_UP);
+        boolean departed = departure.isBefore(anchor);
+        boolean cancelledRide = departed && random.nextDouble() < CANCELLED_RIDES;
+
+        double demand = properties.getOccupancy() * route.demand() * dayWeight(day) / MEAN_DAY_WEIGHT;
+        double load = Math.max(0, Math.min(1, demand + (random.nextDouble() - 0.5) * 0.6));
+        int wanted = (int) Math.round(load * totalSeats);
+
+        long rideId = ShardRouter.shardId(shard, ++rideSequence[shard]);
+        LocalDateTime bookedUntil = departed ? departure : anchor;
+        double cancelOdds = properties.getCancellationRate() / (1 - properties.getCancellationRate());
+
+        // bookings are generated first (they decide the available seats), the ride row goes first to the sink
+        List<Rows.BookingRow> bookings = new ArrayList<>();
+        int taken = 0;
+        for (int filled = 0; filled < wanted; ) {
+            int seats = Math.min(wanted - filled, 1 + BOOKED_SEATS.sample(random));
+            filled += seats;
+            Booking.BookingStatus status;
+            if (cancelledRide) {
+                status = Booking.BookingStatus.CANCELLED;
+            } else if (departed) {
+                status = random.nextDouble() < EXPIRED_SHARE ? Booking.BookingStatus.EXPIRED : Booking.BookingStatus.COMPLETED;
+            } else {
+                status = random.nextDouble() < PENDING_SHARE ? Booking.BookingStatus.PENDING : Booking.BookingStatus.CONFIRMED;
+            }
+            if (status != Booking.BookingStatus.CANCELLED && status != Booking.BookingStatus.EXPIRED) {
+                taken += seats;
+            }
+            bookings.add(booking(random, shard, rideId, driverIndex, seats, price, status, createdAt, bookedUntil));
+
+            // someone else booked too and cancelled
+            if (random.nextDouble() < cancelOdds) {
+                bookings.add(booking(random, shard, rideId, driverIndex, 1 + BOOKED_SEATS.sample(random), price,
+                        Booking.BookingStatus.CANCELLED, createdAt, bookedUntil));
+            }
+        }
+
+        Ride.RideStatus status = cancelledRide ? Ride.RideStatus.CANCELLED
+                : departed ? Ride.RideStatus.COMPLETED
+                : taken == totalSeats ? Ride.RideStatus.FULL
+                : Ride.RideStatus.ACTIVE;
+        sink.ride(shard, new Rows.RideRow(rideId, route.from(), route.to(), departure, totalSeats, totalSeats - taken,
+                price, userId(driverIndex), status.name(), createdAt, pick(random, CAR_MODELS), pick(random, CAR_COLORS)));
+        bookings.forEach(booking -> sink.booking(shard, booking));
+    }
+
+    private Rows.BookingRow booking(SplittableRandom random, int shard, long rideId, int driverIndex, int seats,
+                                    BigDecimal price, Booking.BookingStatus status,
+                                    LocalDateTime from, LocalDateTime until) {
+        int passengerIndex = skewed(random, properties.getUsers(), 1.5);
+        if (passengerIndex == driverIndex) {
+            passengerIndex = (passengerIndex + 1) % properties.getUsers();
+        }
+        long span = Math.max(1, Duration.between(from, until).toMinutes());
+        LocalDateTime createdAt = from.plusMinutes(random.nextLong(span));
+        return new Rows.BookingRow(ShardRouter.shardId(shard, ++bookingSequence[shard]), userId(passengerIndex),
+                rideId, seats, price.multiply(BigDecimal.valueOf(seats)), status.name(), createdAt);
+    }
+
+    private static long userId(int index) {
+        return index + 1L;
+    }
+
+    private static double dayWeight(LocalDate day) {
+        return DAY_WEIGHTS[day.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue()];
+    }
+
+    /**
+     * Index in [0, n): low indexes much more often (exponent 1 = uniform)
+     */
+    private static int skewed(SplittableRandom random, int n, double exponent) {
+        return (int) (n * Math.pow(random.nextDouble(), exponent));
+    }
+
+    private static double exponential(SplittableRandom random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // SplitMix64 finalizer: neighbouring indexes get unrelated streams
+    private static long mix(long seed, long index) {
+        long z = seed + index * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
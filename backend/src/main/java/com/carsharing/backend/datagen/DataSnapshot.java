@@ -0,0 +1,208 @@
+package com.carsharing.backend.datagen;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generated data as files, for benchmarks and load tests that need the same data every run
+ *
+ * <directory>/manifest.properties   settings the data was generated with + row counts
+ * <directory>/users.csv.gz          users (inserted on every shard)
+ * <directory>/rides-<shard>.csv.gz, bookings-<shard>.csv.gz
+ * Plain gzip'ed CSV with a header line: load scripts can pick user emails and ride ids from it.
+ * A snapshot is written to <directory>.tmp and renamed when complete.
+ */
+@Slf4j
+final class DataSnapshot {
+
+    static final String MANIFEST = "manifest.properties";
+    private static final String USERS = "users.csv.gz";
+    private static final int BUFFER = 256 * 1024;
+
+    private DataSnapshot() {
+    }
+
+    /**
+     * @return true if the directory holds a complete snapshot made with these settings
+     */
+    static boolean matches(Path directory, Map<String, String> spec) {
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return false;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(manifest)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            log.warn("Unreadable snapshot manifest {}: {}", manifest, e.getMessage());
+            return false;
+        }
+        return spec.entrySet().stream().allMatch(entry -> entry.getValue().equals(properties.getProperty(entry.getKey())));
+    }
+
+    /**
+     * Sends the rows of the snapshot to sink: users, then the rides and bookings of each shard
+     */
+    static void load(Path directory, int shards, RowSink sink) throws IOException {
+        read(directory.resolve(USERS), Rows.UserRow::fromCsv, sink::user);
+        for (int shard = 0; shard < shards; shard++) {
+            int target = shard;
+            read(directory.resolve(rides(shard)), Rows.RideRow::fromCsv, ride -> sink.ride(target, ride));
+            read(directory.resolve(bookings(shard)), Rows.BookingRow::fromCsv, booking -> sink.booking(target, booking));
+        }
+    }
+
+    private static <T> void read(Path file, Function<String, T> parser, Consumer<T> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), BUFFER), StandardCharsets.UTF_8), BUFFER)) {
+            reader.readLine();  // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                consumer.accept(parser.apply(line));
+            }
+        }
+    }
+
+    private static String rides(int shard) {
+        return "rides-" + shard + ".csv.gz";
+    }
+
+    private static String bookings(int shard) {
+        return "bookings-" + shard + ".csv.gz";
+    }
+
+    /**
+     * Collects generated rows into a new snapshot
+     */
+    static class Writer implements RowSink, AutoCloseable {
+
+        private final Path directory;
+        private final Path tmp;
+        private final Map<String, BufferedWriter> files = new HashMap<>();
+
+        Writer(Path directory) throws IOException {
+            this.directory = directory;
+            this.tmp = directory.resolveSibling(directory.getFileName() + ".tmp");
+            deleteSnapshot(tmp);
+            Files.createDirectories(tmp);
+        }
+
+        @Override
+        public void user(Rows.UserRow user) {
+            write(USERS, Rows.UserRow.HEADER, user.toCsv());
+        }
+
+        @Override
+        public void ride(int shard, Rows.RideRow ride) {
+            write(rides(shard), Rows.RideRow.HEADER, ride.toCsv());
+        }
+
+        @Override
+        public void booking(int shard, Rows.BookingRow booking) {
+            write(bookings(shard), Rows.BookingRow.HEADER, booking.toCsv());
+        }
+
+        private void write(String name, String header, String line) {
+            try {
+                BufferedWriter writer = files.get(name);
+                if (writer == null) {
+                    writer = new BufferedWriter(new OutputStreamWriter(
+                            new FastGzipOutputStream(Files.newOutputStream(tmp.resolve(name))),
+                            StandardCharsets.UTF_8), BUFFER);
+                    writer.write(header);
+                    writer.write('\n');
+                    files.put(name, writer);
+                }
+                writer.write(line);
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Closes the files, writes the manifest and puts the snapshot in place of an older one
+         */
+        void complete(Map<String, String> spec, Map<String, String> counts) throws IOException {
+            closeFiles();
+            Properties manifest = new Properties();
+            manifest.putAll(spec);
+            manifest.putAll(counts);
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp.resolve(MANIFEST))) {
+                manifest.store(writer, "carsharing generated data, see DataGenRunner");
+            }
+            deleteSnapshot(directory);
+            Files.move(tmp, directory, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private void closeFiles() throws IOException {
+            for (BufferedWriter writer : files.values()) {
+                writer.close();
+            }
+            files.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeFiles();
+        }
+    }
+
+    /**
+     * gzip with the fastest deflate level: twice as fast to write as the default level, files ~25 % larger
+     */
+    private static class FastGzipOutputStream extends GZIPOutputStream {
+
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+
+    /**
+     * Removes a snapshot directory: only the files a snapshot is made of, anything else is left
+     * (and the directory stays then)
+     */
+    private static void deleteSnapshot(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.equals(MANIFEST) || name.endsWith(".csv.gz")) {
+                    Files.delete(file);
+                }
+            }
+        }
+        try (Stream<Path> rest = Files.list(directory)) {
+            if (rest.findAny().isEmpty()) {
+                Files.delete(directory);
+            }
+        }
+    }
+}
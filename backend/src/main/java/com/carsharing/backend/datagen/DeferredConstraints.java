@@ -0,0 +1,149 @@
+package com.carsharing.backend.datagen;
+
+import com.carsharing.backend.sharding.ShardRouter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Foreign keys and secondary indexes of the generated tables, dropped for the load and created again after it
+ *
+ * Checking a foreign key and updating an index for every inserted row costs more than the insert itself;
+ * built once over the loaded rows they are much cheaper. Adding a foreign key back checks all rows at once,
+ * so the load is still verified. Primary keys and unique constraints stay (ids and emails must not collide).
+ * Read from the JDBC metadata, so what the schema declares (Hibernate, ddl-auto=update) comes back as it was,
+ * on every shard.
+ */
+class DeferredConstraints {
+
+    private static final List<String> TABLES = List.of("users", "rides", "bookings");
+
+    private record ForeignKey(String table, String name, List<String> columns, String referencedTable,
+                              List<String> referencedColumns, short deleteRule) {
+    }
+
+    private record Index(String table, String name, List<String> columns) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final List<List<ForeignKey>> foreignKeys = new ArrayList<>();
+    private final List<List<Index>> indexes = new ArrayList<>();
+
+    private DeferredConstraints(JdbcTemplate jdbcTemplate, ShardRouter shardRouter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Drops them on every shard: foreign keys first (an index may belong to one), then the indexes left
+     */
+    static DeferredConstraints drop(JdbcTemplate jdbcTemplate, ShardRouter shardRouter) {
+        DeferredConstraints deferred = new DeferredConstraints(jdbcTemplate, shardRouter);
+        shardRouter.forEachShard(() -> {
+            List<ForeignKey> shardForeignKeys = deferred.read(DeferredConstraints::foreignKeys);
+            shardForeignKeys.forEach(fk ->
+                    jdbcTemplate.execute("ALTER TABLE " + fk.table() + " DROP CONSTRAINT " + fk.name()));
+            List<Index> shardIndexes = deferred.read(DeferredConstraints::indexes);
+            shardIndexes.forEach(index -> jdbcTemplate.execute("DROP INDEX " + index.name()));
+            deferred.foreignKeys.add(shardForeignKeys);
+            deferred.indexes.add(shardIndexes);
+        });
+        return deferred;
+    }
+
+    /**
+     * Creates the indexes, then the foreign keys (which reuse them or build their own)
+     */
+    void restore() {
+        for (int shard = 0; shard < foreignKeys.size(); shard++) {
+            List<Index> shardIndexes = indexes.get(shard);
+            List<ForeignKey> shardForeignKeys = foreignKeys.get(shard);
+            shardRouter.runOn(shard, () -> {
+                shardIndexes.forEach(index -> jdbcTemplate.execute("CREATE INDEX " + index.name() + " ON "
+                        + index.table() + " (" + String.join(", ", index.columns()) + ")"));
+                shardForeignKeys.forEach(fk -> jdbcTemplate.execute("ALTER TABLE " + fk.table() + " ADD CONSTRAINT "
+                        + fk.name() + " FOREIGN KEY (" + String.join(", ", fk.columns()) + ") REFERENCES "
+                        + fk.referencedTable() + " (" + String.join(", ", fk.referencedColumns()) + ")"
+                        + onDelete(fk.deleteRule())));
+            });
+        }
+    }
+
+    int count() {
+        return foreignKeys.stream().mapToInt(List::size).sum() + indexes.stream().mapToInt(List::size).sum();
+    }
+
+    private interface MetadataReader<T> {
+        List<T> read(DatabaseMetaData metaData, String catalog, String schema, String table) throws SQLException;
+    }
+
+    private <T> List<T> read(MetadataReader<T> reader) {
+        return jdbcTemplate.execute((ConnectionCallback<List<T>>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            List<T> found = new ArrayList<>();
+            for (String table : TABLES) {
+                // unquoted names are stored upper case by H2, lower case by PostgreSQL
+                String stored = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase() : table;
+                found.addAll(reader.read(metaData, connection.getCatalog(), connection.getSchema(), stored));
+            }
+            return found;
+        });
+    }
+
+    private static List<ForeignKey> foreignKeys(DatabaseMetaData metaData, String catalog, String schema,
+                                                String table) throws SQLException {
+        // rows ordered by referenced table and KEY_SEQ, one per column of the key
+        Map<String, ForeignKey> keys = new LinkedHashMap<>();
+        try (ResultSet rows = metaData.getImportedKeys(catalog, schema, table)) {
+            while (rows.next()) {
+                String name = rows.getString("FK_NAME");
+                ForeignKey key = keys.get(name);
+                if (key == null) {
+                    key = new ForeignKey(table, name, new ArrayList<>(), rows.getString("PKTABLE_NAME"),
+                            new ArrayList<>(), rows.getShort("DELETE_RULE"));
+                    keys.put(name, key);
+                }
+                key.columns().add(rows.getString("FKCOLUMN_NAME"));
+                key.referencedColumns().add(rows.getString("PKCOLUMN_NAME"));
+            }
+        }
+        return new ArrayList<>(keys.values());
+    }
+
+    private static List<Index> indexes(DatabaseMetaData metaData, String catalog, String schema,
+                                       String table) throws SQLException {
+        // rows ordered by index name and ORDINAL_POSITION; unique indexes stay
+        Map<String, Index> found = new LinkedHashMap<>();
+        try (ResultSet rows = metaData.getIndexInfo(catalog, schema, table, false, false)) {
+            while (rows.next()) {
+                if (!rows.getBoolean("NON_UNIQUE") || rows.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+                    continue;
+                }
+                String column = rows.getString("COLUMN_NAME");
+                if ("D".equals(rows.getString("ASC_OR_DESC"))) {
+                    column += " DESC";
+                }
+                found.computeIfAbsent(rows.getString("INDEX_NAME"), name -> new Index(table, name, new ArrayList<>()))
+                        .columns().add(column);
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    private static String onDelete(short rule) {
+        return switch (rule) {
+            case DatabaseMetaData.importedKeyCascade -> " ON DELETE CASCADE";
+            case DatabaseMetaData.importedKeySetNull -> " ON DELETE SET NULL";
+            case DatabaseMetaData.importedKeySetDefault -> " ON DELETE SET DEFAULT";
+            default -> "";
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package com.carsharing.backend.datagen;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Routes between the larger Romanian cities and how popular they are
+ *
+ * Gravity model: trips between two cities grow with both populations and fall with the distance,
+ * weight = population(a) * population(b) * km / (100 + km)^2, so hops shorter than ~100 km are rare
+ * (nobody shares a car for 20 minutes) and Bucuresti - Brasov is far more common than Deva - Botosani.
+ * Prices follow the road distance (about 1.3 x the straight line).
+ */
+final class RouteCatalog {
+
+    private static final double ROAD_FACTOR = 1.3;
+    private static final double PRICE_PER_KM = 0.22;
+
+    private record City(String name, int population, double latitude, double longitude) {
+    }
+
+    // population in thousands
+    private static final List<City> CITIES = List.of(
+            new City("Bucuresti", 1716, 44.43, 26.10),
+            new City("Cluj", 286, 46.77, 23.59),
+            new City("Iasi", 271, 47.16, 27.59),
+            new City("Constanta", 263, 44.17, 28.63),
+            new City("Timisoara", 250, 45.75, 21.23),
+            new City("Brasov", 237, 45.66, 25.61),
+            new City("Craiova", 234, 44.32, 23.80),
+            new City("Galati", 217, 45.44, 28.05),
+            new City("Oradea", 183, 47.07, 21.92),
+            new City("Ploiesti", 180, 44.94, 26.02),
+            new City("Braila", 154, 45.27, 27.96),
+            new City("Arad", 145, 46.17, 21.31),
+            new City("Pitesti", 141, 44.86, 24.87),
+            new City("Sibiu", 134, 45.79, 24.15),
+            new City("Bacau", 133, 46.57, 26.91),
+            new City("Targu Mures", 116, 46.54, 24.56),
+            new City("Baia Mare", 108, 47.66, 23.58),
+            new City("Buzau", 103, 45.15, 26.82),
+            new City("Satu Mare", 92, 47.79, 22.89),
+            new City("Ramnicu Valcea", 92, 45.10, 24.37),
+            new City("Botosani", 85, 47.75, 26.67),
+            new City("Suceava", 84, 47.65, 26.26),
+            new City("Alba Iulia", 63, 46.07, 23.58),
+            new City("Deva", 56, 45.88, 22.90));
+
+    /**
+     * @param demand 1.4 for the most popular route down to 0.6 for the least popular one
+     */
+    record Route(String from, String to, int km, BigDecimal basePrice, double demand) {
+    }
+
+    private final List<Route> routes;
+    private final WeightedSampler sampler;
+
+    RouteCatalog() {
+        record Weighted(City from, City to, int km, double weight) {
+        }
+        List<Weighted> pairs = new ArrayList<>();
+        for (City from : CITIES) {
+            for (City to : CITIES) {
+                if (from != to) {
+                    int km = (int) Math.round(distanceKm(from, to) * ROAD_FACTOR);
+                    pairs.add(new Weighted(from, to, km,
+                            (double) from.population() * to.population() * km / Math.pow(100 + km, 2)));
+                }
+            }
+        }
+        pairs.sort(Comparator.comparingDouble(Weighted::weight).reversed());
+
+        routes = new ArrayList<>(pairs.size());
+        double[] weights = new double[pairs.size()];
+        for (int i = 0; i < pairs.size(); i++) {
+            Weighted pair = pairs.get(i);
+            long price = Math.max(10, Math.round(pair.km() * PRICE_PER_KM / 5) * 5);
+            double demand = 1.4 - 0.8 * i / (pairs.size() - 1);
+            routes.add(new Route(pair.from().name(), pair.to().name(), pair.km(), BigDecimal.valueOf(price), demand));
+            weights[i] = pair.weight();
+        }
+        sampler = new WeightedSampler(weights);
+    }
+
+    Route sample(SplittableRandom random) {
+        return routes.get(sampler.sample(random));
+    }
+
+    private static double distanceKm(City a, City b) {
+        double dLat = Math.toRadians(b.latitude() - a.latitude());
+        double dLon = Math.toRadians(b.longitude() - a.longitude());
+        double h = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(a.latitude())) * Math.cos(Math.toRadians(b.latitude())) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * 6371 * Math.asin(Math.sqrt(h));
+    }
+}
@@ -0,0 +1,36 @@
+package com.carsharing.backend.datagen;
+
+/**
+ * Where generated rows go: the database (BatchWriter), a snapshot (DataSnapshot.Writer) or both
+ * Users come first, a ride before its bookings.
+ */
+interface RowSink {
+
+    void user(Rows.UserRow user);
+
+    void ride(int shard, Rows.RideRow ride);
+
+    void booking(int shard, Rows.BookingRow booking);
+
+    static RowSink both(RowSink first, RowSink second) {
+        return new RowSink() {
+            @Override
+            public void user(Rows.UserRow user) {
+                first.user(user);
+                second.user(user);
+            }
+
+            @Override
+            public void ride(int shard, Rows.RideRow ride) {
+                first.ride(shard, ride);
+                second.ride(shard, ride);
+            }
+
+            @Override
+            public void booking(int shard, Rows.BookingRow booking) {
+                first.booking(shard, booking);
+                second.booking(shard, booking);
+            }
+        };
+    }
+}
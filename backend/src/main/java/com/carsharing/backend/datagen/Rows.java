@@ -0,0 +1,65 @@
+package com.carsharing.backend.datagen;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Generated rows, as inserted and as stored in a snapshot (one CSV line each, no text contains a comma)
+ */
+final class Rows {
+
+    private Rows() {
+    }
+
+    record UserRow(long id, String email, String fullName, String phoneNumber, LocalDateTime createdAt) {
+
+        static final String HEADER = "id,email,full_name,phone_number,created_at";
+
+        String toCsv() {
+            return id + "," + email + "," + fullName + "," + phoneNumber + "," + createdAt;
+        }
+
+        static UserRow fromCsv(String line) {
+            String[] v = line.split(",", -1);
+            return new UserRow(Long.parseLong(v[0]), v[1], v[2], v[3], LocalDateTime.parse(v[4]));
+        }
+    }
+
+    record RideRow(long id, String startLocation, String endLocation, LocalDateTime departureTime,
+                   int totalSeats, int availableSeats, BigDecimal pricePerSeat, long driverId, String status,
+                   LocalDateTime createdAt, String carModel, String carColor) {
+
+        static final String HEADER = "id,start_location,end_location,departure_time,total_seats,available_seats,"
+                + "price_per_seat,driver_id,status,created_at,car_model,car_color";
+
+        String toCsv() {
+            return id + "," + startLocation + "," + endLocation + "," + departureTime + "," + totalSeats + ","
+                    + availableSeats + "," + pricePerSeat.toPlainString() + "," + driverId + "," + status + ","
+                    + createdAt + "," + carModel + "," + carColor;
+        }
+
+        static RideRow fromCsv(String line) {
+            String[] v = line.split(",", -1);
+            return new RideRow(Long.parseLong(v[0]), v[1], v[2], LocalDateTime.parse(v[3]),
+                    Integer.parseInt(v[4]), Integer.parseInt(v[5]), new BigDecimal(v[6]), Long.parseLong(v[7]),
+                    v[8], LocalDateTime.parse(v[9]), v[10], v[11]);
+        }
+    }
+
+    record BookingRow(long id, long passengerId, long rideId, int seatsBooked, BigDecimal totalPrice,
+                      String status, LocalDateTime createdAt) {
+
+        static final String HEADER = "id,passenger_id,ride_id,seats_booked,total_price,status,created_at";
+
+        String toCsv() {
+            return id + "," + passengerId + "," + rideId + "," + seatsBooked + "," + totalPrice.toPlainString()
+                    + "," + status + "," + createdAt;
+        }
+
+        static BookingRow fromCsv(String line) {
+            String[] v = line.split(",", -1);
+            return new BookingRow(Long.parseLong(v[0]), Long.parseLong(v[1]), Long.parseLong(v[2]),
+                    Integer.parseInt(v[3]), new BigDecimal(v[4]), v[5], LocalDateTime.parse(v[6]));
+        }
+    }
+}
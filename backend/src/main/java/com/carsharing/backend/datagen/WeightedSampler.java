@@ -0,0 +1,28 @@
+package com.carsharing.backend.datagen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Picks index i with probability weights[i] / sum(weights), O(log n) per pick
+ */
+final class WeightedSampler {
+
+    private final double[] cumulative;
+
+    WeightedSampler(double... weights) {
+        cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+    }
+
+    int sample(SplittableRandom random) {
+        double point = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = Arrays.binarySearch(cumulative, point);
+        // not found: -(insertion point) - 1, the first cumulative weight above the point
+        return index >= 0 ? Math.min(index + 1, cumulative.length - 1) : -index - 1;
+    }
+}
@@ -0,0 +1,9 @@
+package com.carsharing.backend.datasource;
+
+/**
+ * Lookup keys for ReadWriteRoutingDataSource
+ */
+public enum DataSourceRole {
+    PRIMARY,  // all writes + reads that must see the latest data
+    REPLICA   // read-only transactions
+}
@@ -0,0 +1,66 @@
+package com.carsharing.backend.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes each connection to the primary or to the replica:
+ * - @Transactional(readOnly = true) -> REPLICA
+ * - everything else -> PRIMARY
+ *
+ * A read still goes to PRIMARY when:
+ * - the replica lags behind or is down (ReplicaLagMonitor)
+ * - the current user wrote something a moment ago (read-your-writes)
+ *
+ * Must be wrapped in a LazyConnectionDataSourceProxy, otherwise the connection is
+ * taken before Spring marks the transaction as read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWritesTracker writesTracker;
+
+    public ReadWriteRoutingDataSource(ReplicaLagMonitor lagMonitor, ReadYourWritesTracker writesTracker) {
+        this.lagMonitor = lagMonitor;
+        this.writesTracker = writesTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWrite(user);
+            return DataSourceRole.PRIMARY;
+        }
+
+        if (!lagMonitor.isReplicaUsable() || writesTracker.wroteRecently(user)) {
+            return DataSourceRole.PRIMARY;
+        }
+        return DataSourceRole.REPLICA;
+    }
+
+    /**
+     * Marks the user as "just wrote" once the write transaction commits,
+     * so their next reads are served by the primary until the replica catches up
+     */
+    private void rememberWrite(String user) {
+        if (user == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                writesTracker.recordWrite(user);
+            }
+        });
+    }
+
+    private String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.carsharing.backend.datasource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers who wrote to the primary recently
+ *
+ * Example: a passenger books a ride and immediately opens "my bookings".
+ * The replica may not have the booking yet, so for the next few seconds
+ * their reads are sent to the primary.
+ */
+public class ReadYourWritesTracker {
+
+    private final long windowMillis;
+    private final Map<String, Long> lastWriteByUser = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public void recordWrite(String user) {
+        lastWriteByUser.put(user, System.currentTimeMillis());
+    }
+
+    public boolean wroteRecently(String user) {
+        if (user == null) {
+            return false;
+        }
+        Long lastWrite = lastWriteByUser.get(user);
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - lastWrite > windowMillis) {
+            lastWriteByUser.remove(user, lastWrite); // expired, keeps the map small
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drops expired entries of users that did not read again
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - windowMillis;
+        lastWriteByUser.values().removeIf(lastWrite -> lastWrite < cutoff);
+    }
+}
@@ -0,0 +1,66 @@
+package com.carsharing.backend.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Periodically asks the replica how far behind the primary it is.
+ * If the lag is over the limit (or the replica does not answer)
+ * read-only transactions fall back to the primary.
+ *
+ * The lag query must return the lag in seconds, for example:
+ * - PostgreSQL: SELECT COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+ * - H2 (local stand-in, no real replication): SELECT 0
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+
+    private volatile boolean replicaUsable = true;
+    private volatile double lastLagSeconds;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, double maxLagSeconds) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public double getLastLagSeconds() {
+        return lastLagSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${carsharing.datasource.replica.lag-check-interval-ms:1000}")
+    public void check() {
+        boolean usable;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(lagQuery)) {
+            lastLagSeconds = rs.next() ? rs.getDouble(1) : Double.MAX_VALUE;
+            usable = lastLagSeconds <= maxLagSeconds;
+        } catch (Exception e) {
+            lastLagSeconds = Double.MAX_VALUE;
+            usable = false;
+        }
+
+        if (usable != replicaUsable) {
+            if (usable) {
+                log.info("Replica is back (lag {}s), read-only transactions use it again", lastLagSeconds);
+            } else {
+                log.warn("Replica lag over {}s or replica down, read-only transactions go to primary", maxLagSeconds);
+            }
+        }
+        replicaUsable = usable;
+    }
+}
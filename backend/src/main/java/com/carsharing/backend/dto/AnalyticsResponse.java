@@ -0,0 +1,65 @@
+package com.carsharing.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Responses of GET /api/admin/analytics/**
+ */
+public final class AnalyticsResponse {
+
+    private AnalyticsResponse() {
+    }
+
+    // GET /api/admin/analytics/routes - most booked routes first
+    @Getter
+    @AllArgsConstructor
+    public static class RouteItem {
+        private String startLocation;
+        private String endLocation;
+        private long bookings;
+        private long seatsBooked;      // PENDING, CONFIRMED, COMPLETED
+        private double cancellationRate;
+    }
+
+    // GET /api/admin/analytics/cancellations
+    @Getter
+    @AllArgsConstructor
+    public static class Cancellations {
+        private long totalBookings;
+        private Map<String, Long> bookingsByStatus;
+        private double cancellationRate;  // CANCELLED / all
+        private double expiryRate;        // EXPIRED / all
+    }
+
+    // GET /api/admin/analytics/revenue - one item per departure day
+    @Getter
+    @AllArgsConstructor
+    public static class DayRevenue {
+        private LocalDate day;
+        private long paidBookings;        // CONFIRMED, COMPLETED
+        private BigDecimal revenue;
+    }
+
+    // GET /api/admin/analytics/occupancy - booked / total seats per ride
+    @Getter
+    @AllArgsConstructor
+    public static class Occupancy {
+        private long rides;
+        private double averageOccupancy;  // booked seats only, held seats are not counted
+        private long heldSeats;           // in checkout (seat holds) right now
+        private List<Bucket> distribution;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Bucket {
+        private String range;             // "0-10%" ... "90-100%", "100%"
+        private long rides;
+    }
+}
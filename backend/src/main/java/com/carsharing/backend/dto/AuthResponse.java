@@ -8,7 +8,7 @@ import lombok.Setter;
 
 /**
  * Response after login/register
- * Backend returns: token JWT + info user
+ * Backend returns: token JWT + refresh token + info user
  */
 @Getter
 @Setter
@@ -16,6 +16,8 @@ import lombok.Setter;
 @AllArgsConstructor
 public class AuthResponse {
     private String token;
+    private String refreshToken;
+    private Long expiresIn;     // validity of the access token in ms
     private Long id;
     private String email;
     private String fullName;
@@ -23,7 +25,13 @@ public class AuthResponse {
 
     // Constructor convenience for UserService
     public AuthResponse(String token, User user) {
+        this(token, null, null, user);
+    }
+
+    public AuthResponse(String token, String refreshToken, Long expiresIn, User user) {
         this.token = token;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
         this.id = user.getId();
         this.email = user.getEmail();
         this.fullName = user.getFullName();
@@ -0,0 +1,38 @@
+package com.carsharing.backend.dto;
+
+import com.carsharing.backend.sharding.ShardKeyed;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Request body for POST /api/bookings/batch
+ * {
+ *   "items": [
+ *     { "rideId": 1, "seatsBooked": 2 },
+ *     { "rideId": 7, "seatsBooked": 2 }
+ *   ]
+ * }
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class BatchBookingRequest {
+
+    private List<Item> items;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class Item implements ShardKeyed {
+        private Long rideId;
+        private Integer seatsBooked;
+
+        @Override
+        public Object shardKey() {
+            return rideId;
+        }
+    }
+}
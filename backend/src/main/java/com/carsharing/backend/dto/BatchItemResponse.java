@@ -0,0 +1,16 @@
+package com.carsharing.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One item of a batch booking response
+ */
+@Getter
+@AllArgsConstructor
+public class BatchItemResponse {
+    private Long id;
+    private String status;
+    private String message;
+    private BookingResponse booking;
+}
@@ -0,0 +1,18 @@
+package com.carsharing.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a passenger's booking history (live bookings first, then archived ones)
+ */
+@Getter
+@AllArgsConstructor
+public class BookingHistoryResponse {
+    private List<BookingResponse> content;
+    private int page;
+    private int size;
+    private long totalElements;
+}
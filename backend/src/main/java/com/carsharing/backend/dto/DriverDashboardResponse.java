@@ -0,0 +1,45 @@
+package com.carsharing.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Response of GET /api/drivers/{id}/dashboard
+ */
+@Getter
+@AllArgsConstructor
+public class DriverDashboardResponse {
+
+    private Long driverId;
+    private int seatsSold;
+    private int pendingConfirmations;
+    private int confirmedBookings;
+    private BigDecimal revenue;
+    private List<RideItem> rides;          // latest rides, newest first
+    private List<WeekItem> weeklyRevenue;  // oldest week first
+
+    @Getter
+    @AllArgsConstructor
+    public static class RideItem {
+        private Long rideId;
+        private LocalDateTime departureTime;
+        private Integer totalSeats;
+        private int seatsBooked;
+        private double occupancy;  // 0..1
+        private int pendingBookings;
+        private BigDecimal revenue;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class WeekItem {
+        private LocalDate weekStart;
+        private int seatsSold;
+        private BigDecimal revenue;
+    }
+}
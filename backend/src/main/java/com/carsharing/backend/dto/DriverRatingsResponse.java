@@ -0,0 +1,21 @@
+package com.carsharing.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response of GET /api/drivers/{id}/ratings
+ */
+@Getter
+@AllArgsConstructor
+public class DriverRatingsResponse {
+
+    private Long driverId;
+    private Double averageRating;              // null if no ratings yet
+    private int ratingCount;
+    private Map<Integer, Integer> distribution; // stars -> number of ratings
+    private List<RatingResponse> ratings;       // requested page, newest first
+}
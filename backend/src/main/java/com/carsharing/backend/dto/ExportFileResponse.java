@@ -0,0 +1,18 @@
+package com.carsharing.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of POST /api/admin/exports/{dataset}/file
+ */
+@Getter
+@AllArgsConstructor
+public class ExportFileResponse {
+
+    private String file;
+    private long rows;              // rows written by this call
+    private Long lastId;            // id of the last row in the file
+    private Long resumedAfter;      // null = started from the beginning
+    private boolean alreadyExported;
+}
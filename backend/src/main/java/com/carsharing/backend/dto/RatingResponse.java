@@ -0,0 +1,20 @@
+package com.carsharing.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class RatingResponse {
+
+    private Long id;
+    private Long bookingId;
+    private Long rideId;
+    private Long driverId;
+    private Long passengerId;
+    private Integer stars;
+    private String comment;
+    private LocalDateTime createdAt;
+}
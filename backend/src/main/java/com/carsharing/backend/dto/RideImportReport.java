@@ -0,0 +1,40 @@
+package com.carsharing.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of POST /api/rides/bulk: totals + one entry per line of the upload
+ */
+@Getter
+public class RideImportReport {
+
+    private int total;
+    private int created;
+    private int rejected;
+    private final List<RowResult> rows = new ArrayList<>();
+
+    public void created(int line, Long rideId) {
+        rows.add(new RowResult(line, "CREATED", rideId, null));
+        total++;
+        created++;
+    }
+
+    public void rejected(int line, String error) {
+        rows.add(new RowResult(line, "REJECTED", null, error));
+        total++;
+        rejected++;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowResult {
+        private int line;
+        private String status;
+        private Long rideId;
+        private String error;
+    }
+}
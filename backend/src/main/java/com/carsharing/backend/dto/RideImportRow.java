@@ -0,0 +1,27 @@
+package com.carsharing.backend.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One line of a bulk ride import (NDJSON object or CSV row)
+ * driverId is optional - default is the user who uploads the file
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class RideImportRow {
+    private String startLocation;
+    private String endLocation;
+    private LocalDateTime departureTime;
+    private Integer totalSeats;
+    private BigDecimal pricePerSeat;
+    private Long driverId;
+    private String carModel;
+    private String carColor;
+    private String description;
+}
@@ -0,0 +1,29 @@
+package com.carsharing.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A ride request and the ride proposed to it (GET /api/ride-requests/{id} for the ride's details)
+ */
+@Getter
+@AllArgsConstructor
+public class RideRequestResponse {
+    private Long id;
+    private String startLocation;
+    private String endLocation;
+    private LocalDateTime earliestDeparture;
+    private LocalDateTime latestDeparture;
+    private Integer seats;
+    private BigDecimal maxPricePerSeat;
+    private String status;
+
+    // MATCHED / BOOKED
+    private RideResponse matchedRide;
+    private LocalDateTime matchedAt;
+    private Long bookingId;
+    private LocalDateTime createdAt;
+}
@@ -21,4 +21,6 @@ public class RideResponse {
     // info public despre șofer
     private Long driverId;
     private String driverName;
+    private Double driverRating;      // average stars, null if not rated yet
+    private Integer driverRatingCount;
 }
@@ -0,0 +1,20 @@
+package com.carsharing.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Response of POST /api/rides/{rideId}/holds
+ */
+@Getter
+@AllArgsConstructor
+public class SeatHoldResponse {
+    private Long id;
+    private Long rideId;
+    private Integer seats;
+    private BigDecimal totalPrice;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,49 @@
+package com.carsharing.backend.dto;
+
+import com.carsharing.backend.tracing.RequestTrace;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response of GET /api/admin/traces (without spans and statements) and GET /api/admin/traces/{traceId}
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TraceResponse {
+
+    private String traceId;
+    private String method;
+    private String path;
+    private int status;
+    private String user;
+    private LocalDateTime startedAt;
+    private double durationMs;
+    private Map<String, Double> phasesMs;   // self time per phase
+    private int sqlCount;
+    private double sqlMs;
+    private List<RequestTrace.Span> spans;       // by start time
+    private List<RequestTrace.Statement> statements;
+    private int droppedSpans;
+    private int droppedStatements;
+
+    public static TraceResponse from(RequestTrace trace, boolean details) {
+        Map<String, Double> phases = new LinkedHashMap<>();
+        for (RequestTrace.Phase phase : RequestTrace.Phase.values()) {
+            phases.put(phase.name().toLowerCase(), trace.getPhaseNanos(phase) / 1_000_000.0);
+        }
+        return new TraceResponse(trace.getTraceId(), trace.getMethod(), trace.getPath(), trace.getStatus(),
+                trace.getUser(), trace.getStartedAt(), trace.getDurationNanos() / 1_000_000.0, phases,
+                trace.getSqlCount(), trace.getSqlNanos() / 1_000_000.0,
+                details ? trace.getSpans().stream().sorted(Comparator.comparingLong(RequestTrace.Span::startMicros)).toList() : null,
+                details ? trace.getStatements() : null,
+                trace.getDroppedSpans(), trace.getDroppedStatements());
+    }
+}
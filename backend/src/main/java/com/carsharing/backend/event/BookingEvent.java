@@ -0,0 +1,39 @@
+package com.carsharing.backend.event;
+
+import com.carsharing.backend.model.Booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * Something happened to a booking - drivers and passengers should be told
+ */
+public record BookingEvent(
+        Type type,
+        Long bookingId,
+        Long rideId,
+        Long passengerId,
+        Long driverId,
+        Integer seatsBooked,
+        String status,
+        LocalDateTime occurredAt
+) {
+
+    public enum Type {
+        BOOKING_CREATED,
+        BOOKING_CONFIRMED,
+        BOOKING_CANCELLED
+    }
+
+    public static BookingEvent of(Type type, Booking booking) {
+        return new BookingEvent(
+                type,
+                booking.getId(),
+                booking.getRide().getId(),
+                booking.getPassenger().getId(),
+                booking.getRide().getDriver().getId(),
+                booking.getSeatsBooked(),
+                booking.getStatus().name(),
+                LocalDateTime.now()
+        );
+    }
+}
@@ -0,0 +1,15 @@
+package com.carsharing.backend.event;
+
+/**
+ * Destination of booking events (log, webhook, in-process subscribers, ...)
+ *
+ * Delivery is at-least-once: the same event can arrive twice after a failure,
+ * implementations should be idempotent (e.g. use bookingId + type).
+ * Throwing an exception means "retry later".
+ */
+public interface BookingEventSink {
+
+    String name();
+
+    void deliver(BookingEvent event) throws Exception;
+}
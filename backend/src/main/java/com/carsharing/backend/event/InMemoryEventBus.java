@@ -0,0 +1,41 @@
+package com.carsharing.backend.event;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Sink for code inside the application that wants to react to booking events
+ *
+ * Usage:
+ * eventBus.subscribe(event -> ...);
+ *
+ * Subscribers run on the dispatcher threads, never on the request thread.
+ */
+@Component
+public class InMemoryEventBus implements BookingEventSink {
+
+    private final List<Consumer<BookingEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Consumer<BookingEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<BookingEvent> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    @Override
+    public String name() {
+        return "in-memory";
+    }
+
+    @Override
+    public void deliver(BookingEvent event) {
+        for (Consumer<BookingEvent> subscriber : subscribers) {
+            subscriber.accept(event);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.carsharing.backend.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes every booking event to the application log
+ */
+@Slf4j
+@Component
+public class LoggingEventSink implements BookingEventSink {
+
+    @Override
+    public String name() {
+        return "log";
+    }
+
+    @Override
+    public void deliver(BookingEvent event) {
+        log.info("{} booking={} ride={} passenger={} driver={} seats={}",
+                event.type(), event.bookingId(), event.rideId(), event.passengerId(),
+                event.driverId(), event.seatsBooked());
+    }
+}
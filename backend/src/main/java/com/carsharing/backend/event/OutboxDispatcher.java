@@ -0,0 +1,219 @@
+package com.carsharing.backend.event;
+
+import com.carsharing.backend.cluster.ClusterCoherence;
+import com.carsharing.backend.model.OutboxEvent;
+import com.carsharing.backend.repository.OutboxEventRepository;
+import com.carsharing.backend.sharding.ShardContext;
+import com.carsharing.backend.sharding.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Delivers outbox events to all BookingEventSink beans, in the background
+ *
+ * Flow (every poll-interval-ms):
+ * 1. Reads the undelivered events of the rides waiting longest (batch-size rides),
+ *    in ride order (rideSequence = commit order, see OutboxService)
+ * 2. Claims them for claim-seconds with a conditional update per event, so with several nodes
+ *    an event is delivered by one of them. A ride is delivered only up to the first event this node
+ *    could not claim: the earlier events of a ride are always delivered first, whichever node has them
+ * 3. Each ride always goes to the same lane (single thread), events of one ride are delivered in order
+ * 4. Marks delivered events as dispatched, gives the claims of the others back
+ *
+ * At-least-once: an event is marked only after every sink accepted it. If a sink fails,
+ * the event and the following events of the same ride wait for the next poll.
+ * After max-attempts failures the event is given up (lastError keeps the reason).
+ * A node that dies while delivering keeps its events only until the claim runs out.
+ * Events are written next to their booking, so every shard has its outbox; shards are polled in turn.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "carsharing.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxDispatcher {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxService outboxService;
+    private final List<BookingEventSink> sinks;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterCoherence clusterCoherence;
+
+    @Value("${carsharing.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${carsharing.outbox.lanes:4}")
+    private int laneCount;
+
+    @Value("${carsharing.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${carsharing.outbox.retention-days:7}")
+    private long retentionDays;
+
+    @Value("${carsharing.outbox.claim-seconds:60}")
+    private long claimSeconds;
+
+    private ExecutorService[] lanes;
+
+    @PostConstruct
+    void startLanes() {
+        lanes = new ExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String name = "outbox-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    void stopLanes() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${carsharing.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        shardRouter.forEachShard(this::dispatchShard);
+    }
+
+    private void dispatchShard() {
+        int shard = ShardContext.currentOrHome();
+        List<Long> rideIds = outboxEventRepository.findRidesWithPendingEvents(PageRequest.of(0, batchSize));
+        if (rideIds.isEmpty()) {
+            return;
+        }
+        List<OutboxEvent> events = outboxEventRepository.findPendingByRideIds(rideIds);
+        String node = clusterCoherence.getNodeId();
+        boolean[] claimed = claim(events, node);
+
+        // per ride: the events up to the first one another node holds
+        Map<Long, List<OutboxEvent>> byRide = new LinkedHashMap<>();
+        Set<Long> blockedRides = new HashSet<>();
+        List<Long> released = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            OutboxEvent event = events.get(i);
+            if (!claimed[i] || blockedRides.contains(event.getRideId())) {
+                blockedRides.add(event.getRideId());
+                if (claimed[i]) {
+                    released.add(event.getId());
+                }
+                continue;
+            }
+            byRide.computeIfAbsent(event.getRideId(), id -> new ArrayList<>()).add(event);
+        }
+
+        List<Future<List<Long>>> results = new ArrayList<>(byRide.size());
+        byRide.forEach((rideId, rideEvents) ->
+                results.add(lanes[Math.floorMod(rideId, laneCount)].submit(
+                        () -> shardRouter.callOn(shard, () -> deliverInOrder(rideEvents)))));
+
+        Set<Long> done = new HashSet<>(events.size());
+        for (Future<List<Long>> result : results) {
+            try {
+                done.addAll(result.get());
+            } catch (ExecutionException e) {
+                log.error("Outbox lane failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (!done.isEmpty()) {
+            outboxEventRepository.markDispatched(done, LocalDateTime.now());
+        }
+        byRide.values().forEach(rideEvents -> rideEvents.stream()
+                .map(OutboxEvent::getId)
+                .filter(id -> !done.contains(id))
+                .forEach(released::add));
+        if (!released.isEmpty()) {
+            outboxEventRepository.releaseClaims(released, node);
+        }
+    }
+
+    /**
+     * One conditional update per event (JDBC batch): free, claim ran out, or already ours
+     * @return per event, whether this node holds it now
+     */
+    private boolean[] claim(List<OutboxEvent> events, String node) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plusSeconds(claimSeconds);
+        int[] counts = jdbcTemplate.batchUpdate("""
+                        UPDATE outbox_events SET claimed_by = ?, claimed_until = ?
+                        WHERE id = ? AND dispatched_at IS NULL
+                          AND (claimed_until IS NULL OR claimed_until < ? OR claimed_by = ?)""",
+                events.stream().map(event -> new Object[]{node, until, event.getId(), now, node}).toList());
+        boolean[] claimed = new boolean[events.size()];
+        for (int i = 0; i < counts.length; i++) {
+            claimed[i] = counts[i] > 0;
+        }
+        return claimed;
+    }
+
+    /**
+     * Events of one ride, oldest first. Stops at the first failure to keep the order.
+     * @return ids of events that do not need another attempt
+     */
+    private List<Long> deliverInOrder(List<OutboxEvent> rideEvents) {
+        List<Long> done = new ArrayList<>(rideEvents.size());
+        for (OutboxEvent outboxEvent : rideEvents) {
+            try {
+                BookingEvent event = outboxService.read(outboxEvent);
+                for (BookingEventSink sink : sinks) {
+                    sink.deliver(event);
+                }
+                done.add(outboxEvent.getId());
+            } catch (Exception e) {
+                outboxEventRepository.markFailed(outboxEvent.getId(), String.valueOf(e.getMessage()));
+
+                if (outboxEvent.getAttempts() + 1 >= maxAttempts) {
+                    log.error("Giving up outbox event {} ({}) after {} attempts",
+                            outboxEvent.getId(), outboxEvent.getEventType(), maxAttempts, e);
+                    done.add(outboxEvent.getId());
+                    continue;
+                }
+                log.warn("Outbox event {} failed, retrying later: {}", outboxEvent.getId(), e.getMessage());
+                break;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Removes delivered events older than retention-days
+     */
+    @Scheduled(fixedDelayString = "${carsharing.outbox.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        shardRouter.forEachShard(() -> {
+            int deleted = outboxEventRepository.deleteDispatchedBefore(LocalDateTime.now().minusDays(retentionDays));
+            if (deleted > 0) {
+                log.info("Deleted {} dispatched outbox events", deleted);
+            }
+        });
+    }
+}
@@ -0,0 +1,58 @@
+package com.carsharing.backend.event;
+
+import com.carsharing.backend.model.OutboxEvent;
+import com.carsharing.backend.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes events to the outbox table
+ * MANDATORY: must be called inside the transaction that changes the booking
+ *
+ * Every event gets the next sequence number of its ride. The counter lives on the ride row,
+ * which stays locked until commit, so the sequence of a ride follows the commit order.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(BookingEvent event) {
+        jdbcTemplate.update("UPDATE rides SET outbox_sequence = COALESCE(outbox_sequence, 0) + 1 WHERE id = ?",
+                event.rideId());
+        Long sequence = jdbcTemplate.queryForObject("SELECT outbox_sequence FROM rides WHERE id = ?",
+                Long.class, event.rideId());
+
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setRideId(event.rideId());
+        outboxEvent.setRideSequence(sequence);
+        outboxEvent.setEventType(event.type().name());
+        outboxEvent.setPayload(toJson(event));
+        outboxEventRepository.save(outboxEvent);
+    }
+
+    BookingEvent read(OutboxEvent outboxEvent) {
+        try {
+            return objectMapper.readValue(outboxEvent.getPayload(), BookingEvent.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt outbox event " + outboxEvent.getId(), e);
+        }
+    }
+
+    private String toJson(BookingEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event.type(), e);
+        }
+    }
+}
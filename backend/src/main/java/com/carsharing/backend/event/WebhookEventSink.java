@@ -0,0 +1,38 @@
+package com.carsharing.backend.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Webhook integration stub - enabled when carsharing.outbox.webhook.url is set
+ *
+ * For now it only logs the request it would send.
+ * The real HTTP call goes in deliver(); an exception there makes the dispatcher retry the event.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "carsharing.outbox.webhook.url")
+public class WebhookEventSink implements BookingEventSink {
+
+    private final ObjectMapper objectMapper;
+    private final String url;
+
+    public WebhookEventSink(ObjectMapper objectMapper, @Value("${carsharing.outbox.webhook.url}") String url) {
+        this.objectMapper = objectMapper;
+        this.url = url;
+    }
+
+    @Override
+    public String name() {
+        return "webhook";
+    }
+
+    @Override
+    public void deliver(BookingEvent event) throws Exception {
+        String body = objectMapper.writeValueAsString(event);
+        log.debug("POST {} {}", url, body);
+    }
+}
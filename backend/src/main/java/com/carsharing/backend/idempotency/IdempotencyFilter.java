@@ -0,0 +1,274 @@
+package com.carsharing.backend.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotency-Key support for booking create/cancel/confirm, seat holds and ride creation
+ *
+ * A client that retries a request with the same Idempotency-Key header gets the response
+ * of the first execution (header Idempotent-Replayed: true) instead of running it again.
+ *
+ * - Keys are per user: the store key is a hash of user + method + path + Idempotency-Key
+ * - Same key with a different body -> 422
+ * - Same key while the first request is still running: waits for it on this node,
+ *   409 if it is running on another node (until its lease runs out, see IdempotencyStore)
+ * - Only responses below 500 are stored, after a server error the client may retry
+ *
+ * Registered as a servlet filter after the Spring Security chain, so the user is known.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "carsharing.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final List<String> POST_PATHS = List.of(
+            "/api/bookings", "/api/bookings/batch", "/api/rides",
+            "/api/rides/*/holds", "/api/rides/*/holds/*/confirm");
+    private static final List<String> PUT_PATHS = List.of(
+            "/api/bookings/*/cancel", "/api/bookings/*/confirm",
+            "/api/bookings/ride/*/cancel", "/api/bookings/ride/*/confirm");
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+
+    @Value("${carsharing.idempotency.wait-ms:30000}")
+    private long waitMillis;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        if (request.getHeader(HEADER) == null) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        List<String> patterns = switch (request.getMethod()) {
+            case "POST" -> POST_PATHS;
+            case "PUT" -> PUT_PATHS;
+            default -> List.of();
+        };
+        return patterns.stream().noneMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String idempotencyKey = request.getHeader(HEADER);
+        Principal user = request.getUserPrincipal();
+        if (user == null) {
+            // not authenticated, security already answers 401/403
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > 255) {
+            writeError(response, HttpStatus.BAD_REQUEST, HEADER + " must be 1 to 255 characters");
+            return;
+        }
+
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String key = sha256(user.getName() + '\n' + request.getMethod() + '\n' + request.getRequestURI() + '\n' + idempotencyKey);
+        String requestHash = sha256(cachedRequest.body);
+
+        Optional<StoredResponse> stored = store.find(key);
+        if (stored.isPresent()) {
+            replay(stored.get(), requestHash, response);
+            return;
+        }
+
+        CompletableFuture<StoredResponse> running = store.claimLocal(key);
+        if (running != null) {
+            waitAndReplay(running, requestHash, response);
+            return;
+        }
+
+        try {
+            // the key may have been finished between find() and claimLocal()
+            stored = store.find(key);
+            if (stored.isPresent()) {
+                store.abandonLocal(key);
+                replay(stored.get(), requestHash, response);
+                return;
+            }
+            if (!store.claimGlobal(key, requestHash)) {
+                store.abandonLocal(key);
+                writeError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is already being processed");
+                return;
+            }
+        } catch (RuntimeException e) {
+            store.abandonLocal(key);
+            throw e;
+        }
+
+        ContentCachingResponseWrapper cachedResponse = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(cachedRequest, cachedResponse);
+
+            if (cachedResponse.getStatus() < 500) {
+                store.complete(key, requestHash, cachedResponse.getStatus(),
+                        cachedResponse.getContentType(), cachedResponse.getContentAsByteArray());
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                store.abandon(key);
+            }
+            cachedResponse.copyBodyToResponse();
+        }
+    }
+
+    private void waitAndReplay(CompletableFuture<StoredResponse> running, String requestHash,
+                               HttpServletResponse response) throws IOException {
+        try {
+            StoredResponse first = running.get(waitMillis, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                writeError(response, HttpStatus.CONFLICT, "The first request with this " + HEADER + " failed, retry it");
+                return;
+            }
+            replay(first, requestHash, response);
+        } catch (TimeoutException e) {
+            writeError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is already being processed");
+        } catch (ExecutionException e) {
+            writeError(response, HttpStatus.CONFLICT, "The first request with this " + HEADER + " failed, retry it");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is already being processed");
+        }
+    }
+
+    private void replay(StoredResponse stored, String requestHash, HttpServletResponse response) throws IOException {
+        if (!stored.requestHash().equals(requestHash)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used with a different request body");
+            return;
+        }
+        response.setStatus(stored.statusCode());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.body() != null) {
+            response.setContentLength(stored.body().length);
+            response.getOutputStream().write(stored.body());
+        }
+    }
+
+    /**
+     * Same body as GlobalExceptionHandler
+     */
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("timestamp", LocalDateTime.now());
+        errorResponse.put("status", status.value());
+        errorResponse.put("error", status.getReasonPhrase());
+        errorResponse.put("message", message);
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    private static String sha256(String value) {
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(byte[] value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the body once (for the hash) and serves it again to the controller
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // the whole body is in memory: readable at once, and nothing comes after it
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.carsharing.backend.idempotency;
+
+import com.carsharing.backend.model.IdempotencyRecord;
+import com.carsharing.backend.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stored responses for Idempotency-Key
+ *
+ * - Memory: LRU map (max-entries) with TTL, answers most retries without touching the DB
+ * - DB (idempotency_keys): survives restarts and is shared by all nodes
+ * - In-flight: a second request with a key that is still running waits for the first one
+ * - The DB claim is a lease (lease-seconds): if its node dies, or the key cannot be freed after a
+ *   failure, a retry takes the key over once the lease ran out instead of getting 409 until the TTL
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    private final IdempotencyRecordRepository repository;
+    private final long ttlMillis;
+    private final long leaseSeconds;
+    private final Map<String, StoredResponse> cache;
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(IdempotencyRecordRepository repository,
+                            @Value("${carsharing.idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${carsharing.idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${carsharing.idempotency.lease-seconds:60}") long leaseSeconds) {
+        this.repository = repository;
+        this.ttlMillis = ttlHours * 3600_000;
+        this.leaseSeconds = leaseSeconds;
+        this.cache = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Finished response for this key (memory first, then DB)
+     */
+    public Optional<StoredResponse> find(String key) {
+        StoredResponse response;
+        synchronized (cache) {
+            response = cache.get(key);
+        }
+        if (response != null && !response.isExpired()) {
+            return Optional.of(response);
+        }
+
+        return repository.findById(key)
+                .filter(r -> r.getStatusCode() != null)
+                .map(this::toResponse)
+                .filter(r -> !r.isExpired())
+                .map(r -> {
+                    remember(key, r);
+                    return r;
+                });
+    }
+
+    /**
+     * Tries to become the only request executing this key
+     * @return null if this request won, otherwise the future of the request already running here
+     */
+    public CompletableFuture<StoredResponse> claimLocal(String key) {
+        return inFlight.putIfAbsent(key, new CompletableFuture<>());
+    }
+
+    /**
+     * Claims the key in the DB (other nodes), or takes it over if the request holding it died
+     * or its stored response expired (not deleted yet)
+     * @return false if another request is executing (lease still valid) or already executed it
+     */
+    public boolean claimGlobal(String key, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusNanos(ttlMillis * 1_000_000);
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setId(key);
+        record.setRequestHash(requestHash);
+        record.setExpiresAt(expiresAt);
+        record.setLockedUntil(now.plusSeconds(leaseSeconds));
+        try {
+            repository.save(record);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // conditional update: of several retries racing for a dead claim only one wins
+            return repository.takeOver(key, requestHash, record.getLockedUntil(), expiresAt, now) == 1;
+        }
+    }
+
+    /**
+     * Stores the response of the winning request and wakes up the waiting ones
+     */
+    public void complete(String key, String requestHash, int statusCode, String contentType, byte[] body) {
+        StoredResponse response = new StoredResponse(requestHash, statusCode, contentType, body,
+                System.currentTimeMillis() + ttlMillis);
+        try {
+            repository.findById(key).ifPresent(record -> {
+                record.setStatusCode(statusCode);
+                record.setContentType(contentType);
+                record.setBody(body);
+                record.setLockedUntil(null);
+                repository.save(record);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not persist idempotency key, kept in memory only", e);
+        }
+        remember(key, response);
+        release(key, response);
+    }
+
+    /**
+     * The request failed (5xx/exception): the key is freed so the client can retry
+     * (if the delete fails the key is free again when its lease runs out)
+     */
+    public void abandon(String key) {
+        try {
+            repository.deleteById(key);
+        } catch (RuntimeException e) {
+            log.warn("Could not free idempotency key", e);
+        }
+        release(key, null);
+    }
+
+    /**
+     * Frees the local claim only (the DB row was not created by this request)
+     */
+    public void abandonLocal(String key) {
+        release(key, null);
+    }
+
+    private void release(String key, StoredResponse response) {
+        CompletableFuture<StoredResponse> future = inFlight.remove(key);
+        if (future != null) {
+            future.complete(response);
+        }
+    }
+
+    private void remember(String key, StoredResponse response) {
+        synchronized (cache) {
+            cache.put(key, response);
+        }
+    }
+
+    private StoredResponse toResponse(IdempotencyRecord record) {
+        long expiresAt = record.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new StoredResponse(record.getRequestHash(), record.getStatusCode(), record.getContentType(),
+                record.getBody(), expiresAt);
+    }
+
+    @Scheduled(fixedDelayString = "${carsharing.idempotency.cleanup-interval-ms:600000}")
+    public void evictExpired() {
+        synchronized (cache) {
+            cache.values().removeIf(StoredResponse::isExpired);
+        }
+        int deleted = repository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Deleted {} expired idempotency keys at {}", deleted, Instant.now());
+        }
+    }
+}
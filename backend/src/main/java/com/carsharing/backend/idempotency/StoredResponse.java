@@ -0,0 +1,11 @@
+package com.carsharing.backend.idempotency;
+
+/**
+ * Response of the first request, replayed for retries with the same key
+ */
+public record StoredResponse(String requestHash, int statusCode, String contentType, byte[] body, long expiresAtMillis) {
+
+    boolean isExpired() {
+        return System.currentTimeMillis() > expiresAtMillis;
+    }
+}
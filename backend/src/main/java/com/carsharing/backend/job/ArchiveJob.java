@@ -0,0 +1,135 @@
+package com.carsharing.backend.job;
+
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
+import com.carsharing.backend.ledger.SeatChange;
+import com.carsharing.backend.ledger.SeatLedger;
+import com.carsharing.backend.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves old COMPLETED/CANCELLED rides and all their bookings from the hot tables
+ * (rides, bookings) to the archive tables (rides_archive, bookings_archive).
+ *
+ * The hot tables then contain only rides people can still book, so every finder
+ * of RideRepository/BookingRepository scans live data only.
+ * History stays available through BookingService.getBookingHistory().
+ *
+ * Per chunk, in one transaction: copy bookings, copy rides, delete bookings, delete rides.
+ * If another node archives the same rides first, the copy fails on the archive primary key,
+ * the transaction rolls back and this node stops until the next run (of that shard).
+ * Rides and their bookings are on the same shard, each shard archives into its own tables.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "carsharing.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class ArchiveJob {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ClusterCoherence clusterCoherence;
+    private final ShardRouter shardRouter;
+    private final SeatLedger seatLedger;
+
+    @Value("${carsharing.archive.after-days:90}")
+    private long afterDays;
+
+    @Value("${carsharing.archive.chunk-size:200}")
+    private int chunkSize;
+
+    @Scheduled(fixedDelayString = "${carsharing.archive.interval-ms:3600000}")
+    public void scheduledArchive() {
+        archive();
+    }
+
+    /**
+     * One full pass
+     * @return number of rides archived
+     */
+    public int archive() {
+        Timestamp departedBefore = Timestamp.valueOf(LocalDateTime.now().minusDays(afterDays));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        int[] archived = {0, 0};  // rides, bookings
+        shardRouter.forEachShard(() -> {
+            try {
+                while (true) {
+                    int[] counts = tx.execute(status -> archiveChunk(departedBefore));
+                    archived[0] += counts[0];
+                    archived[1] += counts[1];
+                    if (counts[0] < chunkSize) {
+                        break;
+                    }
+                }
+            } catch (DuplicateKeyException e) {
+                // the only unique keys written are the archive primary keys, any other violation is a real error
+                log.info("Archive chunk already moved by another node, stopping this run");
+            }
+        });
+
+        if (archived[0] > 0) {
+            log.info("Archived {} rides and {} bookings older than {} days", archived[0], archived[1], afterDays);
+        }
+        return archived[0];
+    }
+
+    private int[] archiveChunk(Timestamp departedBefore) {
+        List<Long> rideIds = jdbcTemplate.queryForList("""
+                        SELECT id FROM rides
+                        WHERE status IN ('COMPLETED', 'CANCELLED') AND departure_time < ?
+                        ORDER BY id
+                        LIMIT ?""",
+                Long.class, departedBefore, chunkSize);
+
+        if (rideIds.isEmpty()) {
+            return new int[]{0, 0};
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", rideIds)
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()));
+
+        int bookings = namedJdbcTemplate.update("""
+                INSERT INTO bookings_archive (id, passenger_id, passenger_name, ride_id, start_location, end_location,
+                                              departure_time, seats_booked, total_price, status, created_at, archived_at)
+                SELECT b.id, b.passenger_id, u.full_name, r.id, r.start_location, r.end_location,
+                       r.departure_time, b.seats_booked, b.total_price, b.status, b.created_at, :now
+                FROM bookings b
+                JOIN rides r ON r.id = b.ride_id
+                JOIN users u ON u.id = b.passenger_id
+                WHERE b.ride_id IN (:ids)""", params);
+
+        namedJdbcTemplate.update("""
+                INSERT INTO rides_archive (id, start_location, end_location, departure_time, total_seats, price_per_seat,
+                                           driver_id, driver_name, status, car_model, car_color, description,
+                                           created_at, archived_at)
+                SELECT r.id, r.start_location, r.end_location, r.departure_time, r.total_seats, r.price_per_seat,
+                       r.driver_id, d.full_name, r.status, r.car_model, r.car_color, r.description,
+                       r.created_at, :now
+                FROM rides r
+                JOIN users d ON d.id = r.driver_id
+                WHERE r.id IN (:ids)""", params);
+
+        namedJdbcTemplate.update("DELETE FROM bookings WHERE ride_id IN (:ids)", params);
+        namedJdbcTemplate.update("DELETE FROM rides WHERE id IN (:ids)", params);
+        clusterCoherence.invalidateAll(CacheRegion.RIDE, rideIds);
+        rideIds.forEach(rideId -> seatLedger.record(SeatChange.CLOSE, rideId, null, 0));
+
+        return new int[]{rideIds.size(), bookings};
+    }
+}
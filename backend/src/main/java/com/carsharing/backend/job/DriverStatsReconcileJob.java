@@ -0,0 +1,292 @@
+package com.carsharing.backend.job;
+
+import com.carsharing.backend.service.DriverStatsService;
+import com.carsharing.backend.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Repairs the driver dashboard counters (see DriverStatsService)
+ *
+ * 1. ride_stats of every live ride is recomputed from its bookings
+ * 2. driver_stats and driver_weekly_stats are recomputed from ride_stats
+ * Only rows that differ are written. Rows of archived rides are left as they are.
+ *
+ * The counters being repaired are locked (SELECT ... FOR UPDATE) before the real values are read,
+ * so a booking committed at the same time is counted exactly once: either it committed before
+ * the lock and is in the recomputed value, or it waits and adds its change afterwards.
+ * The first run after startup also fills the counters for data that existed before them.
+ * Counters are kept per shard (next to the bookings), each shard is repaired in turn.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "carsharing.dashboard.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class DriverStatsReconcileJob {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final DriverStatsService driverStatsService;
+    private final ShardRouter shardRouter;
+
+    @Value("${carsharing.dashboard.reconcile.chunk-size:500}")
+    private int chunkSize;
+
+    @Scheduled(initialDelayString = "${carsharing.dashboard.reconcile.initial-delay-ms:10000}",
+            fixedDelayString = "${carsharing.dashboard.reconcile.interval-ms:3600000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * One full pass
+     * @return number of counter rows that had to be repaired
+     */
+    public int reconcile() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int[] repaired = {0};
+        shardRouter.forEachShard(() -> repaired[0] += reconcileShard(tx));
+
+        if (repaired[0] > 0) {
+            log.info("Driver stats reconcile repaired {} rows", repaired[0]);
+        }
+        return repaired[0];
+    }
+
+    private int reconcileShard(TransactionTemplate tx) {
+        int repaired = 0;
+
+        long lastId = 0;
+        List<Long> rideIds;
+        do {
+            rideIds = jdbcTemplate.queryForList(
+                    "SELECT id FROM rides WHERE id > ? ORDER BY id LIMIT ?", Long.class, lastId, chunkSize);
+            if (rideIds.isEmpty()) {
+                break;
+            }
+            lastId = rideIds.get(rideIds.size() - 1);
+            repaired += inChunk(tx, rideIds, this::reconcileRides);
+        } while (rideIds.size() == chunkSize);
+
+        lastId = 0;
+        List<Long> driverIds;
+        do {
+            driverIds = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT driver_id FROM ride_stats WHERE driver_id > ? ORDER BY driver_id LIMIT ?",
+                    Long.class, lastId, chunkSize);
+            if (driverIds.isEmpty()) {
+                break;
+            }
+            lastId = driverIds.get(driverIds.size() - 1);
+            repaired += inChunk(tx, driverIds, this::reconcileDrivers);
+        } while (driverIds.size() == chunkSize);
+        return repaired;
+    }
+
+    private int inChunk(TransactionTemplate tx, List<Long> ids, ChunkStep step) {
+        try {
+            return tx.execute(status -> step.apply(ids));
+        } catch (DataAccessException e) {
+            // lock timeout or a row created concurrently: this chunk is checked again next run
+            log.warn("Driver stats reconcile chunk skipped: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private int reconcileRides(List<Long> rideIds) {
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", rideIds);
+
+        Map<Long, RideCounters> stored = new HashMap<>();
+        namedJdbcTemplate.query("""
+                        SELECT ride_id, driver_id, departure_time, total_seats,
+                               seats_booked, pending_bookings, confirmed_bookings, revenue
+                        FROM ride_stats WHERE ride_id IN (:ids) ORDER BY ride_id FOR UPDATE""",
+                ids, rs -> {
+                    RideCounters counters = rideCounters(rs);
+                    stored.put(counters.rideId(), counters);
+                });
+
+        List<RideCounters> actual = namedJdbcTemplate.query("""
+                        SELECT r.id, r.driver_id, r.departure_time, r.total_seats,
+                               COALESCE(SUM(CASE WHEN b.status IN ('PENDING', 'CONFIRMED', 'COMPLETED') THEN b.seats_booked END), 0),
+                               COUNT(CASE WHEN b.status = 'PENDING' THEN 1 END),
+                               COUNT(CASE WHEN b.status IN ('CONFIRMED', 'COMPLETED') THEN 1 END),
+                               COALESCE(SUM(CASE WHEN b.status IN ('CONFIRMED', 'COMPLETED') THEN b.total_price END), 0)
+                        FROM rides r LEFT JOIN bookings b ON b.ride_id = r.id
+                        WHERE r.id IN (:ids)
+                        GROUP BY r.id, r.driver_id, r.departure_time, r.total_seats""",
+                ids, (rs, i) -> rideCounters(rs));
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (RideCounters counters : actual) {
+            RideCounters current = stored.get(counters.rideId());
+            if (current == null) {
+                inserts.add(new Object[]{counters.driverId(), Timestamp.valueOf(counters.departureTime()),
+                        DriverStatsService.weekStart(counters.departureTime()), counters.totalSeats(), counters.seats(),
+                        counters.pending(), counters.confirmed(), counters.revenue(), counters.rideId()});
+            } else if (!current.sameAs(counters)) {
+                updates.add(new Object[]{counters.driverId(), Timestamp.valueOf(counters.departureTime()),
+                        DriverStatsService.weekStart(counters.departureTime()), counters.totalSeats(), counters.seats(),
+                        counters.pending(), counters.confirmed(), counters.revenue(), counters.rideId()});
+            }
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO ride_stats (driver_id, departure_time, week_start, total_seats, seats_booked,
+                                        pending_bookings, confirmed_bookings, revenue, ride_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""", inserts);
+        jdbcTemplate.batchUpdate("""
+                UPDATE ride_stats
+                SET driver_id = ?, departure_time = ?, week_start = ?, total_seats = ?, seats_booked = ?,
+                    pending_bookings = ?, confirmed_bookings = ?, revenue = ?
+                WHERE ride_id = ?""", updates);
+
+        // new rows without bookings are not drift
+        int repaired = updates.size();
+        for (Object[] insert : inserts) {
+            if ((int) insert[4] != 0 || (int) insert[5] != 0 || (int) insert[6] != 0) {
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    private int reconcileDrivers(List<Long> driverIds) {
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", driverIds);
+
+        // same lock order as DriverStatsService: driver rows, then week rows
+        Map<Long, Totals> storedDrivers = new HashMap<>();
+        namedJdbcTemplate.query("""
+                        SELECT driver_id, seats_sold, pending_confirmations, confirmed_bookings, revenue
+                        FROM driver_stats WHERE driver_id IN (:ids) ORDER BY driver_id FOR UPDATE""",
+                ids, rs -> {
+                    storedDrivers.put(rs.getLong(1), new Totals(rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getBigDecimal(5)));
+                });
+        Map<WeekKey, Totals> storedWeeks = new HashMap<>();
+        namedJdbcTemplate.query("""
+                        SELECT driver_id, week_start, seats_sold, revenue
+                        FROM driver_weekly_stats WHERE driver_id IN (:ids) ORDER BY driver_id, week_start FOR UPDATE""",
+                ids, rs -> {
+                    storedWeeks.put(new WeekKey(rs.getLong(1), rs.getObject(2, LocalDate.class)),
+                            new Totals(rs.getInt(3), 0, 0, rs.getBigDecimal(4)));
+                });
+
+        Set<Long> changedDrivers = new HashSet<>();
+        List<Object[]> driverInserts = new ArrayList<>();
+        List<Object[]> driverUpdates = new ArrayList<>();
+        namedJdbcTemplate.query("""
+                        SELECT driver_id, SUM(seats_booked), SUM(pending_bookings), SUM(confirmed_bookings), SUM(revenue)
+                        FROM ride_stats WHERE driver_id IN (:ids) GROUP BY driver_id""",
+                ids, rs -> {
+                    long driverId = rs.getLong(1);
+                    Totals actual = new Totals(rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getBigDecimal(5));
+                    Totals current = storedDrivers.get(driverId);
+                    if (current == null || !current.sameAs(actual)) {
+                        changedDrivers.add(driverId);
+                        (current == null ? driverInserts : driverUpdates).add(new Object[]{
+                                actual.seats(), actual.pending(), actual.confirmed(), actual.revenue(), driverId});
+                    }
+                });
+
+        List<Object[]> weekInserts = new ArrayList<>();
+        List<Object[]> weekUpdates = new ArrayList<>();
+        Set<WeekKey> seenWeeks = new HashSet<>();
+        namedJdbcTemplate.query("""
+                        SELECT driver_id, week_start, SUM(seats_booked), SUM(revenue)
+                        FROM ride_stats WHERE driver_id IN (:ids) GROUP BY driver_id, week_start""",
+                ids, rs -> {
+                    WeekKey week = new WeekKey(rs.getLong(1), rs.getObject(2, LocalDate.class));
+                    Totals actual = new Totals(rs.getInt(3), 0, 0, rs.getBigDecimal(4));
+                    Totals current = storedWeeks.get(week);
+                    seenWeeks.add(week);
+                    if (current == null || !current.sameAs(actual)) {
+                        changedDrivers.add(week.driverId());
+                        (current == null ? weekInserts : weekUpdates).add(new Object[]{
+                                actual.seats(), actual.revenue(), week.driverId(), week.weekStart()});
+                    }
+                });
+        // weeks whose rides moved to another week
+        storedWeeks.forEach((week, current) -> {
+            if (!seenWeeks.contains(week) && !current.sameAs(Totals.ZERO)) {
+                changedDrivers.add(week.driverId());
+                weekUpdates.add(new Object[]{0, BigDecimal.ZERO, week.driverId(), week.weekStart()});
+            }
+        });
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO driver_stats (seats_sold, pending_confirmations, confirmed_bookings, revenue, driver_id)
+                VALUES (?, ?, ?, ?, ?)""", driverInserts);
+        jdbcTemplate.batchUpdate("""
+                UPDATE driver_stats SET seats_sold = ?, pending_confirmations = ?, confirmed_bookings = ?, revenue = ?
+                WHERE driver_id = ?""", driverUpdates);
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO driver_weekly_stats (seats_sold, revenue, driver_id, week_start)
+                VALUES (?, ?, ?, ?)""", weekInserts);
+        jdbcTemplate.batchUpdate("""
+                UPDATE driver_weekly_stats SET seats_sold = ?, revenue = ?
+                WHERE driver_id = ? AND week_start = ?""", weekUpdates);
+
+        driverStatsService.evict(changedDrivers);
+        return driverUpdates.size() + weekUpdates.size()
+                + (int) driverInserts.stream().filter(row -> (int) row[0] != 0 || (int) row[1] != 0).count()
+                + (int) weekInserts.stream().filter(row -> (int) row[0] != 0).count();
+    }
+
+    private static RideCounters rideCounters(ResultSet rs) throws SQLException {
+        return new RideCounters(rs.getLong(1), rs.getLong(2), rs.getTimestamp(3).toLocalDateTime(), rs.getInt(4),
+                rs.getInt(5), rs.getInt(6), rs.getInt(7), rs.getBigDecimal(8));
+    }
+
+    @FunctionalInterface
+    private interface ChunkStep {
+        int apply(List<Long> ids);
+    }
+
+    private record RideCounters(long rideId, long driverId, LocalDateTime departureTime, int totalSeats,
+                                int seats, int pending, int confirmed, BigDecimal revenue) {
+
+        boolean sameAs(RideCounters other) {
+            return driverId == other.driverId && Objects.equals(departureTime, other.departureTime)
+                    && totalSeats == other.totalSeats && seats == other.seats && pending == other.pending
+                    && confirmed == other.confirmed && revenue.compareTo(other.revenue) == 0;
+        }
+    }
+
+    private record Totals(int seats, int pending, int confirmed, BigDecimal revenue) {
+
+        static final Totals ZERO = new Totals(0, 0, 0, BigDecimal.ZERO);
+
+        boolean sameAs(Totals other) {
+            return seats == other.seats && pending == other.pending && confirmed == other.confirmed
+                    && revenue.compareTo(other.revenue) == 0;
+        }
+    }
+
+    private record WeekKey(long driverId, LocalDate weekStart) {
+    }
+}
@@ -0,0 +1,201 @@
+package com.carsharing.backend.job;
+
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
+import com.carsharing.backend.ledger.SeatChange;
+import com.carsharing.backend.ledger.SeatLedger;
+import com.carsharing.backend.service.DriverStatsService;
+import com.carsharing.backend.sharding.ShardRouter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Background job that moves rides and bookings through their lifecycle:
+ * 1. PENDING bookings never confirmed (too old, or ride already departed) -> EXPIRED, seats go back to the ride
+ * 2. rides departed more than grace-minutes ago -> COMPLETED, their CONFIRMED bookings -> COMPLETED
+ *
+ * - Works in chunks, one short transaction per chunk
+ * - Every UPDATE checks the current status, so running it twice (or on several nodes
+ *   at the same time) changes nothing the second time and never releases seats twice
+ * - Expiry locks the rides of a chunk (id order) before its bookings, like BookingService does
+ * - Each shard is swept in turn
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "carsharing.lifecycle.enabled", havingValue = "true", matchIfMissing = true)
+public class RideLifecycleJob {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final DriverStatsService driverStatsService;
+    private final ClusterCoherence clusterCoherence;
+    private final ShardRouter shardRouter;
+    private final SeatLedger seatLedger;
+
+    @Value("${carsharing.lifecycle.grace-minutes:120}")
+    private long graceMinutes;
+
+    @Value("${carsharing.lifecycle.pending-ttl-minutes:1440}")
+    private long pendingTtlMinutes;
+
+    @Value("${carsharing.lifecycle.chunk-size:500}")
+    private int chunkSize;
+
+    private volatile SweepReport lastReport;
+
+    @Scheduled(fixedDelayString = "${carsharing.lifecycle.interval-ms:60000}")
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    /**
+     * One full pass, returns what it changed
+     */
+    public SweepReport sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        SweepReport report = new SweepReport();
+
+        shardRouter.forEachShard(() -> {
+            expirePendingBookings(now, report);
+            completeDepartedRides(now.minusMinutes(graceMinutes), report);
+        });
+
+        if (report.hasChanges()) {
+            log.info("Lifecycle sweep: {}", report);
+        }
+        lastReport = report;
+        return report;
+    }
+
+    public SweepReport getLastReport() {
+        return lastReport;
+    }
+
+    private void expirePendingBookings(LocalDateTime now, SweepReport report) {
+        Timestamp createdBefore = Timestamp.valueOf(now.minusMinutes(pendingTtlMinutes));
+        Timestamp departedBefore = Timestamp.valueOf(now);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        int found;
+        do {
+            found = tx.execute(status -> {
+                List<PendingBooking> candidates = jdbcTemplate.query("""
+                                SELECT b.id, b.ride_id, b.seats_booked, r.driver_id, r.departure_time, r.total_seats
+                                FROM bookings b JOIN rides r ON r.id = b.ride_id
+                                WHERE b.status = 'PENDING' AND (b.created_at < ? OR r.departure_time < ?)
+                                ORDER BY b.id
+                                LIMIT ?""",
+                        (rs, i) -> new PendingBooking(rs.getLong(1), rs.getLong(2), rs.getInt(3),
+                                rs.getLong(4), rs.getTimestamp(5).toLocalDateTime(), rs.getInt(6)),
+                        createdBefore, departedBefore, chunkSize);
+
+                if (candidates.isEmpty()) {
+                    return 0;
+                }
+
+                // rides locked before their bookings, in id order, as bookings and cancellations lock them:
+                // a confirmation or cancellation of a candidate either committed already or waits for this chunk
+                List<Long> rideIds = candidates.stream().map(PendingBooking::rideId).distinct().toList();
+                namedJdbcTemplate.queryForList("SELECT id FROM rides WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+                        new MapSqlParameterSource("ids", rideIds), Long.class);
+
+                // one row per statement, the count per row tells which bookings this node really expired
+                int[] expired = jdbcTemplate.batchUpdate(
+                        "UPDATE bookings SET status = 'EXPIRED' WHERE id = ? AND status = 'PENDING'",
+                        candidates.stream().map(b -> new Object[]{b.id()}).toList());
+
+                List<Object[]> seatReleases = new ArrayList<>();
+                for (int i = 0; i < candidates.size(); i++) {
+                    if (expired[i] > 0) {
+                        PendingBooking booking = candidates.get(i);
+                        seatReleases.add(new Object[]{booking.seats(), booking.rideId()});
+                        report.expiredBookings++;
+                        report.releasedSeats += booking.seats();
+                        driverStatsService.bookingExpired(booking.rideId(), booking.driverId(),
+                                booking.departureTime(), booking.totalSeats(), booking.seats());
+                        clusterCoherence.invalidate(CacheRegion.RIDE, booking.rideId());
+                        seatLedger.record(SeatChange.EXPIRE, booking.rideId(), booking.id(), booking.seats());
+                    }
+                }
+                jdbcTemplate.batchUpdate("""
+                        UPDATE rides
+                        SET available_seats = available_seats + ?,
+                            status = CASE WHEN status = 'FULL' THEN 'ACTIVE' ELSE status END
+                        WHERE id = ?""", seatReleases);
+
+                return candidates.size();
+            });
+        } while (found == chunkSize);
+    }
+
+    private void completeDepartedRides(LocalDateTime departedBefore, SweepReport report) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        int found;
+        do {
+            found = tx.execute(status -> {
+                List<Long> rideIds = jdbcTemplate.queryForList("""
+                                SELECT id FROM rides
+                                WHERE status IN ('ACTIVE', 'FULL') AND departure_time < ?
+                                ORDER BY id
+                                LIMIT ?""",
+                        Long.class, Timestamp.valueOf(departedBefore), chunkSize);
+
+                if (rideIds.isEmpty()) {
+                    return 0;
+                }
+                MapSqlParameterSource ids = new MapSqlParameterSource("ids", rideIds);
+
+                report.completedBookings += namedJdbcTemplate.update(
+                        "UPDATE bookings SET status = 'COMPLETED' WHERE ride_id IN (:ids) AND status = 'CONFIRMED'", ids);
+                report.completedRides += namedJdbcTemplate.update(
+                        "UPDATE rides SET status = 'COMPLETED' WHERE id IN (:ids) AND status IN ('ACTIVE', 'FULL')", ids);
+                clusterCoherence.invalidateAll(CacheRegion.RIDE, rideIds);
+
+                return rideIds.size();
+            });
+        } while (found == chunkSize);
+    }
+
+    private record PendingBooking(long id, long rideId, int seats,
+                                  long driverId, LocalDateTime departureTime, int totalSeats) {
+    }
+
+    /**
+     * How many rows one pass changed
+     */
+    @Getter
+    public static class SweepReport {
+        private int expiredBookings;
+        private int releasedSeats;
+        private int completedRides;
+        private int completedBookings;
+
+        boolean hasChanges() {
+            return expiredBookings + completedRides + completedBookings > 0;
+        }
+
+        @Override
+        public String toString() {
+            return "expiredBookings=" + expiredBookings + ", releasedSeats=" + releasedSeats +
+                    ", completedRides=" + completedRides + ", completedBookings=" + completedBookings;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.carsharing.backend.ledger;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * carsharing.ledger.* (see application.properties)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("carsharing.ledger")
+public class LedgerProperties {
+
+    private boolean enabled = false;
+    private String directory = "data/ledger";
+    // one segment file holds segment-size-mb / 48 bytes records
+    private int segmentSizeMb = 64;
+    // changed pages written to disk at least this often
+    private long forceIntervalMs = 1000;
+    private long snapshotIntervalMs = 300000;
+    // segments already covered by a snapshot kept for GET /api/admin/ledger/rides/{id}
+    private int retainedSegments = 4;
+    // a mismatch is read again after this delay, changes committed but not yet appended are not reported
+    private long recheckDelayMs = 500;
+}
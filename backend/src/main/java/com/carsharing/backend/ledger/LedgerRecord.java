@@ -0,0 +1,52 @@
+package com.carsharing.backend.ledger;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * One seat change as stored in a ledger segment, fixed size:
+ * sequence(8) timestamp(8) rideId(8) reference(8) seats(4) change(1) padding(7) crc32(4)
+ *
+ * @param reference booking or hold id the change comes from, 0 if none
+ */
+public record LedgerRecord(long sequence, long timestamp, SeatChange change, long rideId, long reference, int seats) {
+
+    static final int SIZE = 48;
+    private static final int CRC_OFFSET = SIZE - 4;
+
+    void write(ByteBuffer buffer, int position) {
+        buffer.putLong(position, sequence);
+        buffer.putLong(position + 8, timestamp);
+        buffer.putLong(position + 16, rideId);
+        buffer.putLong(position + 24, reference);
+        buffer.putInt(position + 32, seats);
+        buffer.put(position + 36, (byte) change.code());
+        for (int i = 37; i < CRC_OFFSET; i++) {
+            buffer.put(position + i, (byte) 0);
+        }
+        // checksum last: a record torn by a crash does not pass read()
+        buffer.putInt(position + CRC_OFFSET, crc(buffer, position));
+    }
+
+    /**
+     * @return the record at position, null for an empty slot or a torn/corrupted record
+     */
+    static LedgerRecord read(ByteBuffer buffer, int position) {
+        long sequence = buffer.getLong(position);
+        if (sequence == 0 || buffer.getInt(position + CRC_OFFSET) != crc(buffer, position)) {
+            return null;
+        }
+        SeatChange change = SeatChange.ofCode(buffer.get(position + 36));
+        if (change == null) {
+            return null;
+        }
+        return new LedgerRecord(sequence, buffer.getLong(position + 8), change,
+                buffer.getLong(position + 16), buffer.getLong(position + 24), buffer.getInt(position + 32));
+    }
+
+    private static int crc(ByteBuffer buffer, int position) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(position, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+}
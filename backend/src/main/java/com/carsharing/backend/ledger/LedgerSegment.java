@@ -0,0 +1,124 @@
+package com.carsharing.backend.ledger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * One ledger file of fixed size, memory-mapped, records appended one after the other
+ * File name: seats-<first sequence>.ledger, a slot that was never written is all zeros.
+ */
+class LedgerSegment implements AutoCloseable {
+
+    static final String PREFIX = "seats-";
+    static final String SUFFIX = ".ledger";
+
+    private final Path file;
+    private final long firstSequence;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int position;
+
+    private LedgerSegment(Path file, long firstSequence, int size) throws IOException {
+        this.file = file;
+        this.firstSequence = firstSequence;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // mapping past the end grows the file, the new part reads as zeros
+        long mapped = Math.max(channel.size(), (long) size / LedgerRecord.SIZE * LedgerRecord.SIZE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mapped);
+    }
+
+    static LedgerSegment create(Path directory, long firstSequence, int size) throws IOException {
+        return new LedgerSegment(directory.resolve(fileName(firstSequence)), firstSequence, size);
+    }
+
+    static LedgerSegment open(Path file, int size) throws IOException {
+        return new LedgerSegment(file, firstSequence(file), size);
+    }
+
+    static String fileName(long firstSequence) {
+        return PREFIX + String.format("%020d", firstSequence) + SUFFIX;
+    }
+
+    static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    /**
+     * Reads the records from the start while each one is intact and follows the previous one,
+     * the append position is left right after the last of them (on a torn record, if any)
+     *
+     * @return sequence of the last record read, firstSequence - 1 if none
+     */
+    long recover(Consumer<LedgerRecord> consumer) {
+        long expected = firstSequence;
+        position = 0;
+        while (position + LedgerRecord.SIZE <= buffer.capacity()) {
+            LedgerRecord record = LedgerRecord.read(buffer, position);
+            if (record == null || record.sequence() != expected) {
+                break;
+            }
+            consumer.accept(record);
+            expected++;
+            position += LedgerRecord.SIZE;
+        }
+        // records after a torn one would otherwise come back once the slots before them are rewritten
+        for (int at = position; at + LedgerRecord.SIZE <= buffer.capacity() && buffer.getLong(at) != 0; at += LedgerRecord.SIZE) {
+            buffer.putLong(at, 0);
+        }
+        return expected - 1;
+    }
+
+    /**
+     * Records in file order, without moving the append position
+     */
+    void forEach(Consumer<LedgerRecord> consumer) {
+        long expected = firstSequence;
+        for (int at = 0; at + LedgerRecord.SIZE <= buffer.capacity(); at += LedgerRecord.SIZE) {
+            LedgerRecord record = LedgerRecord.read(buffer, at);
+            if (record == null || record.sequence() != expected++) {
+                return;
+            }
+            consumer.accept(record);
+        }
+    }
+
+    boolean isFull() {
+        return position + LedgerRecord.SIZE > buffer.capacity();
+    }
+
+    void append(LedgerRecord record) {
+        record.write(buffer, position);
+        position += LedgerRecord.SIZE;
+    }
+
+    /**
+     * Writes the changed pages to disk (until then they survive a crash of the process, not of the machine)
+     */
+    void force() {
+        buffer.force();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
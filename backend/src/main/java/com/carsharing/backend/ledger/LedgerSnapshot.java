@@ -0,0 +1,94 @@
+package com.carsharing.backend.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Available seats of every tracked ride after the record with the given sequence
+ *
+ * File seats-<sequence>.snapshot: magic, version, sequence, count, count x (rideId, seats), crc32.
+ * Written to a .tmp file and renamed, a snapshot file is complete or absent.
+ */
+record LedgerSnapshot(long sequence, Map<Long, Integer> seats) {
+
+    static final String SUFFIX = ".snapshot";
+    private static final int MAGIC = 0x53454154;  // "SEAT"
+    private static final int VERSION = 1;
+
+    static String fileName(long sequence) {
+        return LedgerSegment.PREFIX + String.format("%020d", sequence) + SUFFIX;
+    }
+
+    static boolean isSnapshot(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(LedgerSegment.PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    static long sequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(LedgerSegment.PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    Path write(Path directory) throws IOException {
+        Path file = directory.resolve(fileName(sequence));
+        Path tmp = directory.resolve(fileName(sequence) + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+            out.writeInt(seats.size());
+            for (Map.Entry<Long, Integer> entry : seats.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            // on disk before it replaces anything: a snapshot file is never half written
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+
+    /**
+     * @throws IOException if the file is unreadable, truncated or its checksum does not match
+     */
+    static LedgerSnapshot read(Path file) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 64 * 1024), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a seat ledger snapshot: " + file);
+            }
+            long sequence = in.readLong();
+            int count = in.readInt();
+            Map<Long, Integer> seats = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+            for (int i = 0; i < count; i++) {
+                seats.put(in.readLong(), in.readInt());
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("Checksum mismatch in " + file);
+            }
+            return new LedgerSnapshot(sequence, seats);
+        }
+    }
+}
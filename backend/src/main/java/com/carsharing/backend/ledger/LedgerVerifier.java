@@ -0,0 +1,190 @@
+package com.carsharing.backend.ledger;
+
+import com.carsharing.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Reconciles the seat ledger with the database (GET /api/admin/ledger/verify)
+ *
+ * For every ride, one streaming pass per shard:
+ * - LEDGER_SEATS: available seats of the ledger != rides.available_seats
+ * - BOOKED_SEATS: total seats - seats of PENDING/CONFIRMED/COMPLETED bookings - held seats != rides.available_seats
+ * - NOT_IN_LEDGER / NOT_IN_DATABASE: the ride exists on one side only
+ * Changes are appended after their commit, so a ride written during the pass can look wrong for a moment:
+ * the reported rides are read again after recheck-delay-ms and only those still wrong are listed.
+ */
+@Slf4j
+@Service
+public class LedgerVerifier {
+
+    private static final String SEATS_BY_RIDE = """
+            SELECT r.id, r.total_seats, r.available_seats, COALESCE(b.seats, 0), COALESCE(h.seats, 0)
+            FROM rides r
+            LEFT JOIN (SELECT ride_id, SUM(seats_booked) AS seats FROM bookings
+                       WHERE status IN ('PENDING', 'CONFIRMED', 'COMPLETED') GROUP BY ride_id) b ON b.ride_id = r.id
+            LEFT JOIN (SELECT ride_id, SUM(seats) AS seats FROM seat_holds GROUP BY ride_id) h ON h.ride_id = r.id
+            """;
+
+    private final SeatLedger seatLedger;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTx;
+    private final ShardRouter shardRouter;
+    private final LedgerProperties properties;
+
+    public enum Kind {
+        LEDGER_SEATS, BOOKED_SEATS, NOT_IN_LEDGER, NOT_IN_DATABASE
+    }
+
+    /**
+     * One ride that does not add up, null for what is unknown (e.g. ledger seats of NOT_IN_LEDGER)
+     */
+    public record Mismatch(Kind kind, long rideId, Integer ledgerSeats, Integer availableSeats,
+                           Integer totalSeats, Integer bookedSeats, Integer heldSeats) {
+    }
+
+    /**
+     * @param found mismatches of the pass, per kind
+     * @param resolvedOnRecheck listed candidates that were right when read again (changes in flight)
+     * @param mismatches the first ones found, confirmed by the second read
+     */
+    public record Report(long ledgerSequence, long checkedRides, int ledgerRides, Map<Kind, Long> found,
+                         int resolvedOnRecheck, List<Mismatch> mismatches, long durationMs) {
+
+        public boolean consistent() {
+            return mismatches.isEmpty();
+        }
+    }
+
+    public LedgerVerifier(SeatLedger seatLedger, NamedParameterJdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager, ShardRouter shardRouter,
+                          LedgerProperties properties) {
+        this.seatLedger = seatLedger;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    /**
+     * @param limit maximum number of mismatches listed (all of them are counted)
+     */
+    public Report verify(int limit) {
+        seatLedger.checkEnabled();
+        long start = System.currentTimeMillis();
+        long sequence = seatLedger.getStatus().lastSequence();
+        Map<Long, Integer> ledger = seatLedger.inventory();
+
+        Map<Kind, Long> found = new EnumMap<>(Kind.class);
+        Set<Long> candidates = new TreeSet<>();
+        Set<Long> seen = new HashSet<>();
+        long[] checked = {0};
+
+        shardRouter.forEachShard(() -> readOnlyTx.executeWithoutResult(status ->
+                jdbcTemplate.getJdbcTemplate().query(SEATS_BY_RIDE, (RowCallbackHandler) resultSet -> {
+                    checked[0]++;
+                    long rideId = resultSet.getLong(1);
+                    seen.add(rideId);
+                    Mismatch mismatch = check(row(resultSet), ledger.get(rideId));
+                    if (mismatch != null) {
+                        found.merge(mismatch.kind(), 1L, Long::sum);
+                        if (candidates.size() < limit) {
+                            candidates.add(rideId);
+                        }
+                    }
+                })));
+
+        for (Long rideId : ledger.keySet()) {
+            if (!seen.contains(rideId)) {
+                found.merge(Kind.NOT_IN_DATABASE, 1L, Long::sum);
+                if (candidates.size() < limit) {
+                    candidates.add(rideId);
+                }
+            }
+        }
+
+        List<Mismatch> mismatches = candidates.isEmpty() ? List.of() : recheck(candidates);
+        Report report = new Report(sequence, checked[0], ledger.size(), found,
+                candidates.size() - mismatches.size(), mismatches, System.currentTimeMillis() - start);
+        if (!report.consistent()) {
+            log.warn("Seat ledger verification: {} rides checked, mismatches {}", checked[0], found);
+        }
+        return report;
+    }
+
+    private record Row(long rideId, int totalSeats, int availableSeats, int bookedSeats, int heldSeats) {
+    }
+
+    private static Row row(ResultSet resultSet) throws SQLException {
+        return new Row(resultSet.getLong(1), resultSet.getInt(2), resultSet.getInt(3),
+                resultSet.getInt(4), resultSet.getInt(5));
+    }
+
+    /**
+     * @return null if the ride adds up
+     */
+    private static Mismatch check(Row row, Integer ledgerSeats) {
+        Kind kind = null;
+        if (ledgerSeats == null) {
+            kind = Kind.NOT_IN_LEDGER;
+        } else if (ledgerSeats != row.availableSeats()) {
+            kind = Kind.LEDGER_SEATS;
+        } else if (row.totalSeats() - row.bookedSeats() - row.heldSeats() != row.availableSeats()) {
+            kind = Kind.BOOKED_SEATS;
+        }
+        return kind == null ? null : new Mismatch(kind, row.rideId(), ledgerSeats,
+                row.availableSeats(), row.totalSeats(), row.bookedSeats(), row.heldSeats());
+    }
+
+    /**
+     * Reads the candidates again, one query per shard
+     */
+    private List<Mismatch> recheck(Set<Long> rideIds) {
+        try {
+            Thread.sleep(properties.getRecheckDelayMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<Integer, List<Long>> byShard = new TreeMap<>();
+        rideIds.forEach(id -> byShard.computeIfAbsent(shardRouter.shardOfId(id), shard -> new ArrayList<>()).add(id));
+
+        List<Mismatch> mismatches = new ArrayList<>();
+        Set<Long> inDatabase = new HashSet<>();
+        byShard.forEach((shard, ids) -> shardRouter.runOn(shard, () -> readOnlyTx.executeWithoutResult(status ->
+                jdbcTemplate.query(SEATS_BY_RIDE + " WHERE r.id IN (:ids)", new MapSqlParameterSource("ids", ids),
+                        (RowCallbackHandler) resultSet -> {
+                            Row row = row(resultSet);
+                            inDatabase.add(row.rideId());
+                            Mismatch mismatch = check(row, seatLedger.availableSeats(row.rideId()));
+                            if (mismatch != null) {
+                                mismatches.add(mismatch);
+                            }
+                        }))));
+
+        for (Long rideId : rideIds) {
+            Integer ledgerSeats = seatLedger.availableSeats(rideId);
+            if (!inDatabase.contains(rideId) && ledgerSeats != null) {
+                mismatches.add(new Mismatch(Kind.NOT_IN_DATABASE, rideId, ledgerSeats, null, null, null, null));
+            }
+        }
+        return mismatches;
+    }
+}
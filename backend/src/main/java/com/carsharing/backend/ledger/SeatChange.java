@@ -0,0 +1,48 @@
+package com.carsharing.backend.ledger;
+
+import java.util.Arrays;
+
+/**
+ * What a seat ledger record does to the available seats of its ride
+ * The code is what is stored in the ledger file, it must never change.
+ */
+public enum SeatChange {
+
+    OPEN(1),      // ride created, seats = all its seats
+    BOOK(2),      // booking created, seats taken
+    CANCEL(3),    // booking cancelled, seats back
+    HOLD(4),      // seat hold created, seats taken
+    CONFIRM(5),   // hold turned into a booking, no change (audit only)
+    RELEASE(6),   // hold released by the passenger, seats back
+    EXPIRE(7),    // hold or pending booking expired, seats back
+    CLOSE(8);     // ride deleted or archived, no longer tracked
+
+    private final int code;
+
+    SeatChange(int code) {
+        this.code = code;
+    }
+
+    int code() {
+        return code;
+    }
+
+    static SeatChange ofCode(int code) {
+        return Arrays.stream(values())
+                .filter(change -> change.code == code)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Available seats after this change (OPEN and CLOSE are handled by the inventory)
+     */
+    int apply(int available, int seats) {
+        return switch (this) {
+            case BOOK, HOLD -> available - seats;
+            case CANCEL, RELEASE, EXPIRE -> available + seats;
+            case OPEN -> seats;
+            case CONFIRM, CLOSE -> available;
+        };
+    }
+}
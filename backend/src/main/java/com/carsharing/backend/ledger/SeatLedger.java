@@ -0,0 +1,449 @@
+package com.carsharing.backend.ledger;
+
+import com.carsharing.backend.exception.ResourceNotFoundException;
+import com.carsharing.backend.sharding.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Append-only audit trail of every seat change, and the seat inventory rebuilt from it
+ *
+ * - Writers call record() inside their transaction; the records of a transaction are appended
+ *   right after it commits (a rolled back change is never in the ledger)
+ * - Records are fixed size and checksummed (LedgerRecord), appended to memory-mapped segment files;
+ *   the pages are written to disk every force-interval-ms. A crash of the process loses nothing,
+ *   a crash of the machine at most that interval, a torn record is detected by its checksum.
+ * - Every snapshot-interval-ms (and at shutdown) the inventory is written as a snapshot, segments
+ *   it covers are deleted except the retained-segments newest ones (history of a ride)
+ * - Startup: latest readable snapshot + the records after it, up to the first broken one;
+ *   files after a break are renamed *.corrupt and left for inspection
+ * - The first start with an empty directory takes the available seats of the database as baseline
+ * - The ledger is local to this instance (one writer per file); LedgerVerifier compares it with the
+ *   rides and bookings tables
+ * - Single instance only: it sees the seat changes of this instance, so with other instances on the
+ *   same database (carsharing.cluster.transport=jdbc) it would drift from the tables. It refuses to
+ *   start in that setup instead.
+ */
+@Slf4j
+@Component
+public class SeatLedger {
+
+    private static final int MAX_HISTORY = 1000;
+
+    private final LedgerProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final Path directory;
+    private final String clusterTransport;
+
+    // written under the lock of this, read without
+    private final Map<Long, Integer> inventory = new ConcurrentHashMap<>();
+
+    // guarded by this; the last one is appended to
+    private final List<LedgerSegment> segments = new ArrayList<>();
+    private long lastSequence;
+    private long appended;
+    private long failedAppends;
+    private long untrackedChanges;
+
+    private final Object snapshotLock = new Object();
+    private volatile long snapshotSequence = -1;
+    private volatile long snapshotAt;
+    private long recoveredRecords;
+    private long recoveryMillis;
+
+    private record Change(SeatChange change, long rideId, long reference, int seats) {
+    }
+
+    /**
+     * @param sinceSnapshot records appended after the last snapshot (replayed at the next start)
+     * @param untrackedChanges records of rides the ledger does not track, not applied to the inventory
+     */
+    public record Status(boolean enabled, String directory, long lastSequence, long snapshotSequence,
+                         long sinceSnapshot, long snapshotAt, int trackedRides, int segments,
+                         long appended, long failedAppends, long untrackedChanges,
+                         long recoveredRecords, long recoveryMs) {
+    }
+
+    public SeatLedger(LedgerProperties properties, JdbcTemplate jdbcTemplate, ShardRouter shardRouter,
+                      @Value("${carsharing.cluster.transport:jdbc}") String clusterTransport) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.directory = Path.of(properties.getDirectory());
+        this.clusterTransport = clusterTransport;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Seats of a ride changed in the current transaction (without a transaction: appended right away)
+     *
+     * @param reference booking or hold id, null if none
+     * @param seats seats the change is about (all seats of the ride for OPEN), never negative
+     */
+    public void record(SeatChange change, Long rideId, Long reference, int seats) {
+        if (!isEnabled() || rideId == null) {
+            return;
+        }
+        Change pending = new Change(change, rideId, reference != null ? reference : 0, seats);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(List.of(pending));
+            return;
+        }
+        pending().add(pending);
+    }
+
+    /**
+     * Available seats according to the ledger, null if the ride is not tracked
+     */
+    public Integer availableSeats(long rideId) {
+        return inventory.get(rideId);
+    }
+
+    /**
+     * Read-only view of the inventory, changes while it is read
+     */
+    public Map<Long, Integer> inventory() {
+        return Collections.unmodifiableMap(inventory);
+    }
+
+    /**
+     * Records of a ride still in the retained segments, oldest first (at most the last 1000)
+     */
+    public List<LedgerRecord> history(long rideId) {
+        checkEnabled();
+        List<LedgerSegment> retained;
+        synchronized (this) {
+            retained = List.copyOf(segments);
+        }
+        Deque<LedgerRecord> records = new ArrayDeque<>();
+        for (LedgerSegment segment : retained) {
+            segment.forEach(record -> {
+                if (record.rideId() == rideId) {
+                    if (records.size() == MAX_HISTORY) {
+                        records.removeFirst();
+                    }
+                    records.addLast(record);
+                }
+            });
+        }
+        return List.copyOf(records);
+    }
+
+    public synchronized Status getStatus() {
+        return new Status(isEnabled(), directory.toAbsolutePath().toString(), lastSequence, snapshotSequence,
+                snapshotSequence < 0 ? lastSequence : lastSequence - snapshotSequence, snapshotAt,
+                inventory.size(), segments.size(), appended, failedAppends, untrackedChanges,
+                recoveredRecords, recoveryMillis);
+    }
+
+    private List<Change> pending() {
+        @SuppressWarnings("unchecked")
+        List<Change> pending = (List<Change>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        List<Change> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SeatLedger.this);
+                if (status == STATUS_COMMITTED) {
+                    append(created);
+                }
+            }
+        });
+        return created;
+    }
+
+    private synchronized void append(List<Change> changes) {
+        long now = System.currentTimeMillis();
+        for (Change change : changes) {
+            try {
+                LedgerRecord record = new LedgerRecord(lastSequence + 1, now, change.change(),
+                        change.rideId(), change.reference(), change.seats());
+                currentSegment().append(record);
+                lastSequence = record.sequence();
+                appended++;
+                apply(record);
+            } catch (IOException | RuntimeException e) {
+                // the change is committed, only its audit record is missing: LedgerVerifier will report the ride
+                failedAppends++;
+                log.error("Could not append {} of ride {} to the seat ledger", change.change(), change.rideId(), e);
+            }
+        }
+    }
+
+    private LedgerSegment currentSegment() throws IOException {
+        LedgerSegment current = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (current == null || current.isFull()) {
+            current = LedgerSegment.create(directory, lastSequence + 1, segmentSize());
+            segments.add(current);
+        }
+        return current;
+    }
+
+    private void apply(LedgerRecord record) {
+        switch (record.change()) {
+            case OPEN -> inventory.put(record.rideId(), record.seats());
+            case CLOSE -> inventory.remove(record.rideId());
+            default -> {
+                Integer available = inventory.get(record.rideId());
+                if (available != null) {
+                    inventory.put(record.rideId(), record.change().apply(available, record.seats()));
+                } else {
+                    // created before the ledger knew about it (e.g. loaded straight into the database):
+                    // stays untracked, LedgerVerifier reports it
+                    untrackedChanges++;
+                    log.warn("Seat ledger does not track ride {}, record {} ({}) not applied",
+                            record.rideId(), record.sequence(), record.change());
+                }
+            }
+        }
+    }
+
+    private int segmentSize() {
+        return properties.getSegmentSizeMb() * 1024 * 1024;
+    }
+
+    void checkEnabled() {
+        if (!isEnabled()) {
+            throw new ResourceNotFoundException("The seat ledger is not enabled on this instance");
+        }
+    }
+
+    /**
+     * Latest snapshot + the records after it
+     */
+    @PostConstruct
+    synchronized void open() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        if ("jdbc".equals(clusterTransport)) {
+            throw new IllegalStateException("The seat ledger only sees the seat changes of this instance and cannot run"
+                    + " with carsharing.cluster.transport=jdbc (several instances): set carsharing.cluster.transport=none"
+                    + " for a single instance, or carsharing.ledger.enabled=false");
+        }
+        long start = System.currentTimeMillis();
+        Files.createDirectories(directory);
+
+        for (Path file : list(LedgerSnapshot::isSnapshot, Comparator.<Path>comparingLong(LedgerSnapshot::sequence).reversed())) {
+            try {
+                LedgerSnapshot snapshot = LedgerSnapshot.read(file);
+                inventory.putAll(snapshot.seats());
+                snapshotSequence = snapshot.sequence();
+                snapshotAt = Files.getLastModifiedTime(file).toMillis();
+                lastSequence = snapshot.sequence();
+                break;
+            } catch (IOException e) {
+                log.warn("Seat ledger snapshot {} unreadable, trying an older one: {}", file, e.getMessage());
+                moveAside(file);
+            }
+        }
+
+        boolean broken = false;
+        long segmentEnd = lastSequence;
+        for (Path file : list(LedgerSegment::isSegment, Comparator.comparingLong(LedgerSegment::firstSequence))) {
+            // a missing segment or one after a broken record: what follows cannot be applied in order
+            if (broken || LedgerSegment.firstSequence(file) > lastSequence + 1) {
+                if (!broken) {
+                    log.error("Seat ledger has no records {}..{}, ignoring {} and the segments after it",
+                            lastSequence + 1, LedgerSegment.firstSequence(file) - 1, file);
+                }
+                broken = true;
+                moveAside(file);
+                continue;
+            }
+            LedgerSegment segment = LedgerSegment.open(file, segmentSize());
+            long replayAfter = lastSequence;
+            segmentEnd = segment.recover(record -> {
+                if (record.sequence() > replayAfter) {
+                    apply(record);
+                    recoveredRecords++;
+                }
+            });
+            segments.add(segment);
+            lastSequence = Math.max(lastSequence, segmentEnd);
+        }
+
+        // the snapshot is newer than the last record on disk: continue in a new segment
+        if (!segments.isEmpty() && segmentEnd < lastSequence) {
+            segments.add(LedgerSegment.create(directory, lastSequence + 1, segmentSize()));
+        }
+
+        recoveryMillis = System.currentTimeMillis() - start;
+        log.info("Seat ledger opened in {} ms: snapshot at {}, {} records replayed, {} rides tracked",
+                recoveryMillis, snapshotSequence, recoveredRecords, inventory.size());
+    }
+
+    /**
+     * First start: the seats of the database are the starting point
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void baseline() {
+        if (!isEnabled() || snapshotSequence >= 0 || lastSequence > 0) {
+            return;
+        }
+        Map<Long, Integer> seats = new HashMap<>();
+        shardRouter.forEachShard(() -> jdbcTemplate.query("SELECT id, available_seats FROM rides",
+                (RowCallbackHandler) resultSet -> seats.put(resultSet.getLong(1), resultSet.getInt(2))));
+        synchronized (this) {
+            seats.forEach(inventory::putIfAbsent);
+        }
+        snapshot();
+        log.info("Seat ledger started from the database: {} rides", seats.size());
+    }
+
+    @Scheduled(fixedDelayString = "${carsharing.ledger.force-interval-ms:1000}")
+    public synchronized void force() {
+        if (isEnabled() && !segments.isEmpty()) {
+            segments.get(segments.size() - 1).force();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${carsharing.ledger.snapshot-interval-ms:300000}")
+    public void scheduledSnapshot() {
+        if (isEnabled() && lastSequence() != snapshotSequence) {
+            snapshot();
+        }
+    }
+
+    private synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Writes the inventory as a snapshot and drops what it makes unnecessary
+     */
+    public Status snapshot() {
+        checkEnabled();
+        synchronized (snapshotLock) {
+            LedgerSnapshot snapshot;
+            synchronized (this) {
+                // the records the snapshot covers are on disk before the snapshot is
+                segments.forEach(LedgerSegment::force);
+                snapshot = new LedgerSnapshot(lastSequence, new HashMap<>(inventory));
+            }
+            try {
+                Path file = snapshot.write(directory);
+                snapshotSequence = snapshot.sequence();
+                snapshotAt = System.currentTimeMillis();
+                log.debug("Seat ledger snapshot {} ({} rides)", file, snapshot.seats().size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the seat ledger snapshot", e);
+            }
+            compact(snapshot.sequence());
+        }
+        return getStatus();
+    }
+
+    /**
+     * Deletes older snapshots and the segments covered by this one, except the retained ones
+     */
+    private void compact(long covered) {
+        list(LedgerSnapshot::isSnapshot, Comparator.comparingLong(LedgerSnapshot::sequence))
+                .stream()
+                .filter(file -> LedgerSnapshot.sequence(file) < covered)
+                .forEach(SeatLedger::delete);
+
+        List<LedgerSegment> obsolete = new ArrayList<>();
+        synchronized (this) {
+            // segment i is covered when segment i + 1 starts at or before the first record after the snapshot
+            int coveredCount = 0;
+            while (coveredCount + 1 < segments.size() && segments.get(coveredCount + 1).getFirstSequence() <= covered + 1) {
+                coveredCount++;
+            }
+            int drop = Math.max(0, coveredCount - properties.getRetainedSegments());
+            for (int i = 0; i < drop; i++) {
+                obsolete.add(segments.remove(0));
+            }
+        }
+        for (LedgerSegment segment : obsolete) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.warn("Could not close seat ledger segment {}: {}", segment.getFile(), e.getMessage());
+            }
+            delete(segment.getFile());
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.warn("No seat ledger snapshot at shutdown, the next start replays the ledger: {}", e.getMessage());
+        }
+        synchronized (this) {
+            for (LedgerSegment segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    log.warn("Could not close seat ledger segment {}: {}", segment.getFile(), e.getMessage());
+                }
+            }
+            segments.clear();
+        }
+    }
+
+    private List<Path> list(Predicate<Path> filter, Comparator<Path> order) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(filter).sorted(order).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void moveAside(Path file) {
+        try {
+            Files.move(file, file.resolveSibling(file.getFileName() + ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Could not rename {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.carsharing.backend.logging;
+
+import com.carsharing.backend.tracing.TracingFilter;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * SQL log replacing spring.jpa.show-sql (which prints every statement, formatted, straight to stdout)
+ *
+ * - Logger "sql", written through the async appender (see logback-spring.xml)
+ * - Sampled per request: the trace id decides, so a sampled request logs all of its statements
+ *   and a request that is not sampled costs one hash; statements outside requests are sampled at random
+ * - Slow statements (>= slow-ms) are always logged
+ * - Parameterized SQL (with ?) on one line, bound values are never logged
+ */
+@Component
+@ConditionalOnProperty(name = "carsharing.logging.sql.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlLogListener implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger("sql");
+
+    // sample-rate as a fraction of this
+    private static final int BUCKETS = 10_000;
+
+    private final int sampledBuckets;
+    private final long slowMs;
+
+    public SqlLogListener(@Value("${carsharing.logging.sql.sample-rate:0.01}") double sampleRate,
+                          @Value("${carsharing.logging.sql.slow-ms:200}") long slowMs) {
+        this.sampledBuckets = (int) Math.round(Math.max(0, Math.min(1, sampleRate)) * BUCKETS);
+        this.slowMs = slowMs;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty() || !log.isInfoEnabled()) {
+            return;
+        }
+        long elapsed = execInfo.getElapsedTime();
+        boolean slow = elapsed >= slowMs;
+        if (!slow && !isSampled()) {
+            return;
+        }
+        int batchSize = execInfo.isBatch() ? execInfo.getBatchSize() : 1;
+        String sql = queryInfoList.get(0).getQuery();
+        log.atInfo()
+                .addKeyValue("elapsedMs", elapsed)
+                .addKeyValue("batchSize", batchSize)
+                .addKeyValue("slow", slow)
+                .addKeyValue("success", execInfo.isSuccess())
+                .log("{} ms{}{} | {}", elapsed, batchSize > 1 ? " batch=" + batchSize : "", slow ? " SLOW" : "", oneLine(sql));
+    }
+
+    private boolean isSampled() {
+        if (sampledBuckets >= BUCKETS) {
+            return true;
+        }
+        if (sampledBuckets == 0) {
+            return false;
+        }
+        String traceId = MDC.get(TracingFilter.MDC_KEY);
+        int bucket = traceId != null
+                ? Math.floorMod(traceId.hashCode(), BUCKETS)
+                : ThreadLocalRandom.current().nextInt(BUCKETS);
+        return bucket < sampledBuckets;
+    }
+
+    private static String oneLine(String sql) {
+        return sql.indexOf('\n') < 0 ? sql : sql.replaceAll("\\s+", " ");
+    }
+}
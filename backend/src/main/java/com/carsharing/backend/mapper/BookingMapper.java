@@ -1,6 +1,7 @@
 package com.carsharing.backend.mapper;
 
 import com.carsharing.backend.dto.BookingResponse;
+import com.carsharing.backend.model.ArchivedBooking;
 import com.carsharing.backend.model.Booking;
 import org.springframework.stereotype.Component;
 
@@ -20,4 +21,18 @@ public class BookingMapper {
                 booking.getStatus().name()
         );
     }
+
+    public BookingResponse toDto(ArchivedBooking booking) {
+        return new BookingResponse(
+                booking.getId(),
+                booking.getPassengerId(),
+                booking.getPassengerName(),
+                booking.getRideId(),
+                booking.getStartLocation(),
+                booking.getEndLocation(),
+                booking.getSeatsBooked(),
+                booking.getTotalPrice(),
+                booking.getStatus()
+        );
+    }
 }
@@ -0,0 +1,42 @@
+package com.carsharing.backend.mapper;
+
+import com.carsharing.backend.dto.DriverRatingsResponse;
+import com.carsharing.backend.dto.RatingResponse;
+import com.carsharing.backend.model.Rating;
+import com.carsharing.backend.model.RatingSummary;
+import com.carsharing.backend.service.DriverRatings;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+public class RatingMapper {
+
+    public RatingResponse toDto(Rating rating) {
+        return new RatingResponse(
+                rating.getId(),
+                rating.getBookingId(),
+                rating.getRideId(),
+                rating.getDriverId(),
+                rating.getPassengerId(),
+                rating.getStars(),
+                rating.getComment(),
+                rating.getCreatedAt()
+        );
+    }
+
+    public DriverRatingsResponse toDto(DriverRatings driverRatings) {
+        RatingSummary summary = driverRatings.driver().getRatingSummary();
+        return new DriverRatingsResponse(
+                driverRatings.driver().getId(),
+                driverRatings.driver().getRating(),
+                summary.getRatingCount(),
+                Map.of(1, summary.getOneStar(),
+                        2, summary.getTwoStars(),
+                        3, summary.getThreeStars(),
+                        4, summary.getFourStars(),
+                        5, summary.getFiveStars()),
+                driverRatings.ratings().stream().map(this::toDto).toList()
+        );
+    }
+}
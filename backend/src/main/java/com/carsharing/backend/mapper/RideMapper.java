@@ -16,7 +16,9 @@ public class RideMapper {
                 ride.getPricePerSeat(),
                 ride.getAvailableSeats(),
                 ride.getDriver().getId(),
-                ride.getDriver().getFullName()
+                ride.getDriver().getFullName(),
+                ride.getDriver().getRating(),
+                ride.getDriver().getRatingSummary().getRatingCount()
         );
     }
 }
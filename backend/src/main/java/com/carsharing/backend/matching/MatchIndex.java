@@ -0,0 +1,238 @@
+package com.carsharing.backend.matching;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Rides with free seats and open requests, indexed by route and departure time bucket
+ *
+ * A ride is in the bucket of its departure, a request in every bucket its window touches
+ * (at most max-window-hours / bucket-minutes + 1). Finding the rides of a request, or the
+ * requests a new ride can serve, reads a few buckets instead of scanning everything.
+ * Times are minutes since the epoch (local time, as stored). Used by the matching thread only.
+ */
+final class MatchIndex {
+
+    private final int bucketMinutes;
+
+    private final Map<Long, RideEntry> rides = new HashMap<>();
+    private final Map<Bucket, List<RideEntry>> rideBuckets = new HashMap<>();
+    private final Map<Long, RequestEntry> requests = new HashMap<>();
+    private final Map<Bucket, List<RequestEntry>> requestBuckets = new HashMap<>();
+
+    record Bucket(String route, long bucket) {
+    }
+
+    static final class RideEntry {
+        final long id;
+        final String route;
+        final long departure;
+        final BigDecimal pricePerSeat;
+        final long driverId;
+        // free seats minus the seats proposed to MATCHED requests
+        int freeSeats;
+
+        RideEntry(long id, String route, long departure, BigDecimal pricePerSeat, long driverId, int freeSeats) {
+            this.id = id;
+            this.route = route;
+            this.departure = departure;
+            this.pricePerSeat = pricePerSeat;
+            this.driverId = driverId;
+            this.freeSeats = freeSeats;
+        }
+    }
+
+    /**
+     * @param maxPricePerSeat null = any price
+     */
+    record RequestEntry(long id, long passengerId, String route, String startLocation, String endLocation,
+                        long earliest, long latest, int seats, BigDecimal maxPricePerSeat) {
+    }
+
+    /**
+     * Open requests of one route departing in [from, to) (minutes)
+     */
+    record Demand(String startLocation, String endLocation, long from, long to, int requests, int seats,
+                  List<BigDecimal> maxPrices) {
+    }
+
+    MatchIndex(int bucketMinutes) {
+        this.bucketMinutes = bucketMinutes;
+    }
+
+    static String route(String startLocation, String endLocation) {
+        return startLocation.trim().toLowerCase(Locale.ROOT) + " -> " + endLocation.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private long bucketOf(long minute) {
+        return Math.floorDiv(minute, bucketMinutes);
+    }
+
+    void addRide(RideEntry ride) {
+        removeRide(ride.id);
+        rides.put(ride.id, ride);
+        rideBuckets.computeIfAbsent(new Bucket(ride.route, bucketOf(ride.departure)), key -> new ArrayList<>()).add(ride);
+    }
+
+    RideEntry ride(long id) {
+        return rides.get(id);
+    }
+
+    void removeRide(long id) {
+        RideEntry ride = rides.remove(id);
+        if (ride != null) {
+            remove(rideBuckets, new Bucket(ride.route, bucketOf(ride.departure)), ride);
+        }
+    }
+
+    void addRequest(RequestEntry request) {
+        removeRequest(request.id());
+        requests.put(request.id(), request);
+        for (long bucket = bucketOf(request.earliest()); bucket <= bucketOf(request.latest()); bucket++) {
+            requestBuckets.computeIfAbsent(new Bucket(request.route(), bucket), key -> new ArrayList<>()).add(request);
+        }
+    }
+
+    RequestEntry request(long id) {
+        return requests.get(id);
+    }
+
+    void removeRequest(long id) {
+        RequestEntry request = requests.remove(id);
+        if (request != null) {
+            for (long bucket = bucketOf(request.earliest()); bucket <= bucketOf(request.latest()); bucket++) {
+                remove(requestBuckets, new Bucket(request.route(), bucket), request);
+            }
+        }
+    }
+
+    private static <T> void remove(Map<Bucket, List<T>> buckets, Bucket bucket, T entry) {
+        List<T> entries = buckets.get(bucket);
+        if (entries != null) {
+            entries.remove(entry);
+            if (entries.isEmpty()) {
+                buckets.remove(bucket);
+            }
+        }
+    }
+
+    /**
+     * Cheapest ride the request fits in, earliest departure among equal prices; null if none
+     *
+     * @param after only rides departing after this minute
+     */
+    RideEntry bestRide(RequestEntry request, long after) {
+        RideEntry best = null;
+        for (long bucket = bucketOf(request.earliest()); bucket <= bucketOf(request.latest()); bucket++) {
+            for (RideEntry ride : rideBuckets.getOrDefault(new Bucket(request.route(), bucket), List.of())) {
+                if (fits(request, ride, after) && (best == null || better(ride, best))) {
+                    best = ride;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Open requests the ride could serve (departure inside their window, enough seats, price accepted)
+     */
+    List<RequestEntry> requestsFor(RideEntry ride, long after) {
+        List<RequestEntry> found = new ArrayList<>();
+        for (RequestEntry request : requestBuckets.getOrDefault(new Bucket(ride.route, bucketOf(ride.departure)), List.of())) {
+            if (fits(request, ride, after)) {
+                found.add(request);
+            }
+        }
+        return found;
+    }
+
+    private static boolean fits(RequestEntry request, RideEntry ride, long after) {
+        return ride.departure > after
+                && ride.departure >= request.earliest() && ride.departure <= request.latest()
+                && ride.freeSeats >= request.seats()
+                && ride.driverId != request.passengerId()
+                && (request.maxPricePerSeat() == null || ride.pricePerSeat.compareTo(request.maxPricePerSeat()) <= 0);
+    }
+
+    private static boolean better(RideEntry ride, RideEntry than) {
+        int price = ride.pricePerSeat.compareTo(than.pricePerSeat);
+        return price < 0 || price == 0 && ride.departure < than.departure;
+    }
+
+    /**
+     * Open requests of a route that a ride in [from, to) would all serve, at least minRequests of them,
+     * most requested first. Neighbouring buckets with the same requests are one signal.
+     *
+     * @param after only signals ending after this minute
+     */
+    List<Demand> demand(int minRequests, long after) {
+        Map<String, TreeMap<Long, List<RequestEntry>>> byRoute = new HashMap<>();
+        requestBuckets.forEach((bucket, entries) -> {
+            if (entries.size() >= minRequests) {
+                byRoute.computeIfAbsent(bucket.route(), route -> new TreeMap<>()).put(bucket.bucket(), entries);
+            }
+        });
+
+        List<Demand> demand = new ArrayList<>();
+        byRoute.values().forEach(buckets -> {
+            long first = 0;
+            long last = Long.MIN_VALUE;
+            Set<Long> members = Set.of();
+            List<RequestEntry> entries = List.of();
+            for (Map.Entry<Long, List<RequestEntry>> bucket : buckets.entrySet()) {
+                Set<Long> ids = new HashSet<>();
+                bucket.getValue().forEach(request -> ids.add(request.id()));
+                if (bucket.getKey() == last + 1 && ids.equals(members)) {
+                    last = bucket.getKey();
+                    continue;
+                }
+                add(demand, entries, first, last, after);
+                first = bucket.getKey();
+                last = bucket.getKey();
+                members = ids;
+                entries = bucket.getValue();
+            }
+            add(demand, entries, first, last, after);
+        });
+        demand.sort(Comparator.<Demand>comparingInt(Demand::requests).reversed().thenComparingLong(Demand::from));
+        return demand;
+    }
+
+    private void add(List<Demand> demand, List<RequestEntry> entries, long firstBucket, long lastBucket, long after) {
+        long to = (lastBucket + 1) * bucketMinutes;
+        if (entries.isEmpty() || to <= after) {
+            return;
+        }
+        int seats = 0;
+        List<BigDecimal> maxPrices = new ArrayList<>();
+        for (RequestEntry request : entries) {
+            seats += request.seats();
+            if (request.maxPricePerSeat() != null) {
+                maxPrices.add(request.maxPricePerSeat());
+            }
+        }
+        RequestEntry first = entries.get(0);
+        demand.add(new Demand(first.startLocation(), first.endLocation(), firstBucket * bucketMinutes, to,
+                entries.size(), seats, maxPrices));
+    }
+
+    int rideCount() {
+        return rides.size();
+    }
+
+    int requestCount() {
+        return requests.size();
+    }
+
+    Iterable<Long> requestIds() {
+        return requests.keySet();
+    }
+}
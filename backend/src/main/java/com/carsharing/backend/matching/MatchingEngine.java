@@ -0,0 +1,409 @@
+package com.carsharing.backend.matching;
+
+import com.carsharing.backend.model.RideRequest;
+import com.carsharing.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Matches open ride requests with rides, in micro-batches (every interval-ms)
+ *
+ * - Candidates come from MatchIndex (route + departure time bucket): a new request looks at the rides
+ *   of its route in the buckets of its window, a new ride at the requests waiting in its bucket
+ * - Each batch reads only what is new since the last one (ids above a watermark per shard) plus the
+ *   requests created or reopened on this node (submit); every resync-interval-ms the index is rebuilt
+ *   from the database, which also brings seat changes, requests of other nodes, and expires requests
+ *   whose window passed and reopens matches whose ride filled up meanwhile
+ * - The proposed rides are read again before the matches are written (free seats minus the seats
+ *   already proposed to other requests), so a stale index never over-books a ride
+ * - Matching does not hold seats: the passenger books with POST /api/ride-requests/{id}/accept
+ * - A match is written only if the request is still OPEN, so several nodes matching the same requests
+ *   (or a cancellation racing with a match) change a request once
+ * - Open requests of the same route and time are demand signals for drivers (demand())
+ */
+@Slf4j
+@Service
+public class MatchingEngine {
+
+    private static final String RIDES = """
+            SELECT r.id, r.start_location, r.end_location, r.departure_time, r.price_per_seat, r.driver_id,
+                   r.available_seats - COALESCE((SELECT SUM(q.seats) FROM ride_requests q
+                                                 WHERE q.matched_ride_id = r.id AND q.status = 'MATCHED'), 0)
+            FROM rides r
+            WHERE r.status = 'ACTIVE' AND r.departure_time > :from AND r.departure_time < :to""";
+    private static final String OPEN_REQUESTS = """
+            SELECT id, passenger_id, start_location, end_location, earliest_departure, latest_departure,
+                   seats, max_price_per_seat
+            FROM ride_requests
+            WHERE status = 'OPEN' AND latest_departure > :from""";
+    private static final String EXPIRE = """
+            UPDATE ride_requests SET status = 'EXPIRED'
+            WHERE status IN ('OPEN', 'MATCHED') AND latest_departure < :from""";
+    private static final String REOPEN = """
+            UPDATE ride_requests SET status = 'OPEN', matched_ride_id = NULL, matched_at = NULL
+            WHERE status = 'MATCHED' AND NOT EXISTS (
+                SELECT 1 FROM rides r WHERE r.id = ride_requests.matched_ride_id AND r.status = 'ACTIVE'
+                  AND r.available_seats >= ride_requests.seats AND r.departure_time > :from)""";
+    private static final String MATCH = """
+            UPDATE ride_requests SET status = 'MATCHED', matched_ride_id = ?, matched_at = ?
+            WHERE id = ? AND status = 'OPEN'""";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final ShardRouter shardRouter;
+    private final MatchingProperties properties;
+
+    // filled by request threads, drained by the matching thread
+    private final Queue<MatchIndex.RequestEntry> submitted = new ConcurrentLinkedQueue<>();
+    private final Queue<Withdrawal> withdrawn = new ConcurrentLinkedQueue<>();
+
+    // matching thread only
+    private MatchIndex index;
+    private final TreeSet<Long> dirty = new TreeSet<>();
+    private final long[] rideWatermark;
+    private final long[] requestWatermark;
+    private long lastResync;
+    private long batches;
+    private long matches;
+    private long expired;
+    private long reopened;
+    private LocalDateTime lastResyncAt;
+    private long lastResyncMs;
+
+    private volatile Status status;
+    private volatile List<DemandSignal> demand = List.of();
+
+    /**
+     * @param pendingRetries requests whose proposed ride was taken meanwhile, matched again in the next batch
+     */
+    public record Status(boolean enabled, int indexedRides, int openRequests, int pendingRetries, long batches,
+                         long matches, long expired, long reopened, LocalDateTime lastBatchAt, long lastBatchMs,
+                         int lastBatchMatches, LocalDateTime lastResyncAt, long lastResyncMs, int demandSignals) {
+    }
+
+    /**
+     * Open requests of one route, a ride departing in [from, to) would serve all of them
+     *
+     * @param medianMaxPricePerSeat half of the requests with a price limit accept at least this, null if none has one
+     */
+    public record DemandSignal(String startLocation, String endLocation, LocalDateTime from, LocalDateTime to,
+                               int requests, int seats, BigDecimal medianMaxPricePerSeat) {
+    }
+
+    private record Withdrawal(long requestId, Long rideId, int seats) {
+    }
+
+    private record Proposal(MatchIndex.RequestEntry request, MatchIndex.RideEntry ride) {
+    }
+
+    public MatchingEngine(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          ShardRouter shardRouter, MatchingProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.index = new MatchIndex(properties.getBucketMinutes());
+        this.rideWatermark = new long[shardRouter.getShardCount()];
+        this.requestWatermark = new long[shardRouter.getShardCount()];
+        this.status = new Status(properties.isEnabled(), 0, 0, 0, 0, 0, 0, 0, null, 0, 0, null, 0, 0);
+    }
+
+    /**
+     * A request was created or reopened on this node (after commit): matched in the next batch
+     */
+    public void submit(RideRequest request) {
+        submitted.add(entry(request.getId(), request.getPassengerId(), request.getStartLocation(),
+                request.getEndLocation(), request.getEarliestDeparture(), request.getLatestDeparture(),
+                request.getSeats(), request.getMaxPricePerSeat()));
+    }
+
+    /**
+     * A request was cancelled on this node (after commit); the seats of its match are free again
+     *
+     * @param matchedRideId ride proposed to the request, null if it was OPEN
+     */
+    public void withdraw(long requestId, Long matchedRideId, int seats) {
+        withdrawn.add(new Withdrawal(requestId, matchedRideId, seats));
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Demand signals, most requested first; only the route from -> to if both are given
+     */
+    public List<DemandSignal> demand(String startLocation, String endLocation, int limit) {
+        String route = startLocation != null && endLocation != null ? MatchIndex.route(startLocation, endLocation) : null;
+        return demand.stream()
+                .filter(signal -> route == null || route.equals(MatchIndex.route(signal.startLocation(), signal.endLocation())))
+                .limit(limit)
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${carsharing.matching.interval-ms:1000}")
+    public void scheduledBatch() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            batch();
+        } catch (RuntimeException e) {
+            // the index may not match what was written: start again from the database
+            log.warn("Matching batch failed, index rebuilt in the next one: {}", e.getMessage());
+            lastResync = 0;
+        }
+    }
+
+    private void batch() {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        if (start - lastResync >= properties.getResyncIntervalMs()) {
+            // cancellations are in what was read, requests submitted meanwhile may not be
+            withdrawn.clear();
+            resync(now);
+            drainLocalChanges();
+            lastResync = start;
+            lastResyncAt = now;
+            lastResyncMs = System.currentTimeMillis() - start;
+        } else {
+            drainLocalChanges();
+            readNew(now);
+        }
+
+        int matched = match(minute(now));
+        batches++;
+        matches += matched;
+        List<MatchIndex.Demand> buckets = index.demand(properties.getDemandMinRequests(), minute(now));
+        demand = buckets.stream().map(this::signal).toList();
+        status = new Status(true, index.rideCount(), index.requestCount(), dirty.size(), batches, matches, expired,
+                reopened, now, System.currentTimeMillis() - start, matched, lastResyncAt, lastResyncMs, buckets.size());
+    }
+
+    /**
+     * Expires and reopens requests, then loads a new index: rides of the horizon with free seats, OPEN requests
+     */
+    private void resync(LocalDateTime now) {
+        MatchIndex fresh = new MatchIndex(properties.getBucketMinutes());
+        MapSqlParameterSource window = new MapSqlParameterSource()
+                .addValue("from", now)
+                .addValue("to", now.plusDays(properties.getHorizonDays()).plusHours(properties.getMaxWindowHours()));
+        long[] changed = new long[2];
+
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            int current = shard;
+            shardRouter.runOn(shard, () -> tx.executeWithoutResult(status -> {
+                changed[0] += jdbcTemplate.update(EXPIRE, window);
+                changed[1] += jdbcTemplate.update(REOPEN, window);
+                jdbcTemplate.query(RIDES, window, (RowCallbackHandler) resultSet -> {
+                    MatchIndex.RideEntry ride = ride(resultSet);
+                    if (ride.freeSeats > 0) {
+                        fresh.addRide(ride);
+                    }
+                    rideWatermark[current] = Math.max(rideWatermark[current], ride.id);
+                });
+                jdbcTemplate.query(OPEN_REQUESTS, window, (RowCallbackHandler) resultSet -> {
+                    MatchIndex.RequestEntry request = request(resultSet);
+                    fresh.addRequest(request);
+                    requestWatermark[current] = Math.max(requestWatermark[current], request.id());
+                });
+            }));
+        }
+
+        index = fresh;
+        dirty.clear();
+        index.requestIds().forEach(dirty::add);
+        expired += changed[0];
+        reopened += changed[1];
+        if (changed[0] > 0 || changed[1] > 0) {
+            log.info("Ride requests: {} expired, {} matches reopened (ride no longer available)", changed[0], changed[1]);
+        }
+    }
+
+    private void drainLocalChanges() {
+        MatchIndex.RequestEntry request;
+        while ((request = submitted.poll()) != null) {
+            index.addRequest(request);
+            dirty.add(request.id());
+        }
+        Withdrawal withdrawal;
+        while ((withdrawal = withdrawn.poll()) != null) {
+            index.removeRequest(withdrawal.requestId());
+            dirty.remove(withdrawal.requestId());
+            MatchIndex.RideEntry ride = withdrawal.rideId() != null ? index.ride(withdrawal.rideId()) : null;
+            if (ride != null) {
+                ride.freeSeats += withdrawal.seats();
+            }
+        }
+    }
+
+    /**
+     * Rides and requests created since the last batch (on any node), one read-only pass per shard
+     */
+    private void readNew(LocalDateTime now) {
+        long after = minute(now);
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            int current = shard;
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("from", now)
+                    .addValue("to", now.plusDays(properties.getHorizonDays()).plusHours(properties.getMaxWindowHours()))
+                    .addValue("rideId", rideWatermark[shard])
+                    .addValue("requestId", requestWatermark[shard]);
+            shardRouter.runOn(shard, () -> tx.executeWithoutResult(status -> {
+                jdbcTemplate.query(RIDES + " AND r.id > :rideId", parameters, (RowCallbackHandler) resultSet -> {
+                    MatchIndex.RideEntry ride = ride(resultSet);
+                    rideWatermark[current] = Math.max(rideWatermark[current], ride.id);
+                    if (ride.freeSeats > 0) {
+                        index.addRide(ride);
+                        index.requestsFor(ride, after).forEach(request -> dirty.add(request.id()));
+                    }
+                });
+                jdbcTemplate.query(OPEN_REQUESTS + " AND id > :requestId", parameters, (RowCallbackHandler) resultSet -> {
+                    MatchIndex.RequestEntry request = request(resultSet);
+                    requestWatermark[current] = Math.max(requestWatermark[current], request.id());
+                    index.addRequest(request);
+                    dirty.add(request.id());
+                });
+            }));
+        }
+    }
+
+    /**
+     * Proposes the best ride to every request that changed, writes the proposals that still fit
+     *
+     * @return number of requests matched
+     */
+    private int match(long after) {
+        if (dirty.isEmpty()) {
+            return 0;
+        }
+        Map<Integer, List<Proposal>> byShard = new TreeMap<>();
+        List<Long> requestIds = new ArrayList<>(dirty);
+        dirty.clear();
+        // oldest requests first, they get the cheapest rides
+        for (Long requestId : requestIds) {
+            MatchIndex.RequestEntry request = index.request(requestId);
+            MatchIndex.RideEntry ride = request != null ? index.bestRide(request, after) : null;
+            if (ride == null) {
+                continue;  // waits for a new ride
+            }
+            ride.freeSeats -= request.seats();
+            byShard.computeIfAbsent(shardRouter.shardOfId(request.id()), shard -> new ArrayList<>())
+                    .add(new Proposal(request, ride));
+        }
+
+        int[] matched = {0};
+        byShard.forEach((shard, proposals) -> shardRouter.runOn(shard, () ->
+                matched[0] += tx.execute(status -> write(proposals))));
+        return matched[0];
+    }
+
+    private int write(List<Proposal> proposals) {
+        // free seats now, minus the seats proposed to requests matched before
+        Map<Long, Integer> free = new HashMap<>();
+        Map<Long, MatchIndex.RideEntry> rides = new LinkedHashMap<>();
+        proposals.forEach(proposal -> rides.put(proposal.ride().id, proposal.ride()));
+        jdbcTemplate.query(RIDES + " AND r.id IN (:ids)", new MapSqlParameterSource()
+                        .addValue("from", LocalDateTime.now())
+                        .addValue("to", LocalDateTime.now().plusDays(properties.getHorizonDays()).plusHours(properties.getMaxWindowHours()))
+                        .addValue("ids", rides.keySet()),
+                (RowCallbackHandler) resultSet -> free.put(resultSet.getLong(1), resultSet.getInt(7)));
+
+        List<Proposal> accepted = new ArrayList<>();
+        for (Proposal proposal : proposals) {
+            Integer seats = free.get(proposal.ride().id);
+            if (seats != null && seats >= proposal.request().seats()) {
+                free.put(proposal.ride().id, seats - proposal.request().seats());
+                accepted.add(proposal);
+            } else {
+                dirty.add(proposal.request().id());
+            }
+        }
+        rides.forEach((rideId, ride) -> {
+            Integer seats = free.get(rideId);
+            if (seats == null || seats <= 0) {
+                index.removeRide(rideId);
+            } else {
+                ride.freeSeats = seats;
+            }
+        });
+        if (accepted.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp matchedAt = Timestamp.valueOf(LocalDateTime.now());
+        int[] counts = jdbcTemplate.getJdbcTemplate().batchUpdate(MATCH, accepted.stream()
+                .map(proposal -> new Object[]{proposal.ride().id, matchedAt, proposal.request().id()})
+                .toList());
+        int matched = 0;
+        for (int i = 0; i < accepted.size(); i++) {
+            Proposal proposal = accepted.get(i);
+            index.removeRequest(proposal.request().id());
+            if (counts[i] > 0) {
+                matched++;
+                log.debug("Ride request {} matched with ride {}", proposal.request().id(), proposal.ride().id);
+            } else {
+                // cancelled or matched elsewhere meanwhile
+                proposal.ride().freeSeats += proposal.request().seats();
+            }
+        }
+        return matched;
+    }
+
+    private static MatchIndex.RideEntry ride(ResultSet resultSet) throws SQLException {
+        return new MatchIndex.RideEntry(resultSet.getLong(1),
+                MatchIndex.route(resultSet.getString(2), resultSet.getString(3)),
+                minute(resultSet.getTimestamp(4).toLocalDateTime()), resultSet.getBigDecimal(5),
+                resultSet.getLong(6), resultSet.getInt(7));
+    }
+
+    private static MatchIndex.RequestEntry request(ResultSet resultSet) throws SQLException {
+        return entry(resultSet.getLong(1), resultSet.getLong(2), resultSet.getString(3), resultSet.getString(4),
+                resultSet.getTimestamp(5).toLocalDateTime(), resultSet.getTimestamp(6).toLocalDateTime(),
+                resultSet.getInt(7), resultSet.getBigDecimal(8));
+    }
+
+    private static MatchIndex.RequestEntry entry(long id, long passengerId, String startLocation, String endLocation,
+                                                 LocalDateTime earliest, LocalDateTime latest, int seats,
+                                                 BigDecimal maxPricePerSeat) {
+        return new MatchIndex.RequestEntry(id, passengerId, MatchIndex.route(startLocation, endLocation),
+                startLocation, endLocation, minute(earliest), minute(latest), seats, maxPricePerSeat);
+    }
+
+    private DemandSignal signal(MatchIndex.Demand demand) {
+        List<BigDecimal> prices = demand.maxPrices().stream().sorted().toList();
+        return new DemandSignal(demand.startLocation(), demand.endLocation(), time(demand.from()),
+                time(demand.to()), demand.requests(), demand.seats(),
+                prices.isEmpty() ? null : prices.get(prices.size() / 2));
+    }
+
+    private static long minute(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static LocalDateTime time(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,32 @@
+package com.carsharing.backend.matching;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * carsharing.matching.* (see application.properties)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("carsharing.matching")
+public class MatchingProperties {
+
+    private boolean enabled = true;
+    // one micro-batch: new requests and rides read, new matches written
+    private long intervalMs = 1000;
+    // indexes rebuilt from the database: seat changes, requests and rides of other nodes, expiry
+    private long resyncIntervalMs = 30000;
+    // width of the time buckets rides and requests are indexed by
+    private int bucketMinutes = 60;
+    // longest departure window of a request
+    private int maxWindowHours = 24;
+    // how far ahead requests can be posted (and rides are indexed)
+    private int horizonDays = 30;
+    // OPEN + MATCHED requests per passenger
+    private int maxActivePerPassenger = 5;
+    // open requests in one route bucket before it is a demand signal for drivers
+    private int demandMinRequests = 2;
+}
@@ -0,0 +1,36 @@
+package com.carsharing.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Booking of an archived ride, moved out of "bookings" by ArchiveJob
+ * Contains everything the history view shows, so no join is needed
+ */
+@Entity
+@Table(name = "bookings_archive", indexes = @Index(columnList = "passengerId, createdAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ArchivedBooking {
+
+    @Id  // same id as in "bookings"
+    private Long id;
+
+    private Long passengerId;
+    private String passengerName;
+    private Long rideId;
+    private String startLocation;
+    private String endLocation;
+    private LocalDateTime departureTime;
+    private Integer seatsBooked;
+    private BigDecimal totalPrice;
+    private String status;
+    private LocalDateTime createdAt;
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,38 @@
+package com.carsharing.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Completed/cancelled ride moved out of "rides" by ArchiveJob
+ * Flat copy (driver name included), no foreign keys to the live tables
+ */
+@Entity
+@Table(name = "rides_archive", indexes = @Index(columnList = "driverId"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ArchivedRide {
+
+    @Id  // same id as in "rides"
+    private Long id;
+
+    private String startLocation;
+    private String endLocation;
+    private LocalDateTime departureTime;
+    private Integer totalSeats;
+    private BigDecimal pricePerSeat;
+    private Long driverId;
+    private String driverName;
+    private String status;
+    private String carModel;
+    private String carColor;
+    private String description;
+    private LocalDateTime createdAt;
+    private LocalDateTime archivedAt;
+}
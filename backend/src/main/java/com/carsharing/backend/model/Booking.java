@@ -1,5 +1,6 @@
 package com.carsharing.backend.model;
 
+import com.carsharing.backend.sharding.ShardAwareSequence;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -20,7 +21,9 @@ import java.time.LocalDateTime;
 public class Booking {
 
     @Id  // primary key
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // identity represents autoincrement in db , auto generated id
+    // pooled sequence: Hibernate reserves 50 ids per round trip, so inserts can be sent as JDBC batches
+    // (one sequence per shard, the id carries its shard - see ShardAwareSequenceGenerator)
+    @ShardAwareSequence(name = "bookings_seq")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -49,6 +52,7 @@ public class Booking {
         PENDING,
         CONFIRMED,
         CANCELLED,
-        COMPLETED
+        COMPLETED,
+        EXPIRED     // pending too long or ride departed before confirmation, seats released
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.carsharing.backend.model;
+
+import com.carsharing.backend.cluster.CacheRegion;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cache invalidation published by one backend instance for all the others
+ * (written and read with JDBC by JdbcInvalidationTransport, the entity only defines the table)
+ *
+ * The id is the version of the event, createdAt is taken from the database clock right before commit.
+ */
+@Entity
+@Table(name = "cache_invalidations", indexes = @Index(columnList = "createdAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class CacheInvalidation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private CacheRegion region;
+
+    @Column(nullable = false, length = 64)
+    private String entityKey;
+
+    @Column(nullable = false, length = 64)
+    private String origin;  // node id of the writer
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,29 @@
+package com.carsharing.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Totals of all rides of a driver (sum of their RideStats rows)
+ */
+@Entity
+@Table(name = "driver_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+public class DriverStats {
+
+    @Id
+    private Long driverId;
+
+    private int seatsSold;
+    private int pendingConfirmations;
+    private int confirmedBookings;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+}
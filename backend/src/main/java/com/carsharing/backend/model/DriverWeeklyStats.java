@@ -0,0 +1,43 @@
+package com.carsharing.backend.model;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Revenue of a driver per departure week (sum of their RideStats rows of that week)
+ */
+@Entity
+@Table(name = "driver_weekly_stats")
+@IdClass(DriverWeeklyStats.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class DriverWeeklyStats {
+
+    @Id
+    private Long driverId;
+
+    @Id
+    private LocalDate weekStart;
+
+    private int seatsSold;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long driverId;
+        private LocalDate weekStart;
+    }
+}
@@ -0,0 +1,57 @@
+package com.carsharing.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response stored for an Idempotency-Key, so a retried request gets the same answer
+ * statusCode == null means the first request is still running, or died before it finished
+ * if lockedUntil has passed (another request may then take the key over)
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(columnList = "expiresAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(length = 64)
+    private String id;  // SHA-256 of user + method + path + key
+
+    @Column(nullable = false, length = 64)
+    private String requestHash;  // SHA-256 of the request body
+
+    private Integer statusCode;
+
+    private String contentType;
+
+    @Lob
+    private byte[] body;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    // lease of the request executing the key, null once the response is stored
+    private LocalDateTime lockedUntil;
+
+    // save() of a new key must INSERT (and fail if another node inserted it first), never merge
+    @Transient
+    private boolean newRecord = true;
+
+    @Override
+    public boolean isNew() {
+        return newRecord;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        newRecord = false;
+    }
+}
@@ -0,0 +1,56 @@
+package com.carsharing.backend.model;
+
+import com.carsharing.backend.sharding.ShardAwareSequence;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Domain event waiting to be delivered (transactional outbox)
+ *
+ * Written in the same transaction as the booking change, so an event exists
+ * if and only if the change was committed. OutboxDispatcher delivers it later.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(columnList = "dispatchedAt, id"),
+        @Index(columnList = "rideId, rideSequence")})
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @ShardAwareSequence(name = "outbox_events_seq")  // written on the shard of the booking
+    private Long id;
+
+    @Column(nullable = false)
+    private Long rideId;  // events of the same ride are delivered in order
+
+    private Long rideSequence;  // order within the ride = commit order (ids are pooled per node, they are not)
+
+    @Column(nullable = false, length = 40)
+    private String eventType;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;  // JSON
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime dispatchedAt;  // null = not delivered yet
+
+    private int attempts;
+
+    private String claimedBy;  // node delivering the event
+
+    private LocalDateTime claimedUntil;  // other nodes leave the event alone until then
+
+    private String lastError;
+}
@@ -0,0 +1,47 @@
+package com.carsharing.backend.model;
+
+import com.carsharing.backend.sharding.ShardAwareSequence;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rating a passenger gave the driver after a COMPLETED booking (one per booking)
+ */
+@Entity
+@Table(name = "ratings", indexes = @Index(columnList = "driverId, createdAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class Rating {
+
+    @Id
+    @ShardAwareSequence(name = "ratings_seq")
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private Long bookingId;
+
+    @Column(nullable = false)
+    private Long rideId;
+
+    @Column(nullable = false)
+    private Long driverId;
+
+    @Column(nullable = false)
+    private Long passengerId;
+
+    @Column(nullable = false)
+    private Integer stars;  // 1..5
+
+    @Column(length = 500)
+    private String comment;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,48 @@
+package com.carsharing.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * Running totals of the ratings a driver received (part of the users row)
+ * Changed only by UserRepository.addRating(), in one UPDATE per rating
+ */
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+public class RatingSummary {
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int ratingCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long ratingTotal;  // sum of all stars
+
+    // distribution
+    @ColumnDefault("0")
+    @Column(name = "rating_1", nullable = false)
+    private int oneStar;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_2", nullable = false)
+    private int twoStars;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_3", nullable = false)
+    private int threeStars;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_4", nullable = false)
+    private int fourStars;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_5", nullable = false)
+    private int fiveStars;
+}
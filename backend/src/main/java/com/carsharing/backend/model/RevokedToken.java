@@ -0,0 +1,30 @@
+package com.carsharing.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Access token revoked before it expired (logout), identified by its jti claim
+ * Kept until the token would have expired anyway, see TokenDenylist
+ */
+@Entity
+@Table(name = "revoked_tokens", indexes = {@Index(columnList = "expiresAt"), @Index(columnList = "revokedAt")})
+@Getter
+@Setter
+@NoArgsConstructor
+public class RevokedToken {
+
+    @Id
+    @Column(length = 64)
+    private String jti;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(nullable = false)
+    private LocalDateTime revokedAt;
+}
@@ -1,5 +1,6 @@
 package com.carsharing.backend.model;
 
+import com.carsharing.backend.sharding.ShardAwareSequence;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -19,7 +20,7 @@ import java.time.LocalDateTime;
 public class Ride {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ShardAwareSequence(name = "rides_seq")
     private Long id;
 
     @Column(nullable = false)
@@ -56,6 +57,10 @@ public class Ride {
     private String carColor;
     private String description;
 
+    // last sequence number given to an outbox event of this ride, advanced in SQL only (OutboxService)
+    @Column(insertable = false, updatable = false)
+    private Long outboxSequence;
+
     public enum RideStatus {
         ACTIVE,      // available ride
         FULL,        // all seats booked
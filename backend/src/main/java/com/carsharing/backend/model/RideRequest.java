@@ -0,0 +1,77 @@
+package com.carsharing.backend.model;
+
+import com.carsharing.backend.sharding.ShardAwareSequence;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A passenger looking for a ride: route, departure window, seats and the most they pay per seat
+ *
+ * The matching engine (MatchingEngine) proposes a ride for OPEN requests, the passenger books it
+ * with POST /api/ride-requests/{id}/accept. Lives on the shard of its start location, like the rides
+ * it can be matched with.
+ */
+@Entity
+@Table(name = "ride_requests", indexes = {
+        @Index(columnList = "status, latestDeparture"),
+        @Index(columnList = "passengerId"),
+        @Index(columnList = "matchedRideId")})
+@Getter
+@Setter
+@NoArgsConstructor
+public class RideRequest {
+
+    @Id
+    @ShardAwareSequence(name = "ride_requests_seq")
+    private Long id;
+
+    @Column(nullable = false)
+    private Long passengerId;
+
+    @Column(nullable = false)
+    private String startLocation;
+
+    @Column(nullable = false)
+    private String endLocation;
+
+    @Column(nullable = false)
+    private LocalDateTime earliestDeparture;
+
+    @Column(nullable = false)
+    private LocalDateTime latestDeparture;
+
+    @Column(nullable = false)
+    private Integer seats;
+
+    // null = any price
+    private BigDecimal maxPricePerSeat;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.OPEN;
+
+    // ride proposed by the matching engine (MATCHED) or booked (BOOKED)
+    private Long matchedRideId;
+
+    private LocalDateTime matchedAt;
+
+    private Long bookingId;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum Status {
+        OPEN,       // waiting for a ride
+        MATCHED,    // a ride was proposed, back to OPEN if it fills up before the passenger accepts
+        BOOKED,     // accepted, bookingId
+        CANCELLED,  // withdrawn by the passenger
+        EXPIRED     // window passed without a booking
+    }
+}
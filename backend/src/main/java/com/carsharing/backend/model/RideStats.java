@@ -0,0 +1,42 @@
+package com.carsharing.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Booking counters of one ride, kept up to date by DriverStatsService
+ * Rows of archived rides stay, so the driver totals keep their history.
+ *
+ * Counted bookings: PENDING, CONFIRMED and COMPLETED (not CANCELLED/EXPIRED)
+ * Revenue: CONFIRMED and COMPLETED bookings
+ */
+@Entity
+@Table(name = "ride_stats", indexes = @Index(columnList = "driverId, departureTime"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class RideStats {
+
+    @Id  // same id as in "rides"
+    private Long rideId;
+
+    @Column(nullable = false)
+    private Long driverId;
+
+    private LocalDateTime departureTime;
+    private LocalDate weekStart;  // monday of the departure week
+    private Integer totalSeats;
+
+    private int seatsBooked;
+    private int pendingBookings;
+    private int confirmedBookings;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+}
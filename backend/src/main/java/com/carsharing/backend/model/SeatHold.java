@@ -0,0 +1,45 @@
+package com.carsharing.backend.model;
+
+import com.carsharing.backend.sharding.ShardAwareSequence;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Seats reserved for a passenger for a few minutes (checkout)
+ *
+ * The seats are taken from ride.availableSeats when the hold is created, so they cannot
+ * be booked by someone else while the passenger pays. Confirming the hold creates the Booking,
+ * an expired or released hold gives the seats back. The row is deleted in both cases.
+ */
+@Entity
+@Table(name = "seat_holds", indexes = {@Index(columnList = "expiresAt"), @Index(columnList = "rideId")})
+@Getter
+@Setter
+@NoArgsConstructor
+public class SeatHold {
+
+    @Id
+    @ShardAwareSequence(name = "seat_holds_seq")
+    private Long id;
+
+    @Column(nullable = false)
+    private Long rideId;
+
+    @Column(nullable = false)
+    private Long passengerId;
+
+    @Column(nullable = false)
+    private Integer seats;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+}
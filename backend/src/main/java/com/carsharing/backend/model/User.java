@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -41,7 +42,10 @@ public class User {
     @Column(updatable = false)
     private LocalDateTime createdAt;
 
-    private Double rating;
+    private Double rating;  // average stars, null while the driver has no ratings
+
+    @Embedded
+    private RatingSummary ratingSummary = new RatingSummary();
 
     public enum UserRole {
         VISITOR,  // can only see rides
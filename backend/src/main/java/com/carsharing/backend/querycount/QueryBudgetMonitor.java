@@ -0,0 +1,62 @@
+package com.carsharing.backend.querycount;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compares the statements of a finished request with the budget of its endpoint
+ * and keeps per-endpoint violation counters
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueryBudgetMonitor {
+
+    private final QueryBudgetProperties properties;
+    private final Map<String, Violations> violations = new ConcurrentHashMap<>();
+
+    /**
+     * Violations of one endpoint since startup, with the worst request and the latest offending pattern
+     */
+    public record Violations(String endpoint, int budget, long requests, int maxStatements,
+                             String lastPattern, int lastPatternCount, LocalDateTime lastAt) {
+    }
+
+    /**
+     * @param endpoint "METHOD pattern", e.g. "GET /api/rides/{id}"
+     */
+    public void check(String endpoint, QueryCounter.Scope scope) {
+        int budget = properties.getEndpoints().getOrDefault(endpoint, properties.getDefaultLimit());
+        if (budget <= 0 || scope.getCount() <= budget) {
+            return;
+        }
+        String pattern = scope.getMostRepeated();
+        int patternCount = scope.getPatterns().get(pattern);
+
+        violations.merge(endpoint,
+                new Violations(endpoint, budget, 1, scope.getCount(), pattern, patternCount, LocalDateTime.now()),
+                (old, now) -> new Violations(endpoint, budget, old.requests() + 1,
+                        Math.max(old.maxStatements(), now.maxStatements()), pattern, patternCount, now.lastAt()));
+
+        if (properties.getMode() == QueryBudgetProperties.Mode.LOG) {
+            log.warn("Query budget exceeded: {} ran {} statements (budget {}), most repeated {}x: {}",
+                    endpoint, scope.getCount(), budget, patternCount, pattern);
+        }
+    }
+
+    /**
+     * Endpoints with the most violating requests first
+     */
+    public List<Violations> getViolations() {
+        return violations.values().stream()
+                .sorted(Comparator.comparingLong(Violations::requests).reversed())
+                .toList();
+    }
+}
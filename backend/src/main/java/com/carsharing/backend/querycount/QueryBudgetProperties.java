@@ -0,0 +1,36 @@
+package com.carsharing.backend.querycount;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * carsharing.query-budget.* - maximum SQL statements per request, per endpoint
+ *
+ * Endpoint keys are "METHOD pattern" as mapped in the controller, e.g.
+ *   carsharing.query-budget.endpoints.[GET\ /api/rides/{id}]=1
+ * (the space must be escaped in .properties files)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("carsharing.query-budget")
+public class QueryBudgetProperties {
+
+    public enum Mode {
+        OFF,    // no counting per request
+        COUNT,  // violations are counted (GET /api/admin/query-budget)
+        LOG     // counted and logged with the most repeated statement
+    }
+
+    private Mode mode = Mode.LOG;
+
+    // budget of endpoints without their own entry, 0 = not checked
+    private int defaultLimit = 0;
+
+    private Map<String, Integer> endpoints = new HashMap<>();
+}
@@ -0,0 +1,26 @@
+package com.carsharing.backend.querycount;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Feeds every executed statement into QueryCounter (see DataSourceProxyConfig)
+ */
+@Component
+public class QueryCountListener implements QueryExecutionListener {
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (!queryInfoList.isEmpty()) {
+            QueryCounter.record(queryInfoList.get(0).getQuery());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.carsharing.backend.querycount;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the JDBC statements executed by the current thread
+ *
+ * Usage (tests, QueryBudgetInterceptor):
+ *   try (QueryCounter.Scope scope = QueryCounter.start()) {
+ *       ... code under test ...
+ *       scope.getCount();
+ *   }
+ *
+ * Scopes nest: a statement counts in every open scope of the thread.
+ * A JDBC batch is one statement (one round trip). Statements are grouped by pattern
+ * (SQL with literals and IN lists collapsed), so an N+1 shows up as one pattern repeated N times.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\((\\s*\\?\\s*,)+\\s*\\?\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private QueryCounter() {
+    }
+
+    public static Scope start() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    static void record(String sql) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        String pattern = normalize(sql);
+        for (; scope != null; scope = scope.parent) {
+            scope.count++;
+            scope.patterns.merge(pattern, 1, Integer::sum);
+        }
+    }
+
+    static String normalize(String sql) {
+        String pattern = STRING_LITERAL.matcher(sql).replaceAll("?");
+        pattern = NUMBER_LITERAL.matcher(pattern).replaceAll("?");
+        pattern = IN_LIST.matcher(pattern).replaceAll("in (?)");
+        return WHITESPACE.matcher(pattern).replaceAll(" ").trim();
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private final Map<String, Integer> patterns = new LinkedHashMap<>();
+        private int count;
+        private boolean closed;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Statement pattern -> executions, in the order they first ran
+         */
+        public Map<String, Integer> getPatterns() {
+            return Collections.unmodifiableMap(patterns);
+        }
+
+        /**
+         * The pattern executed most often, null if nothing ran
+         */
+        public String getMostRepeated() {
+            return patterns.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+        }
+
+        /**
+         * e.g. "12 statements: 10x select ... where u.id=?, 1x select ..., 1x ..."
+         */
+        public String describe() {
+            StringBuilder text = new StringBuilder().append(count).append(" statements");
+            patterns.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                    .forEach(e -> text.append("\n  ").append(e.getValue()).append("x ").append(e.getKey()));
+            return text.toString();
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                if (parent == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(parent);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.model.ArchivedBooking;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+
+    // SQL: SELECT COUNT(*) FROM bookings_archive WHERE passenger_id = ?
+    long countByPassengerId(Long passengerId);
+
+    // one slice of a passenger's archived bookings, newest first - same order as the live ones
+    // (offset is free, the history page can start in the middle of the archive)
+    @Query(value = """
+            SELECT * FROM bookings_archive
+            WHERE passenger_id = :passengerId
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit OFFSET :offset""", nativeQuery = true)
+    List<ArchivedBooking> findHistorySlice(@Param("passengerId") Long passengerId,
+                                           @Param("offset") long offset,
+                                           @Param("limit") int limit);
+}
@@ -1,27 +1,81 @@
 package com.carsharing.backend.repository;
 
 import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.sharding.ShardKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Bookings live on the shard of their ride (see ShardRouter)
+ * Methods with a @ShardKey run on one shard, the other reads on all shards (ShardingAspect).
+ */
 @Repository
-public interface BookingRepository extends JpaRepository<Booking, Long> {
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingRepositoryCustom {
+
+    // passenger and ride loaded in the same query, the booking is mapped after its transaction ended
+    @Override
+    @EntityGraph(attributePaths = {"passenger", "ride"})
+    Optional<Booking> findById(@ShardKey Long id);
+
+    @Override
+    <S extends Booking> S save(@ShardKey S booking);
+
+    // ride of a booking without loading either, so the ride can be locked before the booking is read
+    // SQL: SELECT ride_id FROM bookings WHERE id = ?
+    @Query("SELECT b.ride.id FROM Booking b WHERE b.id = :id")
+    Optional<Long> findRideIdById(@ShardKey @Param("id") Long id);
+
+    // list finders load passenger and ride in the same query, BookingMapper reads both for every booking
+    // SQL: SELECT * FROM bookings b JOIN users u ON ... JOIN rides r ON ...
+    @Override
+    @EntityGraph(attributePaths = {"passenger", "ride"})
+    List<Booking> findAll();
+
+    // several bookings by id (GET /api/bookings?ids=)
+    // SQL: SELECT * FROM bookings b JOIN users u ON ... JOIN rides r ON ... WHERE b.id IN (...)
+    @EntityGraph(attributePaths = {"passenger", "ride"})
+    List<Booking> findByIdIn(Collection<Long> ids);
+
+    // the same, only bookings of one passenger
+    @EntityGraph(attributePaths = {"passenger", "ride"})
+    List<Booking> findByIdInAndPassengerId(Collection<Long> ids, Long passengerId);
 
     // finds all reservations of a passenger
     // SQL: SELECT * FROM bookings WHERE passenger_id = ?
+    @EntityGraph(attributePaths = {"passenger", "ride"})
     List<Booking> findByPassengerId(Long passengerId);
 
+    // one page of a passenger's reservations, newest first
+    // SQL: SELECT * FROM bookings WHERE passenger_id = ? ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?
+    @EntityGraph(attributePaths = {"passenger", "ride"})
+    List<Booking> findByPassengerIdOrderByCreatedAtDescIdDesc(Long passengerId, Pageable pageable);
+
+    // SQL: SELECT COUNT(*) FROM bookings WHERE passenger_id = ?
+    long countByPassengerId(Long passengerId);
+
     // finds all reservations for a ride
     // SQL: SELECT * FROM bookings WHERE ride_id = ?
-    List<Booking> findByRideId(Long rideId);
+    @EntityGraph(attributePaths = {"passenger", "ride"})
+    List<Booking> findByRideId(@ShardKey Long rideId);
 
     // finds all reservations by status
     // SQL: SELECT * FROM bookings WHERE status = ?
     List<Booking> findByStatus(Booking.BookingStatus status);
 
+    // finds the given reservations of one ride, passengers loaded in the same query
+    // SQL: SELECT * FROM bookings b JOIN users u ON ... WHERE b.ride_id = ? AND b.id IN (...)
+    @Query("SELECT b FROM Booking b JOIN FETCH b.passenger WHERE b.ride.id = :rideId AND b.id IN :ids")
+    List<Booking> findByRideIdAndIdIn(@ShardKey @Param("rideId") Long rideId, @Param("ids") Collection<Long> ids);
+
     void deleteAllByPassengerId(Long passengerId);
 
-    void deleteAllByRideId(Long rideId);
+    void deleteAllByRideId(@ShardKey Long rideId);
 }
\ No newline at end of file
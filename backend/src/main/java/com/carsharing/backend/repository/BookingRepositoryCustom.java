@@ -0,0 +1,36 @@
+package com.carsharing.backend.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Booking reads that select only the requested fields (?fields=, see FieldProjection)
+ * Field names are the ones of BookingResponse.
+ */
+public interface BookingRepositoryCustom {
+
+    FieldProjection FIELDS = new FieldProjection("Booking b")
+            .field("id", "b.id")
+            .field("passengerId", "b.passenger.id")
+            .field("passengerName", "p.fullName", "JOIN b.passenger p")
+            .field("rideId", "b.ride.id")
+            .field("startLocation", "r.startLocation", "JOIN b.ride r")
+            .field("endLocation", "r.endLocation", "JOIN b.ride r")
+            .field("seatsBooked", "b.seatsBooked")
+            .field("totalPrice", "b.totalPrice")
+            .field("status", "b.status");
+
+    // SQL: SELECT <fields> FROM bookings WHERE id IN (...)
+    List<Map<String, Object>> findFieldsByIdIn(Collection<Long> ids, Set<String> fields);
+
+    // SQL: SELECT <fields> FROM bookings WHERE id IN (...) AND passenger_id = ?
+    List<Map<String, Object>> findFieldsByIdInAndPassengerId(Collection<Long> ids, Long passengerId, Set<String> fields);
+
+    // SQL: SELECT <fields> FROM bookings
+    List<Map<String, Object>> findAllFields(Set<String> fields);
+
+    // SQL: SELECT <fields> FROM bookings WHERE passenger_id = ?
+    List<Map<String, Object>> findFieldsByPassengerId(Long passengerId, Set<String> fields);
+}
@@ -0,0 +1,39 @@
+package com.carsharing.backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Transactional(readOnly = true)
+public class BookingRepositoryImpl implements BookingRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFieldsByIdIn(Collection<Long> ids, Set<String> fields) {
+        return FIELDS.list(entityManager, fields, "b.id IN :ids", Map.of("ids", ids));
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByIdInAndPassengerId(Collection<Long> ids, Long passengerId,
+                                                                    Set<String> fields) {
+        return FIELDS.list(entityManager, fields, "b.id IN :ids AND b.passenger.id = :passengerId",
+                Map.of("ids", ids, "passengerId", passengerId));
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllFields(Set<String> fields) {
+        return FIELDS.list(entityManager, fields, null, Map.of());
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByPassengerId(Long passengerId, Set<String> fields) {
+        return FIELDS.list(entityManager, fields, "b.passenger.id = :passengerId", Map.of("passengerId", passengerId));
+    }
+}
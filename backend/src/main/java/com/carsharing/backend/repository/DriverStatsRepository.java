@@ -0,0 +1,9 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.model.DriverStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DriverStatsRepository extends JpaRepository<DriverStats, Long> {
+}
@@ -0,0 +1,15 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.model.DriverWeeklyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DriverWeeklyStatsRepository extends JpaRepository<DriverWeeklyStats, DriverWeeklyStats.Key> {
+
+    // SQL: SELECT * FROM driver_weekly_stats WHERE driver_id = ? AND week_start >= ? ORDER BY week_start
+    List<DriverWeeklyStats> findByDriverIdAndWeekStartGreaterThanEqualOrderByWeekStart(Long driverId, LocalDate from);
+}
@@ -0,0 +1,107 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.exception.InvalidBookingException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse fieldsets (?fields=id,startLocation,...) as one JPQL query
+ *
+ * Only the requested fields are selected, and an association is joined only when one of its
+ * fields is requested (driverId is the rides.driver_id column, driverName needs the users row).
+ * Rows come back as field -> value maps in the order of the requested fields, enums as their name.
+ */
+public final class FieldProjection {
+
+    private final String root;
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+
+    private record Column(String path, String join) {
+    }
+
+    /**
+     * @param root entity and alias, e.g. "Ride r"
+     */
+    public FieldProjection(String root) {
+        this.root = root;
+    }
+
+    public FieldProjection field(String name, String path) {
+        return field(name, path, null);
+    }
+
+    /**
+     * @param join join clause the path needs, e.g. "JOIN r.driver d"
+     */
+    public FieldProjection field(String name, String path, String join) {
+        columns.put(name, new Column(path, join));
+        return this;
+    }
+
+    /**
+     * Requested fields, in request order; id is always included
+     *
+     * @throws InvalidBookingException for an unknown field
+     */
+    public Set<String> parse(String fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!columns.containsKey(name)) {
+                throw new InvalidBookingException("Unknown field '" + name + "', allowed: "
+                        + String.join(",", columns.keySet()));
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+
+    /**
+     * @param where JPQL condition on the root alias (and the joins of the selected fields), null for all rows
+     */
+    public List<Map<String, Object>> list(EntityManager entityManager, Set<String> fields,
+                                          String where, Map<String, Object> parameters) {
+        List<String> select = new ArrayList<>();
+        Set<String> joins = new LinkedHashSet<>();
+        for (String field : fields) {
+            Column column = columns.get(field);
+            select.add(column.path() + " AS " + field);
+            if (column.join() != null) {
+                joins.add(column.join());
+            }
+        }
+
+        StringBuilder jpql = new StringBuilder("SELECT ").append(String.join(", ", select))
+                .append(" FROM ").append(root);
+        joins.forEach(join -> jpql.append(' ').append(join));
+        if (where != null) {
+            jpql.append(" WHERE ").append(where);
+        }
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        parameters.forEach(query::setParameter);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : query.getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                Object value = tuple.get(field);
+                row.put(field, value instanceof Enum<?> e ? e.name() : value);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,35 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // takes over a key whose request died without storing a response (its lease ran out), or whose
+    // stored response expired but was not deleted yet (evictExpired runs every few minutes)
+    // SQL: UPDATE idempotency_keys SET ... WHERE id = ? AND (expires_at < ? OR status_code IS NULL AND locked_until < ?)
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE IdempotencyRecord r
+            SET r.requestHash = :requestHash, r.lockedUntil = :lockedUntil, r.expiresAt = :expiresAt,
+                r.statusCode = NULL, r.contentType = NULL, r.body = NULL
+            WHERE r.id = :id AND (r.expiresAt < :now
+                OR r.statusCode IS NULL AND (r.lockedUntil IS NULL OR r.lockedUntil < :now))""")
+    int takeOver(@Param("id") String id, @Param("requestHash") String requestHash,
+                 @Param("lockedUntil") LocalDateTime lockedUntil, @Param("expiresAt") LocalDateTime expiresAt,
+                 @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,51 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // rides with events not delivered yet, the ones waiting longest first
+    // SQL: SELECT ride_id FROM outbox_events WHERE dispatched_at IS NULL GROUP BY ride_id ORDER BY MIN(id) LIMIT ?
+    @Query("SELECT e.rideId FROM OutboxEvent e WHERE e.dispatchedAt IS NULL GROUP BY e.rideId ORDER BY MIN(e.id)")
+    List<Long> findRidesWithPendingEvents(Pageable pageable);
+
+    // every event of these rides not delivered yet, in ride order
+    // SQL: SELECT * FROM outbox_events WHERE dispatched_at IS NULL AND ride_id IN (...) ORDER BY ride_id, ride_sequence, id
+    @Query("""
+            SELECT e FROM OutboxEvent e WHERE e.dispatchedAt IS NULL AND e.rideId IN :rideIds
+            ORDER BY e.rideId, e.rideSequence NULLS FIRST, e.id""")
+    List<OutboxEvent> findPendingByRideIds(@Param("rideIds") Collection<Long> rideIds);
+
+    // gives claimed events back (not delivered this time), any node can take them at the next poll
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.claimedUntil = NULL WHERE e.id IN :ids AND e.claimedBy = :node")
+    int releaseClaims(@Param("ids") Collection<Long> ids, @Param("node") String node);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.dispatchedAt = :now, e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int markDispatched(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, e.lastError = :error WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("error") String error);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEvent e WHERE e.dispatchedAt < :before")
+    int deleteDispatchedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,19 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.model.Rating;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RatingRepository extends JpaRepository<Rating, Long> {
+
+    // SQL: SELECT COUNT(*) > 0 FROM ratings WHERE booking_id = ?
+    boolean existsByBookingId(Long bookingId);
+
+    // latest ratings of a driver (uses the driverId, createdAt index)
+    // SQL: SELECT * FROM ratings WHERE driver_id = ? ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?
+    List<Rating> findByDriverIdOrderByCreatedAtDescIdDesc(Long driverId, Pageable pageable);
+}
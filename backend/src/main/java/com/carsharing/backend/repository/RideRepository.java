@@ -1,30 +1,80 @@
 package com.carsharing.backend.repository;
 
 import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.sharding.ShardKey;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Rides live on the shard of their start location (see ShardRouter)
+ * Methods with a @ShardKey run on one shard, the other reads on all shards (ShardingAspect).
+ */
 @Repository
-public interface RideRepository extends JpaRepository<Ride, Long> {
+public interface RideRepository extends JpaRepository<Ride, Long>, RideRepositoryCustom {
+
+    @Override
+    Optional<Ride> findById(@ShardKey Long id);
+
+    @Override
+    boolean existsById(@ShardKey Long id);
+
+    @Override
+    <S extends Ride> S save(@ShardKey S ride);
+
+    @Override
+    void deleteById(@ShardKey Long id);
+
+    // list finders load the driver in the same query, RideMapper reads it for every ride
+    // SQL: SELECT * FROM rides r JOIN users d ON d.id = r.driver_id
+    @Override
+    @EntityGraph(attributePaths = "driver")
+    List<Ride> findAll();
+
+    // several rides by id (GET /api/rides?ids=), drivers in the same query
+    // SQL: SELECT * FROM rides r JOIN users d ON d.id = r.driver_id WHERE r.id IN (...)
+    @EntityGraph(attributePaths = "driver")
+    List<Ride> findByIdIn(Collection<Long> ids);
 
     // finds rides by route
     // SQL: SELECT * FROM rides WHERE start_location = ? AND end_location = ?
-    List<Ride> findByStartLocationAndEndLocation(String startLocation, String endLocation);
+    @EntityGraph(attributePaths = "driver")
+    List<Ride> findByStartLocationAndEndLocation(@ShardKey String startLocation, String endLocation);
 
     // finds all rides of a certain driver
     // SQL: SELECT * FROM rides WHERE driver_id = ?
+    @EntityGraph(attributePaths = "driver")
     List<Ride> findByDriverId(Long driverId);
 
     // finds rides by date
     // SQL: SELECT * FROM rides WHERE departure_time > ?
+    @EntityGraph(attributePaths = "driver")
     List<Ride> findByDepartureTimeAfter(LocalDateTime dateTime);
 
     // finds available rides by no of seats
     // SQL: SELECT * FROM rides WHERE available_seats > 0
     List<Ride> findByAvailableSeatsGreaterThan(Integer seats);
 
+    // locks several rides at once (always in id order, so two batches cannot deadlock)
+    // SQL: SELECT * FROM rides WHERE id IN (...) ORDER BY id FOR UPDATE
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Ride r WHERE r.id IN :ids ORDER BY r.id")
+    List<Ride> findAllForUpdate(@ShardKey @Param("ids") Collection<Long> ids);
+
+    // locks one ride until the end of the transaction
+    // SQL: SELECT * FROM rides WHERE id = ? FOR UPDATE
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Ride r WHERE r.id = :id")
+    Optional<Ride> findByIdForUpdate(@ShardKey @Param("id") Long id);
+
     void deleteAllByDriverId(Long driverId);
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.sharding.ShardKey;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ride reads that select only the requested fields (?fields=, see FieldProjection)
+ * Field names are the ones of RideResponse.
+ */
+public interface RideRepositoryCustom {
+
+    FieldProjection FIELDS = new FieldProjection("Ride r")
+            .field("id", "r.id")
+            .field("startLocation", "r.startLocation")
+            .field("endLocation", "r.endLocation")
+            .field("departureTime", "r.departureTime")
+            .field("pricePerSeat", "r.pricePerSeat")
+            .field("availableSeats", "r.availableSeats")
+            .field("driverId", "r.driver.id")
+            .field("driverName", "d.fullName", "JOIN r.driver d")
+            .field("driverRating", "d.rating", "JOIN r.driver d")
+            .field("driverRatingCount", "d.ratingSummary.ratingCount", "JOIN r.driver d");
+
+    // SQL: SELECT <fields> FROM rides WHERE id IN (...)
+    List<Map<String, Object>> findFieldsByIdIn(Collection<Long> ids, Set<String> fields);
+
+    // SQL: SELECT <fields> FROM rides
+    List<Map<String, Object>> findAllFields(Set<String> fields);
+
+    // SQL: SELECT <fields> FROM rides WHERE start_location = ? AND end_location = ?
+    List<Map<String, Object>> findFieldsByRoute(@ShardKey String startLocation, String endLocation, Set<String> fields);
+
+    // SQL: SELECT <fields> FROM rides WHERE driver_id = ?
+    List<Map<String, Object>> findFieldsByDriverId(Long driverId, Set<String> fields);
+
+    // SQL: SELECT <fields> FROM rides WHERE departure_time > ?
+    List<Map<String, Object>> findFieldsByDepartureTimeAfter(LocalDateTime dateTime, Set<String> fields);
+}
@@ -0,0 +1,44 @@
+package com.carsharing.backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Transactional(readOnly = true)
+public class RideRepositoryImpl implements RideRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFieldsByIdIn(Collection<Long> ids, Set<String> fields) {
+        return FIELDS.list(entityManager, fields, "r.id IN :ids", Map.of("ids", ids));
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllFields(Set<String> fields) {
+        return FIELDS.list(entityManager, fields, null, Map.of());
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByRoute(String startLocation, String endLocation, Set<String> fields) {
+        return FIELDS.list(entityManager, fields, "r.startLocation = :from AND r.endLocation = :to",
+                Map.of("from", startLocation, "to", endLocation));
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByDriverId(Long driverId, Set<String> fields) {
+        return FIELDS.list(entityManager, fields, "r.driver.id = :driverId", Map.of("driverId", driverId));
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByDepartureTimeAfter(LocalDateTime dateTime, Set<String> fields) {
+        return FIELDS.list(entityManager, fields, "r.departureTime > :after", Map.of("after", dateTime));
+    }
+}
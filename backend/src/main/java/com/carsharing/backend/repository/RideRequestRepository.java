@@ -0,0 +1,23 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.model.RideRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Ride requests live on the shard of their start location; the matching engine reads and updates
+ * them with JDBC (see MatchingEngine)
+ */
+@Repository
+public interface RideRequestRepository extends JpaRepository<RideRequest, Long> {
+
+    // requests of a passenger, newest first (uses the passengerId index)
+    // SQL: SELECT * FROM ride_requests WHERE passenger_id = ? ORDER BY created_at DESC
+    List<RideRequest> findByPassengerIdOrderByCreatedAtDesc(Long passengerId);
+
+    // SQL: SELECT COUNT(*) FROM ride_requests WHERE passenger_id = ? AND status IN (...)
+    long countByPassengerIdAndStatusIn(Long passengerId, Collection<RideRequest.Status> statuses);
+}
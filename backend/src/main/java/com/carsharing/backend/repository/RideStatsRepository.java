@@ -0,0 +1,16 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.model.RideStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RideStatsRepository extends JpaRepository<RideStats, Long> {
+
+    // latest rides of a driver (uses the driverId, departureTime index)
+    // SQL: SELECT * FROM ride_stats WHERE driver_id = ? ORDER BY departure_time DESC LIMIT ?
+    List<RideStats> findByDriverIdOrderByDepartureTimeDesc(Long driverId, Pageable pageable);
+}
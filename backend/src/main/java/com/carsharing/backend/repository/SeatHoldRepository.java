@@ -0,0 +1,26 @@
+package com.carsharing.backend.repository;
+
+import com.carsharing.backend.model.SeatHold;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SeatHoldRepository extends JpaRepository<SeatHold, Long> {
+
+    // removes a hold, 0 = already confirmed, released or expired (by this or another node)
+    // SQL: DELETE FROM seat_holds WHERE id = ?
+    @Modifying
+    @Query("DELETE FROM SeatHold h WHERE h.id = :id")
+    int deleteHold(@Param("id") Long id);
+
+    // holds that should have expired already (uses the expiresAt index)
+    // SQL: SELECT * FROM seat_holds WHERE expires_at < ? ORDER BY expires_at LIMIT ?
+    List<SeatHold> findByExpiresAtBeforeOrderByExpiresAt(LocalDateTime time, Pageable pageable);
+}
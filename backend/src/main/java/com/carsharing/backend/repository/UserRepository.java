@@ -2,9 +2,14 @@ package com.carsharing.backend.repository;
 
 import com.carsharing.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository  // interface that interacts with the DB
 public interface UserRepository extends JpaRepository<User, Long> { // type of repo and id type
@@ -16,6 +21,28 @@ public interface UserRepository extends JpaRepository<User, Long> { // type of r
     // Spring generates: SELECT COUNT(*) > 0 FROM users WHERE email = ?
     boolean existsByEmail(String email);
 
+    // which of these ids exist (one query for a whole batch)
+    // SQL: SELECT id FROM users WHERE id IN (...)
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // adds one rating to the driver's running totals, in a single UPDATE
+    // (the row lock makes concurrent ratings of the same driver wait for each other, none is lost;
+    //  every SET uses the values from before the UPDATE)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE User u SET
+                u.rating = cast(u.ratingSummary.ratingTotal + :stars as Double) / (u.ratingSummary.ratingCount + 1),
+                u.ratingSummary.ratingCount = u.ratingSummary.ratingCount + 1,
+                u.ratingSummary.ratingTotal = u.ratingSummary.ratingTotal + :stars,
+                u.ratingSummary.oneStar = u.ratingSummary.oneStar + CASE WHEN :stars = 1 THEN 1 ELSE 0 END,
+                u.ratingSummary.twoStars = u.ratingSummary.twoStars + CASE WHEN :stars = 2 THEN 1 ELSE 0 END,
+                u.ratingSummary.threeStars = u.ratingSummary.threeStars + CASE WHEN :stars = 3 THEN 1 ELSE 0 END,
+                u.ratingSummary.fourStars = u.ratingSummary.fourStars + CASE WHEN :stars = 4 THEN 1 ELSE 0 END,
+                u.ratingSummary.fiveStars = u.ratingSummary.fiveStars + CASE WHEN :stars = 5 THEN 1 ELSE 0 END
+            WHERE u.id = :driverId""")
+    int addRating(@Param("driverId") Long driverId, @Param("stars") int stars);
+
     // built in methods :
     // - findById(Long id)
     // - findAll()
@@ -0,0 +1,87 @@
+package com.carsharing.backend.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings, used by TokenDenylist
+ *
+ * - mightContain(): never false for an added key, false positives at about the configured rate
+ *   while size() stays below capacity
+ * - One pass over the key (64-bit FNV-1a), k bit positions by double hashing, no allocation
+ * - Bits are read and set through AtomicLongArray, so put() is visible to readers on other threads
+ *
+ * Keys cannot be removed; the owner rebuilds a new filter to drop them.
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long mask;
+    private final int hashes;
+    private final int capacity;
+
+    private BloomFilter(long bits, int hashes, int capacity) {
+        this.words = new AtomicLongArray((int) (bits >>> 6));
+        this.mask = bits - 1;
+        this.hashes = hashes;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param capacity keys the filter is sized for
+     * @param falsePositiveRate e.g. 0.01
+     */
+    static BloomFilter create(int capacity, double falsePositiveRate) {
+        capacity = Math.max(capacity, 64);
+        double optimalBits = -capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        // power of two, so a position is a mask instead of a modulo
+        long bits = Math.max(64, Long.highestOneBit((long) Math.ceil(optimalBits) - 1) << 1);
+        int hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        return new BloomFilter(bits, Math.min(hashes, 16), capacity);
+    }
+
+    void put(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            int word = (int) (bit >>> 6);
+            long bitMask = 1L << bit;
+            long current = words.get(word);
+            while ((current & bitMask) == 0 && !words.compareAndSet(word, current, current | bitMask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    boolean mightContain(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    // SplitMix64 finalizer, spreads FNV's weak low bits
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
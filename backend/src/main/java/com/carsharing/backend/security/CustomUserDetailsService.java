@@ -1,33 +1,56 @@
 package com.carsharing.backend.security;
 
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
 import com.carsharing.backend.model.User;
 import com.carsharing.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service that loads the user in DB for Spring Security
  * Spring Security calls loadUserByUsername() when:
  * 1. User logs in (checks credentials)
- * 2. JwtAuthFilter validates the token (tries the user)
+ * 2. JwtAuthFilter validates the token (tries the user) - on every request
+ *
+ * Users are cached by email. Changes made on any backend instance (UserService, RatingService)
+ * drop the entry through ClusterCoherence (region USER).
  */
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, ClusterCoherence.Listener {
+
+    private static final int MAX_CACHED_USERS = 10_000;
 
     private final UserRepository userRepository;
+    private final ClusterCoherence clusterCoherence;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<String, CustomUserDetails> cache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerCache() {
+        clusterCoherence.register(this, CacheRegion.USER);
+    }
 
     /**
      * Loads user by email (Spring Security names email "username")
      *
      * Flow:
      * 1. Spring Security asks: "Get user with username = ion@test.com"
-     * 2. Search in DB: userRepository.findByEmail("ion@test.com")
-     * 3. If found -> wrap User in CustomUserDetails
-     * 4. If not -> throw UsernameNotFoundException
+     * 2. Cached -> returned without DB access
+     * 3. Otherwise search in DB: userRepository.findByEmail("ion@test.com")
+     * 4. If found -> wrap User in CustomUserDetails
+     * 5. If not -> throw UsernameNotFoundException
      *
      * @param username - email in our case
      * @return UserDetails - wrapper over User for Spring Security
@@ -35,10 +58,37 @@ public class CustomUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + username));
+        CustomUserDetails cached = cache.get(username);
+        if (cached != null && clusterCoherence.cachingAllowed()) {
+            return cached;
+        }
+
+        long stamp = clusterCoherence.stamp(CacheRegion.USER);
+        // read-write transaction = primary database, a replica could return a user that was just changed
+        User user = new TransactionTemplate(transactionManager).execute(status -> userRepository.findByEmail(username))
+                .orElse(null);
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with email: " + username);
+        }
 
-        return new CustomUserDetails(user);
+        CustomUserDetails userDetails = new CustomUserDetails(user);
+        if (clusterCoherence.isUnchanged(CacheRegion.USER, stamp)) {
+            if (cache.size() >= MAX_CACHED_USERS) {
+                cache.clear();
+            }
+            cache.put(username, userDetails);
+        }
+        return userDetails;
     }
     // Spring Security compares password from request with password from hash
-}
\ No newline at end of file
+
+    @Override
+    public void invalidate(CacheRegion region, String key) {
+        cache.values().removeIf(userDetails -> String.valueOf(userDetails.getUser().getId()).equals(key));
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.clear();
+    }
+}
@@ -1,5 +1,8 @@
 package com.carsharing.backend.security;
 
+import com.carsharing.backend.tracing.RequestTrace;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -19,7 +22,7 @@ import java.io.IOException;
 /**
  * Filter that intercepts EACH request:
  * 1. Extracts JWT token from header "Authorization"
- * 2. Validates token
+ * 2. Validates token (signature, expiry, not revoked by logout)
  * 3. Sets user in SecurityContext
  * 4. Allows the request to continue to controller
  */
@@ -29,6 +32,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenDenylist tokenDenylist;
 
     @Override
     protected void doFilterInternal(
@@ -52,17 +56,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         //Extracts the token (after "Bearer ")
         jwt = authHeader.substring(7); // "Bearer eyJhbG..." → "eyJhbG..."
 
+        // Parses the token once (signature checked here)
+        final Claims claims;
+        try {
+            claims = jwtService.parseToken(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            // Expired or invalid token -> continue without authentication
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         //Extracts email from token
-        userEmail = jwtService.extractEmail(jwt);
+        userEmail = claims.getSubject();
 
-        //Checks if user is already authenticated
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        //Checks if user is already authenticated and the token was not revoked (logout)
+        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null
+                && !tokenDenylist.isRevoked(claims.getId())) {
 
             //Tries the user from DB
             UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
 
             //Validates token
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (jwtService.isTokenValid(claims, userDetails)) {
 
                 //Creates authentication object
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -79,6 +94,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 // Sets authentication in SecurityContext
                 // Controller knows who the user is
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+
+                // user shown in request traces (see TracingFilter)
+                RequestTrace trace = RequestTrace.current();
+                if (trace != null) {
+                    trace.setUser(userEmail);
+                }
             }
         }
 
@@ -1,10 +1,12 @@
 package com.carsharing.backend.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value; //annotation for immutable classes, final fields
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -13,6 +15,7 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 /**
@@ -32,6 +35,31 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    // built once, every request parses a token
+    private Key signInKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signInKey = getSignInKey();
+        parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+    }
+
+    /**
+     * Access token lifetime in milliseconds
+     */
+    public long getExpiration() {
+        return jwtExpiration;
+    }
+
+    /**
+     * Checks the signature and expiry, returns all claims
+     * @throws io.jsonwebtoken.JwtException invalid, tampered or expired token
+     */
+    public Claims parseToken(String token) {
+        return extractAllClaims(token);
+    }
+
     /**
      * Extracts email (subject) from token
      */
@@ -75,9 +103,10 @@ public class JwtService {
                 .builder()
                 .setClaims(extraClaims)              // Claims custom (id, role)
                 .setSubject(userDetails.getUsername()) // Subject = email
+                .setId(UUID.randomUUID().toString())   // jti - lets the token be revoked (logout)
                 .setIssuedAt(new Date(System.currentTimeMillis())) // when was it created
                 .setExpiration(new Date(System.currentTimeMillis() + expiration)) // when does it expire
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256) // signature
+                .signWith(signInKey, SignatureAlgorithm.HS256) // signature
                 .compact();
     }
 
@@ -91,6 +120,13 @@ public class JwtService {
         return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
     }
 
+    /**
+     * Same checks on claims that are already parsed
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails){
+        return claims.getSubject().equals(userDetails.getUsername()) && claims.getExpiration().after(new Date());
+    }
+
     private boolean isTokenExpired(String token){
         return extractExpiration(token).before(new Date());
     }
@@ -100,10 +136,7 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token){
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return parser
                 .parseClaimsJws(token)
                 .getBody();
     }
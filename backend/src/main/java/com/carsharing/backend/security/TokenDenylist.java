@@ -0,0 +1,123 @@
+package com.carsharing.backend.security;
+
+import com.carsharing.backend.model.RevokedToken;
+import com.carsharing.backend.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked access tokens (by jti), checked by JwtAuthenticationFilter on every request
+ *
+ * - Bloom filter first: almost every token is not revoked and is answered by a few bit reads,
+ *   without locks or allocation
+ * - Exact map only for Bloom positives, so a false positive never rejects a valid token
+ * - Persisted in revoked_tokens: loaded at startup, revocations of other nodes are picked up
+ *   every sync-interval-ms
+ * - Compaction: tokens past their expiry are dropped (they fail validation anyway) and the
+ *   Bloom filter is rebuilt from the remaining ones
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenDenylist {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${carsharing.auth.denylist.expected-tokens:100000}")
+    private int expectedTokens;
+
+    // jti -> expiry of the token
+    private final Map<String, LocalDateTime> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloom;
+    // filter rebuild() is filling, new revocations go there too
+    private volatile BloomFilter building;
+    private volatile LocalDateTime lastSync;
+
+    @PostConstruct
+    void load() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokenRepository.findByExpiresAtAfter(now).forEach(t -> revoked.put(t.getJti(), t.getExpiresAt()));
+        lastSync = now;
+        rebuild();
+        log.info("Token denylist loaded with {} revoked tokens", revoked.size());
+    }
+
+    /**
+     * @param jti token id, null for tokens without one (never revoked)
+     */
+    public boolean isRevoked(String jti) {
+        return jti != null && bloom.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    public void revoke(String jti, LocalDateTime expiresAt) {
+        RevokedToken token = new RevokedToken();
+        token.setJti(jti);
+        token.setExpiresAt(expiresAt);
+        token.setRevokedAt(LocalDateTime.now());
+        revokedTokenRepository.save(token);
+        add(jti, expiresAt);
+    }
+
+    private void add(String jti, LocalDateTime expiresAt) {
+        // exact map first: a reader that sees the Bloom bits also finds the entry
+        if (revoked.put(jti, expiresAt) == null) {
+            // read before the current filter: if rebuild() had already cleared it, the current one is its filter,
+            // if it had not set it yet, its copy sees the entry
+            BloomFilter next = building;
+            bloom.put(jti);
+            if (next != null) {
+                next.put(jti);
+            }
+            if (revoked.size() > bloom.capacity()) {
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * Revocations written by other nodes (1s overlap against clock differences)
+     */
+    @Scheduled(fixedDelayString = "${carsharing.auth.denylist.sync-interval-ms:5000}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokenRepository.findByRevokedAtAfter(lastSync.minusSeconds(1))
+                .forEach(t -> add(t.getJti(), t.getExpiresAt()));
+        lastSync = now;
+    }
+
+    @Scheduled(fixedDelayString = "${carsharing.auth.denylist.compact-interval-ms:600000}")
+    public void compact() {
+        LocalDateTime now = LocalDateTime.now();
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+        rebuild();
+        int deleted = revokedTokenRepository.deleteExpired(now);
+        if (before != revoked.size() || deleted > 0) {
+            log.info("Token denylist compacted: {} -> {} revoked tokens ({} rows deleted)", before, revoked.size(), deleted);
+        }
+    }
+
+    /**
+     * New filter from the exact map, swapped in at once. Sized for twice the current entries,
+     * so a growing denylist is not rebuilt on every revocation.
+     * Revocations added while copying are put in both filters (building), so the new one is complete
+     * when it is swapped in.
+     */
+    private synchronized void rebuild() {
+        BloomFilter next = BloomFilter.create(Math.max(expectedTokens, revoked.size() * 2), FALSE_POSITIVE_RATE);
+        building = next;
+        revoked.keySet().forEach(next::put);
+        bloom = next;
+        building = null;
+    }
+}
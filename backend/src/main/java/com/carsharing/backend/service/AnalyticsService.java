@@ -0,0 +1,423 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.dto.AnalyticsResponse;
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Admin analytics over all bookings and rides
+ *
+ * How a scan works:
+ * - The id range of the table is split into parallelism * 4 slices, read in parallel
+ * - Each slice is read in chunks (keyset: id > last id, chunk-size rows), rows are added
+ *   to primitive counters right away and never kept
+ * - There is one set of counters per worker, merged at the end
+ * Memory used by a scan = parallelism chunks + parallelism counter sets, whatever the table size.
+ * Chunks are read in read-only transactions, so they go to the replica when routing is enabled.
+ * With sharding every shard's id range is sliced, the slices of all shards share the workers.
+ */
+@Slf4j
+@Service
+public class AnalyticsService {
+
+    private static final Booking.BookingStatus[] STATUSES = Booking.BookingStatus.values();
+    private static final LocalDate MIN_DAY = LocalDate.of(1970, 1, 1);
+    private static final LocalDate MAX_DAY = LocalDate.of(9999, 12, 31);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTx;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Semaphore scans;
+    private final ExecutorService workers;
+    private final ShardRouter shardRouter;
+
+    public AnalyticsService(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            ShardRouter shardRouter,
+                            @Value("${carsharing.analytics.chunk-size:10000}") int chunkSize,
+                            @Value("${carsharing.analytics.parallelism:4}") int parallelism,
+                            @Value("${carsharing.analytics.max-concurrent-scans:2}") int maxConcurrentScans) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.scans = new Semaphore(maxConcurrentScans, true);
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism * maxConcurrentScans, runnable -> {
+            Thread thread = new Thread(runnable, "analytics-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Routes with the most booked seats
+     */
+    public List<AnalyticsResponse.RouteItem> popularRoutes(LocalDate from, LocalDate to, int limit) {
+        if (limit <= 0) {
+            throw new InvalidBookingException("Limit must be greater than 0");
+        }
+        BookingScan scan = scanBookings(from, to);
+        RouteKey[] routes = scan.routes.keys(RouteKey[]::new);
+        BookingCounters counters = scan.counters;
+
+        return scan.routes.indexes()
+                .sorted(Comparator.<Integer>comparingLong(i -> counters.routeSeats[i]).reversed()
+                        .thenComparing(Comparator.<Integer>comparingLong(i -> counters.routeBookings[i]).reversed()))
+                .limit(limit)
+                .map(i -> new AnalyticsResponse.RouteItem(
+                        routes[i].start(), routes[i].end(),
+                        counters.routeBookings[i],
+                        counters.routeSeats[i],
+                        ratio(counters.routeCancelled[i], counters.routeBookings[i])))
+                .toList();
+    }
+
+    /**
+     * Bookings per status and cancellation/expiry rates
+     */
+    public AnalyticsResponse.Cancellations cancellations(LocalDate from, LocalDate to) {
+        BookingCounters counters = scanBookings(from, to).counters;
+
+        long total = Arrays.stream(counters.byStatus).sum();
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (Booking.BookingStatus status : STATUSES) {
+            byStatus.put(status.name(), counters.byStatus[status.ordinal()]);
+        }
+        return new AnalyticsResponse.Cancellations(
+                total,
+                byStatus,
+                ratio(counters.byStatus[Booking.BookingStatus.CANCELLED.ordinal()], total),
+                ratio(counters.byStatus[Booking.BookingStatus.EXPIRED.ordinal()], total));
+    }
+
+    /**
+     * Revenue (CONFIRMED and COMPLETED bookings) per departure day
+     */
+    public List<AnalyticsResponse.DayRevenue> revenuePerDay(LocalDate from, LocalDate to) {
+        BookingScan scan = scanBookings(from, to);
+        Long[] days = scan.days.keys(Long[]::new);
+        BookingCounters counters = scan.counters;
+
+        return scan.days.indexes()
+                .sorted(Comparator.comparingLong(i -> days[i]))
+                .map(i -> new AnalyticsResponse.DayRevenue(
+                        LocalDate.ofEpochDay(days[i]),
+                        counters.dayPaid[i],
+                        BigDecimal.valueOf(counters.dayCents[i], 2)))
+                .toList();
+    }
+
+    /**
+     * Distribution of booked / total seats over rides (cancelled rides are left out)
+     * Held seats are already taken from available_seats but not sold: they are subtracted
+     * (seat_holds of the ride, until the hold is confirmed, released or expired)
+     */
+    public AnalyticsResponse.Occupancy occupancy(LocalDate from, LocalDate to) {
+        OccupancyCounters counters = scan("rides", """
+                        SELECT r.id, r.total_seats, r.available_seats,
+                               COALESCE((SELECT SUM(h.seats) FROM seat_holds h WHERE h.ride_id = r.id), 0)
+                        FROM rides r
+                        WHERE r.id > ? AND r.id <= ? AND r.departure_time >= ? AND r.departure_time < ?
+                          AND r.status <> 'CANCELLED'
+                        ORDER BY r.id LIMIT ?""",
+                from, to, OccupancyCounters::new, (c, rs) -> c.add(rs.getInt(2), rs.getInt(3), rs.getInt(4)),
+                OccupancyCounters::merge);
+
+        List<AnalyticsResponse.Bucket> distribution = new ArrayList<>(counters.buckets.length);
+        for (int i = 0; i < counters.buckets.length; i++) {
+            String range = i < 10 ? (i * 10) + "-" + (i * 10 + 10) + "%" : "100%";
+            distribution.add(new AnalyticsResponse.Bucket(range, counters.buckets[i]));
+        }
+        return new AnalyticsResponse.Occupancy(counters.rides, ratio(counters.bookedSeats, counters.totalSeats),
+                counters.heldSeats, distribution);
+    }
+
+    private BookingScan scanBookings(LocalDate from, LocalDate to) {
+        Dictionary<RouteKey> routes = new Dictionary<>();
+        Dictionary<Long> days = new Dictionary<>();
+
+        BookingCounters counters = scan("bookings", """
+                        SELECT b.id, r.start_location, r.end_location, b.status, b.seats_booked,
+                               CAST(b.total_price * 100 AS BIGINT), CAST(r.departure_time AS DATE)
+                        FROM bookings b JOIN rides r ON r.id = b.ride_id
+                        WHERE b.id > ? AND b.id <= ? AND r.departure_time >= ? AND r.departure_time < ?
+                        ORDER BY b.id LIMIT ?""",
+                from, to, BookingCounters::new, (c, rs) -> {
+                    int route = routes.id(new RouteKey(rs.getString(2), rs.getString(3)));
+                    int day = days.id(rs.getObject(7, LocalDate.class).toEpochDay());
+                    c.add(route, Booking.BookingStatus.valueOf(rs.getString(4)).ordinal(), rs.getInt(5), day, rs.getLong(6));
+                }, BookingCounters::merge);
+
+        return new BookingScan(counters, routes, days);
+    }
+
+    /**
+     * Parallel chunked scan of one table, see class comment
+     * @param sql parameters: after id, up to id, from, to, limit; first column must be the id
+     */
+    private <A> A scan(String table, String sql, LocalDate from, LocalDate to,
+                       Supplier<A> newCounters, RowReader<A> rowReader, Merger<A> merger) {
+        Timestamp fromTime = Timestamp.valueOf((from != null ? from : MIN_DAY).atStartOfDay());
+        Timestamp toTime = Timestamp.valueOf((to != null ? to.plusDays(1) : MAX_DAY).atStartOfDay());
+
+        try {
+            scans.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an analytics slot", e);
+        }
+        long started = System.nanoTime();
+        try {
+            // id range of every shard
+            List<long[]> shardBounds = shardRouter.scatter(() -> readOnlyTx.execute(status -> jdbcTemplate.queryForObject(
+                    "SELECT MIN(id), MAX(id) FROM " + table,
+                    (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)})));
+
+            BlockingQueue<A> idle = new ArrayBlockingQueue<>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                idle.add(newCounters.get());
+            }
+
+            int slices = parallelism * 4;
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int shard = 0; shard < shardBounds.size(); shard++) {
+                long[] bounds = shardBounds.get(shard);
+                if (bounds[1] == 0) {
+                    continue;  // empty table
+                }
+                int sliceShard = shard;
+                long first = bounds[0] - 1;
+                long step = Math.max(chunkSize, (bounds[1] - first + slices - 1) / slices);
+                for (long after = first; after < bounds[1]; after += step) {
+                    long sliceStart = after;
+                    long sliceEnd = Math.min(bounds[1], after + step);
+                    tasks.add(() -> {
+                        A counters = idle.take();
+                        try {
+                            shardRouter.runOn(sliceShard, () ->
+                                    scanSlice(sql, sliceStart, sliceEnd, fromTime, toTime, counters, rowReader));
+                        } finally {
+                            idle.put(counters);
+                        }
+                        return null;
+                    });
+                }
+            }
+            if (tasks.isEmpty()) {
+                return idle.remove();
+            }
+
+            for (Future<Void> result : workers.invokeAll(tasks)) {
+                result.get();
+            }
+
+            A total = idle.remove();
+            for (A counters : idle) {
+                merger.merge(total, counters);
+            }
+            log.debug("Analytics scan of {} took {} ms", table, (System.nanoTime() - started) / 1_000_000);
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analytics scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime
+                    ? runtime
+                    : new IllegalStateException("Analytics scan failed", e.getCause());
+        } finally {
+            scans.release();
+        }
+    }
+
+    private <A> void scanSlice(String sql, long after, long upTo, Timestamp from, Timestamp to,
+                               A counters, RowReader<A> rowReader) {
+        long[] lastId = {after};
+        int[] rows = new int[1];
+        do {
+            rows[0] = 0;
+            readOnlyTx.executeWithoutResult(status -> jdbcTemplate.query(sql, rs -> {
+                lastId[0] = rs.getLong(1);
+                rows[0]++;
+                rowReader.read(counters, rs);
+            }, lastId[0], upTo, from, to, chunkSize));
+        } while (rows[0] == chunkSize);
+    }
+
+    private static double ratio(long part, long total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+
+    @FunctionalInterface
+    private interface RowReader<A> {
+        void read(A counters, ResultSet rs) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface Merger<A> {
+        void merge(A into, A other);
+    }
+
+    private record RouteKey(String start, String end) {
+    }
+
+    private record BookingScan(BookingCounters counters, Dictionary<RouteKey> routes, Dictionary<Long> days) {
+    }
+
+    /**
+     * Gives every distinct value a small int, used as index in the counter arrays
+     * (shared by the workers of one scan)
+     */
+    private static final class Dictionary<K> {
+        private final Map<K, Integer> ids = new ConcurrentHashMap<>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        int id(K key) {
+            Integer id = ids.get(key);
+            return id != null ? id : ids.computeIfAbsent(key, k -> next.getAndIncrement());
+        }
+
+        /**
+         * Values by id (call after the scan)
+         */
+        K[] keys(IntFunction<K[]> newArray) {
+            K[] result = newArray.apply(next.get());
+            ids.forEach((key, id) -> result[id] = key);
+            return result;
+        }
+
+        Stream<Integer> indexes() {
+            return IntStream.range(0, next.get()).boxed();
+        }
+    }
+
+    /**
+     * Counters of one worker, arrays indexed by route / day id
+     */
+    private static final class BookingCounters {
+        final long[] byStatus = new long[STATUSES.length];
+        long[] routeBookings = new long[64];
+        long[] routeSeats = new long[64];
+        long[] routeCancelled = new long[64];
+        long[] dayPaid = new long[64];
+        long[] dayCents = new long[64];
+
+        void add(int route, int status, int seats, int day, long cents) {
+            if (route >= routeBookings.length) {
+                int size = Math.max(route + 1, routeBookings.length * 2);
+                routeBookings = Arrays.copyOf(routeBookings, size);
+                routeSeats = Arrays.copyOf(routeSeats, size);
+                routeCancelled = Arrays.copyOf(routeCancelled, size);
+            }
+            if (day >= dayPaid.length) {
+                int size = Math.max(day + 1, dayPaid.length * 2);
+                dayPaid = Arrays.copyOf(dayPaid, size);
+                dayCents = Arrays.copyOf(dayCents, size);
+            }
+
+            byStatus[status]++;
+            routeBookings[route]++;
+            if (status == Booking.BookingStatus.CANCELLED.ordinal()) {
+                routeCancelled[route]++;
+            } else if (status != Booking.BookingStatus.EXPIRED.ordinal()) {
+                routeSeats[route] += seats;
+            }
+            if (status == Booking.BookingStatus.CONFIRMED.ordinal() || status == Booking.BookingStatus.COMPLETED.ordinal()) {
+                dayPaid[day]++;
+                dayCents[day] += cents;
+            }
+        }
+
+        static void merge(BookingCounters into, BookingCounters other) {
+            for (int i = 0; i < into.byStatus.length; i++) {
+                into.byStatus[i] += other.byStatus[i];
+            }
+            into.routeBookings = sum(into.routeBookings, other.routeBookings);
+            into.routeSeats = sum(into.routeSeats, other.routeSeats);
+            into.routeCancelled = sum(into.routeCancelled, other.routeCancelled);
+            into.dayPaid = sum(into.dayPaid, other.dayPaid);
+            into.dayCents = sum(into.dayCents, other.dayCents);
+        }
+
+        private static long[] sum(long[] a, long[] b) {
+            long[] result = a.length >= b.length ? a : Arrays.copyOf(a, b.length);
+            for (int i = 0; i < b.length; i++) {
+                result[i] += b[i];
+            }
+            return result;
+        }
+    }
+
+    private static final class OccupancyCounters {
+        final long[] buckets = new long[11];  // 0-10% ... 90-100%, 100%
+        long rides;
+        long bookedSeats;
+        long heldSeats;
+        long totalSeats;
+
+        void add(int total, int available, int held) {
+            if (total <= 0) {
+                return;
+            }
+            int booked = Math.max(0, total - available - held);
+            buckets[Math.min(10, Math.max(0, booked * 10 / total))]++;
+            rides++;
+            bookedSeats += booked;
+            heldSeats += held;
+            totalSeats += total;
+        }
+
+        static void merge(OccupancyCounters into, OccupancyCounters other) {
+            for (int i = 0; i < into.buckets.length; i++) {
+                into.buckets[i] += other.buckets[i];
+            }
+            into.rides += other.rides;
+            into.bookedSeats += other.bookedSeats;
+            into.heldSeats += other.heldSeats;
+            into.totalSeats += other.totalSeats;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.model.Booking;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of one item of a batch booking operation
+ */
+@Getter
+@AllArgsConstructor
+public class BatchOutcome {
+
+    private Long id;          // ride id (batch booking) or booking id (batch confirm/cancel)
+    private Status status;
+    private String message;   // reason when the item was not applied
+    private Booking booking;  // null when the item was not applied
+
+    public enum Status {
+        BOOKED,
+        CONFIRMED,
+        CANCELLED,
+        REJECTED,    // this item is invalid
+        NOT_BOOKED   // item is valid, but another item of the same all-or-nothing batch was rejected
+    }
+
+    public boolean isApplied() {
+        return booking != null;
+    }
+}
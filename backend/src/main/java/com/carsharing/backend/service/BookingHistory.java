@@ -0,0 +1,12 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.model.ArchivedBooking;
+import com.carsharing.backend.model.Booking;
+
+import java.util.List;
+
+/**
+ * One page of history: the live part and the archived part (either can be empty)
+ */
+public record BookingHistory(List<Booking> live, List<ArchivedBooking> archived, long totalElements) {
+}
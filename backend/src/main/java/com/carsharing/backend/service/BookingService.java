@@ -1,39 +1,79 @@
 package com.carsharing.backend.service;
 
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
+import com.carsharing.backend.dto.BatchBookingRequest;
+import com.carsharing.backend.event.BookingEvent;
+import com.carsharing.backend.event.OutboxService;
 import com.carsharing.backend.exception.InvalidBookingException;
 import com.carsharing.backend.exception.ResourceNotFoundException;
+import com.carsharing.backend.ledger.SeatChange;
+import com.carsharing.backend.ledger.SeatLedger;
 import com.carsharing.backend.model.Booking;
 import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.SeatHold;
 import com.carsharing.backend.model.User;
+import com.carsharing.backend.model.ArchivedBooking;
+import com.carsharing.backend.repository.ArchivedBookingRepository;
 import com.carsharing.backend.repository.BookingRepository;
 import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.SeatHoldRepository;
 import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.sharding.ScatterGather;
+import com.carsharing.backend.sharding.ShardKey;
+import com.carsharing.backend.sharding.ShardRouter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class BookingService {
 
+    // order of the history pages, also used to merge the pages of several shards
+    private static final Comparator<Booking> NEWEST_FIRST = Comparator
+            .comparing(Booking::getCreatedAt, Comparator.reverseOrder())
+            .thenComparing(Booking::getId, Comparator.reverseOrder());
+    private static final Comparator<ArchivedBooking> NEWEST_ARCHIVED_FIRST = Comparator
+            .comparing(ArchivedBooking::getCreatedAt, Comparator.reverseOrder())
+            .thenComparing(ArchivedBooking::getId, Comparator.reverseOrder());
+
     private final BookingRepository bookingRepository;
     private final RideRepository rideRepository;
     private final UserRepository userRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final OutboxService outboxService;
+    private final SeatHoldRepository seatHoldRepository;
+    private final DriverStatsService driverStatsService;
+    private final ClusterCoherence clusterCoherence;
+    private final ShardRouter shardRouter;
+    private final SeatLedger seatLedger;
 
     /**
      * Creates new booking with all necessary validation
      */
     @Transactional
-    public Booking createBooking(Long passengerId, Long rideId, Integer seatsBooked) {
+    public Booking createBooking(Long passengerId, @ShardKey Long rideId, Integer seatsBooked) {
         // checks if user and ride exist
         User passenger = userRepository.findById(passengerId)
                 .orElseThrow(() -> new ResourceNotFoundException("User with id " + passengerId + " not found"));
 
-        Ride ride = rideRepository.findById(rideId)
+        // locked: holds, expiry and cancellations change the seats of the same ride
+        Ride ride = rideRepository.findByIdForUpdate(rideId)
                 .orElseThrow(() -> new ResourceNotFoundException("Ride with id " + rideId + " not found"));
 
         // checks business rules
@@ -77,16 +117,71 @@ public class BookingService {
         }
 
         rideRepository.save(ride);
+        clusterCoherence.invalidate(CacheRegion.RIDE, ride.getId());
+
+        // saves booking + event for driver/passenger notifications (same transaction)
+        Booking saved = bookingRepository.save(booking);
+        seatLedger.record(SeatChange.BOOK, ride.getId(), saved.getId(), seatsBooked);
+        outboxService.record(BookingEvent.of(BookingEvent.Type.BOOKING_CREATED, saved));
+        driverStatsService.bookingCreated(saved);
+        return saved;
+    }
+
+    /**
+     * Turns a seat hold into a booking (second step of checkout)
+     * The seats were already taken from the ride when the hold was created.
+     */
+    @Transactional
+    public Booking confirmHold(@ShardKey Long rideId, Long holdId, Long passengerId) {
+        SeatHold hold = seatHoldRepository.findById(holdId)
+                .filter(h -> h.getRideId().equals(rideId))
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Hold with id " + holdId + " not found (expired or already used)"));
+
+        if (!hold.getPassengerId().equals(passengerId)) {
+            throw new InvalidBookingException("Only the passenger who created the hold can confirm it");
+        }
+        if (hold.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new InvalidBookingException("Hold has expired, the seats were released");
+        }
+
+        Ride ride = rideRepository.findByIdForUpdate(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride with id " + rideId + " not found"));
+        if (ride.getStatus() != Ride.RideStatus.ACTIVE && ride.getStatus() != Ride.RideStatus.FULL) {
+            throw new InvalidBookingException("This ride is not available for booking (status: " + ride.getStatus() + ")");
+        }
 
-        // saves booking
-        return bookingRepository.save(booking);
+        // the expiry thread may have released it meanwhile
+        if (seatHoldRepository.deleteHold(holdId) == 0) {
+            throw new InvalidBookingException("Hold has expired, the seats were released");
+        }
+
+        Booking booking = new Booking();
+        booking.setPassenger(userRepository.findById(passengerId)
+                .orElseThrow(() -> new ResourceNotFoundException("User with id " + passengerId + " not found")));
+        booking.setRide(ride);
+        booking.setSeatsBooked(hold.getSeats());
+        booking.setTotalPrice(ride.getPricePerSeat().multiply(BigDecimal.valueOf(hold.getSeats())));
+        booking.setStatus(Booking.BookingStatus.PENDING);
+
+        Booking saved = bookingRepository.save(booking);
+        seatLedger.record(SeatChange.CONFIRM, rideId, saved.getId(), hold.getSeats());
+        outboxService.record(BookingEvent.of(BookingEvent.Type.BOOKING_CREATED, saved));
+        driverStatsService.bookingCreated(saved);
+        return saved;
     }
 
     /**
      * Anulează o rezervare și returnează locurile la cursă
      */
     @Transactional
-    public Booking cancelBooking(Long bookingId) {
+    public Booking cancelBooking(@ShardKey Long bookingId) {
+        // Blochează cursa înainte de a citi booking-ul, ca locurile și statusul să fie cele actuale
+        Long rideId = bookingRepository.findRideIdById(bookingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Booking with id " + bookingId + " not found"));
+        Ride ride = rideRepository.findByIdForUpdate(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride with id " + rideId + " not found"));
+
         // Găsește booking-ul
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResourceNotFoundException("Booking with id " + bookingId + " not found"));
@@ -100,8 +195,11 @@ public class BookingService {
             throw new InvalidBookingException("Cannot cancel a completed booking");
         }
 
+        if (booking.getStatus() == Booking.BookingStatus.EXPIRED) {
+            throw new InvalidBookingException("Booking has expired, seats were already released");
+        }
+
         // Returnează locurile la cursă
-        Ride ride = booking.getRide();
         ride.setAvailableSeats(ride.getAvailableSeats() + booking.getSeatsBooked());
 
         // Dacă cursa era FULL, o setăm înapoi la ACTIVE
@@ -110,17 +208,29 @@ public class BookingService {
         }
 
         rideRepository.save(ride);
+        clusterCoherence.invalidate(CacheRegion.RIDE, ride.getId());
 
         // Marchează booking-ul ca anulat
+        Booking.BookingStatus previous = booking.getStatus();
         booking.setStatus(Booking.BookingStatus.CANCELLED);
-        return bookingRepository.save(booking);
+        Booking saved = bookingRepository.save(booking);
+        seatLedger.record(SeatChange.CANCEL, ride.getId(), saved.getId(), saved.getSeatsBooked());
+        outboxService.record(BookingEvent.of(BookingEvent.Type.BOOKING_CANCELLED, saved));
+        driverStatsService.bookingCancelled(saved, previous);
+        return saved;
     }
 
     /**
      * Confirmă o rezervare (doar driver-ul poate face asta)
      */
     @Transactional
-    public Booking confirmBooking(Long bookingId, Long driverId) {
+    public Booking confirmBooking(@ShardKey Long bookingId, Long driverId) {
+        // ride locked first, like cancelBooking: the lifecycle job may be expiring the booking and releasing its seats
+        Long rideId = bookingRepository.findRideIdById(bookingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Booking with id " + bookingId + " not found"));
+        rideRepository.findByIdForUpdate(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride with id " + rideId + " not found"));
+
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResourceNotFoundException("Booking with id " + bookingId + " not found"));
 
@@ -134,12 +244,200 @@ public class BookingService {
         }
 
         booking.setStatus(Booking.BookingStatus.CONFIRMED);
-        return bookingRepository.save(booking);
+        Booking saved = bookingRepository.save(booking);
+        outboxService.record(BookingEvent.of(BookingEvent.Type.BOOKING_CONFIRMED, saved));
+        driverStatsService.bookingConfirmed(saved);
+        return saved;
+    }
+
+    /**
+     * Books several rides at once (e.g. return trip), all or nothing
+     *
+     * Constant number of queries whatever the number of items:
+     * 1 passenger + 1 locked select of all rides + batched inserts/updates at commit.
+     * If one item is invalid nothing is booked and every item gets its outcome.
+     * All rides must be in the same region (one transaction = one shard).
+     */
+    @Transactional
+    public List<BatchOutcome> createBookings(Long passengerId, @ShardKey List<BatchBookingRequest.Item> items) {
+        if (items == null || items.isEmpty()) {
+            throw new InvalidBookingException("At least one ride must be booked");
+        }
+
+        User passenger = userRepository.findById(passengerId)
+                .orElseThrow(() -> new ResourceNotFoundException("User with id " + passengerId + " not found"));
+
+        Map<Long, Ride> rides = rideRepository.findAllForUpdate(
+                        items.stream().map(BatchBookingRequest.Item::getRideId).toList())
+                .stream()
+                .collect(Collectors.toMap(Ride::getId, Function.identity()));
+
+        // seats requested per ride, the same ride can appear more than once
+        Map<Long, Integer> requestedSeats = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (BatchBookingRequest.Item item : items) {
+            Ride ride = rides.get(item.getRideId());
+            String error = null;
+
+            if (ride == null) {
+                error = "Ride with id " + item.getRideId() + " not found";
+            } else if (item.getSeatsBooked() == null || item.getSeatsBooked() <= 0) {
+                error = "Number of seats must be greater than 0";
+            } else if (passenger.getId().equals(ride.getDriver().getId())) {
+                error = "You cannot book your own ride";
+            } else if (ride.getStatus() != Ride.RideStatus.ACTIVE) {
+                error = "This ride is not available for booking (status: " + ride.getStatus() + ")";
+            } else if (ride.getDepartureTime().isBefore(now)) {
+                error = "Cannot book a ride that has already departed";
+            } else {
+                int seats = requestedSeats.merge(ride.getId(), item.getSeatsBooked(), Integer::sum);
+                if (ride.getAvailableSeats() < seats) {
+                    error = "Not enough seats available. Requested: " + seats +
+                            ", Available: " + ride.getAvailableSeats();
+                }
+            }
+            errors.add(error);
+        }
+
+        List<BatchOutcome> outcomes = new ArrayList<>(items.size());
+        boolean allValid = errors.stream().allMatch(e -> e == null);
+
+        if (!allValid) {
+            for (int i = 0; i < items.size(); i++) {
+                String error = errors.get(i);
+                outcomes.add(new BatchOutcome(items.get(i).getRideId(),
+                        error != null ? BatchOutcome.Status.REJECTED : BatchOutcome.Status.NOT_BOOKED,
+                        error, null));
+            }
+            return outcomes;
+        }
+
+        List<Booking> bookings = new ArrayList<>(items.size());
+        for (BatchBookingRequest.Item item : items) {
+            Ride ride = rides.get(item.getRideId());
+
+            Booking booking = new Booking();
+            booking.setPassenger(passenger);
+            booking.setRide(ride);
+            booking.setSeatsBooked(item.getSeatsBooked());
+            booking.setTotalPrice(ride.getPricePerSeat().multiply(BigDecimal.valueOf(item.getSeatsBooked())));
+            booking.setStatus(Booking.BookingStatus.PENDING);
+            bookings.add(booking);
+
+            ride.setAvailableSeats(ride.getAvailableSeats() - item.getSeatsBooked());
+            if (ride.getAvailableSeats() == 0) {
+                ride.setStatus(Ride.RideStatus.FULL);
+            }
+            clusterCoherence.invalidate(CacheRegion.RIDE, ride.getId());
+        }
+
+        // rides are managed entities, their updates are flushed (batched) at commit
+        for (Booking booking : bookingRepository.saveAll(bookings)) {
+            seatLedger.record(SeatChange.BOOK, booking.getRide().getId(), booking.getId(), booking.getSeatsBooked());
+            outboxService.record(BookingEvent.of(BookingEvent.Type.BOOKING_CREATED, booking));
+            driverStatsService.bookingCreated(booking);
+            outcomes.add(new BatchOutcome(booking.getRide().getId(), BatchOutcome.Status.BOOKED, null, booking));
+        }
+        return outcomes;
+    }
+
+    /**
+     * Driver confirms several pending bookings of one of their rides
+     * Invalid ids are reported and skipped, the others are confirmed in the same transaction
+     */
+    @Transactional
+    public List<BatchOutcome> confirmBookings(@ShardKey Long rideId, Long driverId, List<Long> bookingIds) {
+        return updateBookingsOfRide(rideId, driverId, bookingIds, BatchOutcome.Status.CONFIRMED,
+                BookingEvent.Type.BOOKING_CONFIRMED, (ride, booking) -> {
+            if (booking.getStatus() != Booking.BookingStatus.PENDING) {
+                return "Only pending bookings can be confirmed";
+            }
+            booking.setStatus(Booking.BookingStatus.CONFIRMED);
+            driverStatsService.bookingConfirmed(booking);
+            return null;
+        });
+    }
+
+    /**
+     * Driver cancels several bookings of one of their rides, seats go back to the ride
+     */
+    @Transactional
+    public List<BatchOutcome> cancelBookings(@ShardKey Long rideId, Long driverId, List<Long> bookingIds) {
+        return updateBookingsOfRide(rideId, driverId, bookingIds, BatchOutcome.Status.CANCELLED,
+                BookingEvent.Type.BOOKING_CANCELLED, (ride, booking) -> {
+            if (booking.getStatus() == Booking.BookingStatus.CANCELLED) {
+                return "Booking is already cancelled";
+            }
+            if (booking.getStatus() == Booking.BookingStatus.COMPLETED) {
+                return "Cannot cancel a completed booking";
+            }
+            if (booking.getStatus() == Booking.BookingStatus.EXPIRED) {
+                return "Booking has expired, seats were already released";
+            }
+            ride.setAvailableSeats(ride.getAvailableSeats() + booking.getSeatsBooked());
+            if (ride.getStatus() == Ride.RideStatus.FULL) {
+                ride.setStatus(Ride.RideStatus.ACTIVE);
+            }
+            clusterCoherence.invalidate(CacheRegion.RIDE, ride.getId());
+            seatLedger.record(SeatChange.CANCEL, ride.getId(), booking.getId(), booking.getSeatsBooked());
+            driverStatsService.bookingCancelled(booking, booking.getStatus());
+            booking.setStatus(Booking.BookingStatus.CANCELLED);
+            return null;
+        });
+    }
+
+    /**
+     * 1 query for the ride + 1 query for all bookings (with passengers),
+     * changes are flushed as one JDBC batch at commit
+     *
+     * @param change applies the change to the booking and its (locked) ride,
+     *               returns an error message if the booking cannot be changed
+     */
+    private List<BatchOutcome> updateBookingsOfRide(Long rideId, Long driverId, List<Long> bookingIds,
+                                                    BatchOutcome.Status appliedStatus,
+                                                    BookingEvent.Type eventType,
+                                                    BiFunction<Ride, Booking, String> change) {
+        if (bookingIds == null || bookingIds.isEmpty()) {
+            throw new InvalidBookingException("At least one booking id is required");
+        }
+
+        Ride ride = rideRepository.findAllForUpdate(List.of(rideId)).stream().findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Ride with id " + rideId + " not found"));
+
+        if (!ride.getDriver().getId().equals(driverId)) {
+            throw new InvalidBookingException("Only the driver can change bookings of this ride");
+        }
+
+        Map<Long, Booking> bookings = bookingRepository.findByRideIdAndIdIn(rideId, bookingIds)
+                .stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+
+        List<BatchOutcome> outcomes = new ArrayList<>(bookingIds.size());
+        for (Long bookingId : bookingIds) {
+            Booking booking = bookings.get(bookingId);
+            if (booking == null) {
+                outcomes.add(new BatchOutcome(bookingId, BatchOutcome.Status.REJECTED,
+                        "Booking with id " + bookingId + " not found for ride " + rideId, null));
+                continue;
+            }
+            String error = change.apply(ride, booking);
+            if (error == null) {
+                outboxService.record(BookingEvent.of(eventType, booking));
+                outcomes.add(new BatchOutcome(bookingId, appliedStatus, null, booking));
+            } else {
+                outcomes.add(new BatchOutcome(bookingId, BatchOutcome.Status.REJECTED, error, null));
+            }
+        }
+        return outcomes;
     }
 
     /**
      * Obține toate rezervările unui pasager
      */
+    @ScatterGather
+    @Transactional(readOnly = true)
     public List<Booking> getBookingsByPassenger(Long passengerId) {
         if (!userRepository.existsById(passengerId)) {
             throw new ResourceNotFoundException("User with id " + passengerId + " not found");
@@ -147,10 +445,60 @@ public class BookingService {
         return bookingRepository.findByPassengerId(passengerId);
     }
 
+    /**
+     * Only the given fields of a passenger's bookings (see BookingRepositoryCustom.FIELDS)
+     */
+    @ScatterGather
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getBookingFieldsByPassenger(Long passengerId, Set<String> fields) {
+        if (!userRepository.existsById(passengerId)) {
+            throw new ResourceNotFoundException("User with id " + passengerId + " not found");
+        }
+        return bookingRepository.findFieldsByPassengerId(passengerId, fields);
+    }
+
+    /**
+     * Booking history of a passenger, page by page
+     * Live bookings come first, then the archived ones (see ArchiveJob), both newest (createdAt) first
+     * Counts and pages are read from every shard and merged (see ShardRouter.gatherSlice)
+     */
+    @Transactional(readOnly = true)
+    public BookingHistory getBookingHistory(Long passengerId, int page, int size) {
+        if (!userRepository.existsById(passengerId)) {
+            throw new ResourceNotFoundException("User with id " + passengerId + " not found");
+        }
+        if (page < 0 || size <= 0) {
+            throw new InvalidBookingException("Page must be >= 0 and size > 0");
+        }
+
+        long liveCount = shardRouter.scatter(() -> bookingRepository.countByPassengerId(passengerId))
+                .stream().mapToLong(Long::longValue).sum();
+        long archivedCount = shardRouter.scatter(() -> archivedBookingRepository.countByPassengerId(passengerId))
+                .stream().mapToLong(Long::longValue).sum();
+        long offset = (long) page * size;
+
+        // offset is a multiple of limit: page * size on one shard, 0 when every shard returns its top rows
+        List<Booking> live = offset < liveCount
+                ? shardRouter.gatherSlice(offset, size, NEWEST_FIRST, (sliceOffset, limit) ->
+                        bookingRepository.findByPassengerIdOrderByCreatedAtDescIdDesc(passengerId,
+                                PageRequest.of((int) (sliceOffset / limit), limit)))
+                : List.of();
+
+        // rest of the page comes from the archive
+        int missing = size - live.size();
+        List<ArchivedBooking> archived = missing > 0 && archivedCount > 0
+                ? shardRouter.gatherSlice(Math.max(0, offset - liveCount), missing, NEWEST_ARCHIVED_FIRST,
+                        (sliceOffset, limit) -> archivedBookingRepository.findHistorySlice(passengerId, sliceOffset, limit))
+                : List.of();
+
+        return new BookingHistory(live, archived, liveCount + archivedCount);
+    }
+
     /**
      * Obține toate rezervările pentru o cursă
      */
-    public List<Booking> getBookingsByRide(Long rideId) {
+    @Transactional(readOnly = true)
+    public List<Booking> getBookingsByRide(@ShardKey Long rideId) {
         if (!rideRepository.existsById(rideId)) {
             throw new ResourceNotFoundException("Ride with id " + rideId + " not found");
         }
@@ -160,14 +508,49 @@ public class BookingService {
     /**
      * Obține un booking după ID
      */
-    public Booking getBookingById(Long bookingId) {
+    @Transactional(readOnly = true)
+    public Booking getBookingById(@ShardKey Long bookingId) {
         return bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResourceNotFoundException("Booking with id " + bookingId + " not found"));
     }
 
+    /**
+     * Several bookings in one query, unknown ids are left out
+     * passengerId: only the bookings of this passenger, null for all (admin)
+     */
+    @ScatterGather
+    @Transactional(readOnly = true)
+    public List<Booking> getBookingsByIds(Collection<Long> ids, Long passengerId) {
+        return passengerId == null
+                ? bookingRepository.findByIdIn(ids)
+                : bookingRepository.findByIdInAndPassengerId(ids, passengerId);
+    }
+
+    /**
+     * The same as getBookingsByIds, only the given fields
+     */
+    @ScatterGather
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getBookingFieldsByIds(Collection<Long> ids, Long passengerId, Set<String> fields) {
+        return passengerId == null
+                ? bookingRepository.findFieldsByIdIn(ids, fields)
+                : bookingRepository.findFieldsByIdInAndPassengerId(ids, passengerId, fields);
+    }
+
+    /**
+     * Only the given fields of all bookings
+     */
+    @ScatterGather
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllBookingFields(Set<String> fields) {
+        return bookingRepository.findAllFields(fields);
+    }
+
     /**
      * Obține toate booking-urile
      */
+    @ScatterGather
+    @Transactional(readOnly = true)
     public List<Booking> getAllBookings() {
         return bookingRepository.findAll();
     }
@@ -0,0 +1,16 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.model.DriverStats;
+import com.carsharing.backend.model.DriverWeeklyStats;
+import com.carsharing.backend.model.RideStats;
+
+import java.util.List;
+
+/**
+ * Everything the driver dashboard shows, read from the summary tables
+ * @param totals all rides of the driver
+ * @param rides latest rides, newest first
+ * @param weeks revenue of the last weeks, oldest first
+ */
+public record DriverDashboard(DriverStats totals, List<RideStats> rides, List<DriverWeeklyStats> weeks) {
+}
@@ -0,0 +1,14 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.model.Rating;
+import com.carsharing.backend.model.User;
+
+import java.util.List;
+
+/**
+ * One page of a driver's ratings
+ * @param driver carries the running totals (rating, ratingSummary)
+ * @param ratings newest first
+ */
+public record DriverRatings(User driver, List<Rating> ratings) {
+}
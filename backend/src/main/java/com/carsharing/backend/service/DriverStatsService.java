@@ -0,0 +1,360 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
+import com.carsharing.backend.exception.ResourceNotFoundException;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.DriverStats;
+import com.carsharing.backend.model.DriverWeeklyStats;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.RideStats;
+import com.carsharing.backend.repository.DriverStatsRepository;
+import com.carsharing.backend.repository.DriverWeeklyStatsRepository;
+import com.carsharing.backend.repository.RideStatsRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.sharding.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Driver dashboard counters (ride_stats, driver_stats, driver_weekly_stats)
+ *
+ * - BookingService and RideLifecycleJob report every booking change here, inside their transaction
+ * - The changes of one transaction are summed up and written right before commit, as
+ *   "column = column + delta" updates (no read-modify-write, no lost updates between nodes).
+ *   Rows are always written in the same order (rides, drivers, weeks; each sorted by id),
+ *   so two transactions cannot deadlock on them.
+ * - Reading a dashboard is a few primary key / index lookups, no matter how many bookings
+ *   the driver has; the result is cached for cache-ttl-ms and dropped when the driver's counters change
+ *   on any backend instance (ClusterCoherence, region DRIVER_DASHBOARD)
+ * - DriverStatsReconcileJob recomputes the counters from the bookings and repairs any drift
+ * - Counters live next to the bookings, on each shard; a dashboard adds up the shards' counters
+ */
+@Service
+@RequiredArgsConstructor
+public class DriverStatsService implements ClusterCoherence.Listener {
+
+    private static final int MAX_CACHED_DASHBOARDS = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final DriverStatsRepository driverStatsRepository;
+    private final RideStatsRepository rideStatsRepository;
+    private final DriverWeeklyStatsRepository driverWeeklyStatsRepository;
+    private final ClusterCoherence clusterCoherence;
+    private final ShardRouter shardRouter;
+
+    private final Map<Long, CachedDashboard> cache = new ConcurrentHashMap<>();
+
+    @Value("${carsharing.dashboard.cache-ttl-ms:5000}")
+    private long cacheTtlMillis;
+
+    @Value("${carsharing.dashboard.rides:20}")
+    private int rideCount;
+
+    @Value("${carsharing.dashboard.weeks:12}")
+    private int weekCount;
+
+    @PostConstruct
+    void registerCache() {
+        clusterCoherence.register(this, CacheRegion.DRIVER_DASHBOARD);
+    }
+
+    public void bookingCreated(Booking booking) {
+        record(RideKey.of(booking.getRide()), booking.getSeatsBooked(), 1, 0, BigDecimal.ZERO);
+    }
+
+    public void bookingConfirmed(Booking booking) {
+        record(RideKey.of(booking.getRide()), 0, -1, 1, booking.getTotalPrice());
+    }
+
+    /**
+     * @param previous status before the cancellation
+     */
+    public void bookingCancelled(Booking booking, Booking.BookingStatus previous) {
+        RideKey ride = RideKey.of(booking.getRide());
+        if (previous == Booking.BookingStatus.PENDING) {
+            record(ride, -booking.getSeatsBooked(), -1, 0, BigDecimal.ZERO);
+        } else if (previous == Booking.BookingStatus.CONFIRMED) {
+            record(ride, -booking.getSeatsBooked(), 0, -1, booking.getTotalPrice().negate());
+        }
+    }
+
+    /**
+     * PENDING booking expired by RideLifecycleJob
+     */
+    public void bookingExpired(long rideId, long driverId, LocalDateTime departureTime, int totalSeats, int seats) {
+        record(new RideKey(rideId, driverId, departureTime, totalSeats), -seats, -1, 0, BigDecimal.ZERO);
+    }
+
+    @Transactional(readOnly = true)
+    public DriverDashboard getDashboard(Long driverId) {
+        CachedDashboard cached = cache.get(driverId);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis() && clusterCoherence.cachingAllowed()) {
+            return cached.dashboard();
+        }
+        long stamp = clusterCoherence.stamp(CacheRegion.DRIVER_DASHBOARD);
+        if (!userRepository.existsById(driverId)) {
+            throw new ResourceNotFoundException("User with id " + driverId + " not found");
+        }
+
+        List<DriverDashboard> shards = shardRouter.scatter(() -> readDashboard(driverId));
+        DriverDashboard dashboard = shards.size() == 1 ? shards.get(0) : merge(driverId, shards);
+
+        if (clusterCoherence.isUnchanged(CacheRegion.DRIVER_DASHBOARD, stamp)) {
+            if (cache.size() >= MAX_CACHED_DASHBOARDS) {
+                cache.clear();
+            }
+            cache.put(driverId, new CachedDashboard(dashboard, System.currentTimeMillis() + cacheTtlMillis));
+        }
+        return dashboard;
+    }
+
+    private DriverDashboard readDashboard(Long driverId) {
+        DriverStats totals = driverStatsRepository.findById(driverId).orElseGet(() -> {
+            DriverStats empty = new DriverStats();
+            empty.setDriverId(driverId);
+            return empty;
+        });
+        return new DriverDashboard(
+                totals,
+                rideStatsRepository.findByDriverIdOrderByDepartureTimeDesc(driverId, PageRequest.of(0, rideCount)),
+                driverWeeklyStatsRepository.findByDriverIdAndWeekStartGreaterThanEqualOrderByWeekStart(
+                        driverId, weekStart(LocalDateTime.now()).minusWeeks(weekCount - 1)));
+    }
+
+    /**
+     * Dashboard of a driver whose rides are on several shards
+     */
+    private DriverDashboard merge(Long driverId, List<DriverDashboard> shards) {
+        DriverStats totals = new DriverStats();
+        totals.setDriverId(driverId);
+        Map<LocalDate, DriverWeeklyStats> weeks = new TreeMap<>();
+        for (DriverDashboard shard : shards) {
+            DriverStats shardTotals = shard.totals();
+            totals.setSeatsSold(totals.getSeatsSold() + shardTotals.getSeatsSold());
+            totals.setPendingConfirmations(totals.getPendingConfirmations() + shardTotals.getPendingConfirmations());
+            totals.setConfirmedBookings(totals.getConfirmedBookings() + shardTotals.getConfirmedBookings());
+            totals.setRevenue(totals.getRevenue().add(shardTotals.getRevenue()));
+
+            for (DriverWeeklyStats week : shard.weeks()) {
+                DriverWeeklyStats sum = weeks.computeIfAbsent(week.getWeekStart(), weekStart -> {
+                    DriverWeeklyStats empty = new DriverWeeklyStats();
+                    empty.setDriverId(driverId);
+                    empty.setWeekStart(weekStart);
+                    return empty;
+                });
+                sum.setSeatsSold(sum.getSeatsSold() + week.getSeatsSold());
+                sum.setRevenue(sum.getRevenue().add(week.getRevenue()));
+            }
+        }
+        List<RideStats> rides = shards.stream()
+                .flatMap(shard -> shard.rides().stream())
+                .sorted(Comparator.comparing(RideStats::getDepartureTime,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(rideCount)
+                .toList();
+        return new DriverDashboard(totals, rides, List.copyOf(weeks.values()));
+    }
+
+    /**
+     * Drops cached dashboards on all nodes once the current transaction commits
+     * (after the reconcile job repaired counters)
+     */
+    public void evict(Collection<Long> driverIds) {
+        clusterCoherence.invalidateAll(CacheRegion.DRIVER_DASHBOARD, driverIds);
+    }
+
+    @Override
+    public void invalidate(CacheRegion region, String key) {
+        cache.remove(Long.valueOf(key));
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public static LocalDate weekStart(LocalDateTime time) {
+        return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private void record(RideKey ride, int seats, int pending, int confirmed, BigDecimal revenue) {
+        changes().add(ride, seats, pending, confirmed, revenue);
+        clusterCoherence.invalidate(CacheRegion.DRIVER_DASHBOARD, ride.driverId());
+    }
+
+    /**
+     * Changes of the current transaction, written in beforeCommit()
+     */
+    private Changes changes() {
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+        if (changes != null) {
+            return changes;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Driver stats can only change inside a transaction");
+        }
+
+        Changes created = new Changes();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                write(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(DriverStatsService.this);
+            }
+        });
+        return created;
+    }
+
+    private void write(Changes changes) {
+        changes.rides.forEach((ride, delta) -> {
+            if (delta.isZero()) {
+                return;
+            }
+            upsert("""
+                            UPDATE ride_stats
+                            SET seats_booked = seats_booked + ?, pending_bookings = pending_bookings + ?,
+                                confirmed_bookings = confirmed_bookings + ?, revenue = revenue + ?
+                            WHERE ride_id = ?""",
+                    new Object[]{delta.seats, delta.pending, delta.confirmed, delta.revenue, ride.rideId()},
+                    """
+                            INSERT INTO ride_stats (ride_id, driver_id, departure_time, week_start, total_seats,
+                                                    seats_booked, pending_bookings, confirmed_bookings, revenue)
+                            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""",
+                    new Object[]{ride.rideId(), ride.driverId(), Timestamp.valueOf(ride.departureTime()),
+                            weekStart(ride.departureTime()), ride.totalSeats(),
+                            delta.seats, delta.pending, delta.confirmed, delta.revenue});
+        });
+
+        changes.drivers.forEach((driverId, delta) -> {
+            if (delta.isZero()) {
+                return;
+            }
+            upsert("""
+                            UPDATE driver_stats
+                            SET seats_sold = seats_sold + ?, pending_confirmations = pending_confirmations + ?,
+                                confirmed_bookings = confirmed_bookings + ?, revenue = revenue + ?
+                            WHERE driver_id = ?""",
+                    new Object[]{delta.seats, delta.pending, delta.confirmed, delta.revenue, driverId},
+                    """
+                            INSERT INTO driver_stats (driver_id, seats_sold, pending_confirmations, confirmed_bookings, revenue)
+                            VALUES (?, ?, ?, ?, ?)""",
+                    new Object[]{driverId, delta.seats, delta.pending, delta.confirmed, delta.revenue});
+        });
+
+        changes.weeks.forEach((week, delta) -> {
+            if (delta.seats == 0 && delta.revenue.signum() == 0) {
+                return;
+            }
+            upsert("""
+                            UPDATE driver_weekly_stats
+                            SET seats_sold = seats_sold + ?, revenue = revenue + ?
+                            WHERE driver_id = ? AND week_start = ?""",
+                    new Object[]{delta.seats, delta.revenue, week.driverId(), week.weekStart()},
+                    """
+                            INSERT INTO driver_weekly_stats (driver_id, week_start, seats_sold, revenue)
+                            VALUES (?, ?, ?, ?)""",
+                    new Object[]{week.driverId(), week.weekStart(), delta.seats, delta.revenue});
+        });
+    }
+
+    /**
+     * UPDATE, or INSERT if the row does not exist yet.
+     * The INSERT runs in a savepoint: if another transaction created the row meanwhile,
+     * only the savepoint is rolled back and the UPDATE is repeated.
+     */
+    private void upsert(String update, Object[] updateArgs, String insert, Object[] insertArgs) {
+        if (jdbcTemplate.update(update, updateArgs) > 0) {
+            return;
+        }
+        // same connection as the transaction
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                jdbcTemplate.update(insert, insertArgs);
+                connection.releaseSavepoint(savepoint);
+            } catch (DuplicateKeyException e) {
+                connection.rollback(savepoint);
+                jdbcTemplate.update(update, updateArgs);
+            }
+            return null;
+        });
+    }
+
+    private record RideKey(long rideId, long driverId, LocalDateTime departureTime, Integer totalSeats) {
+
+        static RideKey of(Ride ride) {
+            return new RideKey(ride.getId(), ride.getDriver().getId(), ride.getDepartureTime(), ride.getTotalSeats());
+        }
+    }
+
+    private record WeekKey(long driverId, LocalDate weekStart) {
+    }
+
+    private static class Delta {
+        int seats;
+        int pending;
+        int confirmed;
+        BigDecimal revenue = BigDecimal.ZERO;
+
+        void add(int seats, int pending, int confirmed, BigDecimal revenue) {
+            this.seats += seats;
+            this.pending += pending;
+            this.confirmed += confirmed;
+            this.revenue = this.revenue.add(revenue);
+        }
+
+        boolean isZero() {
+            return seats == 0 && pending == 0 && confirmed == 0 && revenue.signum() == 0;
+        }
+    }
+
+    /**
+     * Sorted maps = fixed lock order
+     */
+    private static class Changes {
+        final Map<RideKey, Delta> rides = new TreeMap<>(Comparator.comparingLong(RideKey::rideId));
+        final Map<Long, Delta> drivers = new TreeMap<>();
+        final Map<WeekKey, Delta> weeks = new TreeMap<>(
+                Comparator.comparingLong(WeekKey::driverId).thenComparing(WeekKey::weekStart));
+
+        void add(RideKey ride, int seats, int pending, int confirmed, BigDecimal revenue) {
+            rides.computeIfAbsent(ride, r -> new Delta()).add(seats, pending, confirmed, revenue);
+            drivers.computeIfAbsent(ride.driverId(), d -> new Delta()).add(seats, pending, confirmed, revenue);
+            weeks.computeIfAbsent(new WeekKey(ride.driverId(), weekStart(ride.departureTime())), w -> new Delta())
+                    .add(seats, pending, confirmed, revenue);
+        }
+    }
+
+    private record CachedDashboard(DriverDashboard dashboard, long expiresAt) {
+    }
+}
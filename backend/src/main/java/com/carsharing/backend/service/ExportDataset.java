@@ -0,0 +1,66 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.exception.ResourceNotFoundException;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Tables finance can export (GET /api/admin/exports/{path})
+ * Every query selects the id first (the resume point) and filters on the departure time,
+ * like the analytics endpoints.
+ */
+@Getter(AccessLevel.PACKAGE)
+@RequiredArgsConstructor
+public enum ExportDataset {
+
+    BOOKINGS("bookings",
+            "SELECT b.id, b.created_at, b.status, b.passenger_id, p.email AS passenger_email, b.ride_id,"
+                    + " r.driver_id, r.start_location, r.end_location, r.departure_time, b.seats_booked, b.total_price"
+                    + " FROM bookings b JOIN users p ON p.id = b.passenger_id JOIN rides r ON r.id = b.ride_id",
+            "b.id", "r.departure_time", "b.status", Booking.BookingStatus.class),
+
+    ARCHIVED_BOOKINGS("bookings-archive",
+            "SELECT id, created_at, status, passenger_id, passenger_name, ride_id, start_location, end_location,"
+                    + " departure_time, seats_booked, total_price, archived_at FROM bookings_archive",
+            "id", "departure_time", "status", Booking.BookingStatus.class),
+
+    RIDES("rides",
+            "SELECT r.id, r.created_at, r.status, r.driver_id, r.start_location, r.end_location, r.departure_time,"
+                    + " r.total_seats, r.available_seats, r.price_per_seat FROM rides r",
+            "r.id", "r.departure_time", "r.status", Ride.RideStatus.class);
+
+    @Getter
+    private final String path;
+    private final String select;
+    private final String idColumn;
+    private final String timeColumn;
+    private final String statusColumn;
+    private final Class<? extends Enum<?>> statuses;
+
+    public static ExportDataset fromPath(String path) {
+        return Arrays.stream(values())
+                .filter(dataset -> dataset.path.equals(path))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("No export named " + path));
+    }
+
+    /**
+     * @throws InvalidBookingException if the status does not exist for this table
+     */
+    String checkStatus(String status) {
+        String name = status.trim().toUpperCase(Locale.ROOT);
+        boolean known = Arrays.stream(statuses.getEnumConstants()).anyMatch(constant -> constant.name().equals(name));
+        if (!known) {
+            throw new InvalidBookingException("Unknown status " + status + " for " + path + ", allowed: "
+                    + Arrays.toString(statuses.getEnumConstants()));
+        }
+        return name;
+    }
+}
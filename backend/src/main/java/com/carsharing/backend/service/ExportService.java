@@ -0,0 +1,320 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.exception.ConflictException;
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Finance exports of bookings and rides as CSV (ADMIN, see ExportController)
+ *
+ * - Rows are read with one forward-only, read-only cursor per shard, fetch-size rows per round trip,
+ *   and written to the output as they arrive; nothing is collected
+ * - The output is flushed every fetch-size rows, the client receives the export in chunks
+ * - Rows come in id order (ids grow with the shard), so the id of the last complete line is a resume
+ *   point: after=<id> continues there
+ * - A file export writes <name>.csv.part and renames it to <name>.csv when complete. Started again,
+ *   it cuts the last incomplete line of the .part file and continues after the last id in it.
+ *   The .part file is locked while it is written: a second request for the same export gets 409.
+ * - Text cells starting with = + - @ are prefixed with ' (spreadsheets would run them as formulas)
+ * Memory used = one fetch of rows + the writer buffer, whatever the row count.
+ */
+@Slf4j
+@Service
+public class ExportService {
+
+    private static final int WRITE_BUFFER = 64 * 1024;
+    private static final LocalDate MIN_DAY = LocalDate.of(1970, 1, 1);
+    private static final LocalDate MAX_DAY = LocalDate.of(9999, 12, 31);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTx;
+    private final ShardRouter shardRouter;
+    private final int fetchSize;
+    private final Path directory;
+
+    /**
+     * One export: dataset + filter, validated
+     *
+     * @param name file name without extension, the same for the same export
+     */
+    public record Query(ExportDataset dataset, String where, List<Object> args, String name) {
+    }
+
+    public record FileResult(Path file, long rows, Long lastId, Long resumedAfter, boolean alreadyExported) {
+    }
+
+    public ExportService(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         ShardRouter shardRouter,
+                         @Value("${carsharing.export.fetch-size:1000}") int fetchSize,
+                         @Value("${carsharing.export.directory:exports}") String directory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.fetchSize = fetchSize;
+        this.directory = Path.of(directory);
+    }
+
+    /**
+     * from/to are departure dates (inclusive), status is optional
+     */
+    public Query query(ExportDataset dataset, LocalDate from, LocalDate to, String status) {
+        LocalDate start = from != null ? from : MIN_DAY;
+        LocalDate end = to != null ? to : MAX_DAY;
+        if (end.isBefore(start)) {
+            throw new InvalidBookingException("from must not be after to");
+        }
+
+        List<Object> args = new ArrayList<>();
+        StringBuilder where = new StringBuilder(dataset.getTimeColumn()).append(" >= ? AND ")
+                .append(dataset.getTimeColumn()).append(" < ?");
+        args.add(Timestamp.valueOf(start.atStartOfDay()));
+        args.add(Timestamp.valueOf(end.plusDays(1).atStartOfDay()));
+        String checkedStatus = null;
+        if (status != null && !status.isBlank()) {
+            checkedStatus = dataset.checkStatus(status);
+            where.append(" AND ").append(dataset.getStatusColumn()).append(" = ?");
+            args.add(checkedStatus);
+        }
+
+        String name = dataset.getPath() + "_" + (from != null ? from : "start") + "_" + (to != null ? to : "end")
+                + "_" + (checkedStatus != null ? checkedStatus : "ALL");
+        return new Query(dataset, where.toString(), List.copyOf(args), name);
+    }
+
+    /**
+     * Writes the rows with id > after (all rows if after is null), the header line only when after is null
+     *
+     * @return number of rows written
+     */
+    public long writeCsv(Query query, Long after, Writer out) throws IOException {
+        BufferedWriter writer = new BufferedWriter(out, WRITE_BUFFER);
+        long rows = write(query, after, after == null, writer).rows();
+        writer.flush();
+        return rows;
+    }
+
+    /**
+     * Exports to <directory>/<name>.csv, continuing an interrupted export of the same query
+     * An export already complete is left as it is (delete the file to export again).
+     *
+     * @throws ConflictException if the same export is being written by another request (or process)
+     */
+    public FileResult writeFile(Query query) throws IOException {
+        Files.createDirectories(directory);
+        Path done = directory.resolve(query.name() + ".csv");
+        Path part = directory.resolve(query.name() + ".csv.part");
+        if (Files.exists(done)) {
+            return new FileResult(done, 0, null, null, true);
+        }
+
+        // the lock goes with the channel: released when it is closed, also if the process dies
+        try (FileChannel channel = FileChannel.open(part,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (tryLock(channel) == null) {
+                throw new ConflictException("Export " + query.name() + " is already being written");
+            }
+            if (Files.exists(done)) {
+                // finished by the request that held the lock, this .part was created after its rename
+                Files.deleteIfExists(part);
+                return new FileResult(done, 0, null, null, true);
+            }
+
+            Resume resume = cutToLastLine(channel);
+            channel.position(channel.size());
+            BufferedWriter writer = new BufferedWriter(
+                    Channels.newWriter(channel, StandardCharsets.UTF_8), WRITE_BUFFER);
+            Written written = write(query, resume.after(), !resume.headerWritten(), writer);
+            writer.flush();
+            // renamed before the lock is released: nobody appends to the .csv
+            Files.move(part, done, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Exported {} rows to {}{}", written.rows(), done,
+                    resume.after() != null ? " (resumed after id " + resume.after() + ")" : "");
+            return new FileResult(done, written.rows(), written.lastId(), resume.after(), false);
+        }
+    }
+
+    /**
+     * null if another process holds the lock or another thread of this one (same file, other channel)
+     */
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private record Written(long rows, Long lastId) {
+    }
+
+    private Written write(Query query, Long after, boolean header, Writer writer) {
+        ExportDataset dataset = query.dataset();
+        String sql = dataset.getSelect() + " WHERE " + dataset.getIdColumn() + " > ? AND " + query.where()
+                + " ORDER BY " + dataset.getIdColumn();
+        List<Object> args = new ArrayList<>();
+        args.add(after != null ? after : Long.MIN_VALUE);
+        args.addAll(query.args());
+
+        long[] rows = {0};
+        Long[] lastId = {after};
+        boolean[] headerPending = {header};
+        // shards in order, ids of shard n are all below the ids of shard n + 1
+        shardRouter.forEachShard(() -> readOnlyTx.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, (ResultSet resultSet) -> {
+            try {
+                if (headerPending[0]) {
+                    writeHeader(resultSet.getMetaData(), writer);
+                    headerPending[0] = false;
+                }
+                while (resultSet.next()) {
+                    writeRow(resultSet, writer);
+                    lastId[0] = resultSet.getLong(1);
+                    if (++rows[0] % fetchSize == 0) {
+                        writer.flush();
+                    }
+                }
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        })));
+        return new Written(rows[0], lastId[0]);
+    }
+
+    private static void writeHeader(ResultSetMetaData metaData, Writer writer) throws SQLException, IOException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (i > 1) {
+                writer.write(',');
+            }
+            writer.write(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+        }
+        writer.write('\n');
+    }
+
+    private static void writeRow(ResultSet resultSet, Writer writer) throws SQLException, IOException {
+        int columns = resultSet.getMetaData().getColumnCount();
+        for (int i = 1; i <= columns; i++) {
+            if (i > 1) {
+                writer.write(',');
+            }
+            Object value = resultSet.getObject(i);
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Timestamp timestamp) {
+                writer.write(timestamp.toLocalDateTime().toString());
+            } else if (value instanceof BigDecimal decimal) {
+                writer.write(decimal.toPlainString());
+            } else if (value instanceof Number || value instanceof Boolean) {
+                writer.write(value.toString());
+            } else {
+                writeText(value.toString(), writer);
+            }
+        }
+        writer.write('\n');
+    }
+
+    // RFC 4180: quoted if it contains a separator or a quote, quotes doubled
+    // line breaks become spaces, one row = one line (resuming a file relies on it)
+    // = + - @ or a tab first: a formula for Excel/Sheets (CSV injection), ' keeps it text
+    private static void writeText(String value, Writer writer) throws IOException {
+        String text = value.replace('\r', ' ').replace('\n', ' ');
+        if (!text.isEmpty() && "=+-@\t".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        boolean quote = text.indexOf(',') >= 0 || text.indexOf('"') >= 0;
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private record Resume(boolean headerWritten, Long after) {
+    }
+
+    /**
+     * Drops a last line without its line break (the export stopped while writing it),
+     * then reads the id of the last complete line
+     */
+    private static Resume cutToLastLine(FileChannel channel) throws IOException {
+        long end = lineStart(channel, channel.size());
+        channel.truncate(end);
+        if (end == 0) {
+            return new Resume(false, null);
+        }
+        long start = lineStart(channel, end - 1);
+        ByteBuffer line = ByteBuffer.allocate((int) Math.min(end - start, 64));
+        channel.read(line, start);
+        String text = new String(line.array(), 0, line.position(), StandardCharsets.UTF_8);
+        int comma = text.indexOf(',');
+        String first = comma >= 0 ? text.substring(0, comma) : text.strip();
+        try {
+            return new Resume(true, Long.valueOf(first));
+        } catch (NumberFormatException e) {
+            return new Resume(true, null);  // only the header so far
+        }
+    }
+
+    /**
+     * Position right after the last '\n' before limit, 0 if there is none
+     */
+    private static long lineStart(FileChannel channel, long limit) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(8192);
+        long position = limit;
+        while (position > 0) {
+            int length = (int) Math.min(block.capacity(), position);
+            position -= length;
+            block.clear().limit(length);
+            channel.read(block, position);
+            for (int i = length - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,131 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.exception.ResourceNotFoundException;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Rating;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.BookingRepository;
+import com.carsharing.backend.repository.RatingRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.sharding.ShardContext;
+import com.carsharing.backend.sharding.ShardKey;
+import com.carsharing.backend.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Passengers rate drivers after a completed ride
+ *
+ * Every rating is stored (ratings table) and added to the driver's running totals
+ * (User.rating + User.ratingSummary) with one atomic UPDATE, the average is never
+ * recomputed from all ratings.
+ *
+ * Ratings live on the shard of the booking; the totals are on the user row of the home shard.
+ */
+@Service
+@RequiredArgsConstructor
+public class RatingService {
+
+    private static final int MAX_COMMENT_LENGTH = 500;
+
+    private static final Comparator<Rating> NEWEST_FIRST = Comparator
+            .comparing(Rating::getCreatedAt, Comparator.reverseOrder())
+            .thenComparing(Rating::getId, Comparator.reverseOrder());
+
+    private final RatingRepository ratingRepository;
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final ClusterCoherence clusterCoherence;
+    private final ShardRouter shardRouter;
+    private final PlatformTransactionManager transactionManager;
+
+    @Transactional
+    public Rating rateDriver(@ShardKey Long bookingId, Long passengerId, Integer stars, String comment) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Booking with id " + bookingId + " not found"));
+
+        if (!booking.getPassenger().getId().equals(passengerId)) {
+            throw new InvalidBookingException("Only the passenger of this booking can rate the driver");
+        }
+        if (booking.getStatus() != Booking.BookingStatus.COMPLETED) {
+            throw new InvalidBookingException("Only completed bookings can be rated");
+        }
+        if (stars == null || stars < 1 || stars > 5) {
+            throw new InvalidBookingException("Stars must be between 1 and 5");
+        }
+        if (comment != null && comment.length() > MAX_COMMENT_LENGTH) {
+            throw new InvalidBookingException("Comment must be at most " + MAX_COMMENT_LENGTH + " characters");
+        }
+        if (ratingRepository.existsByBookingId(bookingId)) {
+            throw new InvalidBookingException("This booking was already rated");
+        }
+
+        Rating rating = new Rating();
+        rating.setBookingId(bookingId);
+        rating.setRideId(booking.getRide().getId());
+        rating.setDriverId(booking.getRide().getDriver().getId());
+        rating.setPassengerId(passengerId);
+        rating.setStars(stars);
+        rating.setComment(comment);
+
+        try {
+            ratingRepository.saveAndFlush(rating);
+        } catch (DataIntegrityViolationException e) {
+            // same booking rated twice at the same time, the unique bookingId lets only one in
+            throw new InvalidBookingException("This booking was already rated");
+        }
+
+        if (ShardContext.currentOrHome() == ShardRouter.HOME_SHARD) {
+            addToDriverTotals(rating.getDriverId(), stars);
+        } else {
+            // other database: the totals are updated once the rating is committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    TransactionTemplate homeTx = new TransactionTemplate(transactionManager);
+                    homeTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                    shardRouter.runOn(ShardRouter.HOME_SHARD, () -> homeTx.executeWithoutResult(
+                            status -> addToDriverTotals(rating.getDriverId(), stars)));
+                }
+            });
+        }
+        return rating;
+    }
+
+    private void addToDriverTotals(Long driverId, int stars) {
+        userRepository.addRating(driverId, stars);
+        clusterCoherence.invalidate(CacheRegion.USER, driverId);
+    }
+
+    /**
+     * Driver with the rating totals + one page of their ratings, newest first
+     */
+    @Transactional(readOnly = true)
+    public DriverRatings getDriverRatings(Long driverId, int page, int size) {
+        if (page < 0 || size <= 0) {
+            throw new InvalidBookingException("Page must be >= 0 and size > 0");
+        }
+        User driver = userRepository.findById(driverId)
+                .orElseThrow(() -> new ResourceNotFoundException("User with id " + driverId + " not found"));
+
+        // ratings of all shards, merged newest first
+        List<Rating> ratings = shardRouter.gatherSlice((long) page * size, size, NEWEST_FIRST, (offset, limit) ->
+                ratingRepository.findByDriverIdOrderByCreatedAtDescIdDesc(driverId,
+                        PageRequest.of((int) (offset / limit), limit)));
+        return new DriverRatings(driver, ratings);
+    }
+}
@@ -0,0 +1,123 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.model.RefreshToken;
+import com.carsharing.backend.repository.RefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Rotating refresh tokens
+ *
+ * - A token is 256 random bits, only its SHA-256 hash is stored
+ * - rotate(): the presented token is used up and a new one of the same family is returned
+ * - Reuse of a used token (stolen copy or replay) revokes the whole family,
+ *   the user has to log in again on every device of that login
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${jwt.refresh-expiration:1209600000}")
+    private long refreshExpiration;
+
+    /**
+     * Refresh token of a rotation, with the user it belongs to
+     */
+    public record Rotation(Long userId, String refreshToken) {
+    }
+
+    /**
+     * First token of a new family (login/register)
+     */
+    @Transactional
+    public String issue(Long userId) {
+        return issue(userId, UUID.randomUUID().toString());
+    }
+
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public Rotation rotate(String refreshToken) {
+        RefreshToken current = find(refreshToken);
+        LocalDateTime now = LocalDateTime.now();
+
+        if (current.getRevokedAt() != null || current.getExpiresAt().isBefore(now)) {
+            throw new BadCredentialsException("Refresh token expired or revoked");
+        }
+        if (refreshTokenRepository.markUsed(current.getId(), now) == 0) {
+            // already used by someone else -> the token leaked, nobody keeps this login
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            log.warn("Refresh token reuse for user {}, family {} revoked", current.getUserId(), current.getFamilyId());
+            throw new BadCredentialsException("Refresh token already used, please log in again");
+        }
+        return new Rotation(current.getUserId(), issue(current.getUserId(), current.getFamilyId()));
+    }
+
+    /**
+     * Logout: the token and every token rotated from the same login stop working
+     */
+    @Transactional
+    public void revoke(String refreshToken, Long userId) {
+        RefreshToken current = find(refreshToken);
+        if (!current.getUserId().equals(userId)) {
+            throw new BadCredentialsException("Refresh token belongs to another user");
+        }
+        refreshTokenRepository.revokeFamily(current.getFamilyId(), LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${carsharing.auth.denylist.compact-interval-ms:600000}")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    private String issue(Long userId, String familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setUserId(userId);
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setExpiresAt(LocalDateTime.now().plusNanos(refreshExpiration * 1_000_000));
+        refreshTokenRepository.save(refreshToken);
+        return token;
+    }
+
+    private RefreshToken find(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new BadCredentialsException("Refresh token is required");
+        }
+        return refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
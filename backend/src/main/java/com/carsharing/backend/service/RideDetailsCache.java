@@ -0,0 +1,79 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
+import com.carsharing.backend.dto.RideResponse;
+import com.carsharing.backend.mapper.RideMapper;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.sharding.ShardKey;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ride details (GET /api/rides/{id}) kept in memory
+ *
+ * Dropped when the ride changes (seats, status, details - region RIDE) or its driver changes
+ * (name, rating - region USER), on whichever backend instance the change was made (see ClusterCoherence).
+ */
+@Service
+@RequiredArgsConstructor
+public class RideDetailsCache implements ClusterCoherence.Listener {
+
+    private static final int MAX_CACHED_RIDES = 10_000;
+
+    private final RideRepository rideRepository;
+    private final RideMapper rideMapper;
+    private final ClusterCoherence clusterCoherence;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<Long, RideResponse> cache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerCache() {
+        clusterCoherence.register(this, CacheRegion.RIDE, CacheRegion.USER);
+    }
+
+    public Optional<RideResponse> getRide(@ShardKey Long id) {
+        RideResponse cached = cache.get(id);
+        if (cached != null && clusterCoherence.cachingAllowed()) {
+            return Optional.of(cached);
+        }
+
+        long rideStamp = clusterCoherence.stamp(CacheRegion.RIDE);
+        long userStamp = clusterCoherence.stamp(CacheRegion.USER);
+        // read-write transaction = primary database (see CustomUserDetailsService)
+        Optional<RideResponse> ride = new TransactionTemplate(transactionManager)
+                .execute(status -> rideRepository.findById(id).map(rideMapper::toDto));
+
+        if (ride.isPresent()
+                && clusterCoherence.isUnchanged(CacheRegion.RIDE, rideStamp)
+                && clusterCoherence.isUnchanged(CacheRegion.USER, userStamp)) {
+            if (cache.size() >= MAX_CACHED_RIDES) {
+                cache.clear();
+            }
+            cache.put(id, ride.get());
+        }
+        return ride;
+    }
+
+    @Override
+    public void invalidate(CacheRegion region, String key) {
+        if (region == CacheRegion.RIDE) {
+            cache.remove(Long.valueOf(key));
+        } else {
+            cache.values().removeIf(ride -> String.valueOf(ride.getDriverId()).equals(key));
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.clear();
+    }
+}
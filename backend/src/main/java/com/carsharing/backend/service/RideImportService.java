@@ -0,0 +1,318 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.dto.RideImportReport;
+import com.carsharing.backend.dto.RideImportRow;
+import com.carsharing.backend.ledger.SeatChange;
+import com.carsharing.backend.ledger.SeatLedger;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Bulk import of rides (fleet partners, recurring shuttles)
+ *
+ * - Reads the upload line by line, the file is never fully in memory
+ * - Validates every line, invalid lines are reported and skipped
+ * - Valid lines are inserted in chunks: one transaction + JDBC batches per chunk
+ * - Drivers of a chunk are checked with one query
+ * - Rows of a chunk are grouped by shard (start location), one transaction per shard
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RideImportService {
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final ShardRouter shardRouter;
+    private final SeatLedger seatLedger;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${carsharing.import.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * NDJSON: one JSON ride object per line
+     *
+     * @param defaultDriverId the uploader, driver of the lines without driverId
+     * @param anyDriver       lines may name another driver (admins); otherwise such lines are rejected
+     */
+    public RideImportReport importNdjson(InputStream input, Long defaultDriverId, boolean anyDriver)
+            throws IOException {
+        ObjectReader reader = objectMapper.readerFor(RideImportRow.class);
+        RideImportReport report = new RideImportReport();
+        List<ParsedRow> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    addRow(chunk, report, lineNo, reader.readValue(line), defaultDriverId, anyDriver);
+                } catch (JsonProcessingException e) {
+                    report.rejected(lineNo, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        insertChunk(chunk, report);
+        return report;
+    }
+
+    /**
+     * CSV: first line is the header with the field names of RideImportRow (any order)
+     * Drivers as in importNdjson
+     */
+    public RideImportReport importCsv(InputStream input, Long defaultDriverId, boolean anyDriver) throws IOException {
+        RideImportReport report = new RideImportReport();
+        List<ParsedRow> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String headerLine = lines.readLine();
+            if (headerLine == null) {
+                return report;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            List<String> header = splitCsv(headerLine);
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+
+            String line;
+            int lineNo = 1;
+            while ((line = lines.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    addRow(chunk, report, lineNo, toRow(columns, splitCsv(line)), defaultDriverId, anyDriver);
+                } catch (RuntimeException e) {
+                    report.rejected(lineNo, "Invalid value: " + e.getMessage());
+                }
+            }
+        }
+        insertChunk(chunk, report);
+        return report;
+    }
+
+    private void addRow(List<ParsedRow> chunk, RideImportReport report, int lineNo,
+                        RideImportRow row, Long defaultDriverId, boolean anyDriver) {
+        String error = validate(row);
+        if (error != null) {
+            report.rejected(lineNo, error);
+            return;
+        }
+        if (!anyDriver && row.getDriverId() != null && !row.getDriverId().equals(defaultDriverId)) {
+            report.rejected(lineNo, "Only an admin can import rides for another driver");
+            return;
+        }
+        Long driverId = row.getDriverId() != null ? row.getDriverId() : defaultDriverId;
+        chunk.add(new ParsedRow(lineNo, row, driverId));
+
+        if (chunk.size() >= chunkSize) {
+            insertChunk(chunk, report);
+        }
+    }
+
+    /**
+     * Inserts one chunk in its own transaction.
+     * If the transaction fails, every line of the chunk is reported as rejected.
+     */
+    private void insertChunk(List<ParsedRow> chunk, RideImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<ParsedRow>> byShard = new TreeMap<>();
+        for (ParsedRow row : chunk) {
+            byShard.computeIfAbsent(shardRouter.shardOfRegion(row.row().getStartLocation()),
+                    shard -> new ArrayList<>()).add(row);
+        }
+        chunk.clear();
+
+        byShard.forEach((shard, rows) -> shardRouter.runOn(shard, () -> insertRows(rows, report)));
+    }
+
+    private void insertRows(List<ParsedRow> rows, RideImportReport report) {
+        Set<Long> driverIds = new HashSet<>();
+        rows.forEach(r -> driverIds.add(r.driverId()));
+
+        List<Long> rideIds;
+        try {
+            rideIds = new TransactionTemplate(transactionManager).execute(status -> {
+                // one batch per chunk instead of the default hibernate.jdbc.batch_size
+                entityManager.unwrap(Session.class).setJdbcBatchSize(Math.min(rows.size(), 500));
+
+                Set<Long> existingDrivers = userRepository.findExistingIds(driverIds);
+                List<Ride> rides = new ArrayList<>(rows.size());
+
+                for (ParsedRow row : rows) {
+                    if (!existingDrivers.contains(row.driverId())) {
+                        rides.add(null);
+                        continue;
+                    }
+                    Ride ride = toRide(row.row(), entityManager.getReference(User.class, row.driverId()));
+                    entityManager.persist(ride);
+                    seatLedger.record(SeatChange.OPEN, ride.getId(), null, ride.getAvailableSeats());
+                    rides.add(ride);
+                }
+                entityManager.flush();
+                entityManager.clear();
+
+                return rides.stream().map(ride -> ride != null ? ride.getId() : null).toList();
+            });
+        } catch (RuntimeException e) {
+            log.warn("Bulk import chunk of {} rows failed", rows.size(), e);
+            rows.forEach(r -> report.rejected(r.line(), "Could not save: " + e.getMessage()));
+            return;
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            Long rideId = rideIds.get(i);
+            if (rideId == null) {
+                report.rejected(rows.get(i).line(), "Driver with id " + rows.get(i).driverId() + " not found");
+            } else {
+                report.created(rows.get(i).line(), rideId);
+            }
+        }
+    }
+
+    /**
+     * Same rules as a ride created through POST /api/rides
+     * @return error message or null if the row is valid
+     */
+    private String validate(RideImportRow row) {
+        if (row.getStartLocation() == null || row.getStartLocation().isBlank()) {
+            return "startLocation is required";
+        }
+        if (row.getEndLocation() == null || row.getEndLocation().isBlank()) {
+            return "endLocation is required";
+        }
+        if (row.getDepartureTime() == null) {
+            return "departureTime is required";
+        }
+        if (row.getDepartureTime().isBefore(LocalDateTime.now())) {
+            return "departureTime must be in the future";
+        }
+        if (row.getTotalSeats() == null || row.getTotalSeats() <= 0) {
+            return "totalSeats must be greater than 0";
+        }
+        if (row.getPricePerSeat() == null || row.getPricePerSeat().signum() < 0) {
+            return "pricePerSeat must be 0 or more";
+        }
+        return null;
+    }
+
+    private Ride toRide(RideImportRow row, User driver) {
+        Ride ride = new Ride();
+        ride.setStartLocation(row.getStartLocation().trim());
+        ride.setEndLocation(row.getEndLocation().trim());
+        ride.setDepartureTime(row.getDepartureTime());
+        ride.setTotalSeats(row.getTotalSeats());
+        ride.setAvailableSeats(row.getTotalSeats());
+        ride.setPricePerSeat(row.getPricePerSeat());
+        ride.setDriver(driver);
+        ride.setStatus(Ride.RideStatus.ACTIVE);
+        ride.setCarModel(row.getCarModel());
+        ride.setCarColor(row.getCarColor());
+        ride.setDescription(row.getDescription());
+        return ride;
+    }
+
+    private RideImportRow toRow(Map<String, Integer> columns, List<String> values) {
+        RideImportRow row = new RideImportRow();
+        row.setStartLocation(column(columns, values, "startlocation"));
+        row.setEndLocation(column(columns, values, "endlocation"));
+        String departure = column(columns, values, "departuretime");
+        row.setDepartureTime(departure != null ? LocalDateTime.parse(departure) : null);
+        String seats = column(columns, values, "totalseats");
+        row.setTotalSeats(seats != null ? Integer.valueOf(seats) : null);
+        String price = column(columns, values, "priceperseat");
+        row.setPricePerSeat(price != null ? new BigDecimal(price) : null);
+        String driverId = column(columns, values, "driverid");
+        row.setDriverId(driverId != null ? Long.valueOf(driverId) : null);
+        row.setCarModel(column(columns, values, "carmodel"));
+        row.setCarColor(column(columns, values, "carcolor"));
+        row.setDescription(column(columns, values, "description"));
+        return row;
+    }
+
+    private String column(Map<String, Integer> columns, List<String> values, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Splits one CSV line, supports "quoted, values" and "" as an escaped quote
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private record ParsedRow(int line, RideImportRow row, Long driverId) {
+    }
+}
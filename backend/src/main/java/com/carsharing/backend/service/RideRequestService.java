@@ -0,0 +1,197 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.exception.ResourceNotFoundException;
+import com.carsharing.backend.matching.MatchingEngine;
+import com.carsharing.backend.matching.MatchingProperties;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.RideRequest;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.RideRequestRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.sharding.ScatterGather;
+import com.carsharing.backend.sharding.ShardKey;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Ride requests posted by passengers (route, departure window, seats, max price per seat)
+ *
+ * - A new request is handed to the matching engine after commit and gets a ride proposed within a
+ *   batch or two if one fits (MatchingEngine)
+ * - accept() books the proposed ride with the usual booking rules; if it was taken meanwhile
+ *   the request is OPEN again and the engine looks for another ride
+ * - Requests live on the shard of their start location, the same one as the rides they can get
+ */
+@Service
+@RequiredArgsConstructor
+public class RideRequestService {
+
+    private static final int MAX_SEATS = 8;
+
+    private final RideRequestRepository rideRequestRepository;
+    private final RideRepository rideRepository;
+    private final UserRepository userRepository;
+    private final BookingService bookingService;
+    private final MatchingEngine matchingEngine;
+    private final MatchingProperties properties;
+
+    /**
+     * Posts a request; the passenger is the current user, status and match fields of the body are ignored
+     */
+    @Transactional
+    public RideRequest createRequest(Long passengerId, @ShardKey String startLocation, RideRequest request) {
+        if (!userRepository.existsById(passengerId)) {
+            throw new ResourceNotFoundException("User with id " + passengerId + " not found");
+        }
+        validate(request);
+        // counted on the shard of the request: the limit applies per start region
+        long active = rideRequestRepository.countByPassengerIdAndStatusIn(passengerId,
+                EnumSet.of(RideRequest.Status.OPEN, RideRequest.Status.MATCHED));
+        if (active >= properties.getMaxActivePerPassenger()) {
+            throw new InvalidBookingException("You already have " + active + " open ride requests from this region"
+                    + " (max " + properties.getMaxActivePerPassenger() + ")");
+        }
+
+        RideRequest created = new RideRequest();
+        created.setPassengerId(passengerId);
+        created.setStartLocation(startLocation.trim());
+        created.setEndLocation(request.getEndLocation().trim());
+        created.setEarliestDeparture(request.getEarliestDeparture());
+        created.setLatestDeparture(request.getLatestDeparture());
+        created.setSeats(request.getSeats());
+        created.setMaxPricePerSeat(request.getMaxPricePerSeat());
+        RideRequest saved = rideRequestRepository.save(created);
+        afterCommit(() -> matchingEngine.submit(saved));
+        return saved;
+    }
+
+    private void validate(RideRequest request) {
+        if (isBlank(request.getStartLocation()) || isBlank(request.getEndLocation())) {
+            throw new InvalidBookingException("Start and end location are required");
+        }
+        if (request.getStartLocation().trim().equalsIgnoreCase(request.getEndLocation().trim())) {
+            throw new InvalidBookingException("Start and end location must be different");
+        }
+        if (request.getSeats() == null || request.getSeats() <= 0 || request.getSeats() > MAX_SEATS) {
+            throw new InvalidBookingException("Number of seats must be between 1 and " + MAX_SEATS);
+        }
+        LocalDateTime earliest = request.getEarliestDeparture();
+        LocalDateTime latest = request.getLatestDeparture();
+        if (earliest == null || latest == null) {
+            throw new InvalidBookingException("Earliest and latest departure are required");
+        }
+        if (latest.isBefore(earliest)) {
+            throw new InvalidBookingException("Latest departure must be after earliest departure");
+        }
+        if (Duration.between(earliest, latest).toHours() >= properties.getMaxWindowHours()) {
+            throw new InvalidBookingException("Departure window must be shorter than " + properties.getMaxWindowHours() + " hours");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (!latest.isAfter(now)) {
+            throw new InvalidBookingException("Departure window has already passed");
+        }
+        if (earliest.isAfter(now.plusDays(properties.getHorizonDays()))) {
+            throw new InvalidBookingException("Requests can be posted at most " + properties.getHorizonDays() + " days ahead");
+        }
+        if (request.getMaxPricePerSeat() != null && request.getMaxPricePerSeat().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new InvalidBookingException("Max price per seat must be greater than 0");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Request of this passenger, 404 if there is none with this id
+     */
+    @Transactional(readOnly = true)
+    public RideRequest findRequest(@ShardKey Long requestId, Long passengerId) {
+        RideRequest request = rideRequestRepository.findById(requestId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride request with id " + requestId + " not found"));
+        if (!request.getPassengerId().equals(passengerId)) {
+            throw new InvalidBookingException("Only the passenger who posted the request can see or change it");
+        }
+        return request;
+    }
+
+    /**
+     * All requests of a passenger, every shard
+     */
+    @ScatterGather
+    @Transactional(readOnly = true)
+    public List<RideRequest> getRequestsByPassenger(Long passengerId) {
+        return rideRequestRepository.findByPassengerIdOrderByCreatedAtDesc(passengerId);
+    }
+
+    /**
+     * Withdraws an OPEN or MATCHED request
+     */
+    @Transactional
+    public RideRequest cancelRequest(@ShardKey Long requestId, Long passengerId) {
+        RideRequest request = findRequest(requestId, passengerId);
+        RideRequest.Status previous = request.getStatus();
+        if (previous != RideRequest.Status.OPEN && previous != RideRequest.Status.MATCHED) {
+            throw new InvalidBookingException("Only open or matched requests can be cancelled (status: " + previous + ")");
+        }
+        Long matchedRideId = previous == RideRequest.Status.MATCHED ? request.getMatchedRideId() : null;
+        request.setStatus(RideRequest.Status.CANCELLED);
+        afterCommit(() -> matchingEngine.withdraw(requestId, matchedRideId, request.getSeats()));
+        return request;
+    }
+
+    /**
+     * Books the ride proposed to the request
+     *
+     * The ride is checked (and locked) first: if it filled up, departed or was cancelled since the match,
+     * the request is OPEN again - that change is kept although the call fails.
+     */
+    @Transactional(noRollbackFor = InvalidBookingException.class)
+    public Booking accept(@ShardKey Long requestId, Long passengerId) {
+        RideRequest request = findRequest(requestId, passengerId);
+        if (request.getStatus() != RideRequest.Status.MATCHED) {
+            throw new InvalidBookingException("Only matched requests can be accepted (status: " + request.getStatus() + ")");
+        }
+
+        Ride ride = rideRepository.findByIdForUpdate(request.getMatchedRideId()).orElse(null);
+        if (ride == null || ride.getStatus() != Ride.RideStatus.ACTIVE
+                || ride.getAvailableSeats() < request.getSeats()
+                || !ride.getDepartureTime().isAfter(LocalDateTime.now())) {
+            request.setStatus(RideRequest.Status.OPEN);
+            request.setMatchedRideId(null);
+            request.setMatchedAt(null);
+            afterCommit(() -> matchingEngine.submit(request));
+            throw new InvalidBookingException("The matched ride is no longer available, the request is open again");
+        }
+        // the other rules of createBooking, checked here: its InvalidBookingException would mark this
+        // transaction rollback-only (it joins it), and the caller would get an UnexpectedRollbackException
+        if (ride.getDriver().getId().equals(passengerId)) {
+            throw new InvalidBookingException("You cannot book your own ride");
+        }
+
+        Booking booking = bookingService.createBooking(passengerId, ride.getId(), request.getSeats());
+        request.setStatus(RideRequest.Status.BOOKED);
+        request.setBookingId(booking.getId());
+        return booking;
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,258 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.exception.ResourceNotFoundException;
+import com.carsharing.backend.ledger.SeatChange;
+import com.carsharing.backend.ledger.SeatLedger;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.SeatHold;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.SeatHoldRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.sharding.ShardKey;
+import com.carsharing.backend.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-limited seat holds (first step of checkout, BookingService.confirmHold() is the second)
+ *
+ * - Creating a hold takes the seats from the ride at once, so createBooking() and other holds
+ *   only see the seats that are really free
+ * - Write-through: the hold row is written in the same transaction as the seat change
+ * - Expiry: every hold is put in a DelayQueue, one thread wakes up exactly when the next hold
+ *   expires and gives its seats back. No table polling; tens of thousands of holds cost a few MB.
+ * - After a restart the queue is rebuilt from seat_holds; holds of a node that never came back
+ *   are picked up by a slow safety sweep (expiresAt index)
+ * - Giving seats back deletes the row first and only adds seats if the delete counted,
+ *   so a hold is released once even if several nodes or paths race for it
+ * - Holds live on the shard of their ride, the hold id tells which one (see ShardRouter)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SeatHoldService {
+
+    private final SeatHoldRepository seatHoldRepository;
+    private final RideRepository rideRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ClusterCoherence clusterCoherence;
+    private final ShardRouter shardRouter;
+    private final SeatLedger seatLedger;
+
+    private final DelayQueue<HoldExpiry> expiries = new DelayQueue<>();
+    private Thread expiryThread;
+
+    @Value("${carsharing.holds.default-minutes:10}")
+    private int defaultMinutes;
+
+    @Value("${carsharing.holds.max-minutes:30}")
+    private int maxMinutes;
+
+    /**
+     * Reserves seats of a ride for a few minutes
+     */
+    @Transactional
+    public SeatHold createHold(Long passengerId, @ShardKey Long rideId, Integer seats, Integer minutes) {
+        if (!userRepository.existsById(passengerId)) {
+            throw new ResourceNotFoundException("User with id " + passengerId + " not found");
+        }
+        if (seats == null || seats <= 0) {
+            throw new InvalidBookingException("Number of seats must be greater than 0");
+        }
+        int holdMinutes = minutes != null ? minutes : defaultMinutes;
+        if (holdMinutes <= 0 || holdMinutes > maxMinutes) {
+            throw new InvalidBookingException("Hold duration must be between 1 and " + maxMinutes + " minutes");
+        }
+
+        // locked, two holds for the last seat cannot both succeed
+        Ride ride = rideRepository.findByIdForUpdate(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride with id " + rideId + " not found"));
+
+        if (passengerId.equals(ride.getDriver().getId())) {
+            throw new InvalidBookingException("You cannot book your own ride");
+        }
+        if (ride.getStatus() != Ride.RideStatus.ACTIVE) {
+            throw new InvalidBookingException("This ride is not available for booking (status: " + ride.getStatus() + ")");
+        }
+        if (ride.getAvailableSeats() < seats) {
+            throw new InvalidBookingException(
+                    "Not enough seats available. Requested: " + seats +
+                            ", Available: " + ride.getAvailableSeats());
+        }
+        if (ride.getDepartureTime().isBefore(LocalDateTime.now())) {
+            throw new InvalidBookingException("Cannot book a ride that has already departed");
+        }
+
+        ride.setAvailableSeats(ride.getAvailableSeats() - seats);
+        if (ride.getAvailableSeats() == 0) {
+            ride.setStatus(Ride.RideStatus.FULL);
+        }
+        clusterCoherence.invalidate(CacheRegion.RIDE, rideId);
+
+        SeatHold hold = new SeatHold();
+        hold.setRideId(rideId);
+        hold.setPassengerId(passengerId);
+        hold.setSeats(seats);
+        hold.setExpiresAt(LocalDateTime.now().plusMinutes(holdMinutes));
+        SeatHold saved = seatHoldRepository.save(hold);
+        seatLedger.record(SeatChange.HOLD, rideId, saved.getId(), seats);
+
+        // only committed holds are scheduled
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                schedule(saved);
+            }
+        });
+        return saved;
+    }
+
+    /**
+     * Passenger gives up the hold before it expires
+     */
+    @Transactional
+    public void releaseHold(@ShardKey Long rideId, Long holdId, Long passengerId) {
+        SeatHold hold = findHold(rideId, holdId);
+        if (!hold.getPassengerId().equals(passengerId)) {
+            throw new InvalidBookingException("Only the passenger who created the hold can release it");
+        }
+        releaseSeats(hold, SeatChange.RELEASE);
+    }
+
+    /**
+     * Hold of this ride, or 404 if it was already confirmed, released or expired
+     */
+    public SeatHold findHold(@ShardKey Long rideId, Long holdId) {
+        return seatHoldRepository.findById(holdId)
+                .filter(hold -> hold.getRideId().equals(rideId))
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Hold with id " + holdId + " not found (expired or already used)"));
+    }
+
+    /**
+     * Deletes the hold and gives its seats back (no-op if someone else did it first)
+     */
+    private boolean releaseSeats(SeatHold hold, SeatChange change) {
+        if (seatHoldRepository.deleteHold(hold.getId()) == 0) {
+            return false;
+        }
+        jdbcTemplate.update("""
+                UPDATE rides
+                SET available_seats = available_seats + ?,
+                    status = CASE WHEN status = 'FULL' THEN 'ACTIVE' ELSE status END
+                WHERE id = ?""", hold.getSeats(), hold.getRideId());
+        clusterCoherence.invalidate(CacheRegion.RIDE, hold.getRideId());
+        seatLedger.record(change, hold.getRideId(), hold.getId(), hold.getSeats());
+        return true;
+    }
+
+    private void expire(long holdId) {
+        shardRouter.runOn(shardRouter.shardOfId(holdId), () ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                        seatHoldRepository.findById(holdId).ifPresent(hold -> {
+                            if (releaseSeats(hold, SeatChange.EXPIRE)) {
+                                log.debug("Hold {} expired, {} seats back to ride {}", holdId, hold.getSeats(), hold.getRideId());
+                            }
+                        })));
+    }
+
+    private void schedule(SeatHold hold) {
+        long expiresAt = hold.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        expiries.add(new HoldExpiry(hold.getId(), expiresAt));
+    }
+
+    /**
+     * Rebuilds the queue from the table and starts the expiry thread
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<SeatHold> holds = new ArrayList<>();
+        shardRouter.forEachShard(() -> holds.addAll(seatHoldRepository.findAll()));
+        holds.forEach(this::schedule);
+        if (!holds.isEmpty()) {
+            log.info("Restored {} seat holds", holds.size());
+        }
+
+        expiryThread = new Thread(this::expireLoop, "seat-hold-expiry");
+        expiryThread.setDaemon(true);
+        expiryThread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (expiryThread != null) {
+            expiryThread.interrupt();
+        }
+    }
+
+    private void expireLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            HoldExpiry expiry;
+            try {
+                expiry = expiries.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                expire(expiry.holdId());
+            } catch (RuntimeException e) {
+                // DB not reachable: try again a bit later, the seats stay held meanwhile
+                log.warn("Could not expire hold {}, retrying: {}", expiry.holdId(), e.getMessage());
+                expiries.add(new HoldExpiry(expiry.holdId(), System.currentTimeMillis() + 5_000));
+            }
+        }
+    }
+
+    /**
+     * Safety net for holds no queue knows about (created on a node that stopped and never came back)
+     */
+    @Scheduled(fixedDelayString = "${carsharing.holds.orphan-sweep-interval-ms:300000}")
+    public void expireOrphans() {
+        List<SeatHold> orphans = new ArrayList<>();
+        shardRouter.forEachShard(() -> orphans.addAll(seatHoldRepository.findByExpiresAtBeforeOrderByExpiresAt(
+                LocalDateTime.now().minusMinutes(1), PageRequest.of(0, 500))));
+        orphans.forEach(hold -> expire(hold.getId()));
+        if (!orphans.isEmpty()) {
+            log.info("Expired {} orphaned seat holds", orphans.size());
+        }
+    }
+
+    private record HoldExpiry(long holdId, long expiresAtMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAtMillis, ((HoldExpiry) other).expiresAtMillis);
+        }
+    }
+}
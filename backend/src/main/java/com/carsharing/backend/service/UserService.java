@@ -1,10 +1,14 @@
 package com.carsharing.backend.service;
 
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
 import com.carsharing.backend.dto.AuthResponse;
 import com.carsharing.backend.dto.LoginRequest;
 import com.carsharing.backend.dto.RegisterRequest;
 import com.carsharing.backend.exception.InvalidBookingException;
 import com.carsharing.backend.exception.ResourceNotFoundException;
+import com.carsharing.backend.ledger.SeatChange;
+import com.carsharing.backend.ledger.SeatLedger;
 import com.carsharing.backend.model.Ride;
 import com.carsharing.backend.model.User;
 import com.carsharing.backend.repository.BookingRepository;
@@ -12,14 +16,24 @@ import com.carsharing.backend.repository.RideRepository;
 import com.carsharing.backend.repository.UserRepository;
 import com.carsharing.backend.security.CustomUserDetails;
 import com.carsharing.backend.security.JwtService;
+import com.carsharing.backend.security.TokenDenylist;
+import com.carsharing.backend.sharding.ShardRouter;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import com.carsharing.backend.config.SecurityConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +54,12 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenDenylist tokenDenylist;
+    private final ClusterCoherence clusterCoherence;
+    private final ShardRouter shardRouter;
+    private final PlatformTransactionManager transactionManager;
+    private final SeatLedger seatLedger;
 
     /**
      * Registers a new user
@@ -78,24 +98,18 @@ public class UserService {
 
         // saves in DB
         User savedUser = userRepository.save(user);
+        // copied to the other shards (see UserReplicator)
+        clusterCoherence.invalidate(CacheRegion.USER, savedUser.getId());
 
-        // Generates JWT token with custom claims
-        Map<String, Object> extraClaims = new HashMap<>();
-        extraClaims.put("id", savedUser.getId());
-        extraClaims.put("role", savedUser.getRole().name());
-
-        CustomUserDetails userDetails = new CustomUserDetails(savedUser);
-        String jwtToken = jwtService.generateToken(extraClaims, userDetails);
-
-        // Returns token + info user
-        return new AuthResponse(jwtToken, savedUser);
+        // Returns tokens + info user
+        return issueTokens(savedUser, refreshTokenService.issue(savedUser.getId()));
     }
 
     /**
      * Authenticates existing user
      *
      * Checks credentials (email + password)
-     * Generates new JWT token
+     * Generates new JWT token + a new refresh token family
      */
     public AuthResponse login(LoginRequest request) {
         // Spring Security automatically cheks credentials
@@ -111,29 +125,59 @@ public class UserService {
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        // Generates JWT token
-        Map<String, Object> extraClaims = new HashMap<>();
-        extraClaims.put("id", user.getId());
-        extraClaims.put("role", user.getRole().name());
+        return issueTokens(user, refreshTokenService.issue(user.getId()));
+    }
 
-        CustomUserDetails userDetails = new CustomUserDetails(user);
-        String jwtToken = jwtService.generateToken(extraClaims, userDetails);
+    /**
+     * New access token for a refresh token
+     *
+     * The refresh token is rotated: the old one stops working, the new one is returned
+     * throws BadCredentialsException if invalid, expired, revoked or already used
+     */
+    public AuthResponse refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        User user = userRepository.findById(rotation.userId())
+                .orElseThrow(() -> new BadCredentialsException("User no longer exists"));
+        return issueTokens(user, rotation.refreshToken());
+    }
 
-        return new AuthResponse(jwtToken, user);
+    /**
+     * Logout
+     *
+     * The access token is revoked until it expires (checked by JwtAuthenticationFilter)
+     * The refresh token (optional) is revoked with every token rotated from the same login
+     */
+    public void logout(String accessToken, String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtService.parseToken(accessToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new BadCredentialsException("Invalid access token");
+        }
+        if (claims.getId() != null) {
+            LocalDateTime expiresAt = LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault());
+            tokenDenylist.revoke(claims.getId(), expiresAt);
+        }
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken, claims.get("id", Long.class));
+        }
     }
 
     /**
      * Gets all users (only for ADMIN)
      */
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public User getUserById(Long id) {
         return userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User with id " + id + " not found"));
     }
 
+    @Transactional(readOnly = true)
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User with email " + email + " not found"));
@@ -141,6 +185,7 @@ public class UserService {
 
     /**
      * Deletes user (only for ADMIN)
+     * Rides and bookings of other shards are deleted first, in one transaction per shard.
      */
     @Transactional
     public void deleteUser(Long id) {
@@ -148,6 +193,21 @@ public class UserService {
             throw new ResourceNotFoundException("User with id " + id + " not found");
         }
 
+        TransactionTemplate shardTx = new TransactionTemplate(transactionManager);
+        shardTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int shard = ShardRouter.HOME_SHARD + 1; shard < shardRouter.getShardCount(); shard++) {
+            shardRouter.runOn(shard, () -> shardTx.executeWithoutResult(status -> deleteRidesAndBookings(id)));
+        }
+        shardRouter.runOn(ShardRouter.HOME_SHARD, () -> deleteRidesAndBookings(id));
+
+        // deletes the user
+        userRepository.deleteById(id);
+
+        // cached user details and rides of the user, on every backend instance
+        clusterCoherence.invalidate(CacheRegion.USER, id);
+    }
+
+    private void deleteRidesAndBookings(Long id) {
         // deletes bookings where the user is passenger
         bookingRepository.deleteAllByPassengerId(id);
 
@@ -157,13 +217,25 @@ public class UserService {
         // deletes all bookings for those rides
         for (Ride ride : rides) {
             bookingRepository.deleteAllByRideId(ride.getId());
+            seatLedger.record(SeatChange.CLOSE, ride.getId(), null, 0);
         }
 
         // deletes the rides
         rideRepository.deleteAllByDriverId(id);
+    }
 
-        // deletes the user
-        userRepository.deleteById(id);
+    /**
+     * Generates JWT token with custom claims
+     */
+    private AuthResponse issueTokens(User user, String refreshToken) {
+        Map<String, Object> extraClaims = new HashMap<>();
+        extraClaims.put("id", user.getId());
+        extraClaims.put("role", user.getRole().name());
+
+        CustomUserDetails userDetails = new CustomUserDetails(user);
+        String jwtToken = jwtService.generateToken(extraClaims, userDetails);
+
+        return new AuthResponse(jwtToken, refreshToken, jwtService.getExpiration(), user);
     }
 
     /**
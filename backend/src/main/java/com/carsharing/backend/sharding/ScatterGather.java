@@ -0,0 +1,18 @@
+package com.carsharing.backend.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Read over all shards: the method runs once per shard, in parallel, and the results are merged
+ * (lists concatenated in shard order, counts added up)
+ *
+ * Service methods only; reads of RideRepository/BookingRepository without a ShardKey are
+ * scattered anyway when they are called outside a shard (see ShardingAspect).
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ScatterGather {
+}
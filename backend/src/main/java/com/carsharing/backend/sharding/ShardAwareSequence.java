@@ -0,0 +1,25 @@
+package com.carsharing.backend.sharding;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Pooled sequence whose ids carry the shard they were created on (see ShardAwareSequenceGenerator)
+ *
+ * Replaces @GeneratedValue + @SequenceGenerator on entities that are sharded.
+ */
+@IdGeneratorType(ShardAwareSequenceGenerator.class)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardAwareSequence {
+
+    // database sequence, one per shard
+    String name();
+
+    // ids reserved per round trip, so inserts can be sent as JDBC batches
+    int allocationSize() default 50;
+}
@@ -0,0 +1,56 @@
+package com.carsharing.backend.sharding;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.OptimizableGenerator;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pooled sequence per shard, id = shard << 40 | sequence value
+ *
+ * Every shard has its own copy of the sequence, so two shards hand out the same values;
+ * the shard bits make the ids unique over all shards and let ShardRouter.shardOfId()
+ * find the row from its id alone. Home shard ids are plain sequence values, as before sharding.
+ */
+public class ShardAwareSequenceGenerator extends SequenceStyleGenerator {
+
+    private final ShardAwareSequence config;
+
+    // ids reserved from the sequence of shards 1..n (the home shard uses the inherited optimizer)
+    private final Map<Integer, Optimizer> shardOptimizers = new ConcurrentHashMap<>();
+
+    public ShardAwareSequenceGenerator(ShardAwareSequence config) {
+        this.config = config;
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        parameters.setProperty(SEQUENCE_PARAM, config.name());
+        parameters.setProperty(OptimizableGenerator.INCREMENT_PARAM, String.valueOf(config.allocationSize()));
+        parameters.setProperty(OptimizableGenerator.OPT_PARAM, StandardOptimizerDescriptor.POOLED.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        int shard = ShardContext.currentOrHome();
+        if (shard == ShardRouter.HOME_SHARD) {
+            return super.generate(session, object);
+        }
+
+        Optimizer optimizer = shardOptimizers.computeIfAbsent(shard, s -> OptimizerFactory.buildOptimizer(
+                StandardOptimizerDescriptor.POOLED, Long.class, config.allocationSize(),
+                getDatabaseStructure().getInitialValue()));
+        Number value = (Number) optimizer.generate(getDatabaseStructure().buildCallback(session));
+        return ShardRouter.shardId(shard, value.longValue());
+    }
+}
@@ -0,0 +1,47 @@
+package com.carsharing.backend.sharding;
+
+/**
+ * Shard the current thread works on, read by ShardRoutingDataSource when a connection is taken
+ *
+ * Set around a call (ShardingAspect, ShardRouter) and restored afterwards, so it never leaks
+ * into the next task of a pooled thread. Not set = home shard.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return shard set for this thread, null if none
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Shard this thread's connections go to
+     */
+    public static int currentOrHome() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : ShardRouter.HOME_SHARD;
+    }
+
+    /**
+     * @return the previous value, to be given to restore()
+     */
+    static Integer enter(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.carsharing.backend.sharding;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The pool of every shard, by shard index (0 = home)
+ *
+ * For code that must reach a given shard without going through ShardContext,
+ * e.g. UserReplicator copying a row from the home shard to the others.
+ */
+public class ShardDataSources implements Closeable {
+
+    private final List<DataSource> dataSources;
+
+    public ShardDataSources(List<DataSource> dataSources) {
+        this.dataSources = List.copyOf(dataSources);
+    }
+
+    public DataSource get(int shard) {
+        return dataSources.get(shard);
+    }
+
+    public int size() {
+        return dataSources.size();
+    }
+
+    /**
+     * Closes the pools of shards 1..n, the home pool is a bean of its own
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataSource dataSource : dataSources.subList(1, dataSources.size())) {
+            if (dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.carsharing.backend.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The parameter that decides the shard of a service or repository call (see ShardRouter.shardOf)
+ *
+ * - id of a ride, booking, seat hold or rating (the shard is in the id)
+ * - start location of a ride (its region)
+ * - a Ride or Booking, or a collection of keys that all belong to one shard
+ *
+ * The call and the transaction it starts run on that shard (ShardingAspect).
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+}
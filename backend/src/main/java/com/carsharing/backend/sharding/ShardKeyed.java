@@ -0,0 +1,12 @@
+package com.carsharing.backend.sharding;
+
+/**
+ * A request item that belongs to a shard (e.g. one ride of a batch booking)
+ */
+public interface ShardKeyed {
+
+    /**
+     * @return a value ShardRouter.shardOf() understands, e.g. a ride id
+     */
+    Object shardKey();
+}
@@ -0,0 +1,249 @@
+package com.carsharing.backend.sharding;
+
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.exception.ResourceNotFoundException;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard holds a ride or booking, and runs code on one or on all shards
+ *
+ * Shard key = start location of the ride (its region). A booking, seat hold or rating lives on
+ * the shard of its ride. Ids carry their shard in the upper bits (see ShardAwareSequenceGenerator),
+ * so an id alone is enough to find the row.
+ *
+ * With sharding disabled there is one shard (0) and everything runs inline.
+ */
+@Slf4j
+@Component
+public class ShardRouter {
+
+    public static final int HOME_SHARD = 0;
+
+    // id = shard << 40 | sequence value: 2^40 ids per shard, up to 2^23 shards
+    public static final int ID_SHARD_SHIFT = 40;
+
+    /**
+     * Part of one shard's rows in the shard's order (see gatherSlice)
+     */
+    @FunctionalInterface
+    public interface SliceQuery<T> {
+        List<T> slice(long offset, int limit);
+    }
+
+    private final boolean sharded;
+    private final int shardCount;
+    private final Map<String, Integer> regions = new HashMap<>();
+    private final ExecutorService scatterPool;
+
+    public ShardRouter(ShardingProperties properties) {
+        this.sharded = properties.isEnabled();
+        this.shardCount = sharded ? 1 + properties.getShardUrls().size() : 1;
+
+        properties.getRegions().forEach((region, shard) -> {
+            if (shard < 0 || shard >= shardCount) {
+                throw new IllegalStateException("Region " + region + " mapped to shard " + shard
+                        + ", only " + shardCount + " shards configured");
+            }
+            regions.put(normalize(region), shard);
+        });
+
+        if (sharded && shardCount > 1) {
+            AtomicInteger threads = new AtomicInteger();
+            this.scatterPool = Executors.newFixedThreadPool(properties.getScatterThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "shard-scatter-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            log.info("Sharding enabled: {} shards, regions {}", shardCount, regions);
+        } else {
+            this.scatterPool = null;
+        }
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Shard of rides starting in this location
+     */
+    public int shardOfRegion(String location) {
+        if (location == null || shardCount == 1) {
+            return HOME_SHARD;
+        }
+        String region = normalize(location);
+        Integer shard = regions.get(region);
+        return shard != null ? shard : Math.floorMod(region.hashCode(), shardCount);
+    }
+
+    /**
+     * Shard holding the row with this id
+     *
+     * @throws ResourceNotFoundException if the id points to a shard that does not exist
+     */
+    public int shardOfId(long id) {
+        long shard = id >>> ID_SHARD_SHIFT;
+        if (shard >= shardCount) {
+            throw new ResourceNotFoundException("No shard holds id " + id);
+        }
+        return (int) shard;
+    }
+
+    /**
+     * Id of the value'th row created on shard
+     */
+    public static long shardId(int shard, long value) {
+        return ((long) shard << ID_SHARD_SHIFT) | value;
+    }
+
+    /**
+     * Shard of a @ShardKey value: id, start location, Ride, Booking, ShardKeyed
+     * or a collection of those (which must all be on one shard)
+     */
+    public int shardOf(Object key) {
+        if (key == null) {
+            return HOME_SHARD;
+        }
+        if (key instanceof Number id) {
+            return shardOfId(id.longValue());
+        }
+        if (key instanceof String location) {
+            return shardOfRegion(location);
+        }
+        if (key instanceof Ride ride) {
+            return ride.getId() != null ? shardOfId(ride.getId()) : shardOfRegion(ride.getStartLocation());
+        }
+        if (key instanceof Booking booking) {
+            return booking.getId() != null ? shardOfId(booking.getId()) : shardOf(booking.getRide());
+        }
+        if (key instanceof ShardKeyed keyed) {
+            return shardOf(keyed.shardKey());
+        }
+        if (key instanceof Collection<?> keys) {
+            Integer shard = null;
+            for (Object element : keys) {
+                int elementShard = shardOf(element);
+                if (shard != null && shard != elementShard) {
+                    throw new InvalidBookingException(
+                            "Rides of different regions cannot be changed together, send one request per region");
+                }
+                shard = elementShard;
+            }
+            return shard != null ? shard : HOME_SHARD;
+        }
+        throw new IllegalArgumentException("Not a shard key: " + key.getClass().getName());
+    }
+
+    /**
+     * Runs query on every shard (in parallel when there are several)
+     *
+     * @return one result per shard, in shard order
+     */
+    public <T> List<T> scatter(Supplier<T> query) {
+        if (scatterPool == null) {
+            return List.of(callOn(HOME_SHARD, query));
+        }
+
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(scatterPool.submit(() -> callOn(target, query)));
+        }
+
+        List<T> results = new ArrayList<>(shardCount);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * One page of rows spread over all shards, in the given order
+     *
+     * Every shard returns its first offset + limit rows (query must use the same order),
+     * the lists are merged and the page is cut out - deep pages cost shards x (offset + limit) rows.
+     */
+    public <T> List<T> gatherSlice(long offset, int limit, Comparator<? super T> order, SliceQuery<T> query) {
+        if (shardCount == 1) {
+            return query.slice(offset, limit);
+        }
+        int perShard = (int) Math.min(Integer.MAX_VALUE, offset + limit);
+        List<T> merged = new ArrayList<>();
+        scatter(() -> query.slice(0, perShard)).forEach(merged::addAll);
+        merged.sort(order);
+        return merged.stream().skip(offset).limit(limit).toList();
+    }
+
+    /**
+     * Runs task on each shard in turn (background jobs)
+     */
+    public void forEachShard(Runnable task) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            runOn(shard, task);
+        }
+    }
+
+    public <T> T callOn(int shard, Supplier<T> task) {
+        Integer previous = ShardContext.enter(shard);
+        try {
+            return task.get();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    public void runOn(int shard, Runnable task) {
+        callOn(shard, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scatterPool != null) {
+            scatterPool.shutdownNow();
+        }
+    }
+
+    private static String normalize(String location) {
+        return location.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,17 @@
+package com.carsharing.backend.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Gives each connection to the pool of the current shard (ShardContext, home shard if none)
+ *
+ * A transaction keeps the connection it started with, so ShardingAspect sets the shard
+ * before @Transactional opens the transaction.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.currentOrHome();
+    }
+}
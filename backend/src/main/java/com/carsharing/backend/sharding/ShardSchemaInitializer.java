@@ -0,0 +1,92 @@
+package com.carsharing.backend.sharding;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.DelayedDropAction;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies spring.jpa.hibernate.ddl-auto to shards 1..n as well
+ *
+ * Hibernate creates the schema of the home shard while it starts; the same mapping is then
+ * exported on every other shard (through ShardContext, so the routing datasource picks the shard),
+ * and with create-drop dropped again when Hibernate shuts down. Afterwards the users are copied
+ * to the new shards (UserReplicator).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "carsharing.sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardSchemaInitializer implements Integrator, HibernatePropertiesCustomizer, SmartInitializingSingleton {
+
+    private final ShardRouter router;
+    private final ObjectProvider<UserReplicator> userReplicator;
+
+    private final Map<Integer, DelayedDropAction> dropActions = new ConcurrentHashMap<>();
+    private volatile Metadata metadata;
+    private volatile SessionFactoryImplementor sessionFactory;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(this));
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.sessionFactory = sessionFactory;
+        sessionFactory.addObserver(new SessionFactoryObserver() {
+            @Override
+            public void sessionFactoryClosing(SessionFactory factory) {
+                dropShardSchemas();
+            }
+        });
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (metadata == null) {
+            throw new IllegalStateException("Hibernate did not start with the sharding integrator");
+        }
+        for (int shard = 1; shard < router.getShardCount(); shard++) {
+            int target = shard;
+            router.runOn(target, () -> SchemaManagementToolCoordinator.process(metadata,
+                    sessionFactory.getServiceRegistry(), sessionFactory.getProperties(),
+                    action -> dropActions.put(target, action)));
+        }
+        log.info("Schema applied to {} extra shards", router.getShardCount() - 1);
+        userReplicator.ifAvailable(UserReplicator::copyAll);
+    }
+
+    private void dropShardSchemas() {
+        dropActions.forEach((shard, action) -> {
+            try {
+                router.runOn(shard, () -> action.perform(sessionFactory.getServiceRegistry()));
+            } catch (RuntimeException e) {
+                log.warn("Schema of shard {} not dropped: {}", shard, e.getMessage());
+            }
+        });
+        dropActions.clear();
+    }
+}
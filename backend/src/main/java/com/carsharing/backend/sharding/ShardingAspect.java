@@ -0,0 +1,175 @@
+package com.carsharing.backend.sharding;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs service and repository calls on the right shard
+ *
+ * - a method with a @ShardKey parameter runs on the shard of that key, together with the
+ *   transaction it opens (order 1: outside @Transactional, inside TracingAspect)
+ * - a @ScatterGather method, or a RideRepository/BookingRepository read without a key,
+ *   runs on every shard in parallel and the results are merged
+ *
+ * Inside a shard (a keyed call, ShardRouter.runOn, a scatter task) repository calls stay on that shard.
+ * A transaction never spans shards: a keyed call for another shard inside a transaction fails.
+ */
+@Aspect
+@Component
+@Order(1)
+@ConditionalOnProperty(name = "carsharing.sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardingAspect {
+
+    private static final int NO_KEY = -1;
+
+    private static final Set<String> READ_PREFIXES = Set.of(
+            "find", "read", "get", "query", "search", "stream", "count", "exists");
+
+    private final ShardRouter router;
+
+    // method -> index of its @ShardKey parameter
+    private final Map<Method, Integer> keyParameters = new ConcurrentHashMap<>();
+
+    @Around("execution(* *(.., @com.carsharing.backend.sharding.ShardKey (*), ..))")
+    public Object keyed(ProceedingJoinPoint call) throws Throwable {
+        int keyIndex = keyParameter(method(call));
+        int shard = router.shardOf(keyIndex == NO_KEY ? null : call.getArgs()[keyIndex]);
+
+        int current = currentTransactionShard();
+        if (current == shard) {
+            return call.proceed();
+        }
+        if (current != NO_KEY) {
+            throw new IllegalStateException(call.getSignature().toShortString() + " needs shard " + shard
+                    + " but runs in a transaction on shard " + current + ", transactions cannot span shards");
+        }
+
+        Integer previous = ShardContext.enter(shard);
+        try {
+            return call.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    @Around("@annotation(com.carsharing.backend.sharding.ScatterGather)"
+            + " || ((this(com.carsharing.backend.repository.RideRepository)"
+            + "      || this(com.carsharing.backend.repository.BookingRepository))"
+            + "     && !execution(* *(.., @com.carsharing.backend.sharding.ShardKey (*), ..)))")
+    public Object scatter(ProceedingJoinPoint call) throws Throwable {
+        if (ShardContext.current() != null) {
+            return call.proceed();
+        }
+
+        Method method = method(call);
+        if (method.getDeclaringClass() == Object.class) {
+            return call.proceed();
+        }
+        if (!method.isAnnotationPresent(ScatterGather.class)) {
+            if (!isRead(method)) {
+                throw new IllegalStateException(call.getSignature().toShortString()
+                        + " writes without a @ShardKey, run it inside ShardRouter.runOn()");
+            }
+            for (Class<?> type : method.getParameterTypes()) {
+                if (Pageable.class.isAssignableFrom(type) || Sort.class.isAssignableFrom(type)) {
+                    throw new IllegalStateException(call.getSignature().toShortString()
+                            + " pages over all shards, use ShardRouter.gatherSlice()");
+                }
+            }
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException(call.getSignature().toShortString()
+                    + " reads all shards, it cannot run inside a transaction");
+        }
+
+        List<Object> results = router.scatter(() -> {
+            try {
+                return call.proceed();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return merge(method, results);
+    }
+
+    /**
+     * Shard of the transaction of this thread, NO_KEY if there is none
+     */
+    private static int currentTransactionShard() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return NO_KEY;
+        }
+        return ShardContext.currentOrHome();
+    }
+
+    private static Object merge(Method method, List<Object> results) {
+        Class<?> type = method.getReturnType();
+        if (type == void.class) {
+            return null;
+        }
+        if (List.class.isAssignableFrom(type) || type == Collection.class || type == Iterable.class) {
+            List<Object> merged = new ArrayList<>();
+            results.forEach(result -> merged.addAll((Collection<?>) result));
+            return merged;
+        }
+        if (type == long.class || type == Long.class) {
+            return results.stream().mapToLong(result -> (Long) result).sum();
+        }
+        if (type == int.class || type == Integer.class) {
+            return results.stream().mapToInt(result -> (Integer) result).sum();
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return results.stream().anyMatch(Boolean.TRUE::equals);
+        }
+        if (type == Optional.class) {
+            return results.stream().map(result -> (Optional<?>) result)
+                    .filter(Optional::isPresent).findFirst().orElse(Optional.empty());
+        }
+        throw new IllegalStateException("Cannot merge results of " + method.getName() + " from several shards");
+    }
+
+    private static boolean isRead(Method method) {
+        String name = method.getName();
+        return READ_PREFIXES.stream().anyMatch(name::startsWith);
+    }
+
+    private static Method method(ProceedingJoinPoint call) {
+        return ((MethodSignature) call.getSignature()).getMethod();
+    }
+
+    private int keyParameter(Method method) {
+        return keyParameters.computeIfAbsent(method, m -> {
+            Annotation[][] annotations = m.getParameterAnnotations();
+            for (int i = 0; i < annotations.length; i++) {
+                for (Annotation annotation : annotations[i]) {
+                    if (annotation instanceof ShardKey) {
+                        return i;
+                    }
+                }
+            }
+            return NO_KEY;
+        });
+    }
+}
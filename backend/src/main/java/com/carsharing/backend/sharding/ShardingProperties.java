@@ -0,0 +1,40 @@
+package com.carsharing.backend.sharding;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * carsharing.sharding.* - rides and bookings split over several databases by region
+ *
+ * Shard 0 is spring.datasource.* (home shard: users, tokens, idempotency records...),
+ * shards 1..n are shard-urls (same driver, username and password). Example:
+ *   carsharing.sharding.shard-urls=jdbc:h2:mem:shard1,jdbc:h2:mem:shard2
+ *   carsharing.sharding.regions.cluj=1
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("carsharing.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    // JDBC urls of shards 1..n
+    private List<String> shardUrls = new ArrayList<>();
+
+    // start location (lower case) -> shard; other locations are hashed over all shards
+    private Map<String, Integer> regions = new HashMap<>();
+
+    // connections per extra shard
+    private int poolSize = 10;
+
+    // threads running the per-shard parts of scatter-gather reads
+    private int scatterThreads = 16;
+}
@@ -0,0 +1,158 @@
+package com.carsharing.backend.sharding;
+
+import com.carsharing.backend.cluster.CacheRegion;
+import com.carsharing.backend.cluster.ClusterCoherence;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSetMetaData;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Copies users from the home shard to the other shards
+ *
+ * Rides and bookings reference their driver/passenger with foreign keys and read their name
+ * and rating in the same query, so every shard keeps a copy of the users table. The home shard
+ * is the only one written by UserService/RatingService; every write there invalidates region USER,
+ * and the invalidation (on this node right after commit, on the others when received) copies
+ * the row: UPDATE, INSERT if missing, DELETE if the user is gone. Copies are idempotent.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "carsharing.sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class UserReplicator implements ClusterCoherence.Listener {
+
+    private final ShardDataSources shards;
+    private final ClusterCoherence clusterCoherence;
+
+    @PostConstruct
+    void registerListener() {
+        clusterCoherence.register(this, CacheRegion.USER);
+    }
+
+    @Override
+    public void invalidate(CacheRegion region, String key) {
+        copy(Long.valueOf(key));
+    }
+
+    /**
+     * This node may have missed invalidations, copy everything
+     */
+    @Override
+    public void invalidateAll() {
+        copyAll();
+    }
+
+    /**
+     * Copies one user to every other shard, or deletes it there if it no longer exists
+     */
+    public void copy(long userId) {
+        SqlRowSet row = home().queryForRowSet("SELECT * FROM users WHERE id = ?", userId);
+        if (!row.next()) {
+            delete(userId);
+            return;
+        }
+        List<String> columns = columns(row.getMetaData());
+        Object[] values = values(row, columns);
+        for (int shard = 1; shard < shards.size(); shard++) {
+            upsert(new JdbcTemplate(shards.get(shard)), columns, List.<Object[]>of(values));
+        }
+    }
+
+    /**
+     * Copies all users, 500 rows per batch (startup and after missed invalidations)
+     */
+    public void copyAll() {
+        long lastId = Long.MIN_VALUE;
+        int copied = 0;
+        while (true) {
+            SqlRowSet rows = home().queryForRowSet(
+                    "SELECT * FROM users WHERE id > ? ORDER BY id FETCH FIRST 500 ROWS ONLY", lastId);
+            List<String> columns = columns(rows.getMetaData());
+            List<Object[]> batch = new ArrayList<>();
+            while (rows.next()) {
+                batch.add(values(rows, columns));
+                lastId = rows.getLong("id");
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (int shard = 1; shard < shards.size(); shard++) {
+                upsert(new JdbcTemplate(shards.get(shard)), columns, batch);
+            }
+            copied += batch.size();
+        }
+        log.info("Copied {} users to {} shards", copied, shards.size() - 1);
+    }
+
+    private void upsert(JdbcTemplate shard, List<String> columns, List<Object[]> rows) {
+        String update = "UPDATE users SET " + String.join(" = ?, ", columns.subList(1, columns.size()))
+                + " = ? WHERE id = ?";
+        String insert = "INSERT INTO users (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+
+        List<Object[]> updateArgs = rows.stream().map(values -> {
+            Object[] args = new Object[values.length];
+            System.arraycopy(values, 1, args, 0, values.length - 1);
+            args[values.length - 1] = values[0];
+            return args;
+        }).toList();
+        int[] updated = shard.batchUpdate(update, updateArgs);
+
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(rows.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            shard.batchUpdate(insert, missing);
+        }
+    }
+
+    private void delete(long userId) {
+        for (int shard = 1; shard < shards.size(); shard++) {
+            try {
+                new JdbcTemplate(shards.get(shard)).update("DELETE FROM users WHERE id = ?", userId);
+            } catch (DataAccessException e) {
+                // still referenced by rides/bookings of that shard, removed with them later
+                log.warn("User {} not deleted from shard {}: {}", userId, shard, e.getMessage());
+            }
+        }
+    }
+
+    private JdbcTemplate home() {
+        return new JdbcTemplate(shards.get(ShardRouter.HOME_SHARD));
+    }
+
+    // id first, the UPDATE relies on it
+    private static List<String> columns(SqlRowSetMetaData metaData) {
+        List<String> columns = new ArrayList<>();
+        columns.add("id");
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String column = metaData.getColumnName(i).toLowerCase(Locale.ROOT);
+            if (!column.equals("id")) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    private static Object[] values(SqlRowSet row, List<String> columns) {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            values[i] = row.getObject(columns.get(i));
+        }
+        return values;
+    }
+}
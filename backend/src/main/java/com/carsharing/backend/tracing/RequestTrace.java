@@ -0,0 +1,167 @@
+package com.carsharing.backend.tracing;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timings of one HTTP request, kept by the thread that serves it
+ *
+ * - Spans nest (filter -> controller -> service -> repository ...), time is counted per phase
+ *   as self time: a service span does not count the repository calls inside it
+ * - SQL statements are attributed to the phase that was running when they executed
+ * - Spans and statements are capped (max-spans / max-statements), phase totals always stay complete
+ *
+ * Not thread-safe: only the request thread writes, the trace is read after finish().
+ */
+public class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    public enum Phase {
+        FILTER, AUTH, PASSWORD, CONTROLLER, SERVICE, REPOSITORY, MAPPER, SERIALIZATION
+    }
+
+    public record Span(Phase phase, String name, int depth, long startMicros, long durationMicros) {
+    }
+
+    public record Statement(String sql, int batchSize, long durationMicros, Phase phase, boolean success) {
+    }
+
+    @Getter
+    private final String traceId;
+    @Getter
+    private final String method;
+    @Getter
+    private final String path;
+    @Getter
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startNanos = System.nanoTime();
+
+    private final List<Span> spans = new ArrayList<>();
+    private final List<Statement> statements = new ArrayList<>();
+    private final long[] phaseNanos = new long[Phase.values().length];
+    @Getter
+    private int droppedSpans;
+    @Getter
+    private int droppedStatements;
+    @Getter
+    private int sqlCount;
+    @Getter
+    private long sqlNanos;
+
+    @Getter
+    private String user;
+    @Getter
+    private int status;
+    @Getter
+    private long durationNanos;
+
+    private final ArrayDeque<Frame> open = new ArrayDeque<>();
+    private final int maxSpans;
+    private final int maxStatements;
+    private long sqlStartNanos;
+
+    RequestTrace(String traceId, String method, String path, int maxSpans, int maxStatements) {
+        this.traceId = traceId;
+        this.method = method;
+        this.path = path;
+        this.maxSpans = maxSpans;
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * Trace of the request served by this thread, null outside of a request (jobs, analytics workers)
+     */
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    static void bind(RequestTrace trace) {
+        CURRENT.set(trace);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    public void enter(Phase phase, String name) {
+        open.push(new Frame(phase, name, System.nanoTime()));
+    }
+
+    public void exit() {
+        Frame frame = open.pop();
+        long duration = System.nanoTime() - frame.startNanos;
+        phaseNanos[frame.phase.ordinal()] += duration - frame.childNanos;
+        if (!open.isEmpty()) {
+            open.peek().childNanos += duration;
+        }
+        if (spans.size() < maxSpans) {
+            spans.add(new Span(frame.phase, frame.name, open.size(),
+                    (frame.startNanos - startNanos) / 1000, duration / 1000));
+        } else {
+            droppedSpans++;
+        }
+    }
+
+    void sqlStarted() {
+        sqlStartNanos = System.nanoTime();
+    }
+
+    void sqlFinished(String sql, int batchSize, boolean success) {
+        long duration = System.nanoTime() - sqlStartNanos;
+        sqlCount++;
+        sqlNanos += duration;
+        if (statements.size() < maxStatements) {
+            statements.add(new Statement(sql, batchSize, duration / 1000, currentPhase(), success));
+        } else {
+            droppedStatements++;
+        }
+    }
+
+    private Phase currentPhase() {
+        return open.isEmpty() ? Phase.FILTER : open.peek().phase;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    void finish(int status) {
+        this.status = status;
+        this.durationNanos = System.nanoTime() - startNanos;
+    }
+
+    public long getDurationMillis() {
+        return durationNanos / 1_000_000;
+    }
+
+    public List<Span> getSpans() {
+        return Collections.unmodifiableList(spans);
+    }
+
+    public List<Statement> getStatements() {
+        return Collections.unmodifiableList(statements);
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    private static final class Frame {
+        private final Phase phase;
+        private final String name;
+        private final long startNanos;
+        private long childNanos;
+
+        private Frame(Phase phase, String name, long startNanos) {
+            this.phase = phase;
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+    }
+}
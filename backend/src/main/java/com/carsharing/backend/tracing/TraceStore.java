@@ -0,0 +1,137 @@
+package com.carsharing.backend.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the slowest finished requests of the last window-minutes and writes the slow-request log
+ *
+ * - Requests over slow-ms: one JSON line on the logger "slow-requests" (phases, SQL totals, slowest statements)
+ * - The keep slowest traces are held in a min-heap; a request faster than the fastest kept one
+ *   is dropped with a single volatile read, so most requests never take the lock
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "carsharing.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TraceStore {
+
+    private static final Logger slowLog = LoggerFactory.getLogger("slow-requests");
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${carsharing.tracing.slow-ms:500}")
+    private long slowMillis;
+
+    @Value("${carsharing.tracing.keep:50}")
+    private int keep;
+
+    @Value("${carsharing.tracing.window-minutes:60}")
+    private long windowMinutes;
+
+    private final PriorityQueue<RequestTrace> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(RequestTrace::getDurationNanos));
+
+    // duration a new trace must beat to be kept, 0 while the heap is not full
+    private volatile long admissionNanos;
+
+    public void finished(RequestTrace trace) {
+        if (trace.getDurationMillis() >= slowMillis) {
+            logSlow(trace);
+        }
+        if (trace.getDurationNanos() <= admissionNanos) {
+            return;
+        }
+        synchronized (slowest) {
+            slowest.add(trace);
+            if (slowest.size() > keep) {
+                slowest.poll();
+            }
+            updateAdmission();
+        }
+    }
+
+    /**
+     * Kept traces, slowest first
+     */
+    public List<RequestTrace> getSlowest() {
+        List<RequestTrace> traces;
+        synchronized (slowest) {
+            traces = new ArrayList<>(slowest);
+        }
+        traces.sort(Comparator.comparingLong(RequestTrace::getDurationNanos).reversed());
+        return traces;
+    }
+
+    public Optional<RequestTrace> find(String traceId) {
+        synchronized (slowest) {
+            return slowest.stream().filter(t -> t.getTraceId().equals(traceId)).findFirst();
+        }
+    }
+
+    /**
+     * Drops traces older than the window, so the list shows recent slow requests
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictOld() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(windowMinutes);
+        synchronized (slowest) {
+            if (slowest.removeIf(t -> t.getStartedAt().isBefore(cutoff))) {
+                updateAdmission();
+            }
+        }
+    }
+
+    private void updateAdmission() {
+        admissionNanos = slowest.size() < keep ? 0 : slowest.peek().getDurationNanos();
+    }
+
+    private void logSlow(RequestTrace trace) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("traceId", trace.getTraceId());
+        entry.put("method", trace.getMethod());
+        entry.put("path", trace.getPath());
+        entry.put("status", trace.getStatus());
+        entry.put("user", trace.getUser());
+        entry.put("durationMs", trace.getDurationMillis());
+
+        Map<String, Double> phases = new LinkedHashMap<>();
+        for (RequestTrace.Phase phase : RequestTrace.Phase.values()) {
+            long nanos = trace.getPhaseNanos(phase);
+            if (nanos > 0) {
+                phases.put(phase.name().toLowerCase(), nanos / 1_000_000.0);
+            }
+        }
+        entry.put("phasesMs", phases);
+        entry.put("sqlCount", trace.getSqlCount());
+        entry.put("sqlMs", trace.getSqlNanos() / 1_000_000.0);
+        entry.put("slowestSql", trace.getStatements().stream()
+                .sorted(Comparator.comparingLong(RequestTrace.Statement::durationMicros).reversed())
+                .limit(5)
+                .map(s -> Map.of("sql", s.sql(), "ms", s.durationMicros() / 1000.0, "phase", s.phase()))
+                .toList());
+
+        try {
+            slowLog.warn(objectMapper.writeValueAsString(entry));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not write slow request {}", trace.getTraceId(), e);
+        }
+    }
+}
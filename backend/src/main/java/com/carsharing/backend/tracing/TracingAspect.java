@@ -0,0 +1,66 @@
+package com.carsharing.backend.tracing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records a span for every call into controllers, services, repositories, mappers,
+ * JWT/user lookup and the password encoder, while a request is traced
+ *
+ * Runs outside @Transactional (order 0), so a service span includes its commit and flush.
+ * Outside of a request (jobs, analytics workers) the cost is one ThreadLocal read.
+ */
+@Aspect
+@Component
+@Order(0)
+@ConditionalOnProperty(name = "carsharing.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingAspect {
+
+    @Around("within(@org.springframework.web.bind.annotation.RestController *)")
+    public Object controller(ProceedingJoinPoint call) throws Throwable {
+        return trace(call, RequestTrace.Phase.CONTROLLER);
+    }
+
+    @Around("within(@org.springframework.stereotype.Service *) && !within(com.carsharing.backend.security..*)")
+    public Object service(ProceedingJoinPoint call) throws Throwable {
+        return trace(call, RequestTrace.Phase.SERVICE);
+    }
+
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object repository(ProceedingJoinPoint call) throws Throwable {
+        return trace(call, RequestTrace.Phase.REPOSITORY);
+    }
+
+    @Around("within(com.carsharing.backend.mapper..*)")
+    public Object mapper(ProceedingJoinPoint call) throws Throwable {
+        return trace(call, RequestTrace.Phase.MAPPER);
+    }
+
+    // token parsing and user lookup of JwtAuthenticationFilter (the filter itself is not proxied)
+    @Around("within(com.carsharing.backend.security..*) && !within(jakarta.servlet.Filter+)")
+    public Object auth(ProceedingJoinPoint call) throws Throwable {
+        return trace(call, RequestTrace.Phase.AUTH);
+    }
+
+    @Around("execution(* org.springframework.security.crypto.password.PasswordEncoder.*(..))")
+    public Object password(ProceedingJoinPoint call) throws Throwable {
+        return trace(call, RequestTrace.Phase.PASSWORD);
+    }
+
+    private Object trace(ProceedingJoinPoint call, RequestTrace.Phase phase) throws Throwable {
+        RequestTrace trace = RequestTrace.current();
+        if (trace == null) {
+            return call.proceed();
+        }
+        trace.enter(phase, call.getSignature().getDeclaringType().getSimpleName() + "." + call.getSignature().getName());
+        try {
+            return call.proceed();
+        } finally {
+            trace.exit();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.carsharing.backend.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * The two spans the aspect cannot see:
+ * 1. SQL - every statement of the proxied "dataSource" (see DataSourceProxyConfig) is added to the current trace
+ * 2. SERIALIZATION - the Jackson converter records the time it takes to write the response body
+ *    (with open-in-view this includes lazy loads triggered by returned entities)
+ */
+@Configuration
+@ConditionalOnProperty(name = "carsharing.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingConfig {
+
+    @Bean
+    public SqlTraceListener sqlTraceListener() {
+        return new SqlTraceListener();
+    }
+
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException, HttpMessageNotWritableException {
+                RequestTrace trace = RequestTrace.current();
+                if (trace == null) {
+                    super.writeInternal(object, type, outputMessage);
+                    return;
+                }
+                trace.enter(RequestTrace.Phase.SERIALIZATION, type != null ? type.getTypeName() : object.getClass().getSimpleName());
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    trace.exit();
+                }
+            }
+        };
+    }
+
+    static class SqlTraceListener implements QueryExecutionListener {
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            RequestTrace trace = RequestTrace.current();
+            if (trace != null) {
+                trace.sqlStarted();
+            }
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            RequestTrace trace = RequestTrace.current();
+            if (trace == null || queryInfoList.isEmpty()) {
+                return;
+            }
+            String sql = queryInfoList.size() == 1
+                    ? queryInfoList.get(0).getQuery()
+                    : queryInfoList.get(0).getQuery() + " (+" + (queryInfoList.size() - 1) + " more)";
+            trace.sqlFinished(sql, Math.max(execInfo.getBatchSize(), 1), execInfo.isSuccess());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.carsharing.backend.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * First filter of every request: starts its RequestTrace, ends it when the response is done
+ *
+ * - Trace id: X-Trace-Id request header when the caller sends one (e.g. from a gateway), otherwise new
+ * - The id is returned in the X-Trace-Id response header and put into the log MDC as traceId
+ * - The FILTER phase is the time outside controllers/services (security chain, other filters, Spring MVC)
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "carsharing.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Trace-Id";
+    public static final String MDC_KEY = "traceId";
+
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9-]{8,64}");
+
+    private final TraceStore traceStore;
+
+    @Value("${carsharing.tracing.max-spans:256}")
+    private int maxSpans;
+
+    @Value("${carsharing.tracing.max-statements:100}")
+    private int maxStatements;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/h2-console");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        RequestTrace trace = new RequestTrace(traceId(request), request.getMethod(), request.getRequestURI(),
+                maxSpans, maxStatements);
+        RequestTrace.bind(trace);
+        MDC.put(MDC_KEY, trace.getTraceId());
+        response.setHeader(HEADER, trace.getTraceId());
+
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        trace.enter(RequestTrace.Phase.FILTER, request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            trace.exit();
+            trace.finish(status);
+            RequestTrace.unbind();
+            traceStore.finished(trace);
+            MDC.remove(MDC_KEY);
+        }
+    }
+
+    private String traceId(HttpServletRequest request) {
+        String incoming = request.getHeader(HEADER);
+        if (incoming != null && VALID_ID.matcher(incoming).matches()) {
+            return incoming;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return Long.toHexString(random.nextLong() | Long.MIN_VALUE) + Long.toHexString(random.nextLong() | Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,243 @@
+package com.carsharing.backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Smoke test of the fast-startup build (mvn -Pfast-startup verify, see pom.xml)
+ *
+ * Starts the default jar and the optimized one (AOT + CDS archive + lazy beans) as separate JVMs,
+ * one after the other, and reports startup time and time-to-first-request of both.
+ * Then calls one endpoint of every controller on the optimized build.
+ */
+class FastStartupSmokeIT {
+
+    private static final Pattern STARTED = Pattern.compile("Started BackendApplication in ([0-9.]+) seconds");
+    private static final Duration START_TIMEOUT = Duration.ofSeconds(120);
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Process> processes = new ArrayList<>();
+
+    @AfterEach
+    void stopApps() throws InterruptedException {
+        for (Process process : processes) {
+            process.destroy();
+            process.waitFor(30, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void optimizedBuildStartsFasterAndServesAllControllers() throws Exception {
+        String defaultJar = System.getProperty("fast-startup.default-jar");
+        String fastStartupDir = System.getProperty("fast-startup.dir");
+        assumeTrue(defaultJar != null && fastStartupDir != null, "run with mvn -Pfast-startup verify");
+
+        Startup baseline = start("default", new File(defaultJar).getParentFile(),
+                List.of("-jar", defaultJar, "--spring.jpa.show-sql=false"));
+        stop(baseline);
+
+        Startup optimized = start("fast-startup", new File(fastStartupDir),
+                List.of("-XX:SharedArchiveFile=application.jsa", "-Dspring.aot.enabled=true",
+                        "-jar", System.getProperty("fast-startup.jar"),
+                        "--spring.profiles.active=faststart"));
+
+        String report = String.format("""
+                        Startup report (%s)
+                                        started in    first request
+                          default        %6d ms       %6d ms
+                          fast-startup   %6d ms       %6d ms
+                        """, LocalDateTime.now(),
+                baseline.startedMs(), baseline.firstRequestMs(),
+                optimized.startedMs(), optimized.firstRequestMs());
+        Files.writeString(Path.of(fastStartupDir, "startup-report.txt"), report);
+
+        callEveryController(optimized.port());
+    }
+
+    /**
+     * One request per controller, each one creates the beans it needs on the lazy build
+     */
+    private void callEveryController(int port) throws Exception {
+        String base = "http://localhost:" + port;
+
+        // AuthController
+        JsonNode driver = post(base + "/api/auth/register", null, """
+                {"email":"driver@smoke.test","password":"parola123","fullName":"Smoke Driver"}""", 201);
+        JsonNode passenger = post(base + "/api/auth/register", null, """
+                {"email":"passenger@smoke.test","password":"parola123","fullName":"Smoke Passenger"}""", 201);
+        JsonNode admin = post(base + "/api/auth/register", null, """
+                {"email":"admin@smoke.test","password":"parola123","fullName":"Smoke Admin","role":"ADMIN"}""", 201);
+        post(base + "/api/auth/login", null, """
+                {"email":"driver@smoke.test","password":"parola123"}""", 200);
+        String driverToken = driver.get("token").asText();
+        String passengerToken = passenger.get("token").asText();
+        String adminToken = admin.get("token").asText();
+
+        // RideController
+        JsonNode ride = post(base + "/api/rides", driverToken, """
+                {"startLocation":"Cluj","endLocation":"Sibiu","departureTime":"%s","totalSeats":4,
+                 "pricePerSeat":30,"driver":{"id":%d}}"""
+                .formatted(LocalDateTime.now().plusDays(1).withNano(0), driver.get("id").asLong()), 201);
+        long rideId = ride.get("id").asLong();
+        get(base + "/api/rides", null, 200);
+
+        // SeatHoldController
+        post(base + "/api/rides/" + rideId + "/holds", passengerToken, """
+                {"seats":1}""", 201);
+
+        // BookingController
+        post(base + "/api/bookings", passengerToken, """
+                {"rideId":%d,"seatsBooked":1}""".formatted(rideId), 201);
+
+        // UserController
+        get(base + "/api/users/" + passenger.get("id").asLong(), passengerToken, 200);
+
+        // DriverController
+        get(base + "/api/drivers/" + driver.get("id").asLong() + "/dashboard", driverToken, 200);
+
+        // RideRequestController
+        LocalDateTime earliest = LocalDateTime.now().plusDays(1).withNano(0);
+        post(base + "/api/ride-requests", passengerToken, """
+                {"startLocation":"Cluj","endLocation":"Sibiu","earliestDeparture":"%s",
+                 "latestDeparture":"%s","seats":1}""".formatted(earliest, earliest.plusHours(4)), 201);
+        get(base + "/api/ride-requests", passengerToken, 200);
+
+        // AnalyticsController
+        get(base + "/api/admin/analytics/routes", adminToken, 200);
+
+        // ExportController (CSV, not JSON)
+        String csv = send(request(base + "/api/admin/exports/rides", adminToken).GET().build(), 200,
+                HttpResponse.BodyHandlers.ofString()).body();
+        assertTrue(csv.startsWith("id,"), "export of rides: " + csv);
+
+        // MatchingController, LedgerController, ClusterController, AdmissionController,
+        // QueryBudgetController, TraceController
+        get(base + "/api/admin/matching", adminToken, 200);
+        get(base + "/api/admin/ledger", adminToken, 200);
+        get(base + "/api/admin/cluster", adminToken, 200);
+        get(base + "/api/admin/admission", adminToken, 200);
+        get(base + "/api/admin/query-budget", adminToken, 200);
+        get(base + "/api/admin/traces", adminToken, 200);
+    }
+
+    private Startup start(String name, File workingDir, List<String> args) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(args);
+        command.add("--server.port=" + port);
+
+        Path log = Path.of(workingDir.getPath(), name + "-startup.log");
+        long startNanos = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(workingDir)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        processes.add(process);
+
+        long deadline = startNanos + START_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + log);
+            }
+            try {
+                HttpResponse<String> response = http.send(
+                        HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/rides")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    long firstRequestMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                    return new Startup(process, port, startedMs(log), firstRequestMs);
+                }
+            } catch (ConnectException e) {
+                // not listening yet
+            }
+            Thread.sleep(20);
+        }
+        throw new IllegalStateException(name + " did not answer within " + START_TIMEOUT + ", see " + log);
+    }
+
+    private void stop(Startup startup) throws InterruptedException {
+        startup.process().destroy();
+        startup.process().waitFor(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Startup time as reported by Spring Boot in the log
+     */
+    private long startedMs(Path log) throws IOException {
+        Matcher matcher = STARTED.matcher(Files.readString(log));
+        return matcher.find() ? Math.round(Double.parseDouble(matcher.group(1)) * 1000) : -1;
+    }
+
+    private JsonNode get(String url, String token, int expectedStatus) throws Exception {
+        return send(request(url, token).GET().build(), expectedStatus);
+    }
+
+    private JsonNode post(String url, String token, String body, int expectedStatus) throws Exception {
+        return send(request(url, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), expectedStatus);
+    }
+
+    private HttpRequest.Builder request(String url, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private JsonNode send(HttpRequest request, int expectedStatus) throws Exception {
+        HttpResponse<String> response = send(request, expectedStatus, HttpResponse.BodyHandlers.ofString());
+        JsonNode body = response.body().isEmpty() ? null : objectMapper.readTree(response.body());
+        if (expectedStatus < 300) {
+            assertNotNull(body, request.method() + " " + request.uri() + " returned no body");
+        }
+        return body;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, int expectedStatus, HttpResponse.BodyHandler<T> handler)
+            throws Exception {
+        HttpResponse<T> response = http.send(request, handler);
+        assertEquals(expectedStatus, response.statusCode(),
+                request.method() + " " + request.uri() + " -> " + response.body());
+        return response;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Startup(Process process, int port, long startedMs, long firstRequestMs) {
+    }
+}
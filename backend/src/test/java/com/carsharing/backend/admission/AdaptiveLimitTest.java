@@ -0,0 +1,74 @@
+package com.carsharing.backend.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The gradient limit fed with synthetic response times: it grows while requests are as fast as usual
+ * and the limit is in use, shrinks once they get slower, and stays between min and max
+ */
+class AdaptiveLimitTest {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+
+    @Test
+    void shrinksWhenLatencyRises() {
+        AdaptiveLimit limit = new AdaptiveLimit(100, 10, 200, TOLERANCE, SMOOTHING);
+        for (int i = 0; i < 20; i++) {
+            sample(limit, 10, limit.getLimit());
+        }
+        int before = limit.getLimit();
+        assertTrue(before > 100, "grew to " + before);
+
+        // 5x slower than usual: the gradient drops to its floor
+        int previous = before;
+        for (int i = 0; i < 20; i++) {
+            sample(limit, 50, limit.getLimit());
+            if (i > 1) {
+                assertTrue(limit.getLimit() <= previous, "sample " + i + ": " + previous + " -> " + limit.getLimit());
+            }
+            previous = limit.getLimit();
+        }
+        assertTrue(limit.getLimit() < before / 2, before + " -> " + limit.getLimit());
+    }
+
+    @Test
+    void growsOnlyWhileHalfTheLimitIsUsed() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 4, 200, TOLERANCE, SMOOTHING);
+        sample(limit, 10, 1);
+
+        // fast but mostly idle: says nothing about a higher limit
+        for (int i = 0; i < 50; i++) {
+            sample(limit, 10, 9);
+        }
+        assertEquals(20, limit.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            sample(limit, 10, limit.getLimit());
+        }
+        assertTrue(limit.getLimit() > 20, "limit " + limit.getLimit());
+    }
+
+    @Test
+    void staysBetweenMinAndMax() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 10, 40, TOLERANCE, SMOOTHING);
+        for (int i = 0; i < 200; i++) {
+            sample(limit, 10, limit.getLimit());
+        }
+        assertEquals(40, limit.getLimit());
+
+        // 10x slower: would shrink towards 4 without the min
+        for (int i = 0; i < 40; i++) {
+            sample(limit, 100, limit.getLimit());
+        }
+        assertEquals(10, limit.getLimit());
+    }
+
+    private static void sample(AdaptiveLimit limit, long rttMillis, int inflightAtStart) {
+        assertTrue(limit.tryAcquire(1.0));
+        limit.release(rttMillis * 1_000_000, inflightAtStart);
+    }
+}
@@ -0,0 +1,69 @@
+package com.carsharing.backend.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Which Authorization headers keep a read out of the anonymous share, and how much of the READ limit
+ * that share is while booking writes are (not) at their limit
+ */
+class AdmissionFilterTest {
+
+    @Test
+    void onlyABearerJwtCountsAsLoggedIn() {
+        assertTrue(AdmissionFilter.hasBearerJwt("Bearer eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJpb24ifQ.Xy-Z_09"));
+
+        assertFalse(AdmissionFilter.hasBearerJwt(null));
+        assertFalse(AdmissionFilter.hasBearerJwt(""));
+        assertFalse(AdmissionFilter.hasBearerJwt("x"));
+        assertFalse(AdmissionFilter.hasBearerJwt("Bearer "));
+        assertFalse(AdmissionFilter.hasBearerJwt("Bearer x"));
+        assertFalse(AdmissionFilter.hasBearerJwt("Basic aW9uOnBhcm9sYQ=="));
+        assertFalse(AdmissionFilter.hasBearerJwt("bearer a.b.c"));
+        assertFalse(AdmissionFilter.hasBearerJwt("Bearer a.b"));
+        assertFalse(AdmissionFilter.hasBearerJwt("Bearer a.b.c.d"));
+        assertFalse(AdmissionFilter.hasBearerJwt("Bearer a..c"));
+        assertFalse(AdmissionFilter.hasBearerJwt("Bearer a.b."));
+        assertFalse(AdmissionFilter.hasBearerJwt("Bearer a.b.c d"));
+        assertFalse(AdmissionFilter.hasBearerJwt("Bearer a+b.c/d.e="));
+        assertFalse(AdmissionFilter.hasBearerJwt("Bearer " + "a".repeat(9000) + ".b.c"));
+    }
+
+    @Test
+    void anonymousShareShrinksWhileWritesAreAtTheirLimit() {
+        AdmissionFilter filter = new AdmissionFilter(new AdmissionProperties(), new ObjectMapper());
+        AdaptiveLimit reads = filter.limit(RequestClass.READ);
+        AdaptiveLimit writes = filter.limit(RequestClass.WRITE);
+
+        // 0.7 of 20
+        assertEquals(14, acquireAll(reads, filter.anonymousShare()));
+        releaseAll(reads, 14);
+
+        assertEquals(20, acquireAll(writes, 1.0));
+        // 0.25 of 20, logged in users still get the rest
+        assertEquals(5, acquireAll(reads, filter.anonymousShare()));
+        assertTrue(reads.tryAcquire(1.0));
+        releaseAll(reads, 6);
+
+        writes.release();
+        assertEquals(0.7, filter.anonymousShare());
+    }
+
+    private static int acquireAll(AdaptiveLimit limit, double share) {
+        int acquired = 0;
+        while (limit.tryAcquire(share)) {
+            acquired++;
+        }
+        return acquired;
+    }
+
+    private static void releaseAll(AdaptiveLimit limit, int count) {
+        for (int i = 0; i < count; i++) {
+            limit.release();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.carsharing.backend.cluster;
+
+import com.carsharing.backend.BackendApplication;
+import com.carsharing.backend.dto.RideResponse;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.security.CustomUserDetailsService;
+import com.carsharing.backend.service.BookingService;
+import com.carsharing.backend.service.RideDetailsCache;
+import com.carsharing.backend.service.UserService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two backend instances in one JVM sharing one database: a write on node A reaches
+ * the caches of node B within the staleness bound
+ */
+class ClusterCoherenceTest {
+
+    private static final long MAX_STALENESS_MS = 2000;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode("a", "create-drop");
+        nodeB = startNode("b", "none");  // schema already created by node A
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void bookingOnOneNodeInvalidatesRideCachedOnTheOther() {
+        User driver = nodeA.getBean(UserRepository.class).save(user("driver@cluster.test"));
+        User passenger = nodeA.getBean(UserRepository.class).save(user("passenger@cluster.test"));
+        Ride ride = nodeA.getBean(RideRepository.class).save(ride(driver));
+
+        RideDetailsCache cacheB = nodeB.getBean(RideDetailsCache.class);
+        assertEquals(4, cacheB.getRide(ride.getId()).map(RideResponse::getAvailableSeats).orElseThrow());
+
+        nodeA.getBean(BookingService.class).createBooking(passenger.getId(), ride.getId(), 3);
+
+        long converged = awaitMillis(() -> cacheB.getRide(ride.getId()).orElseThrow().getAvailableSeats() == 1);
+        assertTrue(converged < MAX_STALENESS_MS, "converged after " + converged + " ms");
+
+        ClusterCoherence.Status status = nodeB.getBean(ClusterCoherence.class).getStatus();
+        assertTrue(status.received() > 0);
+        assertTrue(status.cachingAllowed());
+    }
+
+    @Test
+    void deletedUserIsDroppedFromUserDetailsCachedOnTheOtherNode() {
+        User user = nodeA.getBean(UserRepository.class).save(user("deleted@cluster.test"));
+
+        CustomUserDetailsService userDetailsB = nodeB.getBean(CustomUserDetailsService.class);
+        userDetailsB.loadUserByUsername(user.getEmail());
+
+        nodeA.getBean(UserService.class).deleteUser(user.getId());
+
+        long converged = awaitMillis(() -> {
+            try {
+                userDetailsB.loadUserByUsername(user.getEmail());
+                return false;
+            } catch (UsernameNotFoundException e) {
+                return true;
+            }
+        });
+        assertTrue(converged < MAX_STALENESS_MS, "converged after " + converged + " ms");
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsB.loadUserByUsername(user.getEmail()));
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId, String ddlAuto) {
+        // command line arguments, they override application.properties
+        return new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:cluster-test;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                "--spring.h2.console.enabled=false",
+                "--carsharing.cluster.node-id=" + nodeId,
+                "--carsharing.cluster.poll-interval-ms=50",
+                "--carsharing.cluster.max-staleness-ms=" + MAX_STALENESS_MS,
+                "--carsharing.lifecycle.enabled=false",
+                "--carsharing.archive.enabled=false",
+                "--carsharing.outbox.enabled=false",
+                "--carsharing.dashboard.reconcile.enabled=false");
+    }
+
+    private static long awaitMillis(BooleanSupplier condition) {
+        long start = System.currentTimeMillis();
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() - start > MAX_STALENESS_MS * 5) {
+                throw new AssertionError("not converged after " + (System.currentTimeMillis() - start) + " ms");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setFullName(email);
+        return user;
+    }
+
+    private static Ride ride(User driver) {
+        Ride ride = new Ride();
+        ride.setStartLocation("Cluj");
+        ride.setEndLocation("Sibiu");
+        ride.setDepartureTime(LocalDateTime.now().plusDays(1));
+        ride.setTotalSeats(4);
+        ride.setAvailableSeats(4);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setDriver(driver);
+        return ride;
+    }
+}
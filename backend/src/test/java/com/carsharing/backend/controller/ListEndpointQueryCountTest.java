@@ -0,0 +1,176 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.querycount.QueryCounter;
+import com.carsharing.backend.repository.BookingRepository;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * N+1 guard: list endpoints run the same number of statements for 1, 10 and 1000 rows
+ * (drivers, passengers and rides are all different, so every lazy load would show up)
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(roles = "ADMIN")
+class ListEndpointQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    private List<User> drivers;
+    private List<User> passengers;
+    private List<Ride> rides;
+
+    @AfterEach
+    void cleanUp() {
+        bookingRepository.deleteAllInBatch();
+        rideRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 1000})
+    void rideListsLoadDriversInTheSameQuery(int rows) throws Exception {
+        createRidesAndBookings(rows);
+
+        assertStatements(1, get("/api/rides"), rows);
+        assertStatements(1, get("/api/rides/search").param("from", "Cluj").param("to", "Brasov"), rows);
+        assertStatements(1, get("/api/rides/upcoming"), rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 1000})
+    void bookingListsLoadPassengersAndRidesInTheSameQuery(int rows) throws Exception {
+        createRidesAndBookings(rows);
+
+        assertStatements(1, get("/api/bookings"), 2 * rows - 1);
+        // existence check of the passenger/ride + the list
+        assertStatements(2, get("/api/bookings/passenger/" + passengers.get(0).getId()), rows);
+        assertStatements(2, get("/api/bookings/ride/" + rides.get(0).getId()), rows);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 1000})
+    void multiGetAndSparseFieldsReadOnlyWhatIsAsked(int rows) throws Exception {
+        createRidesAndBookings(rows);
+        String rideIds = ids(rides.stream().limit(100).map(Ride::getId).toList());
+        int requested = Math.min(rows, 100);
+
+        assertStatements(1, get("/api/rides").param("ids", rideIds), requested);
+        // no driver field, no join with users
+        Map<String, Integer> statements = assertStatements(1,
+                get("/api/rides").param("ids", rideIds).param("fields", "startLocation,availableSeats,driverId"),
+                requested);
+        assertFalse(statements.keySet().stream().anyMatch(sql -> sql.toLowerCase().contains("join")),
+                statements::toString);
+        assertStatements(1, get("/api/rides/upcoming").param("fields", "driverName"), rows);
+
+        List<Long> bookingIds = bookingRepository.findAll().stream().limit(100).map(Booking::getId).toList();
+        assertStatements(1, get("/api/bookings").param("ids", ids(bookingIds)), bookingIds.size());
+        assertStatements(1, get("/api/bookings").param("ids", ids(bookingIds)).param("fields", "rideId,status"),
+                bookingIds.size());
+
+        mockMvc.perform(get("/api/rides").param("fields", "driverPassword"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Map<String, Integer> assertStatements(int expected, RequestBuilder request, int expectedRows)
+            throws Exception {
+        try (QueryCounter.Scope scope = QueryCounter.start()) {
+            mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(expectedRows));
+            assertEquals(expected, scope.getCount(), scope::describe);
+            return scope.getPatterns();
+        }
+    }
+
+    private static String ids(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    /**
+     * rows drivers with one ride each, rows passengers;
+     * the first passenger books every ride, every passenger books the first ride
+     */
+    private void createRidesAndBookings(int rows) {
+        drivers = new ArrayList<>();
+        passengers = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            drivers.add(user("driver" + i + "@count.test"));
+            passengers.add(user("passenger" + i + "@count.test"));
+        }
+        userRepository.saveAll(drivers);
+        userRepository.saveAll(passengers);
+
+        rides = new ArrayList<>();
+        for (User driver : drivers) {
+            Ride ride = new Ride();
+            ride.setStartLocation("Cluj");
+            ride.setEndLocation("Brasov");
+            ride.setDepartureTime(LocalDateTime.now().plusDays(1));
+            ride.setTotalSeats(rows + 1);
+            ride.setAvailableSeats(rows + 1);
+            ride.setPricePerSeat(BigDecimal.TEN);
+            ride.setDriver(driver);
+            rides.add(ride);
+        }
+        rideRepository.saveAll(rides);
+
+        List<Booking> bookings = new ArrayList<>();
+        rides.forEach(ride -> bookings.add(booking(passengers.get(0), ride)));
+        passengers.subList(1, rows).forEach(passenger -> bookings.add(booking(passenger, rides.get(0))));
+        bookingRepository.saveAll(bookings);
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setFullName(email);
+        return user;
+    }
+
+    private Booking booking(User passenger, Ride ride) {
+        Booking booking = new Booking();
+        booking.setPassenger(passenger);
+        booking.setRide(ride);
+        booking.setSeatsBooked(1);
+        booking.setTotalPrice(BigDecimal.TEN);
+        return booking;
+    }
+}
@@ -0,0 +1,128 @@
+package com.carsharing.backend.controller;
+
+import com.carsharing.backend.dto.AuthResponse;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.RefreshTokenRepository;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /api/rides/bulk: only for logged-in users, and only admins import rides in another driver's name
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class RideImportControllerTest {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @AfterEach
+    void cleanUp() {
+        rideRepository.deleteAllInBatch();
+        refreshTokenRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void anonymousImportIsRejected() throws Exception {
+        mockMvc.perform(post("/api/rides/bulk").contentType(NDJSON).content(line(null)))
+                .andExpect(status().isForbidden());
+        assertEquals(0, rideRepository.count());
+    }
+
+    @Test
+    void onlyAnAdminImportsRidesOfAnotherDriver() throws Exception {
+        String driverToken = register("driver@import.test").getToken();
+        Long otherDriverId = register("other@import.test").getId();
+
+        importRides(driverToken, line(null) + line(otherDriverId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.rows[?(@.line == 2)].error")
+                        .value("Only an admin can import rides for another driver"));
+
+        register("admin@import.test");
+        User admin = userRepository.findByEmail("admin@import.test").orElseThrow();
+        admin.setRole(User.UserRole.ADMIN);
+        userRepository.save(admin);
+        importRides(login("admin@import.test").getToken(), line(otherDriverId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1));
+
+        assertEquals(1, rideRepository.findAll().stream()
+                .filter(ride -> ride.getDriver().getId().equals(otherDriverId)).count());
+    }
+
+    private String line(Long driverId) throws Exception {
+        Map<String, Object> ride = new HashMap<>(Map.of(
+                "startLocation", "Cluj",
+                "endLocation", "Sibiu",
+                "departureTime", LocalDateTime.now().plusDays(2).withNano(0).toString(),
+                "totalSeats", 3,
+                "pricePerSeat", 40));
+        if (driverId != null) {
+            ride.put("driverId", driverId);
+        }
+        return objectMapper.writeValueAsString(ride) + "\n";
+    }
+
+    private ResultActions importRides(String token, String content) throws Exception {
+        return mockMvc.perform(post("/api/rides/bulk")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(NDJSON)
+                .content(content));
+    }
+
+    private AuthResponse register(String email) throws Exception {
+        return read(mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of(
+                                "email", email, "password", "parola123", "fullName", email))))
+                .andExpect(status().isCreated()));
+    }
+
+    private AuthResponse login(String email) throws Exception {
+        return read(mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("email", email, "password", "parola123"))))
+                .andExpect(status().isOk()));
+    }
+
+    private AuthResponse read(ResultActions result) throws Exception {
+        return objectMapper.readValue(result.andReturn().getResponse().getContentAsString(), AuthResponse.class);
+    }
+}
@@ -0,0 +1,57 @@
+package com.carsharing.backend.datagen;
+
+import com.carsharing.backend.sharding.ShardRouter;
+import com.carsharing.backend.sharding.ShardingProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Same seed and anchor date, same rows: two runs give identical users, rides and bookings, another seed does not
+ */
+class DataGeneratorTest {
+
+    @Test
+    void sameSeedGivesIdenticalRows() {
+        List<String> first = generate(42);
+        List<String> second = generate(42);
+
+        assertTrue(first.size() > 2_500, first.size() + " rows");
+        assertEquals(first, second);
+        assertNotEquals(first, generate(43));
+    }
+
+    private static List<String> generate(long seed) {
+        DataGenProperties properties = new DataGenProperties();
+        properties.setSeed(seed);
+        properties.setUsers(500);
+        properties.setDrivers(50);
+        properties.setRides(2_000);
+        properties.setAnchorDate(LocalDate.of(2026, 10, 1));
+
+        List<String> rows = new ArrayList<>();
+        new DataGenerator(properties, new ShardRouter(new ShardingProperties())).generate(new RowSink() {
+            @Override
+            public void user(Rows.UserRow user) {
+                rows.add("user," + user.toCsv());
+            }
+
+            @Override
+            public void ride(int shard, Rows.RideRow ride) {
+                rows.add("ride," + shard + "," + ride.toCsv());
+            }
+
+            @Override
+            public void booking(int shard, Rows.BookingRow booking) {
+                rows.add("booking," + shard + "," + booking.toCsv());
+            }
+        });
+        return rows;
+    }
+}
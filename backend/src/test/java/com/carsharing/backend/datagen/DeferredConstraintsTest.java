@@ -0,0 +1,53 @@
+package com.carsharing.backend.datagen;
+
+import com.carsharing.backend.sharding.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The foreign keys of the generated tables are gone during the load and back, enforced, after it
+ */
+@SpringBootTest
+class DeferredConstraintsTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void foreignKeysAreDroppedAndRestored() {
+        List<String> before = foreignKeys();
+        assertEquals(3, before.size());
+
+        DeferredConstraints deferred = DeferredConstraints.drop(jdbcTemplate, shardRouter);
+        try {
+            assertEquals(List.of(), foreignKeys());
+        } finally {
+            deferred.restore();
+        }
+
+        assertEquals(before, foreignKeys());
+        // booking of a ride that does not exist
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update("""
+                INSERT INTO bookings (id, passenger_id, ride_id, seats_booked, total_price, status, created_at)
+                VALUES (-1, -1, -1, 1, 10, 'PENDING', ?)""", LocalDateTime.now()));
+    }
+
+    private List<String> foreignKeys() {
+        return jdbcTemplate.queryForList("""
+                SELECT TABLE_NAME || '.' || CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS
+                WHERE CONSTRAINT_TYPE = 'FOREIGN KEY' AND TABLE_NAME IN ('USERS', 'RIDES', 'BOOKINGS')
+                ORDER BY 1""", String.class);
+    }
+}
@@ -0,0 +1,96 @@
+package com.carsharing.backend.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two separate H2 databases stand in for primary and replica.
+ * Each one contains a row with its own name, so the query result shows where it was routed.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate writeTx;
+    private TransactionTemplate readTx;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("routing_primary", "primary");
+        replica = h2("routing_replica", "replica");
+        route(new ReplicaLagMonitor(replica, "SELECT 0", 2));
+    }
+
+    private void route(ReplicaLagMonitor lagMonitor) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(lagMonitor, new ReadYourWritesTracker(5000));
+        routing.setTargetDataSources(Map.of(DataSourceRole.PRIMARY, primary, DataSourceRole.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbc = new JdbcTemplate(dataSource);
+        writeTx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readTx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readTx.setReadOnly(true);
+    }
+
+    @AfterEach
+    void clearUser() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica() {
+        assertThat(whereAmI(readTx)).isEqualTo("replica");
+        assertThat(whereAmI(writeTx)).isEqualTo("primary");
+    }
+
+    @Test
+    void fallsBackToPrimaryWhenReplicaLags() {
+        // the replica reports 10s of lag, over the 2s limit
+        ReplicaLagMonitor lagging = new ReplicaLagMonitor(replica, "SELECT 10", 2);
+        lagging.check();
+        route(lagging);
+
+        assertThat(whereAmI(readTx)).isEqualTo("primary");
+        assertThat(whereAmI(writeTx)).isEqualTo("primary");
+    }
+
+    @Test
+    void userReadsOwnWritesFromPrimary() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("ion@test.com", null, List.of()));
+
+        whereAmI(writeTx);
+
+        assertThat(whereAmI(readTx)).isEqualTo("primary");
+    }
+
+    private String whereAmI(TransactionTemplate tx) {
+        return tx.execute(status -> jdbc.queryForObject("SELECT name FROM whoami", String.class));
+    }
+
+    private static DataSource h2(String database, String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS whoami (name VARCHAR(20))");
+        jdbc.execute("DELETE FROM whoami");
+        jdbc.update("INSERT INTO whoami VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,140 @@
+package com.carsharing.backend.event;
+
+import com.carsharing.backend.BackendApplication;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.service.BookingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two nodes polling one outbox: every event is delivered once, events of a ride in commit order
+ */
+class OutboxDispatcherTest {
+
+    // deliveries of both nodes, in the order they happened
+    private static final List<String> DELIVERED = Collections.synchronizedList(new ArrayList<>());
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode("a", "create-drop");
+        nodeB = startNode("b", "none");  // schema already created by node A
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void everyEventIsDeliveredOnceInRideOrder() throws InterruptedException {
+        UserRepository users = nodeA.getBean(UserRepository.class);
+        BookingService bookings = nodeA.getBean(BookingService.class);
+        User driver = users.save(user("driver@outbox.test"));
+
+        Map<Long, List<String>> expected = new HashMap<>();
+        for (int r = 0; r < 4; r++) {
+            Ride ride = nodeA.getBean(RideRepository.class).save(ride(driver));
+            List<String> rideEvents = expected.computeIfAbsent(ride.getId(), id -> new ArrayList<>());
+            for (int p = 0; p < 5; p++) {
+                User passenger = users.save(user("passenger-" + r + "-" + p + "@outbox.test"));
+                Booking booking = bookings.createBooking(passenger.getId(), ride.getId(), 1);
+                rideEvents.add(key(BookingEvent.Type.BOOKING_CREATED, booking.getId()));
+                bookings.confirmBooking(booking.getId(), driver.getId());
+                rideEvents.add(key(BookingEvent.Type.BOOKING_CONFIRMED, booking.getId()));
+                if (p % 2 == 0) {
+                    bookings.cancelBooking(booking.getId());
+                    rideEvents.add(key(BookingEvent.Type.BOOKING_CANCELLED, booking.getId()));
+                }
+            }
+        }
+        int total = expected.values().stream().mapToInt(List::size).sum();
+
+        long start = System.currentTimeMillis();
+        while (DELIVERED.size() < total && System.currentTimeMillis() - start < 20_000) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(500);  // a duplicate would show up by now
+
+        List<String> delivered;
+        synchronized (DELIVERED) {
+            delivered = new ArrayList<>(DELIVERED);
+        }
+        assertEquals(total, delivered.size(), "delivered: " + delivered);
+        assertEquals(total, new HashSet<>(delivered).size(), "duplicates: " + delivered);
+        expected.forEach((rideId, rideEvents) -> assertEquals(rideEvents,
+                delivered.stream().filter(rideEvents::contains).toList(), "order of ride " + rideId));
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId, String ddlAuto) {
+        BookingEventSink recorder = new BookingEventSink() {
+            @Override
+            public String name() {
+                return "test-recorder";
+            }
+
+            @Override
+            public void deliver(BookingEvent event) {
+                DELIVERED.add(key(event.type(), event.bookingId()));
+            }
+        };
+        return new SpringApplicationBuilder(BackendApplication.class)
+                .initializers(context -> context.getBeanFactory().registerSingleton("recordingSink", recorder))
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:outbox-test;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "--spring.h2.console.enabled=false",
+                        "--carsharing.cluster.node-id=" + nodeId,
+                        "--carsharing.outbox.poll-interval-ms=10",
+                        "--carsharing.outbox.batch-size=3",
+                        "--carsharing.lifecycle.enabled=false",
+                        "--carsharing.archive.enabled=false",
+                        "--carsharing.dashboard.reconcile.enabled=false");
+    }
+
+    private static String key(BookingEvent.Type type, Long bookingId) {
+        return type + "#" + bookingId;
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setFullName(email);
+        return user;
+    }
+
+    private static Ride ride(User driver) {
+        Ride ride = new Ride();
+        ride.setStartLocation("Cluj");
+        ride.setEndLocation("Sibiu");
+        ride.setDepartureTime(LocalDateTime.now().plusDays(1));
+        ride.setTotalSeats(8);
+        ride.setAvailableSeats(8);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setDriver(driver);
+        return ride;
+    }
+}
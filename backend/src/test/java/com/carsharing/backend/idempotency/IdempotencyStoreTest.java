@@ -0,0 +1,79 @@
+package com.carsharing.backend.idempotency;
+
+import com.carsharing.backend.model.IdempotencyRecord;
+import com.carsharing.backend.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two stores on one table act as two nodes: a claim of a node that died mid-request
+ * blocks retries only until its lease runs out, a stored response only until its TTL
+ */
+@SpringBootTest
+class IdempotencyStoreTest {
+
+    private static final long LEASE_SECONDS = 1;
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Test
+    void retryTakesOverTheKeyOfACrashedRequestAfterItsLease() throws InterruptedException {
+        IdempotencyStore crashed = new IdempotencyStore(repository, 24, 100, LEASE_SECONDS);
+        IdempotencyStore retry = new IdempotencyStore(repository, 24, 100, LEASE_SECONDS);
+
+        // first node claims the key and dies: neither complete() nor abandon() runs
+        assertTrue(crashed.claimGlobal("crashed-key", "hash"));
+
+        assertFalse(retry.claimGlobal("crashed-key", "hash"), "lease still valid");
+        Thread.sleep(LEASE_SECONDS * 1000 + 500);
+        assertTrue(retry.claimGlobal("crashed-key", "hash"), "lease ran out, the retry owns the key");
+        assertFalse(crashed.claimGlobal("crashed-key", "hash"), "taken over once");
+
+        retry.complete("crashed-key", "hash", 201, "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(201, crashed.find("crashed-key").orElseThrow().statusCode());
+    }
+
+    @Test
+    void storedResponseIsNeverTakenOver() throws InterruptedException {
+        IdempotencyStore first = new IdempotencyStore(repository, 24, 100, LEASE_SECONDS);
+        IdempotencyStore other = new IdempotencyStore(repository, 24, 100, LEASE_SECONDS);
+
+        assertTrue(first.claimGlobal("done-key", "hash"));
+        first.complete("done-key", "hash", 200, "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+
+        Thread.sleep(LEASE_SECONDS * 1000 + 500);
+        assertFalse(other.claimGlobal("done-key", "hash"));
+        assertEquals(200, other.find("done-key").orElseThrow().statusCode());
+    }
+
+    @Test
+    void expiredResponseIsAbsentBeforeItIsDeleted() {
+        IdempotencyStore first = new IdempotencyStore(repository, 24, 100, LEASE_SECONDS);
+        IdempotencyStore other = new IdempotencyStore(repository, 24, 100, LEASE_SECONDS);
+
+        assertTrue(first.claimGlobal("expired-key", "hash"));
+        first.complete("expired-key", "hash", 201, "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+        // past its TTL, evictExpired has not run yet
+        IdempotencyRecord record = repository.findById("expired-key").orElseThrow();
+        record.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        repository.save(record);
+
+        assertTrue(other.find("expired-key").isEmpty());
+        assertTrue(other.claimGlobal("expired-key", "other-hash"), "expired key is claimed again");
+        IdempotencyRecord claimed = repository.findById("expired-key").orElseThrow();
+        assertNull(claimed.getStatusCode());
+        assertEquals("other-hash", claimed.getRequestHash());
+        assertTrue(claimed.getExpiresAt().isAfter(LocalDateTime.now()));
+        assertFalse(first.claimGlobal("expired-key", "hash"), "claimed once");
+    }
+}
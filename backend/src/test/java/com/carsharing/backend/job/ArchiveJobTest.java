@@ -0,0 +1,133 @@
+package com.carsharing.backend.job;
+
+import com.carsharing.backend.model.ArchivedBooking;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.ArchivedBookingRepository;
+import com.carsharing.backend.repository.BookingRepository;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.service.BookingHistory;
+import com.carsharing.backend.service.BookingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Archiving old rides: a chunk another node already copied is skipped, and the history pages list
+ * live and archived bookings by the same key (newest booking first)
+ */
+@SpringBootTest
+class ArchiveJobTest {
+
+    @Autowired
+    private ArchiveJob archiveJob;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM rides_archive");
+        archivedBookingRepository.deleteAllInBatch();
+        bookingRepository.deleteAllInBatch();
+        rideRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void chunkAlreadyArchivedByAnotherNodeIsSkipped() {
+        User driver = user("driver@archive.test");
+        Ride ride = ride(driver, Ride.RideStatus.COMPLETED, LocalDateTime.now().minusDays(100));
+        // the other node copied the ride and has not deleted it yet
+        jdbcTemplate.update("""
+                INSERT INTO rides_archive (id, start_location, end_location, departure_time, total_seats,
+                                           price_per_seat, driver_id, driver_name, status, created_at, archived_at)
+                VALUES (?, 'Cluj', 'Sibiu', ?, 3, 10, ?, 'Driver', 'COMPLETED', ?, ?)""",
+                ride.getId(), Timestamp.valueOf(ride.getDepartureTime()), driver.getId(),
+                Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(LocalDateTime.now()));
+
+        assertEquals(0, archiveJob.archive());
+        assertEquals(1, rideRepository.count());
+    }
+
+    @Test
+    void historyListsLiveThenArchivedBookingsNewestFirst() {
+        User driver = user("driver@archive.test");
+        User passenger = user("passenger@archive.test");
+        // booked long before it departed: the newest booking is not the latest departure
+        Booking early = booking(passenger, ride(driver, Ride.RideStatus.COMPLETED, LocalDateTime.now().minusDays(100)),
+                LocalDateTime.now().minusDays(130));
+        Booking late = booking(passenger, ride(driver, Ride.RideStatus.COMPLETED, LocalDateTime.now().minusDays(110)),
+                LocalDateTime.now().minusDays(115));
+        Booking live = booking(passenger, ride(driver, Ride.RideStatus.ACTIVE, LocalDateTime.now().plusDays(1)),
+                LocalDateTime.now().minusDays(1));
+
+        assertEquals(2, archiveJob.archive());
+
+        BookingHistory first = bookingService.getBookingHistory(passenger.getId(), 0, 2);
+        assertEquals(List.of(live.getId()), first.live().stream().map(Booking::getId).toList());
+        assertEquals(List.of(late.getId()), first.archived().stream().map(ArchivedBooking::getId).toList());
+        BookingHistory second = bookingService.getBookingHistory(passenger.getId(), 1, 2);
+        assertEquals(List.of(early.getId()), second.archived().stream().map(ArchivedBooking::getId).toList());
+        assertEquals(3, second.totalElements());
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setFullName(email);
+        return userRepository.save(user);
+    }
+
+    private Ride ride(User driver, Ride.RideStatus status, LocalDateTime departure) {
+        Ride ride = new Ride();
+        ride.setStartLocation("Cluj");
+        ride.setEndLocation("Sibiu");
+        ride.setDepartureTime(departure);
+        ride.setTotalSeats(3);
+        ride.setAvailableSeats(2);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setStatus(status);
+        ride.setDriver(driver);
+        return rideRepository.save(ride);
+    }
+
+    private Booking booking(User passenger, Ride ride, LocalDateTime createdAt) {
+        Booking booking = new Booking();
+        booking.setPassenger(passenger);
+        booking.setRide(ride);
+        booking.setSeatsBooked(1);
+        booking.setTotalPrice(BigDecimal.TEN);
+        booking.setStatus(Booking.BookingStatus.CONFIRMED);
+        booking = bookingRepository.save(booking);
+        jdbcTemplate.update("UPDATE bookings SET created_at = ? WHERE id = ?", Timestamp.valueOf(createdAt), booking.getId());
+        return booking;
+    }
+}
@@ -0,0 +1,161 @@
+package com.carsharing.backend.job;
+
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.BookingRepository;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.service.BookingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Expiry of stale pending bookings racing drivers confirming and cancelling them: every booking ends in one
+ * state, and the free seats of each ride are its seats minus the bookings still holding them
+ */
+@SpringBootTest
+class RideLifecycleJobTest {
+
+    private static final int RIDES = 8;
+    private static final int BOOKINGS_PER_RIDE = 25;
+    private static final int THREADS = 4;
+
+    @Autowired
+    private RideLifecycleJob rideLifecycleJob;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        ReflectionTestUtils.setField(rideLifecycleJob, "chunkSize", 500);
+        bookingRepository.deleteAllInBatch();
+        rideRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void expiryRacingConfirmAndCancelKeepsSeatsConsistent() throws Exception {
+        User driver = user("driver@lifecycle.test");
+        User passenger = user("passenger@lifecycle.test");
+        List<Booking> bookings = new ArrayList<>();
+        for (int r = 0; r < RIDES; r++) {
+            Ride ride = ride(driver);
+            for (int b = 0; b < BOOKINGS_PER_RIDE; b++) {
+                bookings.add(bookingService.createBooking(passenger.getId(), ride.getId(), 1));
+            }
+        }
+        // all of them past the pending TTL
+        jdbcTemplate.update("UPDATE bookings SET created_at = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(2)));
+        Collections.shuffle(bookings);
+        Queue<Booking> queue = new ConcurrentLinkedQueue<>(bookings);
+        // small chunks: the sweep runs alongside the drivers instead of finishing in one transaction
+        ReflectionTestUtils.setField(rideLifecycleJob, "chunkSize", 5);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            workers.add(executor.submit(() -> {
+                start.await();
+                return rideLifecycleJob.sweep();
+            }));
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    Booking booking;
+                    while ((booking = queue.poll()) != null) {
+                        try {
+                            if (booking.getId() % 2 == 0) {
+                                bookingService.confirmBooking(booking.getId(), driver.getId());
+                            } else {
+                                bookingService.cancelBooking(booking.getId());
+                            }
+                        } catch (InvalidBookingException e) {
+                            // expired first
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            // a deadlock or lock timeout fails here
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Booking> finished = bookingRepository.findAll();
+        for (Booking booking : finished) {
+            Booking.BookingStatus expected = booking.getId() % 2 == 0
+                    ? Booking.BookingStatus.CONFIRMED : Booking.BookingStatus.CANCELLED;
+            assertTrue(booking.getStatus() == expected || booking.getStatus() == Booking.BookingStatus.EXPIRED,
+                    "booking " + booking.getId() + " " + booking.getStatus());
+        }
+        for (Ride ride : rideRepository.findAll()) {
+            long holding = finished.stream()
+                    .filter(b -> b.getRide().getId().equals(ride.getId()))
+                    .filter(b -> b.getStatus() == Booking.BookingStatus.CONFIRMED || b.getStatus() == Booking.BookingStatus.PENDING)
+                    .count();
+            assertEquals(ride.getTotalSeats() - holding, (long) ride.getAvailableSeats(), "ride " + ride.getId());
+        }
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setFullName(email);
+        return userRepository.save(user);
+    }
+
+    private Ride ride(User driver) {
+        Ride ride = new Ride();
+        ride.setStartLocation("Cluj");
+        ride.setEndLocation("Sibiu");
+        ride.setDepartureTime(LocalDateTime.now().plusDays(1));
+        ride.setTotalSeats(BOOKINGS_PER_RIDE);
+        ride.setAvailableSeats(BOOKINGS_PER_RIDE);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setDriver(driver);
+        return rideRepository.save(ride);
+    }
+}
@@ -0,0 +1,193 @@
+package com.carsharing.backend.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recovery of the ledger files after a crash: a ledger that is dropped without close()
+ * is a process that died, the next one opens the same directory
+ */
+class SeatLedgerTest {
+
+    // smallest segment: 1 MB = 21845 records
+    private static final int RECORDS_PER_SEGMENT = 1024 * 1024 / LedgerRecord.SIZE;
+
+    @TempDir
+    Path directory;
+
+    private final List<SeatLedger> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() {
+        opened.forEach(SeatLedger::close);
+    }
+
+    @Test
+    void replaysTheRecordsAfterTheLatestSnapshot() throws IOException {
+        SeatLedger ledger = open(4);
+        ledger.record(SeatChange.OPEN, 1L, null, 4);
+        ledger.record(SeatChange.BOOK, 1L, 10L, 1);
+        ledger.snapshot();
+        ledger.record(SeatChange.BOOK, 1L, 11L, 2);
+        ledger.record(SeatChange.OPEN, 2L, null, 3);
+        ledger.record(SeatChange.HOLD, 2L, 20L, 1);
+
+        SeatLedger recovered = open(4);
+        assertEquals(1, recovered.availableSeats(1));
+        assertEquals(2, recovered.availableSeats(2));
+        assertEquals(2, recovered.getStatus().snapshotSequence());
+        assertEquals(3, recovered.getStatus().recoveredRecords());
+        assertEquals(5, recovered.getStatus().lastSequence());
+    }
+
+    @Test
+    void unreadableSnapshotFallsBackToTheLedger() throws IOException {
+        SeatLedger ledger = open(4);
+        ledger.record(SeatChange.OPEN, 1L, null, 4);
+        ledger.record(SeatChange.BOOK, 1L, 10L, 1);
+        ledger.snapshot();
+        Path snapshot = directory.resolve(LedgerSnapshot.fileName(2));
+        Files.write(snapshot, new byte[]{1, 2, 3});
+
+        SeatLedger recovered = open(4);
+        assertEquals(3, recovered.availableSeats(1));
+        assertEquals(2, recovered.getStatus().recoveredRecords());
+        assertTrue(Files.exists(snapshot.resolveSibling(snapshot.getFileName() + ".corrupt")));
+    }
+
+    @Test
+    void tornRecordEndsRecoveryAndRecordsAfterItNeverComeBack() throws IOException {
+        SeatLedger ledger = open(4);
+        ledger.record(SeatChange.OPEN, 1L, null, 4);
+        ledger.record(SeatChange.BOOK, 1L, 10L, 1);
+        ledger.record(SeatChange.BOOK, 1L, 11L, 1);
+        ledger.record(SeatChange.BOOK, 1L, 12L, 1);
+        // the third record was half written when the machine went down
+        corrupt(segment(1), 2 * LedgerRecord.SIZE + 20);
+
+        SeatLedger recovered = open(4);
+        assertEquals(3, recovered.availableSeats(1));
+        assertEquals(2, recovered.getStatus().lastSequence());
+
+        // the slot is reused: the old fourth record (sequence 4) must not follow the new third one
+        recovered.record(SeatChange.CANCEL, 1L, 10L, 1);
+        SeatLedger again = open(4);
+        assertEquals(4, again.availableSeats(1));
+        assertEquals(3, again.getStatus().lastSequence());
+        assertEquals(List.of(SeatChange.OPEN, SeatChange.BOOK, SeatChange.CANCEL),
+                again.history(1).stream().map(LedgerRecord::change).toList());
+    }
+
+    @Test
+    void missingSegmentMovesTheFollowingOnesAside() throws IOException {
+        SeatLedger ledger = open(4);
+        ledger.record(SeatChange.OPEN, 1L, null, 100);
+        fill(ledger, 3 * RECORDS_PER_SEGMENT - 1);
+        Path second = segment(RECORDS_PER_SEGMENT + 1);
+        Path third = segment(2 * RECORDS_PER_SEGMENT + 1);
+        Files.delete(second);
+
+        SeatLedger recovered = open(4);
+        assertEquals(RECORDS_PER_SEGMENT, recovered.getStatus().lastSequence());
+        assertEquals(1, recovered.getStatus().segments());
+        assertTrue(Files.exists(third.resolveSibling(third.getFileName() + ".corrupt")));
+        assertTrue(Files.notExists(third));
+
+        // appends continue right after the last good record
+        recovered.record(SeatChange.BOOK, 1L, 1L, 1);
+        assertEquals(RECORDS_PER_SEGMENT + 1, recovered.getStatus().lastSequence());
+    }
+
+    @Test
+    void snapshotDeletesCoveredSegmentsAndOlderSnapshotsButKeepsTheRetainedOnes() throws IOException {
+        SeatLedger ledger = open(1);
+        ledger.record(SeatChange.OPEN, 1L, null, 100);
+        ledger.snapshot();
+        fill(ledger, 3 * RECORDS_PER_SEGMENT);
+        assertEquals(4, ledger.getStatus().segments());
+
+        ledger.snapshot();
+
+        // segments 1 and 2 are covered and older than the retained one
+        assertEquals(List.of(segment(2 * RECORDS_PER_SEGMENT + 1), segment(3 * RECORDS_PER_SEGMENT + 1)),
+                files(".ledger"));
+        assertEquals(List.of(directory.resolve(LedgerSnapshot.fileName(3L * RECORDS_PER_SEGMENT + 1))),
+                files(".snapshot"));
+        assertEquals(2, ledger.getStatus().segments());
+
+        SeatLedger recovered = open(1);
+        assertEquals(ledger.availableSeats(1), recovered.availableSeats(1));
+        assertEquals(0, recovered.getStatus().recoveredRecords());
+    }
+
+    @Test
+    void changesOfUntrackedRidesAreCounted() throws IOException {
+        SeatLedger ledger = open(4);
+        ledger.record(SeatChange.BOOK, 7L, 70L, 1);
+
+        assertNull(ledger.availableSeats(7));
+        assertEquals(1, ledger.getStatus().untrackedChanges());
+    }
+
+    @Test
+    void refusesToRunWithSeveralInstances() {
+        SeatLedger ledger = new SeatLedger(properties(4), null, null, "jdbc");
+        assertThrows(IllegalStateException.class, ledger::open);
+    }
+
+    private SeatLedger open(int retainedSegments) throws IOException {
+        SeatLedger ledger = new SeatLedger(properties(retainedSegments), null, null, "none");
+        ledger.open();
+        opened.add(ledger);
+        return ledger;
+    }
+
+    private LedgerProperties properties(int retainedSegments) {
+        LedgerProperties properties = new LedgerProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSizeMb(1);
+        properties.setRetainedSegments(retainedSegments);
+        return properties;
+    }
+
+    // book and cancel one seat in turn, the seats end where they started for an even count
+    private static void fill(SeatLedger ledger, int records) {
+        for (int i = 0; i < records; i++) {
+            ledger.record(i % 2 == 0 ? SeatChange.BOOK : SeatChange.CANCEL, 1L, (long) i, 1);
+        }
+    }
+
+    private Path segment(long firstSequence) {
+        return directory.resolve(LedgerSegment.fileName(firstSequence));
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    private static void corrupt(Path file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        }
+    }
+}
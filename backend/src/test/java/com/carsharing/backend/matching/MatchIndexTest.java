@@ -0,0 +1,120 @@
+package com.carsharing.backend.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Candidates by route and time bucket: the ride proposed to a request, the requests a new ride serves,
+ * and open requests of neighbouring buckets merged into one demand signal
+ */
+class MatchIndexTest {
+
+    // 60 minute buckets, times in minutes
+    private static final int HOUR = 60;
+    private static final String ROUTE = MatchIndex.route("Cluj", "Sibiu");
+
+    private final MatchIndex index = new MatchIndex(HOUR);
+
+    @Test
+    void bestRideIsTheCheapestThatFitsThenTheEarliest() {
+        MatchIndex.RequestEntry request = request(1, 100, 10 * HOUR, 14 * HOUR, 2, "50");
+        index.addRequest(request);
+        index.addRide(ride(10, 13 * HOUR, "40", 3));
+        index.addRide(ride(11, 12 * HOUR, "40", 2));
+        index.addRide(ride(12, 11 * HOUR, "30", 1));                 // too few seats
+        index.addRide(ride(13, 11 * HOUR, "60", 4));                 // above the max price
+        index.addRide(ride(14, 15 * HOUR, "20", 4));                 // after the window
+        index.addRide(new MatchIndex.RideEntry(15, ROUTE, 11 * HOUR, new BigDecimal("10"), 100, 4));  // own ride
+        index.addRide(new MatchIndex.RideEntry(16, MatchIndex.route("Cluj", "Brasov"), 11 * HOUR,
+                new BigDecimal("10"), 200, 4));                        // other route
+
+        assertEquals(11, index.bestRide(request, 0).id);
+        // departed meanwhile
+        assertEquals(10, index.bestRide(request, 12 * HOUR).id);
+        assertNull(index.bestRide(request, 13 * HOUR));
+
+        index.ride(10).freeSeats = 1;
+        index.removeRide(11);
+        assertNull(index.bestRide(request, 0));
+    }
+
+    @Test
+    void requestsForFindsTheRequestsWhoseWindowHoldsTheRide() {
+        // window over three buckets, found from the middle one
+        index.addRequest(request(1, 100, 9 * HOUR + 30, 11 * HOUR + 30, 1, null));
+        index.addRequest(request(2, 101, 10 * HOUR, 10 * HOUR + 45, 1, "35"));
+        index.addRequest(request(3, 102, 10 * HOUR, 11 * HOUR, 3, null));           // 3 seats
+        index.addRequest(request(4, 103, 10 * HOUR + 40, 12 * HOUR, 1, null));      // starts after the ride
+        index.addRequest(request(5, 104, 10 * HOUR, 11 * HOUR, 1, "20"));           // price too low
+
+        MatchIndex.RideEntry ride = ride(10, 10 * HOUR + 30, "30", 2);
+        index.addRide(ride);
+
+        assertEquals(List.of(1L, 2L), index.requestsFor(ride, 0).stream().map(MatchIndex.RequestEntry::id).toList());
+
+        index.removeRequest(1);
+        assertEquals(List.of(2L), index.requestsFor(ride, 0).stream().map(MatchIndex.RequestEntry::id).toList());
+        assertEquals(List.of(), index.requestsFor(ride, 10 * HOUR + 30));
+    }
+
+    @Test
+    void demandMergesNeighbouringBucketsWithTheSameRequests() {
+        // same two requests in buckets 10, 11 and 12: one signal from 10:00 to 13:00
+        index.addRequest(request(1, 100, 10 * HOUR, 12 * HOUR + 30, 1, "30"));
+        index.addRequest(request(2, 101, 10 * HOUR + 15, 12 * HOUR + 59, 2, null));
+        // three others in bucket 14 only, bucket 13 has none: a separate signal
+        index.addRequest(request(3, 102, 14 * HOUR, 14 * HOUR + 30, 1, "25"));
+        index.addRequest(request(4, 103, 14 * HOUR, 14 * HOUR + 30, 1, null));
+        index.addRequest(request(5, 104, 14 * HOUR + 10, 14 * HOUR + 50, 1, "40"));
+        // alone in its bucket, below the minimum
+        index.addRequest(request(6, 105, 20 * HOUR, 20 * HOUR + 30, 1, null));
+
+        List<MatchIndex.Demand> demand = index.demand(2, 0);
+
+        assertEquals(2, demand.size());
+        MatchIndex.Demand busiest = demand.get(0);
+        assertEquals(14 * HOUR, busiest.from());
+        assertEquals(15 * HOUR, busiest.to());
+        assertEquals(3, busiest.requests());
+        assertEquals(3, busiest.seats());
+        MatchIndex.Demand merged = demand.get(1);
+        assertEquals(10 * HOUR, merged.from());
+        assertEquals(13 * HOUR, merged.to());
+        assertEquals(2, merged.requests());
+        assertEquals(3, merged.seats());
+        assertEquals(List.of(new BigDecimal("30")), merged.maxPrices());
+        assertEquals("Cluj", merged.startLocation());
+
+        // signals that ended are left out
+        assertEquals(List.of(busiest), index.demand(2, 13 * HOUR));
+    }
+
+    @Test
+    void demandSplitsWhereTheRequestsChange() {
+        // request 1 in buckets 10-11, request 2 in 10-12, request 3 in 11-12
+        index.addRequest(request(1, 100, 10 * HOUR, 11 * HOUR + 30, 1, null));
+        index.addRequest(request(2, 101, 10 * HOUR, 12 * HOUR + 30, 1, null));
+        index.addRequest(request(3, 102, 11 * HOUR, 12 * HOUR + 30, 1, null));
+
+        List<MatchIndex.Demand> demand = index.demand(2, 0);
+
+        // bucket 11 has all three, 10 and 12 two each
+        assertEquals(List.of(11L * HOUR, 10L * HOUR, 12L * HOUR), demand.stream().map(MatchIndex.Demand::from).toList());
+        assertEquals(List.of(3, 2, 2), demand.stream().map(MatchIndex.Demand::requests).toList());
+    }
+
+    private static MatchIndex.RideEntry ride(long id, long departure, String price, int freeSeats) {
+        return new MatchIndex.RideEntry(id, ROUTE, departure, new BigDecimal(price), 200, freeSeats);
+    }
+
+    private static MatchIndex.RequestEntry request(long id, long passengerId, long earliest, long latest, int seats,
+                                                   String maxPrice) {
+        return new MatchIndex.RequestEntry(id, passengerId, ROUTE, "Cluj", "Sibiu", earliest, latest, seats,
+                maxPrice != null ? new BigDecimal(maxPrice) : null);
+    }
+}
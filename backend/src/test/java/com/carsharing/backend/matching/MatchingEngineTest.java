@@ -0,0 +1,132 @@
+package com.carsharing.backend.matching;
+
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.RideRequest;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.BookingRepository;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.RideRequestRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.service.BookingService;
+import com.carsharing.backend.service.RideRequestService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The scheduled batches match requests with a ride only up to its free seats, a booking made before
+ * the requests included
+ */
+@SpringBootTest
+class MatchingEngineTest {
+
+    private static final int TOTAL_SEATS = 4;
+
+    @Autowired
+    private MatchingEngine matchingEngine;
+
+    @Autowired
+    private RideRequestService rideRequestService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RideRequestRepository rideRequestRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @AfterEach
+    void cleanUp() {
+        rideRequestRepository.deleteAllInBatch();
+        bookingRepository.deleteAllInBatch();
+        rideRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void rideIsNeverMatchedBeyondItsFreeSeats() throws Exception {
+        User driver = user("driver@matching.test");
+        Ride ride = ride(driver, LocalDateTime.now().plusDays(2).truncatedTo(ChronoUnit.HOURS).plusMinutes(30));
+        bookingService.createBooking(user("booked@matching.test").getId(), ride.getId(), 1);
+        int free = TOTAL_SEATS - 1;
+
+        // 2 + 5 x 1 seats asked for the 3 left, one passenger each (the limit of active requests)
+        request(user("passenger0@matching.test"), ride, 2);
+        for (int i = 1; i <= 5; i++) {
+            request(user("passenger" + i + "@matching.test"), ride, 1);
+        }
+
+        long deadline = System.currentTimeMillis() + 15_000;
+        int matched;
+        while ((matched = matchedSeats(ride)) < free && System.currentTimeMillis() < deadline) {
+            assertTrue(matched <= free, matched + " seats matched");
+            Thread.sleep(100);
+        }
+        assertEquals(free, matched);
+
+        // later batches (one is a resync at the latest after resync-interval-ms) match nothing more
+        long batches = matchingEngine.getStatus().batches();
+        while (matchingEngine.getStatus().batches() < batches + 3 && System.currentTimeMillis() < deadline + 5_000) {
+            Thread.sleep(100);
+        }
+        assertTrue(matchingEngine.getStatus().batches() >= batches + 3);
+        assertEquals(free, matchedSeats(ride));
+        assertTrue(rideRequestRepository.findAll().stream()
+                .filter(request -> request.getStatus() != RideRequest.Status.MATCHED)
+                .allMatch(request -> request.getStatus() == RideRequest.Status.OPEN && request.getMatchedRideId() == null));
+    }
+
+    private int matchedSeats(Ride ride) {
+        return rideRequestRepository.findAll().stream()
+                .filter(request -> request.getStatus() == RideRequest.Status.MATCHED)
+                .filter(request -> ride.getId().equals(request.getMatchedRideId()))
+                .mapToInt(RideRequest::getSeats)
+                .sum();
+    }
+
+    private void request(User passenger, Ride ride, int seats) {
+        RideRequest request = new RideRequest();
+        request.setStartLocation(ride.getStartLocation());
+        request.setEndLocation(ride.getEndLocation());
+        request.setEarliestDeparture(ride.getDepartureTime().minusHours(1));
+        request.setLatestDeparture(ride.getDepartureTime().plusHours(1));
+        request.setSeats(seats);
+        rideRequestService.createRequest(passenger.getId(), ride.getStartLocation(), request);
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setFullName(email);
+        return userRepository.save(user);
+    }
+
+    private Ride ride(User driver, LocalDateTime departure) {
+        Ride ride = new Ride();
+        ride.setStartLocation("Cluj");
+        ride.setEndLocation("Sibiu");
+        ride.setDepartureTime(departure);
+        ride.setTotalSeats(TOTAL_SEATS);
+        ride.setAvailableSeats(TOTAL_SEATS);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setDriver(driver);
+        return rideRepository.save(ride);
+    }
+}
@@ -0,0 +1,151 @@
+package com.carsharing.backend.security;
+
+import com.carsharing.backend.model.RevokedToken;
+import com.carsharing.backend.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rebuilding the Bloom filter (compaction, growth past its capacity) while tokens are revoked:
+ * a revoked token that has not expired is never reported as valid
+ */
+class TokenDenylistTest {
+
+    private final RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+
+    private TokenDenylist denylist;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of(
+                revokedToken("loaded-valid", LocalDateTime.now().plusMinutes(15)),
+                revokedToken("loaded-expiring", LocalDateTime.now().plusNanos(200_000_000))));
+        denylist = new TokenDenylist(repository);
+        // small filter: revocations below also rebuild it for growth
+        ReflectionTestUtils.setField(denylist, "expectedTokens", 64);
+        denylist.load();
+    }
+
+    @Test
+    void compactionDropsOnlyExpiredTokens() throws InterruptedException {
+        assertTrue(denylist.isRevoked("loaded-expiring"));
+        Thread.sleep(300);
+
+        denylist.compact();
+
+        assertFalse(denylist.isRevoked("loaded-expiring"));
+        assertTrue(denylist.isRevoked("loaded-valid"));
+        assertFalse(denylist.isRevoked(null));
+    }
+
+    @RepeatedTest(5)
+    void revocationsDuringRebuildsAreNeverLost() throws Exception {
+        int threads = 4;
+        int perThread = 5_000;
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(15);
+        AtomicIntegerArray done = new AtomicIntegerArray(threads);
+        AtomicBoolean revoking = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 2);
+        try {
+            Future<?> compactions = executor.submit(() -> {
+                while (revoking.get()) {
+                    denylist.compact();
+                }
+            });
+            // a request with any token revoked so far, while filters are rebuilt and swapped
+            Future<?> requests = executor.submit(() -> {
+                while (revoking.get()) {
+                    for (int t = 0; t < threads; t++) {
+                        for (int i = 0, revoked = done.get(t); i < revoked; i++) {
+                            if (!denylist.isRevoked("jti-" + t + "-" + i)) {
+                                throw new AssertionError("jti-" + t + "-" + i + " not revoked");
+                            }
+                        }
+                    }
+                }
+            });
+            List<Future<?>> revokers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                revokers.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        denylist.revoke("jti-" + thread + "-" + i, expiresAt);
+                        done.incrementAndGet(thread);
+                    }
+                }));
+            }
+            for (Future<?> revoker : revokers) {
+                revoker.get(60, TimeUnit.SECONDS);
+            }
+            revoking.set(false);
+            compactions.get(60, TimeUnit.SECONDS);
+            requests.get(60, TimeUnit.SECONDS);
+        } finally {
+            revoking.set(false);
+            executor.shutdownNow();
+        }
+
+        denylist.compact();
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                assertTrue(denylist.isRevoked("jti-" + t + "-" + i), "jti-" + t + "-" + i);
+            }
+        }
+        assertTrue(denylist.isRevoked("loaded-valid"));
+    }
+
+    @Test
+    void falsePositivesOfTheFilterStayNearTheConfiguredRate() {
+        BloomFilter filter = BloomFilter.create(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("revoked-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("valid-" + i)) {
+                falsePositives++;
+            }
+        }
+        // a false positive costs one map lookup, never a rejected token
+        assertTrue(falsePositives < 2_000, falsePositives + " false positives in 100000");
+        assertEquals(100_000, countContained(filter, 100_000));
+    }
+
+    private static int countContained(BloomFilter filter, int keys) {
+        int contained = 0;
+        for (int i = 0; i < keys; i++) {
+            if (filter.mightContain("revoked-" + i)) {
+                contained++;
+            }
+        }
+        return contained;
+    }
+
+    private static RevokedToken revokedToken(String jti, LocalDateTime expiresAt) {
+        RevokedToken token = new RevokedToken();
+        token.setJti(jti);
+        token.setExpiresAt(expiresAt);
+        token.setRevokedAt(LocalDateTime.now());
+        return token;
+    }
+}
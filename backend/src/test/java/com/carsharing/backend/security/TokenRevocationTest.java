@@ -0,0 +1,117 @@
+package com.carsharing.backend.security;
+
+import com.carsharing.backend.dto.AuthResponse;
+import com.carsharing.backend.repository.RefreshTokenRepository;
+import com.carsharing.backend.repository.RevokedTokenRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Refresh token rotation and logout through the HTTP API: a replayed refresh token ends the
+ * whole login, a logged-out access token is rejected by JwtAuthenticationFilter
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class TokenRevocationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @AfterEach
+    void cleanUp() {
+        revokedTokenRepository.deleteAllInBatch();
+        refreshTokenRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void reuseOfARotatedRefreshTokenRevokesItsFamily() throws Exception {
+        AuthResponse login = register("reuse@tokens.test");
+        AuthResponse otherLogin = login("reuse@tokens.test");
+
+        AuthResponse rotated = read(refresh(login.getRefreshToken()).andExpect(status().isOk()));
+        assertNotEquals(login.getRefreshToken(), rotated.getRefreshToken());
+
+        // the old token comes back (stolen copy): rejected, and the token rotated from it too
+        refresh(login.getRefreshToken()).andExpect(status().isUnauthorized());
+        refresh(rotated.getRefreshToken()).andExpect(status().isUnauthorized());
+
+        // another login of the same user is a different family
+        refresh(otherLogin.getRefreshToken()).andExpect(status().isOk());
+    }
+
+    @Test
+    void loggedOutAccessTokenIsRejected() throws Exception {
+        AuthResponse login = register("logout@tokens.test");
+        AuthResponse otherLogin = login("logout@tokens.test");
+        authTest(login.getToken()).andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/auth/logout")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + login.getToken())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("refreshToken", login.getRefreshToken()))))
+                .andExpect(status().isNoContent());
+
+        authTest(login.getToken()).andExpect(status().isForbidden());
+        refresh(login.getRefreshToken()).andExpect(status().isUnauthorized());
+        // only the tokens of that login are revoked
+        authTest(otherLogin.getToken()).andExpect(status().isOk());
+    }
+
+    private AuthResponse register(String email) throws Exception {
+        return read(mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of(
+                                "email", email, "password", "parola123", "fullName", email))))
+                .andExpect(status().isCreated()));
+    }
+
+    private AuthResponse login(String email) throws Exception {
+        return read(mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("email", email, "password", "parola123"))))
+                .andExpect(status().isOk()));
+    }
+
+    private ResultActions refresh(String refreshToken) throws Exception {
+        return mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("refreshToken", refreshToken))));
+    }
+
+    private ResultActions authTest(String accessToken) throws Exception {
+        return mockMvc.perform(get("/api/auth/test").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken));
+    }
+
+    private AuthResponse read(ResultActions result) throws Exception {
+        return objectMapper.readValue(result.andReturn().getResponse().getContentAsString(), AuthResponse.class);
+    }
+}
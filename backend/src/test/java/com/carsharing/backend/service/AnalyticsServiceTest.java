@@ -0,0 +1,88 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.dto.AnalyticsResponse;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.BookingRepository;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.SeatHoldRepository;
+import com.carsharing.backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Occupancy counts sold seats: seats held in checkout are reported apart
+ */
+@SpringBootTest
+class AnalyticsServiceTest {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private SeatHoldRepository seatHoldRepository;
+
+    @AfterEach
+    void cleanUp() {
+        seatHoldRepository.deleteAllInBatch();
+        bookingRepository.deleteAllInBatch();
+        rideRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void heldSeatsAreNotCountedAsBooked() {
+        Ride ride = ride(user("driver@analytics.test"));
+        bookingService.createBooking(user("booked@analytics.test").getId(), ride.getId(), 1);
+        seatHoldService.createHold(user("holding@analytics.test").getId(), ride.getId(), 2, 10);
+
+        AnalyticsResponse.Occupancy occupancy = analyticsService.occupancy(null, null);
+
+        assertEquals(1, occupancy.getRides());
+        assertEquals(0.25, occupancy.getAverageOccupancy(), 1e-9);
+        assertEquals(2, occupancy.getHeldSeats());
+        assertEquals(1, occupancy.getDistribution().get(2).getRides());  // 20-30%
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setFullName(email);
+        return userRepository.save(user);
+    }
+
+    private Ride ride(User driver) {
+        Ride ride = new Ride();
+        ride.setStartLocation("Cluj");
+        ride.setEndLocation("Sibiu");
+        ride.setDepartureTime(LocalDateTime.now().plusDays(1));
+        ride.setTotalSeats(4);
+        ride.setAvailableSeats(4);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setDriver(driver);
+        return rideRepository.save(ride);
+    }
+}
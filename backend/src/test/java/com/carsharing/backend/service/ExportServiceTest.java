@@ -0,0 +1,126 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.exception.ConflictException;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.sharding.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV exports: text a spreadsheet would run as a formula stays text, and a file export
+ * is written by one request at a time
+ */
+@SpringBootTest
+class ExportServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @TempDir
+    Path directory;
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportService(jdbcTemplate, transactionManager, shardRouter, 100, directory.toString());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        rideRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void formulaCellsArePrefixedSoTheyStayText() throws Exception {
+        User driver = driver();
+        List<String> locations = List.of("=HYPERLINK(\"http://x\",\"y\")", "+40 Cluj", "-2+3", "@SUM(A1)",
+                "\tTab", "Cluj, Centru", "Sibiu");
+        for (String location : locations) {
+            ride(driver, location);
+        }
+
+        StringWriter out = new StringWriter();
+        exportService.writeCsv(exportService.query(ExportDataset.RIDES, null, null, null), null, out);
+
+        List<String> starts = out.toString().lines().skip(1).map(line -> line.split(",", 6)[4]).toList();
+        assertEquals(List.of("\"'=HYPERLINK(\"\"http://x\"\"", "'+40 Cluj", "'-2+3", "'@SUM(A1)",
+                "'\tTab", "\"Cluj", "Sibiu"), starts);
+    }
+
+    @Test
+    void secondWriterOfTheSameExportIsRejected() throws Exception {
+        ride(driver(), "Cluj");
+        ExportService.Query query = exportService.query(ExportDataset.RIDES, null, null, null);
+        Path part = directory.resolve(query.name() + ".csv.part");
+
+        // another request is writing the .part file
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            assertThrows(ConflictException.class, () -> exportService.writeFile(query));
+        }
+        assertFalse(Files.exists(directory.resolve(query.name() + ".csv")));
+
+        ExportService.FileResult result = exportService.writeFile(query);
+        assertEquals(1, result.rows());
+        assertTrue(Files.notExists(part));
+        assertEquals(2, Files.readAllLines(result.file()).size());
+    }
+
+    private User driver() {
+        User user = new User();
+        user.setEmail("driver@export.test");
+        user.setPassword("not-used");
+        user.setFullName("Driver");
+        return userRepository.save(user);
+    }
+
+    private void ride(User driver, String startLocation) {
+        Ride ride = new Ride();
+        ride.setStartLocation(startLocation);
+        ride.setEndLocation("Brasov");
+        ride.setDepartureTime(LocalDateTime.now().plusDays(1));
+        ride.setTotalSeats(4);
+        ride.setAvailableSeats(4);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setDriver(driver);
+        rideRepository.save(ride);
+    }
+}
@@ -0,0 +1,164 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.RatingSummary;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.BookingRepository;
+import com.carsharing.backend.repository.RatingRepository;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Many passengers rating one driver at the same time: the running totals of the driver
+ * end exactly where recomputing them from the stored ratings would
+ */
+@SpringBootTest
+class RatingConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int BOOKINGS = 200;
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    @AfterEach
+    void cleanUp() {
+        ratingRepository.deleteAllInBatch();
+        bookingRepository.deleteAllInBatch();
+        rideRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentRatingsKeepCountSumAndDistribution() throws Exception {
+        User driver = user("driver@ratings.test");
+        Ride ride = ride(driver);
+        User passenger = user("passenger@ratings.test");
+
+        // every booking is sent twice (double submit), only one of the two may count
+        List<Booking> attempts = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            Booking booking = completedBooking(passenger, ride);
+            attempts.add(booking);
+            attempts.add(booking);
+        }
+        Collections.shuffle(attempts);
+        Queue<Booking> queue = new ConcurrentLinkedQueue<>(attempts);
+
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    Booking booking;
+                    while ((booking = queue.poll()) != null) {
+                        try {
+                            ratingService.rateDriver(booking.getId(), passenger.getId(), stars(booking), null);
+                        } catch (InvalidBookingException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int[] expected = new int[6];
+        long expectedTotal = 0;
+        for (Booking booking : bookingRepository.findAll()) {
+            expected[stars(booking)]++;
+            expectedTotal += stars(booking);
+        }
+
+        User rated = userRepository.findById(driver.getId()).orElseThrow();
+        RatingSummary summary = rated.getRatingSummary();
+        assertEquals(BOOKINGS, rejected.get());
+        assertEquals(BOOKINGS, ratingRepository.count());
+        assertEquals(BOOKINGS, summary.getRatingCount());
+        assertEquals(expectedTotal, summary.getRatingTotal());
+        assertEquals(expected[1], summary.getOneStar());
+        assertEquals(expected[2], summary.getTwoStars());
+        assertEquals(expected[3], summary.getThreeStars());
+        assertEquals(expected[4], summary.getFourStars());
+        assertEquals(expected[5], summary.getFiveStars());
+        assertEquals((double) expectedTotal / BOOKINGS, rated.getRating(), 1e-9);
+    }
+
+    // 1..5 spread over the bookings, same value for both attempts of a booking
+    private static int stars(Booking booking) {
+        return (int) (booking.getId() % 5) + 1;
+    }
+
+    private Booking completedBooking(User passenger, Ride ride) {
+        Booking booking = new Booking();
+        booking.setPassenger(passenger);
+        booking.setRide(ride);
+        booking.setSeatsBooked(1);
+        booking.setTotalPrice(ride.getPricePerSeat());
+        booking.setStatus(Booking.BookingStatus.COMPLETED);
+        return bookingRepository.save(booking);
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setFullName(email);
+        return userRepository.save(user);
+    }
+
+    private Ride ride(User driver) {
+        Ride ride = new Ride();
+        ride.setStartLocation("Cluj");
+        ride.setEndLocation("Sibiu");
+        ride.setDepartureTime(LocalDateTime.now().minusDays(1));
+        ride.setTotalSeats(4);
+        ride.setAvailableSeats(4);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setDriver(driver);
+        return rideRepository.save(ride);
+    }
+}
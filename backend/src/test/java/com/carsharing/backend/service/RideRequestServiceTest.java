@@ -0,0 +1,91 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.RideRequest;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.BookingRepository;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.RideRequestRepository;
+import com.carsharing.backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Accepting a match that breaks a booking rule fails with that rule (400), the request and the ride unchanged
+ */
+@SpringBootTest
+class RideRequestServiceTest {
+
+    @Autowired
+    private RideRequestService rideRequestService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RideRequestRepository rideRequestRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @AfterEach
+    void cleanUp() {
+        rideRequestRepository.deleteAllInBatch();
+        bookingRepository.deleteAllInBatch();
+        rideRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void acceptingOwnRideFailsWithTheBookingRule() {
+        User driver = new User();
+        driver.setEmail("driver@request.test");
+        driver.setPassword("not-used");
+        driver.setFullName("Driver");
+        driver = userRepository.save(driver);
+
+        Ride ride = new Ride();
+        ride.setStartLocation("Cluj");
+        ride.setEndLocation("Sibiu");
+        ride.setDepartureTime(LocalDateTime.now().plusDays(1));
+        ride.setTotalSeats(3);
+        ride.setAvailableSeats(3);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setDriver(driver);
+        ride = rideRepository.save(ride);
+
+        // the engine never proposes a driver's own ride, a match written by hand
+        RideRequest request = new RideRequest();
+        request.setPassengerId(driver.getId());
+        request.setStartLocation("Cluj");
+        request.setEndLocation("Sibiu");
+        request.setEarliestDeparture(ride.getDepartureTime().minusHours(1));
+        request.setLatestDeparture(ride.getDepartureTime().plusHours(1));
+        request.setSeats(1);
+        request.setStatus(RideRequest.Status.MATCHED);
+        request.setMatchedRideId(ride.getId());
+        request = rideRequestRepository.save(request);
+        Long requestId = request.getId();
+        Long driverId = driver.getId();
+
+        InvalidBookingException e = assertThrows(InvalidBookingException.class,
+                () -> rideRequestService.accept(requestId, driverId));
+
+        assertEquals("You cannot book your own ride", e.getMessage());
+        assertEquals(RideRequest.Status.MATCHED, rideRequestRepository.findById(requestId).orElseThrow().getStatus());
+        assertEquals(3, rideRepository.findById(ride.getId()).orElseThrow().getAvailableSeats());
+        assertEquals(0, bookingRepository.count());
+    }
+}
@@ -0,0 +1,146 @@
+package com.carsharing.backend.service;
+
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.SeatHold;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.BookingRepository;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.SeatHoldRepository;
+import com.carsharing.backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Seat changes of a booking or cancellation overlapping a hold that expires at the same time:
+ * both must reach rides.available_seats, whichever commits first
+ */
+@SpringBootTest
+class SeatConcurrencyTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private SeatHoldRepository seatHoldRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        seatHoldRepository.deleteAllInBatch();
+        bookingRepository.deleteAllInBatch();
+        rideRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void bookingDuringHoldExpiryKeepsBothSeatChanges() throws Exception {
+        User passenger = user("booking-passenger@seats.test");
+        Ride ride = ride(user("booking-driver@seats.test"));
+        expiredHold(user("booking-holder@seats.test"), ride, 2);
+
+        // the booking holds its transaction open while the expiry sweep runs
+        Throwable failure = whileInTransaction(
+                () -> bookingService.createBooking(passenger.getId(), ride.getId(), 1),
+                seatHoldService::expireOrphans);
+
+        assertNull(failure);
+        assertEquals(3, rideRepository.findById(ride.getId()).orElseThrow().getAvailableSeats());
+    }
+
+    @Test
+    void cancellationDuringHoldExpiryKeepsBothSeatChanges() throws Exception {
+        User passenger = user("cancel-passenger@seats.test");
+        Ride ride = ride(user("cancel-driver@seats.test"));
+        Booking booking = bookingService.createBooking(passenger.getId(), ride.getId(), 1);
+        expiredHold(user("cancel-holder@seats.test"), ride, 2);
+
+        Throwable failure = whileInTransaction(
+                () -> bookingService.cancelBooking(booking.getId()),
+                seatHoldService::expireOrphans);
+
+        assertNull(failure);
+        assertEquals(4, rideRepository.findById(ride.getId()).orElseThrow().getAvailableSeats());
+    }
+
+    /**
+     * Runs first in a transaction, starts second on another thread before committing and
+     * commits only after second had time to run (or to block on the ride lock)
+     *
+     * @return what second threw, null if it succeeded
+     */
+    private Throwable whileInTransaction(Runnable first, Runnable second) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread concurrent = new Thread(() -> {
+            try {
+                second.run();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            first.run();
+            concurrent.start();
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        concurrent.join(10_000);
+        assertFalse(concurrent.isAlive(), "concurrent seat change did not finish");
+        return failure.get();
+    }
+
+    private void expiredHold(User passenger, Ride ride, int seats) {
+        SeatHold hold = seatHoldService.createHold(passenger.getId(), ride.getId(), seats, 1);
+        hold.setExpiresAt(LocalDateTime.now().minusMinutes(5));
+        seatHoldRepository.save(hold);
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setFullName(email);
+        return userRepository.save(user);
+    }
+
+    private Ride ride(User driver) {
+        Ride ride = new Ride();
+        ride.setStartLocation("Cluj");
+        ride.setEndLocation("Sibiu");
+        ride.setDepartureTime(LocalDateTime.now().plusDays(1));
+        ride.setTotalSeats(4);
+        ride.setAvailableSeats(4);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setDriver(driver);
+        return rideRepository.save(ride);
+    }
+}
@@ -0,0 +1,150 @@
+package com.carsharing.backend.sharding;
+
+import com.carsharing.backend.BackendApplication;
+import com.carsharing.backend.dto.BatchBookingRequest;
+import com.carsharing.backend.exception.InvalidBookingException;
+import com.carsharing.backend.model.Booking;
+import com.carsharing.backend.model.Ride;
+import com.carsharing.backend.model.User;
+import com.carsharing.backend.repository.RideRepository;
+import com.carsharing.backend.repository.UserRepository;
+import com.carsharing.backend.service.BookingHistory;
+import com.carsharing.backend.service.BookingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Three shards in one JVM: rides land on the shard of their region, bookings next to their ride,
+ * reads without a key gather all shards
+ */
+class ShardingTest {
+
+    private static ConfigurableApplicationContext context;
+    private static ShardRouter router;
+    private static RideRepository rideRepository;
+    private static BookingService bookingService;
+
+    private static User driver;
+    private static User passenger;
+
+    @BeforeAll
+    static void start() {
+        // command line arguments, they override application.properties
+        context = new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:sharding-home;DB_CLOSE_DELAY=-1",
+                "--spring.h2.console.enabled=false",
+                "--spring.jpa.open-in-view=false",
+                "--carsharing.sharding.enabled=true",
+                "--carsharing.sharding.shard-urls=jdbc:h2:mem:sharding-1;DB_CLOSE_DELAY=-1,"
+                        + "jdbc:h2:mem:sharding-2;DB_CLOSE_DELAY=-1",
+                "--carsharing.sharding.regions.bucuresti=0",
+                "--carsharing.sharding.regions.cluj=1",
+                "--carsharing.sharding.regions.iasi=2",
+                "--carsharing.lifecycle.enabled=false",
+                "--carsharing.archive.enabled=false",
+                "--carsharing.outbox.enabled=false",
+                "--carsharing.dashboard.reconcile.enabled=false");
+        router = context.getBean(ShardRouter.class);
+        rideRepository = context.getBean(RideRepository.class);
+        bookingService = context.getBean(BookingService.class);
+
+        driver = user("driver@sharding.test");
+        passenger = user("passenger@sharding.test");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void ridesAndBookingsLiveOnTheShardOfTheirRegion() {
+        Ride bucuresti = rideRepository.save(ride("Bucuresti"));
+        Ride cluj = rideRepository.save(ride("Cluj"));
+        Ride iasi = rideRepository.save(ride("Iasi"));
+
+        assertEquals(0, router.shardOfId(bucuresti.getId()));
+        assertEquals(1, router.shardOfId(cluj.getId()));
+        assertEquals(2, router.shardOfId(iasi.getId()));
+        assertTrue(router.callOn(2, () -> rideRepository.existsById(iasi.getId())));
+        assertEquals(List.of(), router.callOn(1, () -> rideRepository.findAllById(List.of(iasi.getId()))));
+
+        Booking booking = bookingService.createBooking(passenger.getId(), cluj.getId(), 2);
+        assertEquals(1, router.shardOfId(booking.getId()));
+        assertEquals(2, rideRepository.findById(cluj.getId()).orElseThrow().getAvailableSeats());
+        assertEquals(booking.getId(), bookingService.getBookingById(booking.getId()).getId());
+        assertTrue(rideRepository.findByStartLocationAndEndLocation("Cluj", "Sibiu").stream()
+                .anyMatch(ride -> ride.getId().equals(cluj.getId())));
+    }
+
+    @Test
+    void readsWithoutKeyGatherAllShards() {
+        User gatherDriver = user("gather-driver@sharding.test");
+        User gatherPassenger = user("gather-passenger@sharding.test");
+        for (String region : List.of("Bucuresti", "Cluj", "Iasi")) {
+            Ride ride = ride(region);
+            ride.setDriver(gatherDriver);
+            ride = rideRepository.save(ride);
+            bookingService.createBooking(gatherPassenger.getId(), ride.getId(), 1);
+        }
+
+        assertEquals(3, rideRepository.findByDriverId(gatherDriver.getId()).size());
+        assertEquals(3, bookingService.getBookingsByPassenger(gatherPassenger.getId()).size());
+
+        BookingHistory firstPage = bookingService.getBookingHistory(gatherPassenger.getId(), 0, 2);
+        BookingHistory secondPage = bookingService.getBookingHistory(gatherPassenger.getId(), 1, 2);
+        assertEquals(3, firstPage.totalElements());
+        assertEquals(2, firstPage.live().size());
+        assertEquals(1, secondPage.live().size());
+    }
+
+    @Test
+    void batchOverSeveralRegionsIsRejected() {
+        Ride cluj = rideRepository.save(ride("Cluj"));
+        Ride iasi = rideRepository.save(ride("Iasi"));
+
+        assertThrows(InvalidBookingException.class, () -> bookingService.createBookings(passenger.getId(),
+                List.of(item(cluj.getId()), item(iasi.getId()))));
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("not-used");
+        user.setFullName(email);
+        User saved = context.getBean(UserRepository.class).save(user);
+        context.getBean(UserReplicator.class).copy(saved.getId());
+        return saved;
+    }
+
+    private static Ride ride(String startLocation) {
+        Ride ride = new Ride();
+        ride.setStartLocation(startLocation);
+        ride.setEndLocation("Sibiu");
+        ride.setDepartureTime(LocalDateTime.now().plusDays(1));
+        ride.setTotalSeats(4);
+        ride.setAvailableSeats(4);
+        ride.setPricePerSeat(BigDecimal.TEN);
+        ride.setDriver(driver);
+        return ride;
+    }
+
+    private static BatchBookingRequest.Item item(Long rideId) {
+        BatchBookingRequest.Item item = new BatchBookingRequest.Item();
+        item.setRideId(rideId);
+        item.setSeatsBooked(1);
+        return item;
+    }
+}